@@ -30,4 +30,25 @@ public @interface EncryptField {
      * 自定义加密策略类
      */
     Class<?> strategy() default Object.class;
+    
+    /**
+     * 盲索引影子列名，如 phone_bidx
+     * 设置后写入时将明文的HMAC写入同名属性（列名或其驼峰形式，如 phoneBidx），
+     * 查询条件中该列的等值比较改写为影子列的比较，可以使用影子列上的索引
+     */
+    String blindIndex() default "";
+    
+    /**
+     * 是否建立模糊查询的分词索引
+     * 开启后写入时将明文的n-gram分词的HMAC写入分词表，查询条件中该列的 LIKE 改写为对分词表的子查询
+     */
+    boolean likeIndex() default false;
+    
+    /**
+     * 保序索引影子列名，如 age_ord，影子列类型为 BIGINT
+     * 设置后写入时将整数明文的保序编码写入同名属性（列名或其驼峰形式，如 ageOrd，类型为Long），
+     * 查询条件中该列的范围比较（&gt;、&gt;=、&lt;、&lt;=、BETWEEN）和 ORDER BY 改写为影子列，可以使用影子列上的索引。
+     * 保序编码会泄露明文的大小顺序和大致分布，只应对确实需要范围查询的字段开启
+     */
+    String orderIndex() default "";
 }
@@ -0,0 +1,236 @@
+package com.chu7.securtkit.encrypt.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * 加密实体索引
+ * 读取 securt-kit-processor 编译期生成的 {@value #LOCATION}，内容为 实体 -> 表名 -> 加密列
+ * <p>
+ * 文件格式（encryptor 仅在生成了加密器时存在，blindIndexes 仅在有盲索引时存在，格式为 列:影子列；
+ * likeIndexes 仅在有分词索引时存在；orderIndexes 仅在有保序索引时存在，格式同 blindIndexes）：
+ * <pre>
+ * com.example.UserEntity.table=user
+ * com.example.UserEntity.columns=phone,email,id_card
+ * com.example.UserEntity.blindIndexes=phone:phone_bidx
+ * com.example.UserEntity.likeIndexes=phone,email
+ * com.example.UserEntity.orderIndexes=age:age_ord
+ * com.example.UserEntity.encryptor=com.example.UserEntity_Encryptor
+ * </pre>
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+@Slf4j
+public class EncryptEntityIndex {
+    
+    /**
+     * 索引文件位置
+     */
+    public static final String LOCATION = "META-INF/securt-kit/encrypt-entities.properties";
+    
+    private static final String TABLE_SUFFIX = ".table";
+    
+    private static final String COLUMNS_SUFFIX = ".columns";
+    
+    private static final String BLIND_INDEXES_SUFFIX = ".blindIndexes";
+    
+    private static final String LIKE_INDEXES_SUFFIX = ".likeIndexes";
+    
+    private static final String ORDER_INDEXES_SUFFIX = ".orderIndexes";
+    
+    private static final String ENCRYPTOR_SUFFIX = ".encryptor";
+    
+    /**
+     * 实体类名 -> 索引条目
+     */
+    private final Map<String, Entry> entries;
+    
+    private EncryptEntityIndex(Map<String, Entry> entries) {
+        this.entries = Collections.unmodifiableMap(entries);
+    }
+    
+    /**
+     * 从类路径加载所有索引文件
+     *
+     * @param classLoader 类加载器，为空时使用当前线程上下文类加载器
+     * @return 索引，没有索引文件时为空索引
+     */
+    public static EncryptEntityIndex load(ClassLoader classLoader) {
+        ClassLoader loader = classLoader != null ? classLoader : Thread.currentThread().getContextClassLoader();
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        if (loader == null) {
+            return new EncryptEntityIndex(entries);
+        }
+        
+        try {
+            Enumeration<URL> resources = loader.getResources(LOCATION);
+            while (resources.hasMoreElements()) {
+                URL url = resources.nextElement();
+                Properties properties = new Properties();
+                try (InputStream in = url.openStream(); Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+                    properties.load(reader);
+                }
+                parse(properties, entries);
+                log.debug("加载加密实体索引: {}", url);
+            }
+        } catch (IOException e) {
+            log.warn("加载加密实体索引失败: {}", e.getMessage());
+        }
+        return new EncryptEntityIndex(entries);
+    }
+    
+    private static void parse(Properties properties, Map<String, Entry> entries) {
+        for (String key : properties.stringPropertyNames()) {
+            if (!key.endsWith(TABLE_SUFFIX)) {
+                continue;
+            }
+            String className = key.substring(0, key.length() - TABLE_SUFFIX.length());
+            String table = properties.getProperty(key).trim();
+            String columns = properties.getProperty(className + COLUMNS_SUFFIX, "");
+            Set<String> columnSet = split(columns);
+            Map<String, String> blindIndexes = pairs(properties.getProperty(className + BLIND_INDEXES_SUFFIX, ""));
+            Set<String> likeIndexes = split(properties.getProperty(className + LIKE_INDEXES_SUFFIX, ""));
+            Map<String, String> orderIndexes = pairs(properties.getProperty(className + ORDER_INDEXES_SUFFIX, ""));
+            String encryptor = properties.getProperty(className + ENCRYPTOR_SUFFIX);
+            // 多个jar包含同一实体时以先加载的为准
+            entries.putIfAbsent(className, new Entry(className, table, Collections.unmodifiableSet(columnSet),
+                    Collections.unmodifiableMap(blindIndexes), Collections.unmodifiableSet(likeIndexes),
+                    Collections.unmodifiableMap(orderIndexes), encryptor));
+        }
+    }
+    
+    /**
+     * 解析 列:影子列 列表
+     */
+    private static Map<String, String> pairs(String value) {
+        Map<String, String> result = new LinkedHashMap<>();
+        for (String pair : value.split(",")) {
+            int colon = pair.indexOf(':');
+            if (colon > 0 && colon < pair.length() - 1) {
+                result.put(pair.substring(0, colon).trim(), pair.substring(colon + 1).trim());
+            }
+        }
+        return result;
+    }
+    
+    private static Set<String> split(String value) {
+        Set<String> result = new LinkedHashSet<>();
+        for (String item : value.split(",")) {
+            if (!item.trim().isEmpty()) {
+                result.add(item.trim());
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * 获取实体的索引条目
+     *
+     * @param className 实体类名
+     * @return 索引条目，不存在时返回null
+     */
+    public Entry getEntry(String className) {
+        return entries.get(className);
+    }
+    
+    /**
+     * 获取所有索引条目
+     */
+    public Map<String, Entry> getEntries() {
+        return entries;
+    }
+    
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+    
+    /**
+     * 索引条目
+     */
+    public static final class Entry {
+        
+        private final String className;
+        
+        private final String tableName;
+        
+        private final Set<String> columns;
+        
+        private final Map<String, String> blindIndexes;
+        
+        private final Set<String> likeIndexes;
+        
+        private final Map<String, String> orderIndexes;
+        
+        private final String encryptorClassName;
+        
+        private Entry(String className, String tableName, Set<String> columns, Map<String, String> blindIndexes,
+                      Set<String> likeIndexes, Map<String, String> orderIndexes, String encryptorClassName) {
+            this.className = className;
+            this.tableName = tableName;
+            this.columns = columns;
+            this.blindIndexes = blindIndexes;
+            this.likeIndexes = likeIndexes;
+            this.orderIndexes = orderIndexes;
+            this.encryptorClassName = encryptorClassName;
+        }
+        
+        public String getClassName() {
+            return className;
+        }
+        
+        public String getTableName() {
+            return tableName;
+        }
+        
+        public Set<String> getColumns() {
+            return columns;
+        }
+        
+        /**
+         * 加密列 -> 盲索引影子列
+         */
+        public Map<String, String> getBlindIndexes() {
+            return blindIndexes;
+        }
+        
+        /**
+         * 建立了分词索引的加密列
+         */
+        public Set<String> getLikeIndexes() {
+            return likeIndexes;
+        }
+        
+        /**
+         * 加密列 -> 保序索引影子列
+         */
+        public Map<String, String> getOrderIndexes() {
+            return orderIndexes;
+        }
+        
+        /**
+         * 生成的加密器类名，未生成时为null
+         */
+        public String getEncryptorClassName() {
+            return encryptorClassName;
+        }
+        
+        @Override
+        public String toString() {
+            return className + " -> " + tableName + " " + columns;
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package com.chu7.securtkit.encrypt.cache;
+
+import com.chu7.securtkit.encrypt.annotation.EncryptField;
+import com.chu7.securtkit.encrypt.core.EncryptFieldMetadata;
+import com.chu7.securtkit.encrypt.core.EntityEncryptMetadata;
+import com.chu7.securtkit.encrypt.core.EntityEncryptor;
+import com.chu7.securtkit.encrypt.core.FieldAccessor;
+import com.chu7.securtkit.encrypt.core.FieldAccessorFactory;
+import com.chu7.securtkit.encrypt.strategy.EncryptStrategy;
+import com.chu7.securtkit.encrypt.strategy.EncryptStrategyRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 实体加密元数据缓存
+ * 每个类只构建一次元数据：优先使用编译期生成的 {@link EntityEncryptor}，
+ * 不存在时做一次反射扫描，过滤出启用加密的字段（含父类字段）、设置可访问并解析加密策略。
+ * 配置了盲索引、保序索引的字段同时解析影子属性：与影子列同名，或为影子列名的驼峰形式；
+ * 生成的加密器已在编译期解析影子属性，直接使用其访问方法。
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+@Slf4j
+public class EncryptMetadataCache {
+    
+    private final EncryptStrategyRegistry encryptStrategyRegistry;
+    
+    /**
+     * 缓存：类 -> 加密元数据
+     */
+    private final Map<Class<?>, EntityEncryptMetadata> metadataCache = new ConcurrentHashMap<>();
+    
+    public EncryptMetadataCache(EncryptStrategyRegistry encryptStrategyRegistry) {
+        this.encryptStrategyRegistry = encryptStrategyRegistry;
+    }
+    
+    /**
+     * 获取类的加密元数据
+     *
+     * @param clazz 实体类
+     * @return 加密元数据，没有加密字段时返回空元数据
+     */
+    public EntityEncryptMetadata getMetadata(Class<?> clazz) {
+        EntityEncryptMetadata metadata = metadataCache.get(clazz);
+        if (metadata == null) {
+            metadata = metadataCache.computeIfAbsent(clazz, this::buildMetadata);
+        }
+        return metadata;
+    }
+    
+    /**
+     * 清除缓存
+     */
+    public void clearCache() {
+        metadataCache.clear();
+        log.info("清除实体加密元数据缓存");
+    }
+    
+    /**
+     * 缓存的类数量
+     */
+    public int size() {
+        return metadataCache.size();
+    }
+    
+    private EntityEncryptMetadata buildMetadata(Class<?> clazz) {
+        EntityEncryptor<Object> encryptor = findEncryptor(clazz);
+        if (encryptor != null) {
+            return buildGeneratedMetadata(clazz, encryptor);
+        }
+        
+        // 父类字段在前
+        Deque<Class<?>> hierarchy = new ArrayDeque<>();
+        for (Class<?> current = clazz; current != null && current != Object.class; current = current.getSuperclass()) {
+            hierarchy.push(current);
+        }
+        
+        List<EncryptFieldMetadata> fields = new ArrayList<>();
+        for (Class<?> current : hierarchy) {
+            for (Field field : current.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                EncryptField encryptField = field.getAnnotation(EncryptField.class);
+                if (encryptField == null || !encryptField.enabled()) {
+                    continue;
+                }
+                try {
+                    field.setAccessible(true);
+                } catch (RuntimeException e) {
+                    log.warn("加密字段无法访问: {}.{}", current.getName(), field.getName(), e);
+                    continue;
+                }
+                fields.add(new EncryptFieldMetadata(field, encryptField, encryptStrategyRegistry.resolve(field),
+                        blindIndexAccessor(clazz, encryptField), orderIndexAccessor(clazz, encryptField)));
+            }
+        }
+        
+        log.debug("构建实体加密元数据: {} -> {}个加密字段", clazz.getName(), fields.size());
+        return new EntityEncryptMetadata(clazz, fields);
+    }
+    
+    private EntityEncryptMetadata buildGeneratedMetadata(Class<?> clazz, EntityEncryptor<Object> encryptor) {
+        String[] names = encryptor.getFieldNames();
+        String[] algorithms = encryptor.getAlgorithms();
+        Class<?>[] strategyTypes = encryptor.getStrategyTypes();
+        String[] blindIndexColumns = encryptor.getBlindIndexColumns();
+        String[] orderIndexColumns = encryptor.getOrderIndexColumns();
+        boolean generatedShadows = blindIndexColumns != null && orderIndexColumns != null;
+        
+        List<EncryptFieldMetadata> fields = new ArrayList<>(names.length);
+        for (int i = 0; i < names.length; i++) {
+            EncryptStrategy strategy = encryptStrategyRegistry.resolve(algorithms[i], strategyTypes[i]);
+            String blindIndex;
+            FieldAccessor blindIndexAccessor;
+            FieldAccessor orderIndexAccessor;
+            if (generatedShadows) {
+                blindIndex = blindIndexColumns[i].isEmpty() ? null : blindIndexColumns[i];
+                blindIndexAccessor = blindIndex == null ? null : new GeneratedShadowAccessor(encryptor, i, true);
+                orderIndexAccessor = orderIndexColumns[i].isEmpty() ? null : new GeneratedShadowAccessor(encryptor, i, false);
+            } else {
+                // 旧版本生成的加密器不包含影子列配置，按字段名读取一次注解
+                Field field = findField(clazz, names[i]);
+                EncryptField encryptField = field == null ? null : field.getAnnotation(EncryptField.class);
+                blindIndexAccessor = encryptField == null ? null : blindIndexAccessor(clazz, encryptField);
+                orderIndexAccessor = encryptField == null ? null : orderIndexAccessor(clazz, encryptField);
+                blindIndex = blindIndexAccessor == null ? null : encryptField.blindIndex().trim();
+            }
+            fields.add(new EncryptFieldMetadata(names[i], algorithms[i], strategy, new GeneratedFieldAccessor(encryptor, i),
+                    blindIndex, blindIndexAccessor, orderIndexAccessor));
+        }
+        
+        log.debug("使用生成的加密器构建实体加密元数据: {} -> {}个加密字段", clazz.getName(), fields.size());
+        return new EntityEncryptMetadata(clazz, fields);
+    }
+    
+    /**
+     * 解析盲索引影子属性的访问器
+     *
+     * @return 访问器，未配置盲索引或找不到可写的String影子属性时返回null
+     */
+    private FieldAccessor blindIndexAccessor(Class<?> clazz, EncryptField encryptField) {
+        return shadowAccessor(clazz, encryptField.blindIndex().trim(), String.class, "盲索引");
+    }
+    
+    /**
+     * 解析保序索引影子属性的访问器
+     *
+     * @return 访问器，未配置保序索引或找不到可写的Long影子属性时返回null
+     */
+    private FieldAccessor orderIndexAccessor(Class<?> clazz, EncryptField encryptField) {
+        return shadowAccessor(clazz, encryptField.orderIndex().trim(), Long.class, "保序索引");
+    }
+    
+    /**
+     * 按影子列名或其驼峰形式查找指定类型的影子属性
+     */
+    private FieldAccessor shadowAccessor(Class<?> clazz, String column, Class<?> type, String kind) {
+        if (column.isEmpty()) {
+            return null;
+        }
+        Field shadow = findField(clazz, column);
+        if (shadow == null) {
+            shadow = findField(clazz, camelCase(column));
+        }
+        if (shadow == null || shadow.getType() != type || Modifier.isStatic(shadow.getModifiers())) {
+            log.warn("未找到{}影子属性: {}.{}", kind, clazz.getName(), column);
+            return null;
+        }
+        try {
+            shadow.setAccessible(true);
+        } catch (RuntimeException e) {
+            log.warn("{}影子属性无法访问: {}.{}", kind, clazz.getName(), shadow.getName(), e);
+            return null;
+        }
+        return FieldAccessorFactory.create(shadow);
+    }
+    
+    private static Field findField(Class<?> clazz, String name) {
+        for (Class<?> current = clazz; current != null && current != Object.class; current = current.getSuperclass()) {
+            try {
+                return current.getDeclaredField(name);
+            } catch (NoSuchFieldException e) {
+                // 继续查找父类
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * 下划线列名转驼峰属性名，如 phone_bidx -> phoneBidx
+     */
+    private static String camelCase(String column) {
+        StringBuilder builder = new StringBuilder(column.length());
+        boolean upper = false;
+        for (int i = 0; i < column.length(); i++) {
+            char c = column.charAt(i);
+            if (c == '_') {
+                upper = builder.length() > 0;
+            } else {
+                builder.append(upper ? Character.toUpperCase(c) : Character.toLowerCase(c));
+                upper = false;
+            }
+        }
+        return builder.toString();
+    }
+    
+    /**
+     * 查找编译期生成的加密器：与实体同包，嵌套类以下划线连接，如 Outer$Inner -> Outer_Inner_Encryptor
+     *
+     * @param clazz 实体类
+     * @return 加密器，不存在或与实体类型不匹配时返回null
+     */
+    @SuppressWarnings("unchecked")
+    static EntityEncryptor<Object> findEncryptor(Class<?> clazz) {
+        if (clazz.isArray() || clazz.isPrimitive() || clazz.getName().startsWith("java.")) {
+            return null;
+        }
+        String packageName = clazz.getPackage() == null ? "" : clazz.getPackage().getName();
+        String simpleName = packageName.isEmpty() ? clazz.getName() : clazz.getName().substring(packageName.length() + 1);
+        String encryptorName = (packageName.isEmpty() ? "" : packageName + ".") + simpleName.replace('$', '_') + EntityEncryptor.SUFFIX;
+        
+        try {
+            Class<?> encryptorClass = Class.forName(encryptorName, true, clazz.getClassLoader());
+            if (!EntityEncryptor.class.isAssignableFrom(encryptorClass)) {
+                return null;
+            }
+            EntityEncryptor<Object> encryptor = (EntityEncryptor<Object>) encryptorClass.getDeclaredConstructor().newInstance();
+            // 子类没有生成加密器时不能使用父类的，否则会漏掉子类字段
+            return encryptor.getEntityType() == clazz ? encryptor : null;
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (Exception | LinkageError e) {
+            log.warn("加载生成的加密器失败，使用反射: {}", encryptorName, e);
+            return null;
+        }
+    }
+    
+    /**
+     * 基于生成加密器的字段访问器
+     */
+    private static final class GeneratedFieldAccessor implements FieldAccessor {
+        
+        private final EntityEncryptor<Object> encryptor;
+        
+        private final int index;
+        
+        private GeneratedFieldAccessor(EntityEncryptor<Object> encryptor, int index) {
+            this.encryptor = encryptor;
+            this.index = index;
+        }
+        
+        @Override
+        public Object get(Object target) {
+            return encryptor.getValue(target, index);
+        }
+        
+        @Override
+        public void set(Object target, Object value) {
+            encryptor.setValue(target, index, value);
+        }
+    }
+    
+    /**
+     * 基于生成加密器的盲索引、保序索引影子属性访问器
+     */
+    private static final class GeneratedShadowAccessor implements FieldAccessor {
+        
+        private final EntityEncryptor<Object> encryptor;
+        
+        private final int index;
+        
+        /**
+         * true 为盲索引，false 为保序索引
+         */
+        private final boolean blindIndex;
+        
+        private GeneratedShadowAccessor(EntityEncryptor<Object> encryptor, int index, boolean blindIndex) {
+            this.encryptor = encryptor;
+            this.index = index;
+            this.blindIndex = blindIndex;
+        }
+        
+        @Override
+        public Object get(Object target) {
+            return blindIndex ? encryptor.getBlindIndex(target, index) : encryptor.getOrderIndex(target, index);
+        }
+        
+        @Override
+        public void set(Object target, Object value) {
+            if (blindIndex) {
+                encryptor.setBlindIndex(target, index, (String) value);
+            } else {
+                encryptor.setOrderIndex(target, index, (Long) value);
+            }
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.chu7.securtkit.encrypt.cache;
+
+import com.chu7.securtkit.encrypt.visitor.DbEncryptStatementVisitor;
+import com.chu7.securtkit.encrypt.visitor.RewriteResult;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.scripting.defaults.RawSqlSource;
+import org.apache.ibatis.session.Configuration;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * MappedStatement改写计划缓存
+ * 启动时遍历 {@link Configuration#getMappedStatements()}，按语句ID预先确定改写方式：
+ * <ul>
+ *     <li>{@link Kind#NONE}：静态SQL且不需要改写，执行时跳过所有SQL检查</li>
+ *     <li>{@link Kind#STATIC}：静态SQL，直接使用预先改写好的SQL</li>
+ *     <li>{@link Kind#DYNAMIC}：动态SQL，执行时按SQL文本改写</li>
+ * </ul>
+ * 表字段配置变化时对已登记的Configuration整体重新计算。
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+@Slf4j
+public class RewritePlanCache {
+
+    private final DbEncryptStatementVisitor dbEncryptStatementVisitor;
+
+    private final TableFieldCache tableFieldCache;
+
+    /**
+     * 已登记的Configuration
+     */
+    private final List<Configuration> configurations = new ArrayList<>();
+
+    /**
+     * 语句ID -> 改写计划，整体替换
+     */
+    private volatile Map<String, Plan> plans = new HashMap<>();
+
+    public RewritePlanCache(DbEncryptStatementVisitor dbEncryptStatementVisitor, TableFieldCache tableFieldCache) {
+        this.dbEncryptStatementVisitor = dbEncryptStatementVisitor;
+        this.tableFieldCache = tableFieldCache;
+    }
+
+    /**
+     * 登记Configuration并计算其中所有语句的改写计划
+     *
+     * @param configuration MyBatis配置
+     */
+    public synchronized void register(Configuration configuration) {
+        if (configuration == null || configurations.contains(configuration)) {
+            return;
+        }
+        configurations.add(configuration);
+        Map<String, Plan> newPlans = new HashMap<>(plans);
+        plan(configuration, newPlans);
+        plans = newPlans;
+    }
+
+    /**
+     * 移除Configuration及其语句的改写计划
+     *
+     * @param configuration MyBatis配置
+     */
+    public synchronized void unregister(Configuration configuration) {
+        if (configurations.remove(configuration)) {
+            rebuild();
+        }
+    }
+
+    /**
+     * 重新计算所有已登记Configuration的改写计划，表字段配置变化时调用
+     */
+    public synchronized void rebuild() {
+        Map<String, Plan> newPlans = new HashMap<>();
+        for (Configuration configuration : configurations) {
+            plan(configuration, newPlans);
+        }
+        plans = newPlans;
+    }
+
+    /**
+     * 获取语句的改写计划
+     *
+     * @param statementId 语句ID
+     * @return 改写计划，未登记的语句返回null
+     */
+    public Plan getPlan(String statementId) {
+        return statementId == null ? null : plans.get(statementId);
+    }
+
+    /**
+     * 计划数量
+     */
+    public int size() {
+        return plans.size();
+    }
+
+    private void plan(Configuration configuration, Map<String, Plan> target) {
+        Map<Kind, Integer> counts = new EnumMap<>(Kind.class);
+        Set<MappedStatement> seen = new HashSet<>();
+        // 同一语句会以全名和短名各登记一次，且短名冲突时值不是MappedStatement
+        Collection<?> statements = configuration.getMappedStatements();
+        for (Object object : statements) {
+            if (!(object instanceof MappedStatement) || !seen.add((MappedStatement) object)) {
+                continue;
+            }
+            MappedStatement mappedStatement = (MappedStatement) object;
+            Plan plan = plan(mappedStatement);
+            target.put(mappedStatement.getId(), plan);
+            counts.merge(plan.getKind(), 1, Integer::sum);
+        }
+        log.info("MappedStatement改写计划: {}", counts);
+    }
+
+    private Plan plan(MappedStatement mappedStatement) {
+        SqlSource sqlSource = mappedStatement.getSqlSource();
+        if (!(sqlSource instanceof RawSqlSource) && !(sqlSource instanceof StaticSqlSource)) {
+            return Plan.DYNAMIC;
+        }
+
+        String sql;
+        try {
+            sql = sqlSource.getBoundSql(null).getSql();
+        } catch (Exception e) {
+            log.debug("获取静态SQL失败，执行时改写: {}", mappedStatement.getId(), e);
+            return Plan.DYNAMIC;
+        }
+
+        if (!tableFieldCache.containsEncryptTable(sql)) {
+            return new Plan(Kind.NONE, sql, null);
+        }
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(sql);
+        return result.isChanged()
+                ? new Plan(Kind.STATIC, sql, result)
+                : new Plan(Kind.NONE, sql, null);
+    }
+
+    /**
+     * 改写方式
+     */
+    public enum Kind {
+
+        /**
+         * 不涉及加密列
+         */
+        NONE,
+
+        /**
+         * 静态SQL，启动时已改写
+         */
+        STATIC,
+
+        /**
+         * 动态SQL，执行时改写
+         */
+        DYNAMIC
+    }
+
+    /**
+     * 改写计划，不可变
+     */
+    public static final class Plan {
+
+        private static final Plan DYNAMIC = new Plan(Kind.DYNAMIC, null, null);
+
+        private final Kind kind;
+
+        /**
+         * 计算计划时的原始SQL，动态SQL为null
+         */
+        private final String originalSql;
+
+        /**
+         * 预先改写的结果，仅 {@link Kind#STATIC} 有值
+         */
+        private final RewriteResult result;
+
+        private Plan(Kind kind, String originalSql, RewriteResult result) {
+            this.kind = kind;
+            this.originalSql = originalSql;
+            this.result = result;
+        }
+
+        /**
+         * 计划是否适用于本次执行的SQL
+         * 其他插件（如分页）可能已经替换了SQL，此时需要回到执行时改写
+         *
+         * @param sql 本次执行的SQL
+         */
+        public boolean appliesTo(String sql) {
+            return originalSql != null && (originalSql == sql || originalSql.equals(sql));
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public String getRewrittenSql() {
+            return result == null ? null : result.getSql();
+        }
+
+        /**
+         * 预先改写的结果，包含执行时需要调整的参数位置；仅 {@link Kind#STATIC} 有值
+         */
+        public RewriteResult getResult() {
+            return result;
+        }
+    }
+}
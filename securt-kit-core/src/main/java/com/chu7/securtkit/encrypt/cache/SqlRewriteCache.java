@@ -0,0 +1,236 @@
+package com.chu7.securtkit.encrypt.cache;
+
+import com.chu7.securtkit.encrypt.visitor.RewriteResult;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SQL改写缓存
+ * 缓存 原始SQL -> 改写后SQL，不需要改写的SQL同样缓存（负缓存），命中后每条语句只需一次哈希查找
+ * <p>
+ * 容量有上限，超出后按最近访问时间淘汰固定一批（容量的10%）条目（近似LRU），
+ * 淘汰时遍历一次选出最旧的一批，不复制、不排序整个缓存，且不阻塞其他写入线程；
+ * 表字段配置变化时整体失效，失效前开始计算的结果不会被写入。
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+@Slf4j
+public class SqlRewriteCache {
+    
+    /**
+     * 默认容量
+     */
+    public static final int DEFAULT_MAX_SIZE = 1000;
+    
+    private final int maxSize;
+    
+    /**
+     * 每次淘汰的条目数
+     */
+    private final int evictBatch;
+    
+    private final boolean enabled;
+    
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    
+    /**
+     * 访问时钟，只在写入时递增，读取时只做一次volatile读
+     */
+    private final AtomicLong clock = new AtomicLong();
+    
+    /**
+     * 缓存版本，每次失效递增
+     */
+    private final AtomicLong version = new AtomicLong();
+    
+    /**
+     * 是否有线程正在淘汰
+     */
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    
+    public SqlRewriteCache() {
+        this(DEFAULT_MAX_SIZE, true);
+    }
+    
+    public SqlRewriteCache(int maxSize, boolean enabled) {
+        this.maxSize = Math.max(1, maxSize);
+        this.evictBatch = Math.max(1, this.maxSize / 10);
+        this.enabled = enabled;
+    }
+    
+    /**
+     * 查询缓存
+     *
+     * @param sql 原始SQL
+     * @return 缓存条目，未命中或缓存未启用时返回null
+     */
+    public Entry get(String sql) {
+        if (!enabled || sql == null) {
+            return null;
+        }
+        Entry entry = entries.get(sql);
+        if (entry != null) {
+            entry.lastAccess = clock.get();
+        }
+        return entry;
+    }
+    
+    /**
+     * 当前缓存版本，计算改写结果前获取，写入时传回
+     */
+    public long version() {
+        return version.get();
+    }
+    
+    /**
+     * 写入缓存
+     *
+     * @param sql 原始SQL
+     * @param rewrittenSql 改写后的SQL，不需要改写时为null
+     * @param version 开始计算时的缓存版本，与当前版本不一致时丢弃
+     */
+    public void put(String sql, String rewrittenSql, long version) {
+        putResult(sql, rewrittenSql == null ? null : RewriteResult.changed(rewrittenSql, Collections.emptySet()), version);
+    }
+    
+    /**
+     * 写入缓存
+     *
+     * @param sql 原始SQL
+     * @param result 改写结果，不需要改写时为null
+     * @param version 开始计算时的缓存版本，与当前版本不一致时丢弃
+     */
+    public void putResult(String sql, RewriteResult result, long version) {
+        if (!enabled || sql == null || version != this.version.get()) {
+            return;
+        }
+        if (entries.size() >= maxSize && !entries.containsKey(sql)) {
+            evict();
+        }
+        Entry entry = new Entry(result, clock.incrementAndGet());
+        entries.put(sql, entry);
+        // 写入期间发生失效时撤销，避免旧配置下的结果残留
+        if (version != this.version.get()) {
+            entries.remove(sql, entry);
+        }
+    }
+    
+    /**
+     * 使缓存失效
+     */
+    public void invalidate() {
+        version.incrementAndGet();
+        entries.clear();
+        log.debug("SQL改写缓存已失效");
+    }
+    
+    /**
+     * 缓存条目数量
+     */
+    public int size() {
+        return entries.size();
+    }
+    
+    public int getMaxSize() {
+        return maxSize;
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * 淘汰最久未访问的一批条目
+     * 遍历一次，用容量为一批的最大堆保留访问时间最早的条目；
+     * 已有线程在淘汰时直接返回，缓存可能短暂略超上限
+     */
+    private void evict() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            if (entries.size() < maxSize) {
+                return;
+            }
+            // 堆顶为候选中访问时间最晚的条目
+            PriorityQueue<Candidate> oldest = new PriorityQueue<>(evictBatch + 1,
+                    (a, b) -> Long.compare(b.lastAccess, a.lastAccess));
+            for (Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+                long lastAccess = mapEntry.getValue().lastAccess;
+                if (oldest.size() < evictBatch) {
+                    oldest.add(new Candidate(mapEntry.getKey(), mapEntry.getValue(), lastAccess));
+                } else if (lastAccess < oldest.peek().lastAccess) {
+                    oldest.poll();
+                    oldest.add(new Candidate(mapEntry.getKey(), mapEntry.getValue(), lastAccess));
+                }
+            }
+            for (Candidate candidate : oldest) {
+                entries.remove(candidate.sql, candidate.entry);
+            }
+            log.debug("SQL改写缓存达到上限{}，淘汰{}条", maxSize, oldest.size());
+        } finally {
+            evicting.set(false);
+        }
+    }
+    
+    /**
+     * 淘汰候选，访问时间取遍历时的快照，避免堆内比较结果随并发访问变化
+     */
+    private static final class Candidate {
+        
+        private final String sql;
+        
+        private final Entry entry;
+        
+        private final long lastAccess;
+        
+        private Candidate(String sql, Entry entry, long lastAccess) {
+            this.sql = sql;
+            this.entry = entry;
+            this.lastAccess = lastAccess;
+        }
+    }
+    
+    /**
+     * 缓存条目
+     */
+    public static final class Entry {
+        
+        /**
+         * 改写结果，不需要改写时为null
+         */
+        private final RewriteResult result;
+        
+        private volatile long lastAccess;
+        
+        private Entry(RewriteResult result, long lastAccess) {
+            this.result = result;
+            this.lastAccess = lastAccess;
+        }
+        
+        public String getRewrittenSql() {
+            return result == null ? null : result.getSql();
+        }
+        
+        /**
+         * 改写结果，包含执行时需要调整的参数位置；不需要改写时为null
+         */
+        public RewriteResult getResult() {
+            return result;
+        }
+        
+        /**
+         * 是否需要改写
+         */
+        public boolean isRewritten() {
+            return result != null;
+        }
+    }
+}
@@ -6,6 +6,9 @@ import lombok.extern.slf4j.Slf4j;
 import java.lang.reflect.Field;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * 表字段缓存管理
@@ -22,6 +25,21 @@ public class TableFieldCache {
      */
     private final Map<String, Set<String>> tableEncryptFields = new ConcurrentHashMap<>();
     
+    /**
+     * 缓存：表名 -> (加密字段 -> 盲索引影子列)
+     */
+    private final Map<String, Map<String, String>> tableBlindIndexes = new ConcurrentHashMap<>();
+    
+    /**
+     * 缓存：表名 -> 建立了分词索引的加密字段
+     */
+    private final Map<String, Set<String>> tableLikeIndexes = new ConcurrentHashMap<>();
+    
+    /**
+     * 缓存：表名 -> (加密字段 -> 保序索引影子列)
+     */
+    private final Map<String, Map<String, String>> tableOrderIndexes = new ConcurrentHashMap<>();
+    
     /**
      * 缓存：类名 -> 表名
      */
@@ -32,6 +50,26 @@ public class TableFieldCache {
      */
     private final Map<String, Boolean> tableHasEncryptFields = new ConcurrentHashMap<>();
     
+    /**
+     * 配置版本，表加密字段每次变化时递增
+     */
+    private final AtomicLong version = new AtomicLong();
+    
+    /**
+     * 表加密字段变化监听器
+     */
+    private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
+    
+    /**
+     * 类名表名映射变化监听器，参数为映射变化的类名
+     */
+    private final List<Consumer<String>> classMappingListeners = new CopyOnWriteArrayList<>();
+    
+    /**
+     * 加密表名匹配器，表配置变化时整体重建后替换
+     */
+    private volatile TableNameMatcher tableNameMatcher = TableNameMatcher.EMPTY;
+    
     /**
      * 添加表的加密字段信息
      *
@@ -43,22 +81,111 @@ public class TableFieldCache {
             tableEncryptFields.put(tableName, encryptFields);
             tableHasEncryptFields.put(tableName, true);
             log.debug("添加表加密字段缓存: {} -> {}", tableName, encryptFields);
+            fireChanged();
+        }
+    }
+    
+    /**
+     * 添加加密字段的盲索引影子列
+     *
+     * @param tableName 表名
+     * @param fieldName 加密字段
+     * @param blindIndexColumn 盲索引影子列
+     */
+    public void addBlindIndex(String tableName, String fieldName, String blindIndexColumn) {
+        if (tableName != null && fieldName != null && blindIndexColumn != null && !blindIndexColumn.isEmpty()) {
+            tableBlindIndexes.computeIfAbsent(tableName, k -> new ConcurrentHashMap<>()).put(fieldName, blindIndexColumn);
+            log.debug("添加盲索引: {}.{} -> {}", tableName, fieldName, blindIndexColumn);
+            fireChanged();
+        }
+    }
+    
+    /**
+     * 为加密字段建立模糊查询的分词索引
+     *
+     * @param tableName 表名
+     * @param fieldName 加密字段
+     */
+    public void addLikeIndex(String tableName, String fieldName) {
+        if (tableName != null && fieldName != null) {
+            tableLikeIndexes.computeIfAbsent(tableName, k -> ConcurrentHashMap.newKeySet()).add(fieldName);
+            log.debug("添加分词索引: {}.{}", tableName, fieldName);
+            fireChanged();
+        }
+    }
+    
+    /**
+     * 添加加密字段的保序索引影子列
+     *
+     * @param tableName 表名
+     * @param fieldName 加密字段
+     * @param orderIndexColumn 保序索引影子列
+     */
+    public void addOrderIndex(String tableName, String fieldName, String orderIndexColumn) {
+        if (tableName != null && fieldName != null && orderIndexColumn != null && !orderIndexColumn.isEmpty()) {
+            tableOrderIndexes.computeIfAbsent(tableName, k -> new ConcurrentHashMap<>()).put(fieldName, orderIndexColumn);
+            log.debug("添加保序索引: {}.{} -> {}", tableName, fieldName, orderIndexColumn);
+            fireChanged();
         }
     }
     
     /**
      * 添加类名到表名的映射
+     * 映射只影响按类解析表名的结果，变化时只通知类名映射监听器，不触发表加密字段变化（不重建改写计划）
      *
      * @param className 类名
      * @param tableName 表名
      */
     public void addClassNameToTableName(String className, String tableName) {
         if (className != null && tableName != null) {
-            classNameToTableName.put(className, tableName);
+            String previous = classNameToTableName.put(className, tableName);
             log.debug("添加类名表名映射: {} -> {}", className, tableName);
+            if (!tableName.equals(previous)) {
+                fireClassMappingChanged(className);
+            }
         }
     }
     
+    /**
+     * 加载编译期生成的加密实体索引
+     * 已通过 {@link #addTableEncryptFields} 手工配置的表不会被覆盖；索引中映射到同一张表的多个实体（如DTO、
+     * 另一个 {@code @TableName} 相同的实体）合并加密列和索引，同一列的影子列以先加载的为准
+     *
+     * @param index 加密实体索引
+     */
+    public void loadIndex(EncryptEntityIndex index) {
+        if (index == null || index.isEmpty()) {
+            return;
+        }
+        Set<String> configuredTables = new HashSet<>(tableEncryptFields.keySet());
+        boolean changed = false;
+        for (EncryptEntityIndex.Entry entry : index.getEntries().values()) {
+            String tableName = entry.getTableName();
+            if (!configuredTables.contains(tableName) && !entry.getColumns().isEmpty()) {
+                tableEncryptFields.merge(tableName, new HashSet<>(entry.getColumns()), (registered, columns) -> {
+                    Set<String> merged = new HashSet<>(registered);
+                    merged.addAll(columns);
+                    return merged;
+                });
+                tableHasEncryptFields.put(tableName, true);
+                entry.getBlindIndexes().forEach((column, blindIndex) -> tableBlindIndexes
+                        .computeIfAbsent(tableName, k -> new ConcurrentHashMap<>()).putIfAbsent(column, blindIndex));
+                entry.getLikeIndexes().forEach(column -> tableLikeIndexes
+                        .computeIfAbsent(tableName, k -> ConcurrentHashMap.newKeySet()).add(column));
+                entry.getOrderIndexes().forEach((column, orderIndex) -> tableOrderIndexes
+                        .computeIfAbsent(tableName, k -> new ConcurrentHashMap<>()).putIfAbsent(column, orderIndex));
+                changed = true;
+            }
+            if (classNameToTableName.putIfAbsent(entry.getClassName(), tableName) == null) {
+                fireClassMappingChanged(entry.getClassName());
+            }
+        }
+        if (changed) {
+            fireChanged();
+        }
+        log.info("加载加密实体索引: {}个实体", index.getEntries().size());
+    }
+    
     /**
      * 获取表的加密字段列表
      *
@@ -69,6 +196,46 @@ public class TableFieldCache {
         return tableEncryptFields.getOrDefault(tableName, Collections.emptySet());
     }
     
+    /**
+     * 获取表的盲索引配置
+     *
+     * @param tableName 表名
+     * @return 加密字段 -> 盲索引影子列
+     */
+    public Map<String, String> getTableBlindIndexes(String tableName) {
+        Map<String, String> blindIndexes = tableBlindIndexes.get(tableName);
+        return blindIndexes == null ? Collections.emptyMap() : Collections.unmodifiableMap(blindIndexes);
+    }
+    
+    /**
+     * 获取表中建立了分词索引的加密字段
+     *
+     * @param tableName 表名
+     * @return 加密字段集合
+     */
+    public Set<String> getTableLikeIndexes(String tableName) {
+        Set<String> likeIndexes = tableLikeIndexes.get(tableName);
+        return likeIndexes == null ? Collections.emptySet() : Collections.unmodifiableSet(likeIndexes);
+    }
+    
+    /**
+     * 获取表的保序索引配置
+     *
+     * @param tableName 表名
+     * @return 加密字段 -> 保序索引影子列
+     */
+    public Map<String, String> getTableOrderIndexes(String tableName) {
+        Map<String, String> orderIndexes = tableOrderIndexes.get(tableName);
+        return orderIndexes == null ? Collections.emptyMap() : Collections.unmodifiableMap(orderIndexes);
+    }
+    
+    /**
+     * 是否有表建立了分词索引
+     */
+    public boolean hasLikeIndexes() {
+        return !tableLikeIndexes.isEmpty();
+    }
+    
     /**
      * 根据类名获取表名
      *
@@ -104,10 +271,21 @@ public class TableFieldCache {
     /**
      * 获取所有需要加密的表名
      *
-     * @return 表名集合
+     * @return 表名集合的只读视图
      */
     public Set<String> getAllEncryptTables() {
-        return new HashSet<>(tableHasEncryptFields.keySet());
+        return Collections.unmodifiableSet(tableHasEncryptFields.keySet());
+    }
+    
+    /**
+     * 判断SQL是否引用了加密表
+     * 一次扫描完成匹配，表名按标识符边界匹配且忽略大小写
+     *
+     * @param sql SQL语句
+     * @return 是否引用了加密表
+     */
+    public boolean containsEncryptTable(CharSequence sql) {
+        return tableNameMatcher.matches(sql);
     }
     
     /**
@@ -115,9 +293,13 @@ public class TableFieldCache {
      */
     public void clearCache() {
         tableEncryptFields.clear();
+        tableBlindIndexes.clear();
+        tableLikeIndexes.clear();
+        tableOrderIndexes.clear();
         classNameToTableName.clear();
         tableHasEncryptFields.clear();
         log.info("清除表字段缓存");
+        fireChanged();
     }
     
     /**
@@ -127,8 +309,72 @@ public class TableFieldCache {
      */
     public void clearTableCache(String tableName) {
         tableEncryptFields.remove(tableName);
+        tableBlindIndexes.remove(tableName);
+        tableLikeIndexes.remove(tableName);
+        tableOrderIndexes.remove(tableName);
         tableHasEncryptFields.remove(tableName);
         log.debug("清除表缓存: {}", tableName);
+        fireChanged();
+    }
+    
+    /**
+     * 注册表加密字段变化监听器，用于使依赖表配置的缓存失效
+     *
+     * @param listener 监听器
+     */
+    public void addChangeListener(Runnable listener) {
+        if (listener != null) {
+            changeListeners.add(listener);
+        }
+    }
+    
+    /**
+     * 注册类名表名映射变化监听器，用于使按类缓存的表名失效
+     *
+     * @param listener 监听器，参数为映射变化的类名
+     */
+    public void addClassMappingListener(Consumer<String> listener) {
+        if (listener != null) {
+            classMappingListeners.add(listener);
+        }
+    }
+    
+    /**
+     * 获取配置版本
+     *
+     * @return 版本号，表加密字段每次变化时递增
+     */
+    public long getVersion() {
+        return version.get();
+    }
+    
+    private void fireChanged() {
+        rebuildTableNameMatcher();
+        version.incrementAndGet();
+        for (Runnable listener : changeListeners) {
+            try {
+                listener.run();
+            } catch (Exception e) {
+                log.error("表字段缓存变化通知失败", e);
+            }
+        }
+    }
+    
+    private void fireClassMappingChanged(String className) {
+        for (Consumer<String> listener : classMappingListeners) {
+            try {
+                listener.accept(className);
+            } catch (Exception e) {
+                log.error("类名表名映射变化通知失败", e);
+            }
+        }
+    }
+    
+    /**
+     * 重建表名匹配器，在锁内读取表名，最后一次重建总能看到最新的表配置
+     */
+    private synchronized void rebuildTableNameMatcher() {
+        tableNameMatcher = TableNameMatcher.build(tableHasEncryptFields.keySet());
     }
     
     /**
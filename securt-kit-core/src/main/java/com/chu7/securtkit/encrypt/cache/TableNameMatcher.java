@@ -0,0 +1,238 @@
+package com.chu7.securtkit.encrypt.cache;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * 表名多模式匹配器
+ * 基于加密表名构建Aho-Corasick自动机，一次扫描SQL即可判断是否引用了任一加密表，扫描过程不分配内存
+ * <p>
+ * 匹配忽略ASCII大小写，且只在标识符边界上成立：{@code user} 不会匹配 {@code user_log}、{@code t_user}，
+ * 但会匹配 {@code `user`}、{@code db.user}。
+ * <p>
+ * 实例不可变，表配置变化时整体重建后替换。
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+public final class TableNameMatcher {
+
+    /**
+     * 不包含任何表名的匹配器
+     */
+    public static final TableNameMatcher EMPTY = new TableNameMatcher(new int[1], 1, new int[128], new HashMap<>(),
+            new int[1][]);
+
+    /**
+     * 状态转移表：state * alphabetSize + 字符类别 -> 下一状态
+     */
+    private final int[] transitions;
+
+    private final int alphabetSize;
+
+    /**
+     * ASCII字符 -> 字符类别，0 表示不出现在任何表名中
+     */
+    private final int[] asciiClasses;
+
+    /**
+     * 非ASCII字符 -> 字符类别
+     */
+    private final Map<Character, Integer> otherClasses;
+
+    /**
+     * 状态 -> 在该状态结束的表名长度，无匹配时为null
+     */
+    private final int[][] outputs;
+
+    private TableNameMatcher(int[] transitions, int alphabetSize, int[] asciiClasses,
+                             Map<Character, Integer> otherClasses, int[][] outputs) {
+        this.transitions = transitions;
+        this.alphabetSize = alphabetSize;
+        this.asciiClasses = asciiClasses;
+        this.otherClasses = otherClasses;
+        this.outputs = outputs;
+    }
+
+    /**
+     * 根据表名构建匹配器
+     *
+     * @param tableNames 表名集合
+     * @return 匹配器
+     */
+    public static TableNameMatcher build(Collection<String> tableNames) {
+        List<String> patterns = new ArrayList<>();
+        for (String tableName : tableNames) {
+            if (tableName != null && !tableName.isEmpty()) {
+                patterns.add(tableName);
+            }
+        }
+        if (patterns.isEmpty()) {
+            return EMPTY;
+        }
+
+        // 字符类别，0 保留给未出现的字符
+        int[] asciiClasses = new int[128];
+        Map<Character, Integer> otherClasses = new HashMap<>();
+        int alphabetSize = 1;
+        for (String pattern : patterns) {
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = fold(pattern.charAt(i));
+                if (c < 128) {
+                    if (asciiClasses[c] == 0) {
+                        asciiClasses[c] = alphabetSize++;
+                    }
+                } else if (!otherClasses.containsKey(c)) {
+                    otherClasses.put(c, alphabetSize++);
+                }
+            }
+        }
+        if (alphabetSize > 1) {
+            // 大写字母与小写字母共用类别
+            for (char c = 'A'; c <= 'Z'; c++) {
+                asciiClasses[c] = asciiClasses[fold(c)];
+            }
+        }
+
+        // 构建字典树
+        List<int[]> trie = new ArrayList<>();
+        List<List<Integer>> lengths = new ArrayList<>();
+        trie.add(newState(alphabetSize));
+        lengths.add(null);
+        for (String pattern : patterns) {
+            int state = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                int cls = classOf(fold(pattern.charAt(i)), asciiClasses, otherClasses);
+                int next = trie.get(state)[cls];
+                if (next < 0) {
+                    next = trie.size();
+                    trie.get(state)[cls] = next;
+                    trie.add(newState(alphabetSize));
+                    lengths.add(null);
+                }
+                state = next;
+            }
+            if (lengths.get(state) == null) {
+                lengths.set(state, new ArrayList<>());
+            }
+            if (!lengths.get(state).contains(pattern.length())) {
+                lengths.get(state).add(pattern.length());
+            }
+        }
+
+        // 按广度优先计算失败指针，并把字典树补全为确定自动机
+        int stateCount = trie.size();
+        int[] fail = new int[stateCount];
+        int[] transitions = new int[stateCount * alphabetSize];
+        int[][] outputs = new int[stateCount][];
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int cls = 0; cls < alphabetSize; cls++) {
+            int next = trie.get(0)[cls];
+            if (next < 0) {
+                transitions[cls] = 0;
+            } else {
+                transitions[cls] = next;
+                fail[next] = 0;
+                queue.add(next);
+            }
+        }
+        outputs[0] = toArray(lengths.get(0));
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            outputs[state] = merge(toArray(lengths.get(state)), outputs[fail[state]]);
+            for (int cls = 0; cls < alphabetSize; cls++) {
+                int next = trie.get(state)[cls];
+                int fallback = transitions[fail[state] * alphabetSize + cls];
+                if (next < 0) {
+                    transitions[state * alphabetSize + cls] = fallback;
+                } else {
+                    transitions[state * alphabetSize + cls] = next;
+                    fail[next] = fallback;
+                    queue.add(next);
+                }
+            }
+        }
+        return new TableNameMatcher(transitions, alphabetSize, asciiClasses, otherClasses, outputs);
+    }
+
+    /**
+     * 判断SQL中是否在标识符边界上出现了任一表名
+     *
+     * @param sql SQL语句
+     * @return 是否匹配
+     */
+    public boolean matches(CharSequence sql) {
+        if (sql == null || alphabetSize == 1) {
+            return false;
+        }
+        int state = 0;
+        int length = sql.length();
+        for (int i = 0; i < length; i++) {
+            char c = sql.charAt(i);
+            int cls = c < 128 ? asciiClasses[c] : classOf(fold(c), asciiClasses, otherClasses);
+            state = transitions[state * alphabetSize + cls];
+            int[] ends = outputs[state];
+            if (ends != null && (i + 1 == length || !isIdentifierPart(sql.charAt(i + 1)))) {
+                for (int patternLength : ends) {
+                    int start = i - patternLength + 1;
+                    if (start == 0 || !isIdentifierPart(sql.charAt(start - 1))) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static int[] newState(int alphabetSize) {
+        int[] state = new int[alphabetSize];
+        Arrays.fill(state, -1);
+        return state;
+    }
+
+    private static int classOf(char c, int[] asciiClasses, Map<Character, Integer> otherClasses) {
+        if (c < 128) {
+            return asciiClasses[c];
+        }
+        Integer cls = otherClasses.get(c);
+        return cls == null ? 0 : cls;
+    }
+
+    private static char fold(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_' || c == '$'
+                || (c >= 128 && Character.isLetterOrDigit(c));
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        if (values == null) {
+            return null;
+        }
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
+    private static int[] merge(int[] own, int[] inherited) {
+        if (own == null) {
+            return inherited;
+        }
+        if (inherited == null) {
+            return own;
+        }
+        int[] merged = Arrays.copyOf(own, own.length + inherited.length);
+        System.arraycopy(inherited, 0, merged, own.length, inherited.length);
+        return merged;
+    }
+}
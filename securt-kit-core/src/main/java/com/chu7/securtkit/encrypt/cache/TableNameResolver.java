@@ -0,0 +1,172 @@
+package com.chu7.securtkit.encrypt.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.javassist.util.proxy.ProxyFactory;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.type.TypeHandlerRegistry;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 实体表名解析器
+ * 按以下顺序确定类对应的表名，结果按类缓存，表字段配置变化时清空，类名映射变化时只清除该类：
+ * <ol>
+ *     <li>{@link TableFieldCache} 中登记的类名表名映射（含编译期加密实体索引）</li>
+ *     <li>类或父类上的 {@code @TableName}（MyBatis-Plus，按注解简单名读取，不依赖MyBatis-Plus）</li>
+ *     <li>按类名推断：去掉 Entity/Model/DTO 后缀并转小写，与编译期索引一致</li>
+ * </ol>
+ * 查询语句按结果映射类型解析，语句ID只缓存结果类型，表名仍从类缓存读取，类的缓存清除后语句随之重新解析；
+ * 不需要逐行检查结果对象。
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+@Slf4j
+public class TableNameResolver {
+
+    /**
+     * 语句缓存中表示结果类型都是简单类型或Map
+     */
+    private static final Class<?> NONE = Void.class;
+
+    private final TableFieldCache tableFieldCache;
+
+    /**
+     * 缓存：类 -> 表名
+     */
+    private final Map<Class<?>, String> classTableNames = new ConcurrentHashMap<>();
+
+    /**
+     * 缓存：语句ID -> 结果映射类型
+     */
+    private final Map<String, Class<?>> statementTypes = new ConcurrentHashMap<>();
+
+    public TableNameResolver(TableFieldCache tableFieldCache) {
+        this.tableFieldCache = tableFieldCache;
+    }
+
+    /**
+     * 获取类对应的表名
+     *
+     * @param type 实体类
+     * @return 表名，type为null时返回null
+     */
+    public String getTableName(Class<?> type) {
+        if (type == null) {
+            return null;
+        }
+        String tableName = classTableNames.get(type);
+        if (tableName == null) {
+            tableName = resolve(type);
+            classTableNames.put(type, tableName);
+        }
+        return tableName;
+    }
+
+    /**
+     * 获取查询语句结果映射类型对应的表名
+     *
+     * @param mappedStatement 查询语句
+     * @return 表名，结果类型都是简单类型或Map时返回null
+     */
+    public String getTableName(MappedStatement mappedStatement) {
+        if (mappedStatement == null) {
+            return null;
+        }
+        Class<?> type = statementTypes.get(mappedStatement.getId());
+        if (type == null) {
+            type = resolve(mappedStatement);
+            statementTypes.put(mappedStatement.getId(), type);
+        }
+        return type == NONE ? null : getTableName(type);
+    }
+
+    /**
+     * 清空缓存，表字段配置变化时调用
+     */
+    public void invalidate() {
+        classTableNames.clear();
+        statementTypes.clear();
+    }
+
+    /**
+     * 清除一个类（含其代理类）的缓存，该类的类名表名映射变化时调用
+     * 以该类为结果类型的语句下次读取时按新的表名解析
+     *
+     * @param className 类名
+     */
+    public void invalidate(String className) {
+        classTableNames.keySet().removeIf(type -> type.getName().equals(className)
+                || ProxyFactory.isProxyClass(type) && type.getSuperclass().getName().equals(className));
+    }
+
+    private Class<?> resolve(MappedStatement mappedStatement) {
+        TypeHandlerRegistry registry = mappedStatement.getConfiguration().getTypeHandlerRegistry();
+        for (ResultMap resultMap : mappedStatement.getResultMaps()) {
+            Class<?> type = resultMap.getType();
+            if (type == Object.class || Map.class.isAssignableFrom(type) || registry.hasTypeHandler(type)) {
+                continue;
+            }
+            return type;
+        }
+        return NONE;
+    }
+
+    private String resolve(Class<?> type) {
+        if (ProxyFactory.isProxyClass(type)) {
+            // 延迟加载、延迟解密的代理类按实体类解析
+            return getTableName(type.getSuperclass());
+        }
+        String tableName = tableFieldCache.getTableNameByClassName(type.getName());
+        if (tableName != null) {
+            return tableName;
+        }
+        tableName = annotatedTableName(type);
+        if (tableName != null) {
+            return tableName;
+        }
+        return inferTableName(type.getSimpleName());
+    }
+
+    /**
+     * 读取类或父类上 @TableName 的 value
+     */
+    private String annotatedTableName(Class<?> type) {
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Annotation annotation : current.getDeclaredAnnotations()) {
+                if (!"TableName".equals(annotation.annotationType().getSimpleName())) {
+                    continue;
+                }
+                try {
+                    Method value = annotation.annotationType().getMethod("value");
+                    Object tableName = value.invoke(annotation);
+                    if (tableName instanceof String && !((String) tableName).trim().isEmpty()) {
+                        return ((String) tableName).trim();
+                    }
+                } catch (ReflectiveOperationException e) {
+                    log.debug("读取@TableName失败: {}", type.getName(), e);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 按类名推断表名
+     */
+    private static String inferTableName(String className) {
+        if (className.endsWith("Entity")) {
+            return className.substring(0, className.length() - 6).toLowerCase(Locale.ROOT);
+        } else if (className.endsWith("Model")) {
+            return className.substring(0, className.length() - 5).toLowerCase(Locale.ROOT);
+        } else if (className.endsWith("DTO")) {
+            return className.substring(0, className.length() - 3).toLowerCase(Locale.ROOT);
+        }
+        return className.toLowerCase(Locale.ROOT);
+    }
+}
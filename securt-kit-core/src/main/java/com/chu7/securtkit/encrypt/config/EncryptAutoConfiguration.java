@@ -1,16 +1,38 @@
 package com.chu7.securtkit.encrypt.config;
 
+import com.chu7.securtkit.encrypt.cache.EncryptEntityIndex;
+import com.chu7.securtkit.encrypt.cache.EncryptMetadataCache;
+import com.chu7.securtkit.encrypt.cache.RewritePlanCache;
+import com.chu7.securtkit.encrypt.cache.SqlRewriteCache;
 import com.chu7.securtkit.encrypt.cache.TableFieldCache;
+import com.chu7.securtkit.encrypt.cache.TableNameResolver;
+import com.chu7.securtkit.encrypt.core.LikeTokenIndexer;
+import com.chu7.securtkit.encrypt.core.ParallelDecryptor;
+import com.chu7.securtkit.encrypt.handler.LazyDecryptJacksonModule;
 import com.chu7.securtkit.encrypt.interceptor.DbFieldEncryptorInterceptor;
+import com.chu7.securtkit.encrypt.interceptor.EncryptPipelineInterceptor;
+import com.chu7.securtkit.encrypt.interceptor.EncryptStage;
+import com.chu7.securtkit.encrypt.interceptor.IndexMaintenanceInterceptor;
+import com.chu7.securtkit.encrypt.interceptor.LikeTokenBatchInterceptor;
 import com.chu7.securtkit.encrypt.interceptor.PojoParamEncryptorInterceptor;
 import com.chu7.securtkit.encrypt.interceptor.PojoResultDecryptorInterceptor;
 import com.chu7.securtkit.encrypt.strategy.AesEncryptStrategy;
+import com.chu7.securtkit.encrypt.strategy.BlindIndexGenerator;
 import com.chu7.securtkit.encrypt.strategy.DesEncryptStrategy;
+import com.chu7.securtkit.encrypt.strategy.MySqlAesEncryptStrategy;
 import com.chu7.securtkit.encrypt.strategy.EncryptStrategy;
+import com.chu7.securtkit.encrypt.strategy.EncryptStrategyRegistry;
 import com.chu7.securtkit.encrypt.strategy.KeyManager;
+import com.chu7.securtkit.encrypt.strategy.LikeTokenGenerator;
+import com.chu7.securtkit.encrypt.strategy.OrderIndexEncoder;
 import com.chu7.securtkit.encrypt.util.EncryptUtil;
 import com.chu7.securtkit.encrypt.visitor.DbEncryptStatementVisitor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
@@ -18,6 +40,8 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
 
 /**
  * 加密自动配置类
@@ -31,12 +55,14 @@ import java.util.List;
 public class EncryptAutoConfiguration {
     
     /**
-     * 注册表字段缓存
+     * 注册表字段缓存，并加载编译期生成的加密实体索引
      */
     @Bean
     @ConditionalOnMissingBean
     public TableFieldCache tableFieldCache() {
-        return new TableFieldCache();
+        TableFieldCache tableFieldCache = new TableFieldCache();
+        tableFieldCache.loadIndex(EncryptEntityIndex.load(EncryptAutoConfiguration.class.getClassLoader()));
+        return tableFieldCache;
     }
     
     /**
@@ -48,6 +74,59 @@ public class EncryptAutoConfiguration {
         return new DbEncryptStatementVisitor();
     }
     
+    /**
+     * 注册SQL改写缓存，表字段配置变化时自动失效
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public SqlRewriteCache sqlRewriteCache(EncryptProperties encryptProperties, TableFieldCache tableFieldCache) {
+        EncryptProperties.Cache cache = encryptProperties.getCache();
+        SqlRewriteCache sqlRewriteCache = new SqlRewriteCache(cache.getSize(),
+                cache.isEnabled() && encryptProperties.isEnableCache());
+        tableFieldCache.addChangeListener(sqlRewriteCache::invalidate);
+        return sqlRewriteCache;
+    }
+    
+    /**
+     * 注册MappedStatement改写计划缓存，表字段配置变化时重新计算
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public RewritePlanCache rewritePlanCache(DbEncryptStatementVisitor dbEncryptStatementVisitor,
+                                             TableFieldCache tableFieldCache) {
+        RewritePlanCache rewritePlanCache = new RewritePlanCache(dbEncryptStatementVisitor, tableFieldCache);
+        tableFieldCache.addChangeListener(rewritePlanCache::rebuild);
+        return rewritePlanCache;
+    }
+    
+    /**
+     * 注册实体表名解析器，表字段配置变化时清空缓存，类名映射变化时只清除对应类
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public TableNameResolver tableNameResolver(TableFieldCache tableFieldCache) {
+        TableNameResolver tableNameResolver = new TableNameResolver(tableFieldCache);
+        tableFieldCache.addChangeListener(tableNameResolver::invalidate);
+        tableFieldCache.addClassMappingListener(tableNameResolver::invalidate);
+        return tableNameResolver;
+    }
+    
+    /**
+     * 所有单例创建完成后为各SqlSessionFactory计算改写计划，并让加解密管道按新计划重新判断各语句需要的处理阶段
+     * 通过ObjectProvider延迟获取，避免与注册拦截器的SqlSessionFactory形成循环依赖
+     */
+    @Bean
+    @ConditionalOnProperty(name = "securt-kit.encrypt.patternType", havingValue = "DB")
+    public SmartInitializingSingleton rewritePlanInitializer(RewritePlanCache rewritePlanCache,
+                                                             ObjectProvider<SqlSessionFactory> sqlSessionFactories,
+                                                             ObjectProvider<EncryptPipelineInterceptor> pipelines) {
+        return () -> {
+            sqlSessionFactories.orderedStream()
+                    .forEach(sqlSessionFactory -> rewritePlanCache.register(sqlSessionFactory.getConfiguration()));
+            pipelines.ifAvailable(EncryptPipelineInterceptor::invalidate);
+        };
+    }
+    
     /**
      * 注册AES加密策略
      */
@@ -66,6 +145,71 @@ public class EncryptAutoConfiguration {
         return new DesEncryptStrategy();
     }
     
+    /**
+     * 注册与MySQL内置函数兼容的AES加密策略
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public MySqlAesEncryptStrategy mySqlAesEncryptStrategy() {
+        return new MySqlAesEncryptStrategy();
+    }
+    
+    /**
+     * 注册盲索引生成器
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public BlindIndexGenerator blindIndexGenerator(EncryptProperties encryptProperties) {
+        return new BlindIndexGenerator(encryptProperties.getBlindIndexLength());
+    }
+    
+    /**
+     * 注册模糊查询分词生成器，分词的HMAC与盲索引使用同一生成器
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public LikeTokenGenerator likeTokenGenerator(EncryptProperties encryptProperties,
+                                                 BlindIndexGenerator blindIndexGenerator) {
+        return new LikeTokenGenerator(blindIndexGenerator, encryptProperties.getLikeIndex().getGramSize());
+    }
+    
+    /**
+     * 注册保序索引编码器，编码的HMAC使用单独派生的密钥，不受盲索引截短长度影响
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public OrderIndexEncoder orderIndexEncoder() {
+        return new OrderIndexEncoder();
+    }
+    
+    /**
+     * 注册分词表维护组件
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public LikeTokenIndexer likeTokenIndexer(TableFieldCache tableFieldCache, LikeTokenGenerator likeTokenGenerator,
+                                             EncryptProperties encryptProperties, KeyManager keyManager) {
+        return new LikeTokenIndexer(tableFieldCache, likeTokenGenerator, encryptProperties, keyManager);
+    }
+    
+    /**
+     * 注册加密策略注册表
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public EncryptStrategyRegistry encryptStrategyRegistry(List<EncryptStrategy> encryptStrategies) {
+        return new EncryptStrategyRegistry(encryptStrategies);
+    }
+    
+    /**
+     * 注册实体加密元数据缓存
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public EncryptMetadataCache encryptMetadataCache(EncryptStrategyRegistry encryptStrategyRegistry) {
+        return new EncryptMetadataCache(encryptStrategyRegistry);
+    }
+    
     /**
      * 注册默认密钥管理器
      */
@@ -75,6 +219,27 @@ public class EncryptAutoConfiguration {
         return new com.chu7.securtkit.encrypt.strategy.DefaultKeyManager();
     }
     
+    /**
+     * 注册并行解密器
+     * 配置了名为 securtKitDecryptExecutor 的执行器时使用该执行器（例如虚拟线程执行器），否则创建有界线程池
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(name = "securt-kit.encrypt.parallelDecrypt.enabled", havingValue = "true")
+    public ParallelDecryptor parallelDecryptor(EncryptProperties encryptProperties, KeyManager keyManager,
+                                               @Qualifier(ParallelDecryptor.EXECUTOR_BEAN_NAME)
+                                               ObjectProvider<Executor> executors) {
+        EncryptProperties.ParallelDecrypt config = encryptProperties.getParallelDecrypt();
+        Executor executor = executors.getIfAvailable();
+        if (executor != null) {
+            log.info("启用并行解密，使用执行器: {}", ParallelDecryptor.EXECUTOR_BEAN_NAME);
+            return new ParallelDecryptor(keyManager, executor, config.getThreshold(), config.getChunkSize());
+        }
+        log.info("启用并行解密，工作线程数: {}", config.getParallelism());
+        return new ParallelDecryptor(keyManager, config.getParallelism(), config.getQueueCapacity(),
+                config.getThreshold(), config.getChunkSize());
+    }
+    
     /**
      * 注册加密工具类
      */
@@ -85,7 +250,21 @@ public class EncryptAutoConfiguration {
     }
     
     /**
-     * 注册数据库模式加解密拦截器
+     * 注册加解密管道拦截器
+     * 各模式的处理阶段按顺序合并为一个MyBatis插件，每个被拦截的对象只代理一层；表字段配置变化时重新判断各语句需要的阶段
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public EncryptPipelineInterceptor encryptPipelineInterceptor(ObjectProvider<EncryptStage> stages,
+                                                                 TableFieldCache tableFieldCache) {
+        EncryptPipelineInterceptor pipeline = new EncryptPipelineInterceptor(
+                stages.orderedStream().collect(Collectors.toList()));
+        tableFieldCache.addChangeListener(pipeline::invalidate);
+        return pipeline;
+    }
+    
+    /**
+     * 注册数据库模式字段加密处理阶段
      */
     @Bean
     @ConditionalOnProperty(name = "securt-kit.encrypt.patternType", havingValue = "DB")
@@ -95,7 +274,35 @@ public class EncryptAutoConfiguration {
     }
     
     /**
-     * 注册POJO模式参数加密拦截器
+     * 注册数据库模式索引维护处理阶段，写入影子列并维护分词表
+     */
+    @Bean
+    @ConditionalOnProperty(name = "securt-kit.encrypt.patternType", havingValue = "DB")
+    public IndexMaintenanceInterceptor indexMaintenanceInterceptor() {
+        return new IndexMaintenanceInterceptor();
+    }
+    
+    /**
+     * 注册批量执行分词维护处理阶段，BatchExecutor 刷新批次后写入暂存的分词
+     */
+    @Bean
+    public LikeTokenBatchInterceptor likeTokenBatchInterceptor() {
+        return new LikeTokenBatchInterceptor();
+    }
+    
+    /**
+     * 注册POJO模式盲索引改写处理阶段
+     * POJO模式下只将配置了盲索引、分词索引、保序索引的加密列的查询条件改写为影子列或分词表
+     */
+    @Bean
+    @ConditionalOnProperty(name = "securt-kit.encrypt.patternType", havingValue = "POJO")
+    public DbFieldEncryptorInterceptor pojoBlindIndexInterceptor() {
+        log.info("启用POJO模式盲索引改写拦截器");
+        return new DbFieldEncryptorInterceptor();
+    }
+    
+    /**
+     * 注册POJO模式参数加密处理阶段
      */
     @Bean
     @ConditionalOnProperty(name = "securt-kit.encrypt.patternType", havingValue = "POJO")
@@ -105,7 +312,7 @@ public class EncryptAutoConfiguration {
     }
     
     /**
-     * 注册POJO模式结果解密拦截器
+     * 注册POJO模式结果解密处理阶段
      */
     @Bean
     @ConditionalOnProperty(name = "securt-kit.encrypt.patternType", havingValue = "POJO")
@@ -113,4 +320,19 @@ public class EncryptAutoConfiguration {
         log.info("启用POJO模式结果解密拦截器");
         return new PojoResultDecryptorInterceptor();
     }
+    
+    /**
+     * 启用延迟解密且存在Jackson时注册隐藏代理处理器属性的模块，Spring Boot 自动注册到 ObjectMapper
+     */
+    @Configuration
+    @ConditionalOnClass(name = "com.fasterxml.jackson.databind.Module")
+    @ConditionalOnProperty(name = "securt-kit.encrypt.lazyDecrypt", havingValue = "true")
+    static class LazyDecryptJacksonConfiguration {
+        
+        @Bean
+        @ConditionalOnMissingBean
+        public LazyDecryptJacksonModule lazyDecryptJacksonModule() {
+            return new LazyDecryptJacksonModule();
+        }
+    }
 }
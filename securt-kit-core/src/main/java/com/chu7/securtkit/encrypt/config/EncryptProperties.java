@@ -33,6 +33,31 @@ public class EncryptProperties {
      */
     private String key;
     
+    /**
+     * DB模式下是否以参数绑定密钥
+     * 开启后改写的SQL中密钥位置为占位符，执行时绑定密钥，密钥不会出现在SQL文本中
+     */
+    private boolean bindKeyAsParameter = false;
+    
+    /**
+     * DB模式下是否在Java端计算等值比较的密文
+     * 开启后加密列的 =、&lt;&gt;、IN 条件直接比较原始列与Java端加密的参数，加密列上的索引可以使用
+     */
+    private boolean javaSideEquality = false;
+    
+    /**
+     * 盲索引保留的HMAC字节数，0表示保留完整的32字节
+     * 截短可以减小影子列和索引，但会增加不同明文碰撞的概率
+     */
+    private int blindIndexLength = 0;
+    
+    /**
+     * POJO模式下是否延迟解密查询结果
+     * 开启后含加密字段的实体创建为代理子类，加密字段按密文赋值，首次调用getter时才解密，未读取的字段不解密。
+     * MyBatis开启延迟加载（lazyLoadingEnabled）时不生效，仍在映射时解密
+     */
+    private boolean lazyDecrypt = false;
+    
     /**
      * 需要加密的字段配置
      * key: 表名，value: 字段列表
@@ -74,6 +99,16 @@ public class EncryptProperties {
      */
     private Cache cache = new Cache();
     
+    /**
+     * 模糊查询分词索引配置
+     */
+    private LikeIndex likeIndex = new LikeIndex();
+    
+    /**
+     * POJO模式结果并行解密配置
+     */
+    private ParallelDecrypt parallelDecrypt = new ParallelDecrypt();
+    
     /**
      * 密钥轮换配置
      */
@@ -130,4 +165,61 @@ public class EncryptProperties {
          */
         private boolean distributedCache = false;
     }
+    
+    /**
+     * 模糊查询分词索引配置
+     */
+    @Data
+    public static class LikeIndex {
+        /**
+         * 分词表名，表结构为 (table_name, column_name, row_id, token)，需在 (table_name, column_name, token) 上建索引
+         */
+        private String table = "securt_kit_like_token";
+        
+        /**
+         * 分词的最大长度，明文的所有长度不超过该值的子串都会写入分词表
+         */
+        private int gramSize = 3;
+        
+        /**
+         * 业务表中作为 row_id 的列
+         */
+        private String rowIdColumn = "id";
+        
+        /**
+         * 实体中作为 row_id 的属性
+         */
+        private String rowIdProperty = "id";
+    }
+    
+    /**
+     * POJO模式结果并行解密配置
+     */
+    @Data
+    public static class ParallelDecrypt {
+        /**
+         * 是否启用并行解密，启用后列表查询的加密字段在查询返回前统一批量解密
+         */
+        private boolean enabled = false;
+        
+        /**
+         * 并行解密的最少值数量，少于该值时在查询线程内顺序解密
+         */
+        private int threshold = 5000;
+        
+        /**
+         * 每个并行任务解密的值数量
+         */
+        private int chunkSize = 1000;
+        
+        /**
+         * 工作线程数，配置了名为 securtKitDecryptExecutor 的执行器时不生效
+         */
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        
+        /**
+         * 等待队列容量，队列满时由查询线程自己解密
+         */
+        private int queueCapacity = 64;
+    }
 }
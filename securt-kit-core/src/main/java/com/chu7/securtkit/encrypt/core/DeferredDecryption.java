@@ -0,0 +1,152 @@
+package com.chu7.securtkit.encrypt.core;
+
+import com.chu7.securtkit.encrypt.strategy.EncryptStrategy;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 延迟解密
+ * 列表查询映射结果期间，加密字段先按密文赋值并登记在当前线程的延迟解密中，查询返回前按策略分组统一解密后写回，
+ * 大结果集可以分块并行解密。同一线程同时只有一个延迟解密，嵌套查询登记到外层。
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+@Slf4j
+public final class DeferredDecryption {
+
+    private static final ThreadLocal<DeferredDecryption> CURRENT = new ThreadLocal<>();
+
+    /**
+     * 策略 -> 待解密的值
+     */
+    private final Map<EncryptStrategy, Batch> batches = new LinkedHashMap<>();
+
+    private int size;
+
+    private DeferredDecryption() {
+    }
+
+    /**
+     * 在当前线程开始延迟解密
+     *
+     * @return 新的延迟解密，当前线程已有延迟解密时返回null
+     */
+    public static DeferredDecryption begin() {
+        if (CURRENT.get() != null) {
+            return null;
+        }
+        DeferredDecryption deferred = new DeferredDecryption();
+        CURRENT.set(deferred);
+        return deferred;
+    }
+
+    /**
+     * 当前线程的延迟解密
+     *
+     * @return 延迟解密，没有时返回null
+     */
+    public static DeferredDecryption current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 结束当前线程的延迟解密，之后的赋值立即解密
+     */
+    public void end() {
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * 登记待解密的字段值
+     *
+     * @param target 对象
+     * @param field 加密字段
+     * @param value 密文
+     * @return 是否已登记，字段没有解密策略时返回false，由调用方立即处理
+     */
+    public boolean add(Object target, EncryptFieldMetadata field, String value) {
+        EncryptStrategy strategy = field.getStrategy();
+        if (strategy == null) {
+            return false;
+        }
+        if (!value.isEmpty()) {
+            batches.computeIfAbsent(strategy, Batch::new).add(target, field, value);
+            size++;
+        }
+        return true;
+    }
+
+    /**
+     * 待解密的值数量
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 按策略分组的待解密值
+     */
+    public Collection<Batch> getBatches() {
+        return batches.values();
+    }
+
+    /**
+     * 同一策略下待解密的字段值
+     */
+    public static final class Batch {
+
+        private final EncryptStrategy strategy;
+
+        private final List<Object> targets = new ArrayList<>();
+
+        private final List<EncryptFieldMetadata> fields = new ArrayList<>();
+
+        private final List<String> values = new ArrayList<>();
+
+        private Batch(EncryptStrategy strategy) {
+            this.strategy = strategy;
+        }
+
+        private void add(Object target, EncryptFieldMetadata field, String value) {
+            targets.add(target);
+            fields.add(field);
+            values.add(value);
+        }
+
+        public int size() {
+            return values.size();
+        }
+
+        /**
+         * 批量解密 [from, to) 范围内的值并写回对象，不同范围可以并发处理
+         *
+         * @param from 起始位置（含）
+         * @param to 结束位置（不含）
+         * @param key 密钥
+         */
+        public void decrypt(int from, int to, String key) {
+            String[] chunk = values.subList(from, to).toArray(new String[0]);
+            try {
+                strategy.decryptAll(chunk, key);
+            } catch (Exception e) {
+                log.error("批量解密失败: {}", e.getMessage(), e);
+                return;
+            }
+            for (int i = 0; i < chunk.length; i++) {
+                try {
+                    fields.get(from + i).set(targets.get(from + i), chunk[i]);
+                } catch (RuntimeException e) {
+                    log.error("写回解密字段失败: {}", fields.get(from + i).getName(), e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.chu7.securtkit.encrypt.core;
+
+import com.chu7.securtkit.encrypt.annotation.EncryptField;
+import com.chu7.securtkit.encrypt.strategy.EncryptStrategy;
+
+import java.lang.reflect.Field;
+
+/**
+ * 加密字段元数据
+ * 保存字段名、加密算法、已解析的加密策略、字段访问器以及盲索引、保序索引影子属性的访问器，构建后不可变
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+public class EncryptFieldMetadata {
+    
+    /**
+     * 字段名
+     */
+    private final String name;
+    
+    /**
+     * 加密算法
+     */
+    private final String algorithm;
+    
+    /**
+     * 已解析的加密策略，未找到时为null
+     */
+    private final EncryptStrategy strategy;
+    
+    /**
+     * 字段访问器
+     */
+    private final FieldAccessor accessor;
+    
+    /**
+     * 反射字段（已设置可访问），使用生成的加密器时为null
+     */
+    private final Field field;
+    
+    /**
+     * 盲索引影子列名，未配置时为null
+     */
+    private final String blindIndex;
+    
+    /**
+     * 盲索引影子属性访问器，未配置或实体中没有影子属性时为null
+     */
+    private final FieldAccessor blindIndexAccessor;
+    
+    /**
+     * 保序索引影子属性访问器，未配置或实体中没有影子属性时为null
+     */
+    private final FieldAccessor orderIndexAccessor;
+    
+    /**
+     * 基于反射字段构建
+     */
+    public EncryptFieldMetadata(Field field, EncryptField encryptField, EncryptStrategy strategy) {
+        this(field, encryptField, strategy, null);
+    }
+    
+    /**
+     * 基于反射字段构建，带盲索引影子属性
+     */
+    public EncryptFieldMetadata(Field field, EncryptField encryptField, EncryptStrategy strategy,
+                                FieldAccessor blindIndexAccessor) {
+        this(field, encryptField, strategy, blindIndexAccessor, null);
+    }
+    
+    /**
+     * 基于反射字段构建，带盲索引和保序索引影子属性
+     */
+    public EncryptFieldMetadata(Field field, EncryptField encryptField, EncryptStrategy strategy,
+                                FieldAccessor blindIndexAccessor, FieldAccessor orderIndexAccessor) {
+        this(field.getName(), encryptField.algorithm(), strategy, FieldAccessorFactory.create(field), field,
+                blindIndexName(encryptField), blindIndexAccessor, orderIndexAccessor);
+    }
+    
+    /**
+     * 基于生成的加密器构建
+     */
+    public EncryptFieldMetadata(String name, String algorithm, EncryptStrategy strategy, FieldAccessor accessor) {
+        this(name, algorithm, strategy, accessor, null, null);
+    }
+    
+    /**
+     * 基于生成的加密器构建，带盲索引影子属性
+     */
+    public EncryptFieldMetadata(String name, String algorithm, EncryptStrategy strategy, FieldAccessor accessor,
+                                String blindIndex, FieldAccessor blindIndexAccessor) {
+        this(name, algorithm, strategy, accessor, blindIndex, blindIndexAccessor, null);
+    }
+    
+    /**
+     * 基于生成的加密器构建，带盲索引和保序索引影子属性
+     */
+    public EncryptFieldMetadata(String name, String algorithm, EncryptStrategy strategy, FieldAccessor accessor,
+                                String blindIndex, FieldAccessor blindIndexAccessor, FieldAccessor orderIndexAccessor) {
+        this(name, algorithm, strategy, accessor, null, blindIndex, blindIndexAccessor, orderIndexAccessor);
+    }
+    
+    private EncryptFieldMetadata(String name, String algorithm, EncryptStrategy strategy, FieldAccessor accessor, Field field,
+                                 String blindIndex, FieldAccessor blindIndexAccessor, FieldAccessor orderIndexAccessor) {
+        this.name = name;
+        this.algorithm = algorithm;
+        this.strategy = strategy;
+        this.accessor = accessor;
+        this.field = field;
+        this.blindIndex = blindIndex;
+        this.blindIndexAccessor = blindIndexAccessor;
+        this.orderIndexAccessor = orderIndexAccessor;
+    }
+    
+    private static String blindIndexName(EncryptField encryptField) {
+        String blindIndex = encryptField.blindIndex().trim();
+        return blindIndex.isEmpty() ? null : blindIndex;
+    }
+    
+    /**
+     * 读取字段值
+     */
+    public Object get(Object target) {
+        return accessor.get(target);
+    }
+    
+    /**
+     * 写入字段值
+     */
+    public void set(Object target, Object value) {
+        accessor.set(target, value);
+    }
+    
+    /**
+     * 反射字段，使用生成的加密器时为null
+     */
+    public Field getField() {
+        return field;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public String getAlgorithm() {
+        return algorithm;
+    }
+    
+    public EncryptStrategy getStrategy() {
+        return strategy;
+    }
+    
+    /**
+     * 写入盲索引影子属性，没有影子属性时忽略
+     */
+    public void setBlindIndex(Object target, String value) {
+        if (blindIndexAccessor != null) {
+            blindIndexAccessor.set(target, value);
+        }
+    }
+    
+    /**
+     * 盲索引影子列名，未配置时为null
+     */
+    public String getBlindIndex() {
+        return blindIndex;
+    }
+    
+    /**
+     * 是否需要写入盲索引
+     */
+    public boolean hasBlindIndex() {
+        return blindIndexAccessor != null;
+    }
+    
+    /**
+     * 写入保序索引影子属性，没有影子属性时忽略
+     */
+    public void setOrderIndex(Object target, Long value) {
+        if (orderIndexAccessor != null) {
+            orderIndexAccessor.set(target, value);
+        }
+    }
+    
+    /**
+     * 是否需要写入保序索引
+     */
+    public boolean hasOrderIndex() {
+        return orderIndexAccessor != null;
+    }
+    
+    /**
+     * 是否使用生成的加密器访问字段
+     */
+    public boolean isGenerated() {
+        return field == null;
+    }
+}
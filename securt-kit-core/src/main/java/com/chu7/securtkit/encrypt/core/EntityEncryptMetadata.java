@@ -0,0 +1,66 @@
+package com.chu7.securtkit.encrypt.core;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 实体加密元数据
+ * 一个实体类中所有启用加密的字段（包含父类字段），构建后不可变
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+public class EntityEncryptMetadata {
+    
+    /**
+     * 实体类型
+     */
+    private final Class<?> type;
+    
+    /**
+     * 加密字段，父类字段在前
+     */
+    private final List<EncryptFieldMetadata> fields;
+    
+    /**
+     * 字段名 -> 加密字段，子类字段覆盖父类同名字段
+     */
+    private final Map<String, EncryptFieldMetadata> fieldsByName;
+    
+    public EntityEncryptMetadata(Class<?> type, List<EncryptFieldMetadata> fields) {
+        this.type = type;
+        this.fields = Collections.unmodifiableList(fields);
+        Map<String, EncryptFieldMetadata> byName = new HashMap<>();
+        for (EncryptFieldMetadata field : fields) {
+            byName.put(field.getName(), field);
+        }
+        this.fieldsByName = byName;
+    }
+    
+    public Class<?> getType() {
+        return type;
+    }
+    
+    public List<EncryptFieldMetadata> getFields() {
+        return fields;
+    }
+    
+    /**
+     * 按字段名获取加密字段
+     *
+     * @param name 字段名
+     * @return 加密字段，不是加密字段时返回null
+     */
+    public EncryptFieldMetadata getField(String name) {
+        return fieldsByName.get(name);
+    }
+    
+    /**
+     * 是否没有任何加密字段
+     */
+    public boolean isEmpty() {
+        return fields.isEmpty();
+    }
+}
@@ -0,0 +1,116 @@
+package com.chu7.securtkit.encrypt.core;
+
+/**
+ * 实体加密器
+ * 由 securt-kit-processor 在编译期为包含 {@link com.chu7.securtkit.encrypt.annotation.EncryptField} 的实体生成，
+ * 命名为 {@code <实体名>_Encryptor}，通过直接调用 getter/setter 读写加密字段及其盲索引、保序索引影子属性，运行期无需反射扫描字段
+ *
+ * @param <T> 实体类型
+ * @author chu7
+ * @date 2025/8/15
+ */
+public interface EntityEncryptor<T> {
+    
+    /**
+     * 生成类名后缀
+     */
+    String SUFFIX = "_Encryptor";
+    
+    /**
+     * 实体类型
+     */
+    Class<T> getEntityType();
+    
+    /**
+     * 启用加密的字段名，父类字段在前
+     */
+    String[] getFieldNames();
+    
+    /**
+     * 各字段注解上的加密算法，与 {@link #getFieldNames()} 一一对应
+     */
+    String[] getAlgorithms();
+    
+    /**
+     * 各字段注解上的自定义策略类型，未指定时为 Object.class
+     */
+    Class<?>[] getStrategyTypes();
+    
+    /**
+     * 读取字段值
+     *
+     * @param entity 实体
+     * @param index 字段下标
+     * @return 字段值
+     */
+    Object getValue(T entity, int index);
+    
+    /**
+     * 写入字段值
+     *
+     * @param entity 实体
+     * @param index 字段下标
+     * @param value 字段值
+     */
+    void setValue(T entity, int index, Object value);
+    
+    /**
+     * 各字段的盲索引影子列名，与 {@link #getFieldNames()} 一一对应，未配置或找不到影子属性时为空串
+     * 旧版本生成的加密器返回null，运行期按注解反射解析影子属性
+     */
+    default String[] getBlindIndexColumns() {
+        return null;
+    }
+    
+    /**
+     * 各字段的保序索引影子列名，与 {@link #getFieldNames()} 一一对应，未配置或找不到影子属性时为空串
+     * 旧版本生成的加密器返回null，运行期按注解反射解析影子属性
+     */
+    default String[] getOrderIndexColumns() {
+        return null;
+    }
+    
+    /**
+     * 读取盲索引影子属性
+     *
+     * @param entity 实体
+     * @param index 加密字段下标
+     * @return 盲索引
+     */
+    default String getBlindIndex(T entity, int index) {
+        throw new UnsupportedOperationException("未生成盲索引访问方法");
+    }
+    
+    /**
+     * 写入盲索引影子属性
+     *
+     * @param entity 实体
+     * @param index 加密字段下标
+     * @param value 盲索引
+     */
+    default void setBlindIndex(T entity, int index, String value) {
+        throw new UnsupportedOperationException("未生成盲索引访问方法");
+    }
+    
+    /**
+     * 读取保序索引影子属性
+     *
+     * @param entity 实体
+     * @param index 加密字段下标
+     * @return 保序索引
+     */
+    default Long getOrderIndex(T entity, int index) {
+        throw new UnsupportedOperationException("未生成保序索引访问方法");
+    }
+    
+    /**
+     * 写入保序索引影子属性
+     *
+     * @param entity 实体
+     * @param index 加密字段下标
+     * @param value 保序索引
+     */
+    default void setOrderIndex(T entity, int index, Long value) {
+        throw new UnsupportedOperationException("未生成保序索引访问方法");
+    }
+}
@@ -0,0 +1,27 @@
+package com.chu7.securtkit.encrypt.core;
+
+/**
+ * 字段访问器
+ * 每个实体类的每个加密字段构建一次，运行期读写不再经过反射的访问检查
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+public interface FieldAccessor {
+    
+    /**
+     * 读取字段值
+     *
+     * @param target 目标对象
+     * @return 字段值
+     */
+    Object get(Object target);
+    
+    /**
+     * 写入字段值
+     *
+     * @param target 目标对象
+     * @param value 字段值
+     */
+    void set(Object target, Object value);
+}
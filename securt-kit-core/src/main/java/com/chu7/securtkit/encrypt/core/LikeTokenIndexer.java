@@ -0,0 +1,348 @@
+package com.chu7.securtkit.encrypt.core;
+
+import com.chu7.securtkit.encrypt.cache.TableFieldCache;
+import com.chu7.securtkit.encrypt.config.EncryptProperties;
+import com.chu7.securtkit.encrypt.strategy.KeyManager;
+import com.chu7.securtkit.encrypt.strategy.LikeTokenGenerator;
+import lombok.extern.slf4j.Slf4j;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.schema.Table;
+import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.delete.Delete;
+import net.sf.jsqlparser.statement.insert.Insert;
+import net.sf.jsqlparser.statement.update.Update;
+import org.apache.ibatis.executor.BatchExecutor;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 模糊查询分词表维护
+ * 写操作执行前从明文参数中计算分词（{@link #capture}），执行成功后在同一连接上更新分词表（{@link #apply}），
+ * 与业务写入处于同一事务中：
+ * <ul>
+ *     <li>INSERT：写入实体各分词索引列的分词，自增主键在执行后读取</li>
+ *     <li>UPDATE：实体中不为null的分词索引列先删除旧分词再写入新分词</li>
+ *     <li>DELETE：按实体主键或单个主键参数删除该行的全部分词</li>
+ * </ul>
+ * 按条件批量更新、删除时无法确定涉及的行，不维护分词表。
+ * <p>
+ * BatchExecutor 执行写操作时语句只加入批次，自增主键要到刷新批次后才回填，此时分词暂存在执行器名下，
+ * 刷新批次后由 {@link #flush} 写入，回滚或关闭执行器时由 {@link #discard} 丢弃。
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+@Slf4j
+public class LikeTokenIndexer {
+
+    /**
+     * 无法确定目标表时的占位值
+     */
+    private static final String NO_TABLE = "";
+
+    private final TableFieldCache tableFieldCache;
+
+    private final LikeTokenGenerator likeTokenGenerator;
+
+    private final EncryptProperties encryptProperties;
+
+    private final KeyManager keyManager;
+
+    /**
+     * 缓存：语句ID -> 标准化目标表名
+     * 写语句的目标表在SQL的静态部分中，每个语句只在首次执行时生成一次SQL并解析，动态SQL不再逐次计算OGNL
+     */
+    private final Map<String, String> targetTables = new ConcurrentHashMap<>();
+
+    /**
+     * 批量执行器 -> 批次刷新后写入的分词
+     */
+    private final Map<Executor, List<Pending>> deferred = new ConcurrentHashMap<>();
+
+    public LikeTokenIndexer(TableFieldCache tableFieldCache, LikeTokenGenerator likeTokenGenerator,
+                            EncryptProperties encryptProperties, KeyManager keyManager) {
+        this.tableFieldCache = tableFieldCache;
+        this.likeTokenGenerator = likeTokenGenerator;
+        this.encryptProperties = encryptProperties;
+        this.keyManager = keyManager;
+    }
+
+    /**
+     * 写操作执行前计算需要写入的分词，须在参数加密之前调用
+     *
+     * @param mappedStatement 语句
+     * @param parameter 参数
+     * @return 待写入的分词，不需要维护分词表时返回null
+     */
+    public Pending capture(MappedStatement mappedStatement, Object parameter) {
+        if (!tableFieldCache.hasLikeIndexes()) {
+            return null;
+        }
+        SqlCommandType commandType = mappedStatement.getSqlCommandType();
+        if (commandType != SqlCommandType.INSERT && commandType != SqlCommandType.UPDATE
+                && commandType != SqlCommandType.DELETE) {
+            return null;
+        }
+        String tableName = targetTable(mappedStatement, parameter);
+        Set<String> columns = NO_TABLE.equals(tableName)
+                ? Collections.emptySet() : tableFieldCache.getTableLikeIndexes(tableName);
+        if (columns.isEmpty()) {
+            return null;
+        }
+
+        Configuration configuration = mappedStatement.getConfiguration();
+        Object entity = entity(parameter, configuration);
+        if (commandType == SqlCommandType.DELETE) {
+            Object rowId = entity != null ? rowId(configuration.newMetaObject(entity))
+                    : parameter != null && isSimpleValue(parameter, configuration) ? parameter : null;
+            if (rowId == null) {
+                log.debug("无法确定删除的行，不维护分词表: {}", mappedStatement.getId());
+                return null;
+            }
+            return new Pending(commandType, tableName, configuration, null, rowId, Collections.emptyMap());
+        }
+        if (entity == null) {
+            log.debug("参数不是实体，不维护分词表: {}", mappedStatement.getId());
+            return null;
+        }
+
+        MetaObject metaObject = configuration.newMetaObject(entity);
+        String key = keyManager != null ? keyManager.getDefaultKey() : encryptProperties.getKey();
+        Map<String, Set<String>> tokens = new LinkedHashMap<>();
+        for (String column : columns) {
+            String property = metaObject.findProperty(column, true);
+            Object value = property == null || !metaObject.hasGetter(property) ? null : metaObject.getValue(property);
+            if (value != null) {
+                tokens.put(normalize(column), likeTokenGenerator.indexTokens(value.toString(), key));
+            }
+        }
+        if (tokens.isEmpty()) {
+            return null;
+        }
+        return new Pending(commandType, tableName, configuration, entity, null, tokens);
+    }
+
+    /**
+     * 写操作返回后更新分词表，批量执行器只加入了批次时暂存到刷新批次之后
+     *
+     * @param executor 执行业务写入的执行器
+     * @param pending {@link #capture} 的结果
+     * @param result 执行器返回的结果
+     */
+    public void afterUpdate(Executor executor, Pending pending, Object result) throws SQLException {
+        if (result instanceof Integer && (Integer) result == BatchExecutor.BATCH_UPDATE_RETURN_VALUE) {
+            deferred.computeIfAbsent(executor, k -> new ArrayList<>()).add(pending);
+            return;
+        }
+        apply(executor, pending);
+    }
+
+    /**
+     * 执行器是否有暂存的分词
+     *
+     * @param executor 执行器
+     */
+    public boolean hasDeferred(Executor executor) {
+        return !deferred.isEmpty() && deferred.containsKey(executor);
+    }
+
+    /**
+     * 写入执行器暂存的分词，须在执行器刷新批次之后调用
+     *
+     * @param executor 执行器
+     */
+    public void flush(Executor executor) throws SQLException {
+        List<Pending> pendings = deferred.remove(executor);
+        if (pendings != null) {
+            for (Pending pending : pendings) {
+                apply(executor, pending);
+            }
+        }
+    }
+
+    /**
+     * 丢弃执行器暂存的分词，批次被回滚或执行器关闭时调用
+     *
+     * @param executor 执行器
+     */
+    public void discard(Executor executor) {
+        deferred.remove(executor);
+    }
+
+    /**
+     * 写操作成功后更新分词表
+     *
+     * @param executor 执行业务写入的执行器，使用其当前连接
+     * @param pending {@link #capture} 的结果
+     */
+    public void apply(Executor executor, Pending pending) throws SQLException {
+        Object rowId = pending.rowId != null ? pending.rowId
+                : rowId(pending.configuration.newMetaObject(pending.entity));
+        if (rowId == null) {
+            log.warn("实体主键为空，无法维护分词表: {}", pending.tableName);
+            return;
+        }
+
+        String tokenTable = encryptProperties.getLikeIndex().getTable();
+        Connection connection = executor.getTransaction().getConnection();
+        if (pending.commandType == SqlCommandType.DELETE) {
+            try (PreparedStatement delete = connection.prepareStatement(
+                    "DELETE FROM " + tokenTable + " WHERE table_name = ? AND row_id = ?")) {
+                delete.setString(1, pending.tableName);
+                delete.setObject(2, rowId);
+                delete.executeUpdate();
+            }
+            return;
+        }
+
+        if (pending.commandType == SqlCommandType.UPDATE) {
+            try (PreparedStatement delete = connection.prepareStatement(
+                    "DELETE FROM " + tokenTable + " WHERE table_name = ? AND column_name = ? AND row_id = ?")) {
+                for (String column : pending.tokens.keySet()) {
+                    delete.setString(1, pending.tableName);
+                    delete.setString(2, column);
+                    delete.setObject(3, rowId);
+                    delete.addBatch();
+                }
+                delete.executeBatch();
+            }
+        }
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO " + tokenTable + " (table_name, column_name, row_id, token) VALUES (?, ?, ?, ?)")) {
+            for (Map.Entry<String, Set<String>> entry : pending.tokens.entrySet()) {
+                for (String token : entry.getValue()) {
+                    insert.setString(1, pending.tableName);
+                    insert.setString(2, entry.getKey());
+                    insert.setObject(3, rowId);
+                    insert.setString(4, token);
+                    insert.addBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+    }
+
+    /**
+     * 解析写语句的目标表，结果按语句ID缓存
+     *
+     * @return 标准化表名，无法解析时返回 {@link #NO_TABLE}
+     */
+    private String targetTable(MappedStatement mappedStatement, Object parameter) {
+        String tableName = targetTables.get(mappedStatement.getId());
+        if (tableName != null) {
+            return tableName;
+        }
+        tableName = NO_TABLE;
+        String sql = mappedStatement.getBoundSql(parameter).getSql();
+        try {
+            Statement statement = CCJSqlParserUtil.parse(sql);
+            Table table = null;
+            if (statement instanceof Insert) {
+                table = ((Insert) statement).getTable();
+            } else if (statement instanceof Update) {
+                table = ((Update) statement).getTable();
+            } else if (statement instanceof Delete) {
+                table = ((Delete) statement).getTable();
+            }
+            if (table != null && table.getName() != null) {
+                tableName = normalize(table.getName());
+            }
+        } catch (JSQLParserException e) {
+            log.debug("SQL解析失败，不维护分词表: {}", sql);
+        }
+        targetTables.put(mappedStatement.getId(), tableName);
+        return tableName;
+    }
+
+    /**
+     * 取出参数中的实体，兼容 MyBatis-Plus 的 et 参数
+     */
+    private static Object entity(Object parameter, Configuration configuration) {
+        if (parameter == null) {
+            return null;
+        }
+        if (parameter instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) parameter;
+            Object entity = map.containsKey("et") ? map.get("et") : map.containsKey("param1") ? map.get("param1") : null;
+            return entity == null || entity instanceof Map || isSimpleValue(entity, configuration) ? null : entity;
+        }
+        return isSimpleValue(parameter, configuration) ? null : parameter;
+    }
+
+    private static boolean isSimpleValue(Object value, Configuration configuration) {
+        return configuration.getTypeHandlerRegistry().hasTypeHandler(value.getClass());
+    }
+
+    private Object rowId(MetaObject metaObject) {
+        String property = encryptProperties.getLikeIndex().getRowIdProperty();
+        return metaObject.hasGetter(property) ? metaObject.getValue(property) : null;
+    }
+
+    private static String normalize(String identifier) {
+        String name = identifier.trim();
+        int dot = name.lastIndexOf('.');
+        if (dot >= 0) {
+            name = name.substring(dot + 1);
+        }
+        if (name.length() > 1) {
+            char first = name.charAt(0);
+            if (first == '`' || first == '"' || first == '[') {
+                name = name.substring(1, name.length() - 1);
+            }
+        }
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 待写入分词表的内容
+     */
+    public static final class Pending {
+
+        private final SqlCommandType commandType;
+
+        private final String tableName;
+
+        private final Configuration configuration;
+
+        /**
+         * 实体，执行后从中读取主键
+         */
+        private final Object entity;
+
+        /**
+         * 直接给出的主键
+         */
+        private final Object rowId;
+
+        /**
+         * 标准化列名 -> 分词
+         */
+        private final Map<String, Set<String>> tokens;
+
+        private Pending(SqlCommandType commandType, String tableName, Configuration configuration, Object entity,
+                        Object rowId, Map<String, Set<String>> tokens) {
+            this.commandType = commandType;
+            this.tableName = tableName;
+            this.configuration = configuration;
+            this.entity = entity;
+            this.rowId = rowId;
+            this.tokens = tokens;
+        }
+    }
+}
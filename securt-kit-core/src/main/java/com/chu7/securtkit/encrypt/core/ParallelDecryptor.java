@@ -0,0 +1,219 @@
+package com.chu7.securtkit.encrypt.core;
+
+import com.chu7.securtkit.encrypt.strategy.KeyManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 并行解密器
+ * 待解密的值少于阈值时在查询线程内顺序解密，不占用工作线程；达到阈值时按块拆分，交给有界线程池并行解密，
+ * 查询线程自己处理第一块并等待其余块完成。
+ * <p>
+ * 线程池队列满时拒绝的块由查询线程自己解密，大查询不会无限堆积任务，也不会占满线程池影响其他查询。
+ * 可以传入外部 {@link Executor}（例如JDK 21的虚拟线程执行器），外部执行器拒绝任务时同样由查询线程处理。
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+public class ParallelDecryptor {
+
+    /**
+     * 外部执行器的Bean名称
+     */
+    public static final String EXECUTOR_BEAN_NAME = "securtKitDecryptExecutor";
+
+    private final KeyManager keyManager;
+
+    private final Executor executor;
+
+    /**
+     * 自行创建的线程池，使用外部执行器时为null
+     */
+    private final ExecutorService ownedExecutor;
+
+    private final int threshold;
+
+    private final int chunkSize;
+
+    private final LongAdder sequentialQueries = new LongAdder();
+
+    private final LongAdder parallelQueries = new LongAdder();
+
+    private final LongAdder decryptedValues = new LongAdder();
+
+    private final LongAdder parallelChunks = new LongAdder();
+
+    private final LongAdder callerRunChunks = new LongAdder();
+
+    private final LongAdder decryptNanos = new LongAdder();
+
+    /**
+     * 使用外部执行器
+     *
+     * @param keyManager 密钥管理器
+     * @param executor 执行器
+     * @param threshold 并行解密的最少值数量
+     * @param chunkSize 每块的值数量
+     */
+    public ParallelDecryptor(KeyManager keyManager, Executor executor, int threshold, int chunkSize) {
+        this(keyManager, executor, null, threshold, chunkSize);
+    }
+
+    /**
+     * 使用自行创建的有界线程池
+     *
+     * @param keyManager 密钥管理器
+     * @param parallelism 工作线程数
+     * @param queueCapacity 等待队列容量
+     * @param threshold 并行解密的最少值数量
+     * @param chunkSize 每块的值数量
+     */
+    public ParallelDecryptor(KeyManager keyManager, int parallelism, int queueCapacity, int threshold, int chunkSize) {
+        this(keyManager, null, newExecutor(parallelism, queueCapacity), threshold, chunkSize);
+    }
+
+    private ParallelDecryptor(KeyManager keyManager, Executor executor, ExecutorService ownedExecutor,
+                              int threshold, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("分块大小必须大于0: " + chunkSize);
+        }
+        this.keyManager = keyManager;
+        this.executor = executor != null ? executor : ownedExecutor;
+        this.ownedExecutor = ownedExecutor;
+        this.threshold = Math.max(threshold, 1);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * 解密并写回所有登记的值
+     *
+     * @param deferred 延迟解密
+     */
+    public void decrypt(DeferredDecryption deferred) {
+        int size = deferred.size();
+        if (size == 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        String key = keyManager.getDefaultKey();
+        if (size < threshold) {
+            for (DeferredDecryption.Batch batch : deferred.getBatches()) {
+                batch.decrypt(0, batch.size(), key);
+            }
+            sequentialQueries.increment();
+        } else {
+            decryptInParallel(deferred, key);
+            parallelQueries.increment();
+        }
+        decryptedValues.add(size);
+        decryptNanos.add(System.nanoTime() - start);
+    }
+
+    private void decryptInParallel(DeferredDecryption deferred, String key) {
+        List<Runnable> chunks = new ArrayList<>();
+        for (DeferredDecryption.Batch batch : deferred.getBatches()) {
+            for (int from = 0; from < batch.size(); from += chunkSize) {
+                int begin = from;
+                int end = Math.min(from + chunkSize, batch.size());
+                chunks.add(() -> batch.decrypt(begin, end, key));
+            }
+        }
+        parallelChunks.add(chunks.size());
+
+        CountDownLatch latch = new CountDownLatch(chunks.size() - 1);
+        for (int i = 1; i < chunks.size(); i++) {
+            Runnable chunk = chunks.get(i);
+            Runnable task = () -> {
+                try {
+                    chunk.run();
+                } finally {
+                    latch.countDown();
+                }
+            };
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                // 背压：线程池忙时由查询线程自己处理
+                callerRunChunks.increment();
+                task.run();
+            }
+        }
+        chunks.get(0).run();
+        awaitUninterruptibly(latch);
+    }
+
+    /**
+     * 等待所有块完成，结果对象必须完整解密后才能返回，中断只在完成后恢复标记
+     */
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 获取统计信息
+     *
+     * @return 统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("sequentialQueries", sequentialQueries.sum());
+        stats.put("parallelQueries", parallelQueries.sum());
+        stats.put("decryptedValues", decryptedValues.sum());
+        stats.put("parallelChunks", parallelChunks.sum());
+        stats.put("callerRunChunks", callerRunChunks.sum());
+        stats.put("decryptMillis", TimeUnit.NANOSECONDS.toMillis(decryptNanos.sum()));
+        if (ownedExecutor instanceof ThreadPoolExecutor) {
+            stats.put("activeWorkers", ((ThreadPoolExecutor) ownedExecutor).getActiveCount());
+            stats.put("queuedChunks", ((ThreadPoolExecutor) ownedExecutor).getQueue().size());
+        }
+        return stats;
+    }
+
+    /**
+     * 关闭自行创建的线程池，外部执行器由其所有者关闭
+     */
+    public void shutdown() {
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+
+    private static ExecutorService newExecutor(int parallelism, int queueCapacity) {
+        int threads = Math.max(parallelism, 1);
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "securt-kit-decrypt-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(queueCapacity, 1)), threadFactory,
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
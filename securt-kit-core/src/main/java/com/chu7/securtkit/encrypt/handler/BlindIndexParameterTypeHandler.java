@@ -0,0 +1,49 @@
+package com.chu7.securtkit.encrypt.handler;
+
+import com.chu7.securtkit.encrypt.strategy.BlindIndexGenerator;
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 盲索引参数类型处理器
+ * 与盲索引影子列比较的参数在Java端计算盲索引后绑定，只用于参数绑定，读取结果时按原样返回。
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+public class BlindIndexParameterTypeHandler extends BaseTypeHandler<Object> {
+
+    private final BlindIndexGenerator blindIndexGenerator;
+
+    private final String key;
+
+    public BlindIndexParameterTypeHandler(BlindIndexGenerator blindIndexGenerator, String key) {
+        this.blindIndexGenerator = blindIndexGenerator;
+        this.key = key;
+    }
+
+    @Override
+    public void setNonNullParameter(PreparedStatement ps, int i, Object parameter, JdbcType jdbcType) throws SQLException {
+        ps.setString(i, blindIndexGenerator.generate(String.valueOf(parameter), key));
+    }
+
+    @Override
+    public Object getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        return rs.getString(columnName);
+    }
+
+    @Override
+    public Object getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        return rs.getString(columnIndex);
+    }
+
+    @Override
+    public Object getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+        return cs.getString(columnIndex);
+    }
+}
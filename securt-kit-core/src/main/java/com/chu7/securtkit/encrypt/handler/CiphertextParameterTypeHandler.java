@@ -0,0 +1,56 @@
+package com.chu7.securtkit.encrypt.handler;
+
+import com.chu7.securtkit.encrypt.strategy.EncryptStrategy;
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 密文参数类型处理器
+ * DB模式下与加密列等值比较的参数在Java端加密后绑定，SQL中直接比较原始列，加密列上的索引仍然可用。
+ * 只用于参数绑定，读取结果时按原样返回；加密失败时绑定失败，不会以明文写入或比较加密列。
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+public class CiphertextParameterTypeHandler extends BaseTypeHandler<Object> {
+
+    private final EncryptStrategy encryptStrategy;
+
+    private final String key;
+
+    public CiphertextParameterTypeHandler(EncryptStrategy encryptStrategy, String key) {
+        this.encryptStrategy = encryptStrategy;
+        this.key = key;
+    }
+
+    @Override
+    public void setNonNullParameter(PreparedStatement ps, int i, Object parameter, JdbcType jdbcType) throws SQLException {
+        String cipherText;
+        try {
+            cipherText = encryptStrategy.encrypt(String.valueOf(parameter), key);
+        } catch (RuntimeException e) {
+            throw new SQLException("加密参数失败: " + e.getMessage(), e);
+        }
+        ps.setString(i, cipherText);
+    }
+
+    @Override
+    public Object getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        return rs.getString(columnName);
+    }
+
+    @Override
+    public Object getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        return rs.getString(columnIndex);
+    }
+
+    @Override
+    public Object getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+        return cs.getString(columnIndex);
+    }
+}
@@ -0,0 +1,173 @@
+package com.chu7.securtkit.encrypt.handler;
+
+import com.chu7.securtkit.encrypt.cache.EncryptMetadataCache;
+import com.chu7.securtkit.encrypt.core.DeferredDecryption;
+import com.chu7.securtkit.encrypt.core.EncryptFieldMetadata;
+import com.chu7.securtkit.encrypt.core.EntityEncryptMetadata;
+import com.chu7.securtkit.encrypt.util.EncryptUtil;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.property.PropertyTokenizer;
+import org.apache.ibatis.reflection.wrapper.BeanWrapper;
+import org.apache.ibatis.reflection.wrapper.ObjectWrapper;
+import org.apache.ibatis.reflection.wrapper.ObjectWrapperFactory;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 解密对象包装器工厂
+ * MyBatis映射结果时通过 {@link MetaObject} 逐个属性赋值，包含嵌套的 association/collection 对象。
+ * 本工厂为含加密字段的实体返回包装器，给加密字段赋字符串值时先解密，映射完成的对象即为明文，不需要再遍历结果。
+ * 当前线程有 {@link DeferredDecryption} 时先按密文赋值并登记，由查询返回前统一解密；
+ * 对象是延迟解密代理时按密文赋值，由 {@link LazyDecryptHandler} 在首次读取时解密。
+ * <p>
+ * 其他类型交给原工厂处理；原工厂也能包装的实体在其包装器外再包一层。
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+public class DecryptObjectWrapperFactory implements ObjectWrapperFactory {
+
+    private final ObjectWrapperFactory delegate;
+
+    private final EncryptMetadataCache encryptMetadataCache;
+
+    private final EncryptUtil encryptUtil;
+
+    public DecryptObjectWrapperFactory(ObjectWrapperFactory delegate, EncryptMetadataCache encryptMetadataCache,
+                                       EncryptUtil encryptUtil) {
+        this.delegate = delegate;
+        this.encryptMetadataCache = encryptMetadataCache;
+        this.encryptUtil = encryptUtil;
+    }
+
+    @Override
+    public boolean hasWrapperFor(Object object) {
+        return delegate.hasWrapperFor(object) || metadata(object) != null;
+    }
+
+    @Override
+    public ObjectWrapper getWrapperFor(MetaObject metaObject, Object object) {
+        ObjectWrapper wrapper = delegate.hasWrapperFor(object)
+                ? delegate.getWrapperFor(metaObject, object)
+                : new BeanWrapper(metaObject, object);
+        EntityEncryptMetadata metadata = metadata(object);
+        return metadata == null ? wrapper : new DecryptObjectWrapper(wrapper, object, metadata, encryptUtil);
+    }
+
+    /**
+     * 实体的加密元数据，不是含加密字段的实体时返回null
+     */
+    private EntityEncryptMetadata metadata(Object object) {
+        if (object == null || object instanceof Map || object instanceof Collection || object.getClass().isArray()) {
+            return null;
+        }
+        EntityEncryptMetadata metadata = encryptMetadataCache.getMetadata(object.getClass());
+        return metadata.isEmpty() ? null : metadata;
+    }
+
+    /**
+     * 给加密字段赋值时先解密的包装器，其余操作交给原包装器
+     */
+    private static final class DecryptObjectWrapper implements ObjectWrapper {
+
+        private final ObjectWrapper delegate;
+
+        private final Object object;
+
+        private final EntityEncryptMetadata metadata;
+
+        private final EncryptUtil encryptUtil;
+
+        private DecryptObjectWrapper(ObjectWrapper delegate, Object object, EntityEncryptMetadata metadata,
+                                     EncryptUtil encryptUtil) {
+            this.delegate = delegate;
+            this.object = object;
+            this.metadata = metadata;
+            this.encryptUtil = encryptUtil;
+        }
+
+        @Override
+        public Object get(PropertyTokenizer prop) {
+            return delegate.get(prop);
+        }
+
+        @Override
+        public void set(PropertyTokenizer prop, Object value) {
+            if (value instanceof String && prop.getIndex() == null) {
+                EncryptFieldMetadata field = metadata.getField(prop.getName());
+                LazyDecryptHandler lazy = field == null ? null : LazyDecryptHandler.of(object);
+                if (lazy != null) {
+                    // setter会取消登记，先赋值再登记
+                    delegate.set(prop, value);
+                    lazy.markPending(field.getName());
+                    return;
+                }
+                if (field != null) {
+                    DeferredDecryption deferred = DeferredDecryption.current();
+                    if (deferred == null || !deferred.add(object, field, (String) value)) {
+                        value = encryptUtil.decryptField((String) value, field);
+                    }
+                }
+            }
+            delegate.set(prop, value);
+        }
+
+        @Override
+        public String findProperty(String name, boolean useCamelCaseMapping) {
+            return delegate.findProperty(name, useCamelCaseMapping);
+        }
+
+        @Override
+        public String[] getGetterNames() {
+            return delegate.getGetterNames();
+        }
+
+        @Override
+        public String[] getSetterNames() {
+            return delegate.getSetterNames();
+        }
+
+        @Override
+        public Class<?> getSetterType(String name) {
+            return delegate.getSetterType(name);
+        }
+
+        @Override
+        public Class<?> getGetterType(String name) {
+            return delegate.getGetterType(name);
+        }
+
+        @Override
+        public boolean hasSetter(String name) {
+            return delegate.hasSetter(name);
+        }
+
+        @Override
+        public boolean hasGetter(String name) {
+            return delegate.hasGetter(name);
+        }
+
+        @Override
+        public MetaObject instantiatePropertyValue(String name, PropertyTokenizer prop, ObjectFactory objectFactory) {
+            return delegate.instantiatePropertyValue(name, prop, objectFactory);
+        }
+
+        @Override
+        public boolean isCollection() {
+            return delegate.isCollection();
+        }
+
+        @Override
+        public void add(Object element) {
+            delegate.add(element);
+        }
+
+        @Override
+        public <E> void addAll(List<E> element) {
+            delegate.addAll(element);
+        }
+    }
+}
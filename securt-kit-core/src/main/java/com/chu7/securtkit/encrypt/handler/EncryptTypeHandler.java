@@ -36,6 +36,13 @@ public class EncryptTypeHandler extends BaseTypeHandler<String> {
      */
     private boolean enabled = true;
     
+    /**
+     * 是否以二进制读写
+     * 开启后直接使用 setBytes/getBytes 读写VARBINARY等二进制列，不经过Base64字符串
+     * 读取结果时拿不到参数的jdbcType，读写统一只按此开关选择，保证写入的格式能按同样的方式读回
+     */
+    private boolean binary = false;
+    
     public EncryptTypeHandler() {}
     
     public EncryptTypeHandler(String algorithm) {
@@ -47,9 +54,18 @@ public class EncryptTypeHandler extends BaseTypeHandler<String> {
         this.enabled = enabled;
     }
     
+    public EncryptTypeHandler(String algorithm, boolean enabled, boolean binary) {
+        this.algorithm = algorithm;
+        this.enabled = enabled;
+        this.binary = binary;
+    }
+    
     @Override
     public void setNonNullParameter(PreparedStatement ps, int i, String parameter, JdbcType jdbcType) throws SQLException {
-        if (enabled && parameter != null) {
+        if (enabled && binary) {
+            ps.setBytes(i, encryptUtil.encryptToBytes(parameter, algorithm));
+            log.debug("设置二进制加密参数: index={}", i);
+        } else if (enabled && parameter != null) {
             String encryptedValue = encryptUtil.encrypt(parameter, algorithm);
             ps.setString(i, encryptedValue);
             log.debug("设置加密参数: {} -> {}", parameter, encryptedValue);
@@ -60,6 +76,9 @@ public class EncryptTypeHandler extends BaseTypeHandler<String> {
     
     @Override
     public String getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        if (enabled && binary) {
+            return encryptUtil.decryptFromBytes(rs.getBytes(columnName), algorithm);
+        }
         String value = rs.getString(columnName);
         if (enabled && value != null) {
             String decryptedValue = encryptUtil.decrypt(value, algorithm);
@@ -71,6 +90,9 @@ public class EncryptTypeHandler extends BaseTypeHandler<String> {
     
     @Override
     public String getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        if (enabled && binary) {
+            return encryptUtil.decryptFromBytes(rs.getBytes(columnIndex), algorithm);
+        }
         String value = rs.getString(columnIndex);
         if (enabled && value != null) {
             String decryptedValue = encryptUtil.decrypt(value, algorithm);
@@ -82,6 +104,9 @@ public class EncryptTypeHandler extends BaseTypeHandler<String> {
     
     @Override
     public String getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+        if (enabled && binary) {
+            return encryptUtil.decryptFromBytes(cs.getBytes(columnIndex), algorithm);
+        }
         String value = cs.getString(columnIndex);
         if (enabled && value != null) {
             String decryptedValue = encryptUtil.decrypt(value, algorithm);
@@ -118,4 +143,18 @@ public class EncryptTypeHandler extends BaseTypeHandler<String> {
     public boolean isEnabled() {
         return enabled;
     }
+    
+    /**
+     * 设置是否以二进制读写
+     */
+    public void setBinary(boolean binary) {
+        this.binary = binary;
+    }
+    
+    /**
+     * 是否以二进制读写
+     */
+    public boolean isBinary() {
+        return binary;
+    }
 } 
\ No newline at end of file
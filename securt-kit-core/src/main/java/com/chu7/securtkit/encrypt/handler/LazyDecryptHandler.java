@@ -0,0 +1,177 @@
+package com.chu7.securtkit.encrypt.handler;
+
+import com.chu7.securtkit.encrypt.core.EncryptFieldMetadata;
+import com.chu7.securtkit.encrypt.core.EntityEncryptMetadata;
+import com.chu7.securtkit.encrypt.util.EncryptUtil;
+import org.apache.ibatis.javassist.util.proxy.MethodHandler;
+import org.apache.ibatis.javassist.util.proxy.Proxy;
+import org.apache.ibatis.javassist.util.proxy.ProxyFactory;
+import org.apache.ibatis.reflection.property.PropertyCopier;
+import org.apache.ibatis.reflection.property.PropertyNamer;
+
+import java.io.InvalidClassException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 延迟解密处理器
+ * 映射结果时加密字段按密文赋值并登记为待解密，首次调用该字段的getter时才解密，未被读取的加密字段不产生解密开销。
+ * 调用setter会取消登记；调用 equals、hashCode、toString 等触发方法时解密全部待解密字段，与MyBatis延迟加载的触发规则一致。
+ * Java序列化调用 writeReplace 时解密全部字段，写出不含处理器的普通实体副本。
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+public class LazyDecryptHandler implements MethodHandler {
+
+    static final String WRITE_REPLACE_METHOD = "writeReplace";
+
+    private final EntityEncryptMetadata metadata;
+
+    private final EncryptUtil encryptUtil;
+
+    private final Set<String> triggerMethods;
+
+    /**
+     * 待解密的属性名
+     */
+    private final Set<String> pending = new HashSet<>();
+
+    /**
+     * 是否还有待解密的属性，全部解密或取消后调用不再加锁
+     */
+    private volatile boolean hasPending;
+
+    public LazyDecryptHandler(EntityEncryptMetadata metadata, EncryptUtil encryptUtil, Set<String> triggerMethods) {
+        this.metadata = metadata;
+        this.encryptUtil = encryptUtil;
+        this.triggerMethods = triggerMethods;
+    }
+
+    /**
+     * 获取对象的延迟解密处理器
+     *
+     * @param object 对象
+     * @return 处理器，不是延迟解密代理时返回null
+     */
+    public static LazyDecryptHandler of(Object object) {
+        if (object instanceof Proxy) {
+            MethodHandler handler = ProxyFactory.getHandler((Proxy) object);
+            if (handler instanceof LazyDecryptHandler) {
+                return (LazyDecryptHandler) handler;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 立即解密对象所有待解密的字段，用于直接读取字段值之前，例如加密参数时
+     * 参数为Map（@Param、MyBatis-Plus 的 et 参数）时解密其中的每个值，值为集合时解密集合中的元素
+     *
+     * @param object 对象，不是延迟解密代理时不处理
+     */
+    public static void resolve(Object object) {
+        if (object instanceof Map) {
+            for (Object value : ((Map<?, ?>) object).values()) {
+                if (value instanceof Collection) {
+                    for (Object element : (Collection<?>) value) {
+                        resolveProxy(element);
+                    }
+                } else {
+                    resolveProxy(value);
+                }
+            }
+        } else {
+            resolveProxy(object);
+        }
+    }
+
+    private static void resolveProxy(Object object) {
+        LazyDecryptHandler handler = of(object);
+        if (handler != null && handler.hasPending) {
+            handler.resolveAll(object);
+        }
+    }
+
+    /**
+     * 登记待解密的属性，需在按密文赋值之后调用
+     *
+     * @param property 属性名
+     */
+    public synchronized void markPending(String property) {
+        pending.add(property);
+        hasPending = true;
+    }
+
+    @Override
+    public Object invoke(Object self, Method method, Method proceed, Object[] args) throws Throwable {
+        String methodName = method.getName();
+        if (WRITE_REPLACE_METHOD.equals(methodName) && method.getParameterCount() == 0) {
+            resolveAll(self);
+            // 实体自身未定义 writeReplace 时没有原方法可调用
+            return proceed == null ? plainCopy(self) : proceed.invoke(self, args);
+        }
+        if (hasPending) {
+            synchronized (this) {
+                if (triggerMethods.contains(methodName)) {
+                    resolveAll(self);
+                } else if (PropertyNamer.isSetter(methodName)) {
+                    pending.remove(PropertyNamer.methodToProperty(methodName));
+                } else if (PropertyNamer.isGetter(methodName)) {
+                    String property = PropertyNamer.methodToProperty(methodName);
+                    if (pending.remove(property)) {
+                        decrypt(self, property);
+                    }
+                }
+                hasPending = !pending.isEmpty();
+            }
+        }
+        return proceed.invoke(self, args);
+    }
+
+    private synchronized void resolveAll(Object self) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        String[] properties = pending.toArray(new String[0]);
+        pending.clear();
+        for (String property : properties) {
+            decrypt(self, property);
+        }
+        // 写回明文之后才清除标记，其他线程看到标记已清除时一定能读到明文
+        hasPending = false;
+    }
+
+    /**
+     * 复制为实体类的普通对象，序列化结果不依赖代理类和处理器
+     */
+    private static Object plainCopy(Object self) throws InvalidClassException {
+        Class<?> type = self.getClass().getSuperclass();
+        try {
+            Constructor<?> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            Object copy = constructor.newInstance();
+            PropertyCopier.copyBeanProperties(type, self, copy);
+            return copy;
+        } catch (ReflectiveOperationException e) {
+            InvalidClassException exception = new InvalidClassException(type.getName(), "延迟解密代理无法复制为普通对象");
+            exception.initCause(e);
+            throw exception;
+        }
+    }
+
+    /**
+     * 解密并写回单个属性，调用前已取消登记，访问器经过getter/setter时不会重复解密
+     */
+    private void decrypt(Object self, String property) {
+        EncryptFieldMetadata field = metadata.getField(property);
+        Object value = field.get(self);
+        if (value instanceof String) {
+            field.set(self, encryptUtil.decryptField((String) value, field));
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.chu7.securtkit.encrypt.handler;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.apache.ibatis.javassist.util.proxy.MethodHandler;
+import org.apache.ibatis.javassist.util.proxy.ProxyObject;
+
+/**
+ * 延迟解密代理的Jackson模块
+ * javassist代理实现的 {@link ProxyObject#getHandler()} 会被Jackson当作 handler 属性输出，处理器没有可序列化的属性，
+ * 默认配置下（FAIL_ON_EMPTY_BEANS）序列化失败。本模块以混入注解忽略该方法，实体的其他getter照常触发解密。
+ * Spring Boot 自动注册到容器中的 ObjectMapper，自行创建的 ObjectMapper 需调用 registerModule。
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+public class LazyDecryptJacksonModule extends SimpleModule {
+
+    public LazyDecryptJacksonModule() {
+        super(LazyDecryptJacksonModule.class.getSimpleName());
+        setMixInAnnotation(ProxyObject.class, ProxyObjectMixIn.class);
+    }
+
+    /**
+     * {@link ProxyObject} 的混入注解
+     */
+    interface ProxyObjectMixIn {
+
+        @JsonIgnore
+        MethodHandler getHandler();
+    }
+}
@@ -0,0 +1,129 @@
+package com.chu7.securtkit.encrypt.handler;
+
+import com.chu7.securtkit.encrypt.cache.EncryptMetadataCache;
+import com.chu7.securtkit.encrypt.core.EntityEncryptMetadata;
+import com.chu7.securtkit.encrypt.util.EncryptUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.executor.loader.WriteReplaceInterface;
+import org.apache.ibatis.javassist.util.proxy.Proxy;
+import org.apache.ibatis.javassist.util.proxy.ProxyFactory;
+import org.apache.ibatis.reflection.factory.ObjectFactory;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 延迟解密对象工厂
+ * 含加密字段的实体创建为代理子类（MyBatis内置的javassist，与延迟加载代理相同），由 {@link LazyDecryptHandler}
+ * 在首次读取加密字段时解密；其他类型以及不能生成子类的实体交给原工厂创建。
+ * <p>
+ * 代理不使用javassist生成的writeReplace（反序列化端需要代理工厂），Java序列化时由处理器替换为解密后的普通实体；
+ * 代理实现的 {@code ProxyObject#getHandler()} 会被Jackson当作属性，存在Jackson时由 {@link LazyDecryptJacksonModule} 隐藏。
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+@Slf4j
+public class LazyDecryptObjectFactory implements ObjectFactory {
+
+    private final ObjectFactory delegate;
+
+    private final EncryptMetadataCache encryptMetadataCache;
+
+    private final EncryptUtil encryptUtil;
+
+    private final Set<String> triggerMethods;
+
+    /**
+     * 缓存：实体类 -> 代理类，不能代理的实体为自身
+     */
+    private final Map<Class<?>, Class<?>> proxyTypes = new ConcurrentHashMap<>();
+
+    public LazyDecryptObjectFactory(ObjectFactory delegate, EncryptMetadataCache encryptMetadataCache,
+                                    EncryptUtil encryptUtil, Set<String> triggerMethods) {
+        this.delegate = delegate;
+        this.encryptMetadataCache = encryptMetadataCache;
+        this.encryptUtil = encryptUtil;
+        this.triggerMethods = triggerMethods;
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+        delegate.setProperties(properties);
+    }
+
+    @Override
+    public <T> T create(Class<T> type) {
+        return create(type, null, null);
+    }
+
+    @Override
+    public <T> T create(Class<T> type, List<Class<?>> constructorArgTypes, List<Object> constructorArgs) {
+        Class<?> proxyType = proxyTypes.computeIfAbsent(type, this::proxyType);
+        if (proxyType == type) {
+            return delegate.create(type, constructorArgTypes, constructorArgs);
+        }
+        try {
+            Class<?>[] argTypes = constructorArgTypes == null
+                    ? new Class<?>[0] : constructorArgTypes.toArray(new Class<?>[0]);
+            Object[] args = constructorArgs == null ? new Object[0] : constructorArgs.toArray();
+            Constructor<?> constructor = proxyType.getDeclaredConstructor(argTypes);
+            constructor.setAccessible(true);
+            Object proxy = constructor.newInstance(args);
+            ((Proxy) proxy).setHandler(new LazyDecryptHandler(
+                    encryptMetadataCache.getMetadata(type), encryptUtil, triggerMethods));
+            return type.cast(proxy);
+        } catch (Exception e) {
+            log.warn("创建延迟解密代理失败，改为映射时解密: {}", type.getName(), e);
+            proxyTypes.put(type, type);
+            return delegate.create(type, constructorArgTypes, constructorArgs);
+        }
+    }
+
+    @Override
+    public <T> boolean isCollection(Class<T> type) {
+        return delegate.isCollection(type);
+    }
+
+    /**
+     * 含加密字段且可以生成子类的实体返回代理类，否则返回自身
+     */
+    private Class<?> proxyType(Class<?> type) {
+        if (type.isInterface() || type.isArray() || type.isPrimitive() || Map.class.isAssignableFrom(type)
+                || Collection.class.isAssignableFrom(type) || Modifier.isFinal(type.getModifiers())
+                || Modifier.isAbstract(type.getModifiers()) || ProxyFactory.isProxyClass(type)) {
+            return type;
+        }
+        EntityEncryptMetadata metadata = encryptMetadataCache.getMetadata(type);
+        if (metadata.isEmpty()) {
+            return type;
+        }
+        ProxyFactory proxyFactory = new ProxyFactory();
+        proxyFactory.setSuperclass(type);
+        proxyFactory.setUseWriteReplace(false);
+        if (!declaresWriteReplace(type)) {
+            proxyFactory.setInterfaces(new Class<?>[]{WriteReplaceInterface.class});
+        }
+        try {
+            return proxyFactory.createClass();
+        } catch (RuntimeException e) {
+            log.warn("实体不能生成延迟解密代理，改为映射时解密: {}", type.getName(), e);
+            return type;
+        }
+    }
+
+    private static boolean declaresWriteReplace(Class<?> type) {
+        try {
+            type.getDeclaredMethod(LazyDecryptHandler.WRITE_REPLACE_METHOD);
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+}
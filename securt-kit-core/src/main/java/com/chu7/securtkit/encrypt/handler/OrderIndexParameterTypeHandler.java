@@ -0,0 +1,56 @@
+package com.chu7.securtkit.encrypt.handler;
+
+import com.chu7.securtkit.encrypt.strategy.OrderIndexEncoder;
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * 保序索引参数类型处理器
+ * 与保序索引影子列比较的参数在Java端计算保序编码后绑定，只用于参数绑定，读取结果时按原样返回。
+ * 参数不是32位整数时绑定NULL，比较结果为不匹配。
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+public class OrderIndexParameterTypeHandler extends BaseTypeHandler<Object> {
+
+    private final OrderIndexEncoder orderIndexEncoder;
+
+    private final String key;
+
+    public OrderIndexParameterTypeHandler(OrderIndexEncoder orderIndexEncoder, String key) {
+        this.orderIndexEncoder = orderIndexEncoder;
+        this.key = key;
+    }
+
+    @Override
+    public void setNonNullParameter(PreparedStatement ps, int i, Object parameter, JdbcType jdbcType) throws SQLException {
+        Long encoded = orderIndexEncoder.encode(parameter, key);
+        if (encoded == null) {
+            ps.setNull(i, Types.BIGINT);
+        } else {
+            ps.setLong(i, encoded);
+        }
+    }
+
+    @Override
+    public Object getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        return rs.getObject(columnName);
+    }
+
+    @Override
+    public Object getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        return rs.getObject(columnIndex);
+    }
+
+    @Override
+    public Object getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+        return cs.getObject(columnIndex);
+    }
+}
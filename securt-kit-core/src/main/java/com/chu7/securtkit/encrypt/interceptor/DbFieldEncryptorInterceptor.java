@@ -1,31 +1,104 @@
 package com.chu7.securtkit.encrypt.interceptor;
 
+import com.chu7.securtkit.encrypt.cache.RewritePlanCache;
+import com.chu7.securtkit.encrypt.cache.SqlRewriteCache;
 import com.chu7.securtkit.encrypt.cache.TableFieldCache;
+import com.chu7.securtkit.encrypt.config.EncryptProperties;
+import com.chu7.securtkit.encrypt.handler.BlindIndexParameterTypeHandler;
+import com.chu7.securtkit.encrypt.handler.CiphertextParameterTypeHandler;
+import com.chu7.securtkit.encrypt.handler.OrderIndexParameterTypeHandler;
+import com.chu7.securtkit.encrypt.strategy.BlindIndexGenerator;
+import com.chu7.securtkit.encrypt.strategy.KeyManager;
+import com.chu7.securtkit.encrypt.strategy.LikeTokenGenerator;
+import com.chu7.securtkit.encrypt.strategy.MySqlAesEncryptStrategy;
+import com.chu7.securtkit.encrypt.strategy.OrderIndexEncoder;
 import com.chu7.securtkit.encrypt.util.SqlParseUtil;
 import com.chu7.securtkit.encrypt.visitor.DbEncryptStatementVisitor;
+import com.chu7.securtkit.encrypt.visitor.KeyParameter;
+import com.chu7.securtkit.encrypt.visitor.RewriteResult;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.executor.statement.BaseStatementHandler;
+import org.apache.ibatis.executor.statement.RoutingStatementHandler;
 import org.apache.ibatis.executor.statement.StatementHandler;
 import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.plugin.*;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.SystemMetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.StringTypeHandler;
+import org.apache.ibatis.type.TypeHandler;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
-import java.util.Properties;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * 数据库字段加密拦截器
- * 拦截SQL执行，对需要加密的字段进行自动加解密处理
+ * 拦截SQL执行，对需要加密的字段进行自动加解密处理；POJO模式下只改写盲索引、分词索引和保序索引查询条件
+ * <p>
+ * 同时拦截 prepare 和 parameterize：BatchExecutor、ReuseExecutor 复用已预编译的语句时只调用 parameterize，
+ * 这些行的 BoundSql 同样需要改写参数绑定；已改写的 BoundSql 做标记，同一行不会改写两次。
  *
  * @author chu7
  * @date 2025/8/15
  */
 @Slf4j
 @Intercepts({
-    @Signature(type = StatementHandler.class, method = "prepare", args = {Connection.class, Integer.class})
+    @Signature(type = StatementHandler.class, method = "prepare", args = {Connection.class, Integer.class}),
+    @Signature(type = StatementHandler.class, method = "parameterize", args = {Statement.class})
 })
-public class DbFieldEncryptorInterceptor implements Interceptor {
+public class DbFieldEncryptorInterceptor implements EncryptStage {
+    
+    /**
+     * BoundSql的sql字段写入句柄
+     * 访问句柄在类加载时解析一次，MyBatis版本不兼容时拦截器创建失败，启动即报错，不会在每次查询时失败；
+     * static final 的 MethodHandle 以 invokeExact 调用时可被JIT内联，开销与直接写字段相当
+     */
+    private static final MethodHandle SQL_SETTER = setter(BoundSql.class, "sql", String.class);
+    
+    /**
+     * BoundSql的parameterMappings字段写入句柄，绑定密钥参数时整体替换，避免修改语句共享的参数列表
+     */
+    private static final MethodHandle PARAMETER_MAPPINGS_SETTER = setter(BoundSql.class, "parameterMappings", List.class);
+    
+    /**
+     * 密钥参数的类型处理器
+     */
+    private static final StringTypeHandler KEY_TYPE_HANDLER = new StringTypeHandler();
+    
+    /**
+     * LIKE查询分词附加参数名的前缀
+     */
+    private static final String LIKE_TOKEN_PARAMETER = "__securtKitLikeToken";
+    
+    /**
+     * 已改写标记的附加参数名
+     */
+    private static final String REWRITTEN_PARAMETER = "__securtKitRewritten";
+    
+    /**
+     * RoutingStatementHandler的delegate字段读取句柄
+     */
+    private static final MethodHandle DELEGATE_GETTER = getter(RoutingStatementHandler.class, "delegate",
+            StatementHandler.class);
+    
+    /**
+     * BaseStatementHandler的mappedStatement字段读取句柄
+     */
+    private static final MethodHandle MAPPED_STATEMENT_GETTER = getter(BaseStatementHandler.class, "mappedStatement",
+            MappedStatement.class);
     
     @Autowired
     private TableFieldCache tableFieldCache;
@@ -33,6 +106,50 @@ public class DbFieldEncryptorInterceptor implements Interceptor {
     @Autowired
     private DbEncryptStatementVisitor dbEncryptStatementVisitor;
     
+    @Autowired
+    private SqlRewriteCache sqlRewriteCache;
+    
+    @Autowired
+    private RewritePlanCache rewritePlanCache;
+    
+    @Autowired
+    private EncryptProperties encryptProperties;
+    
+    @Autowired(required = false)
+    private MySqlAesEncryptStrategy mySqlAesEncryptStrategy;
+    
+    @Autowired(required = false)
+    private BlindIndexGenerator blindIndexGenerator;
+    
+    @Autowired(required = false)
+    private KeyManager keyManager;
+    
+    @Autowired(required = false)
+    private LikeTokenGenerator likeTokenGenerator;
+    
+    @Autowired(required = false)
+    private OrderIndexEncoder orderIndexEncoder;
+    
+    /**
+     * Java端加密参数的类型处理器，首次使用时创建
+     */
+    private volatile CiphertextParameterTypeHandler ciphertextTypeHandler;
+    
+    /**
+     * 盲索引参数的类型处理器，首次使用时创建
+     */
+    private volatile BlindIndexParameterTypeHandler blindIndexTypeHandler;
+    
+    /**
+     * 保序索引参数的类型处理器，首次使用时创建
+     */
+    private volatile OrderIndexParameterTypeHandler orderIndexTypeHandler;
+    
+    @Override
+    public int getOrder() {
+        return SQL_REWRITE_ORDER;
+    }
+    
     @Override
     public Object intercept(Invocation invocation) throws Throwable {
         // 获取拦截器目标对象
@@ -40,29 +157,41 @@ public class DbFieldEncryptorInterceptor implements Interceptor {
         
         // 获取当前执行的SQL
         BoundSql boundSql = statementHandler.getBoundSql();
+        if (boundSql.hasAdditionalParameter(REWRITTEN_PARAMETER)) {
+            // prepare时已改写
+            return invocation.proceed();
+        }
         String originalSql = boundSql.getSql();
         
         log.debug("【DbFieldEncryptor】原始SQL: {}", originalSql);
         
-        // 检查是否需要处理加密
-        if (!needProcess(originalSql)) {
+        // 启动时已确定改写方式的静态语句不再检查SQL；SQL被其他插件修改过时计划不适用，按SQL文本处理，
+        // 因此不按计划在 supports 中跳过本阶段
+        MappedStatement mappedStatement = mappedStatement(statementHandler);
+        RewritePlanCache.Plan plan = mappedStatement == null ? null : rewritePlanCache.getPlan(mappedStatement.getId());
+        if (plan != null && plan.appliesTo(originalSql)) {
+            if (plan.getKind() == RewritePlanCache.Kind.STATIC) {
+                applySql(boundSql, mappedStatement, plan.getResult());
+            }
             return invocation.proceed();
         }
         
-        // 使用访问者处理SQL
-        String processedSql = dbEncryptStatementVisitor.processSql(originalSql);
-        
-        if (dbEncryptStatementVisitor.hasChanges()) {
-            log.debug("【DbFieldEncryptor】处理后的SQL: {}", processedSql);
-            
-            // 反射修改SQL语句
-            try {
-                Field sqlField = boundSql.getClass().getDeclaredField("sql");
-                sqlField.setAccessible(true);
-                sqlField.set(boundSql, processedSql);
-            } catch (Exception e) {
-                log.error("修改SQL语句失败", e);
+        // 命中缓存时只需一次哈希查找
+        SqlRewriteCache.Entry cached = sqlRewriteCache.get(originalSql);
+        if (cached != null) {
+            if (cached.isRewritten()) {
+                applySql(boundSql, mappedStatement, cached.getResult());
             }
+            return invocation.proceed();
+        }
+        
+        long version = sqlRewriteCache.version();
+        RewriteResult result = rewrite(originalSql);
+        if (result != null) {
+            sqlRewriteCache.putResult(originalSql, result, version);
+            applySql(boundSql, mappedStatement, result);
+        } else {
+            sqlRewriteCache.putResult(originalSql, null, version);
         }
         
         // 执行修改后的SQL
@@ -70,25 +199,299 @@ public class DbFieldEncryptorInterceptor implements Interceptor {
     }
     
     /**
-     * 判断是否需要处理加密
+     * 改写SQL
+     *
+     * @return 改写结果，不需要改写时返回null
      */
-    private boolean needProcess(String sql) {
-        if (sql == null || sql.trim().isEmpty()) {
-            return false;
+    private RewriteResult rewrite(String originalSql) {
+        // 检查是否需要处理加密
+        if (!needProcess(originalSql)) {
+            return null;
         }
         
-        // 检查是否包含需要加密的表
-        return tableFieldCache.getAllEncryptTables().stream()
-                .anyMatch(tableName -> sql.toLowerCase().contains(tableName.toLowerCase()));
+        // 使用访问者处理SQL
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(originalSql);
+        
+        if (result.isChanged()) {
+            log.debug("【DbFieldEncryptor】处理后的SQL: {}, 加密列: {}", result.getSql(), result.getTouchedColumns());
+            return result;
+        }
+        return null;
     }
     
-    @Override
-    public Object plugin(Object target) {
-        return Plugin.wrap(target, this);
+    /**
+     * 替换SQL语句，有密钥参数、Java端加密参数或盲索引参数时同时调整参数绑定
+     */
+    private void applySql(BoundSql boundSql, MappedStatement mappedStatement, RewriteResult result) {
+        boundSql.setAdditionalParameter(REWRITTEN_PARAMETER, Boolean.TRUE);
+        replaceSql(boundSql, result.getSql());
+        if (result.hasParameterSlots()) {
+            bindParameters(boundSql, mappedStatement, result);
+        }
     }
     
-    @Override
-    public void setProperties(Properties properties) {
-        // 可以在这里设置拦截器属性
+    /**
+     * 在密钥占位符对应的位置插入密钥参数，Java端加密、计算盲索引和保序编码的参数换用对应的类型处理器，
+     * LIKE参数展开为查询分词，复核LIKE条件的位置复用该参数
+     */
+    private void bindParameters(BoundSql boundSql, MappedStatement mappedStatement, RewriteResult result) {
+        int[] keySlots = result.getKeySlots();
+        int[] encryptSlots = result.getEncryptSlots();
+        int[] blindIndexSlots = result.getBlindIndexSlots();
+        int[] likeTokenSlots = result.getLikeTokenSlots();
+        int[] likePatternSlots = result.getLikePatternSlots();
+        int[] orderIndexSlots = result.getOrderIndexSlots();
+        List<ParameterMapping> original = boundSql.getParameterMappings();
+        int total = original.size() + keySlots.length + likePatternSlots.length;
+        Configuration configuration = mappedStatement == null ? null : mappedStatement.getConfiguration();
+        ParameterMapping keyMapping = keySlots.length == 0 ? null : new ParameterMapping.Builder(
+                configuration, KeyParameter.PARAMETER, String.class).typeHandler(KEY_TYPE_HANDLER).build();
+        List<ParameterMapping> mappings = new ArrayList<>(total);
+        int[] likeTokenCounts = new int[likeTokenSlots.length];
+        ParameterMapping likeMapping = null;
+        int slot = 0;
+        int encryptSlot = 0;
+        int blindIndexSlot = 0;
+        int likeTokenSlot = 0;
+        int likePatternSlot = 0;
+        int orderIndexSlot = 0;
+        int source = 0;
+        for (int i = 0; i < total; i++) {
+            if (slot < keySlots.length && keySlots[slot] == i) {
+                mappings.add(keyMapping);
+                slot++;
+            } else if (likePatternSlot < likePatternSlots.length && likePatternSlots[likePatternSlot] == i) {
+                mappings.add(likeMapping);
+                likePatternSlot++;
+            } else if (source < original.size()) {
+                ParameterMapping mapping = original.get(source++);
+                if (encryptSlot < encryptSlots.length && encryptSlots[encryptSlot] == i) {
+                    mapping = withTypeHandler(configuration, mapping, ciphertextTypeHandler());
+                    encryptSlot++;
+                } else if (blindIndexSlot < blindIndexSlots.length && blindIndexSlots[blindIndexSlot] == i) {
+                    mapping = withTypeHandler(configuration, mapping, blindIndexTypeHandler());
+                    blindIndexSlot++;
+                } else if (orderIndexSlot < orderIndexSlots.length && orderIndexSlots[orderIndexSlot] == i) {
+                    mapping = withTypeHandler(configuration, mapping, orderIndexTypeHandler());
+                    orderIndexSlot++;
+                } else if (likeTokenSlot < likeTokenSlots.length && likeTokenSlots[likeTokenSlot] == i) {
+                    likeMapping = mapping;
+                    likeTokenCounts[likeTokenSlot] = bindLikeTokens(boundSql, configuration, mapping, likeTokenSlot,
+                            mappings);
+                    likeTokenSlot++;
+                    continue;
+                }
+                mappings.add(mapping);
+            }
+        }
+        try {
+            PARAMETER_MAPPINGS_SETTER.invokeExact(boundSql, mappings);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+        if (keyMapping != null) {
+            boundSql.setAdditionalParameter(KeyParameter.PARAMETER, encryptProperties.getKey());
+        }
+        if (likeTokenSlots.length > 0) {
+            replaceSql(boundSql, KeyParameter.expandLikeTokens(boundSql.getSql(), likeTokenSlots, likeTokenCounts));
+        }
+    }
+    
+    /**
+     * 计算LIKE参数的查询分词，以附加参数绑定
+     *
+     * @return 查询分词数量
+     */
+    private int bindLikeTokens(BoundSql boundSql, Configuration configuration, ParameterMapping mapping, int index,
+                               List<ParameterMapping> mappings) {
+        Object value = parameterValue(boundSql, configuration, mapping.getProperty());
+        List<String> tokens = likeTokenGenerator().queryTokens(value == null ? null : value.toString(), indexKey());
+        if (tokens == null) {
+            // LIKE NULL 不匹配任何行
+            tokens = Collections.singletonList(null);
+        }
+        for (int i = 0; i < tokens.size(); i++) {
+            String name = LIKE_TOKEN_PARAMETER + index + "_" + i;
+            boundSql.setAdditionalParameter(name, tokens.get(i));
+            mappings.add(new ParameterMapping.Builder(configuration, name, String.class)
+                    .jdbcType(JdbcType.VARCHAR).typeHandler(KEY_TYPE_HANDLER).build());
+        }
+        return tokens.size();
+    }
+    
+    /**
+     * 按 DefaultParameterHandler 的规则取参数值
+     */
+    private Object parameterValue(BoundSql boundSql, Configuration configuration, String property) {
+        if (boundSql.hasAdditionalParameter(property)) {
+            return boundSql.getAdditionalParameter(property);
+        }
+        Object parameterObject = boundSql.getParameterObject();
+        if (parameterObject == null) {
+            return null;
+        }
+        if (configuration != null && configuration.getTypeHandlerRegistry().hasTypeHandler(parameterObject.getClass())) {
+            return parameterObject;
+        }
+        MetaObject metaObject = configuration != null
+                ? configuration.newMetaObject(parameterObject) : SystemMetaObject.forObject(parameterObject);
+        return metaObject.getValue(property);
+    }
+    
+    /**
+     * 复制参数映射并换用指定的类型处理器，保留原映射的全部属性，不修改语句共享的映射
+     */
+    private ParameterMapping withTypeHandler(Configuration configuration, ParameterMapping mapping,
+                                             TypeHandler<?> typeHandler) {
+        return new ParameterMapping.Builder(configuration, mapping.getProperty(), mapping.getJavaType())
+                .jdbcType(mapping.getJdbcType())
+                .jdbcTypeName(mapping.getJdbcTypeName())
+                .mode(mapping.getMode())
+                .numericScale(mapping.getNumericScale())
+                .resultMapId(mapping.getResultMapId())
+                .expression(mapping.getExpression())
+                .typeHandler(typeHandler)
+                .build();
+    }
+    
+    private CiphertextParameterTypeHandler ciphertextTypeHandler() {
+        CiphertextParameterTypeHandler handler = ciphertextTypeHandler;
+        if (handler == null) {
+            MySqlAesEncryptStrategy strategy = mySqlAesEncryptStrategy != null
+                    ? mySqlAesEncryptStrategy : new MySqlAesEncryptStrategy();
+            handler = new CiphertextParameterTypeHandler(strategy, encryptProperties.getKey());
+            ciphertextTypeHandler = handler;
+        }
+        return handler;
+    }
+    
+    private BlindIndexParameterTypeHandler blindIndexTypeHandler() {
+        BlindIndexParameterTypeHandler handler = blindIndexTypeHandler;
+        if (handler == null) {
+            handler = new BlindIndexParameterTypeHandler(blindIndexGenerator(), indexKey());
+            blindIndexTypeHandler = handler;
+        }
+        return handler;
+    }
+    
+    private OrderIndexParameterTypeHandler orderIndexTypeHandler() {
+        OrderIndexParameterTypeHandler handler = orderIndexTypeHandler;
+        if (handler == null) {
+            OrderIndexEncoder encoder = orderIndexEncoder != null
+                    ? orderIndexEncoder : new OrderIndexEncoder();
+            handler = new OrderIndexParameterTypeHandler(encoder, indexKey());
+            orderIndexTypeHandler = handler;
+        }
+        return handler;
+    }
+    
+    private BlindIndexGenerator blindIndexGenerator() {
+        BlindIndexGenerator generator = blindIndexGenerator;
+        if (generator == null) {
+            generator = new BlindIndexGenerator(encryptProperties.getBlindIndexLength());
+            blindIndexGenerator = generator;
+        }
+        return generator;
+    }
+    
+    private LikeTokenGenerator likeTokenGenerator() {
+        LikeTokenGenerator generator = likeTokenGenerator;
+        if (generator == null) {
+            generator = new LikeTokenGenerator(blindIndexGenerator(), encryptProperties.getLikeIndex().getGramSize());
+            likeTokenGenerator = generator;
+        }
+        return generator;
+    }
+    
+    /**
+     * 盲索引、分词和保序编码的HMAC密钥来源
+     */
+    private String indexKey() {
+        return keyManager != null ? keyManager.getDefaultKey() : encryptProperties.getKey();
+    }
+    
+    /**
+     * 修改SQL语句
+     */
+    private void replaceSql(BoundSql boundSql, String processedSql) {
+        try {
+            SQL_SETTER.invokeExact(boundSql, processedSql);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+    
+    /**
+     * 获取语句处理器对应的MappedStatement，无法获取时返回null
+     */
+    static MappedStatement mappedStatement(StatementHandler statementHandler) {
+        try {
+            Object handler = statementHandler;
+            // 被其他插件包装时取出原始对象
+            while (Proxy.isProxyClass(handler.getClass())) {
+                handler = SystemMetaObject.forObject(Proxy.getInvocationHandler(handler)).getValue("target");
+            }
+            if (handler instanceof RoutingStatementHandler) {
+                handler = (StatementHandler) DELEGATE_GETTER.invokeExact((RoutingStatementHandler) handler);
+            }
+            if (handler instanceof BaseStatementHandler) {
+                return (MappedStatement) MAPPED_STATEMENT_GETTER.invokeExact((BaseStatementHandler) handler);
+            }
+        } catch (Throwable e) {
+            log.debug("获取MappedStatement失败", e);
+        }
+        return null;
+    }
+    
+    private static MethodHandle setter(Class<?> type, String name, Class<?> fieldType) {
+        try {
+            return MethodHandles.lookup().unreflectSetter(field(type, name))
+                    .asType(MethodType.methodType(void.class, type, fieldType));
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("无法写入" + type.getSimpleName() + "的" + name + "字段", e);
+        }
+    }
+    
+    private static MethodHandle getter(Class<?> type, String name, Class<?> fieldType) {
+        try {
+            return MethodHandles.lookup().unreflectGetter(field(type, name))
+                    .asType(MethodType.methodType(fieldType, type));
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("无法读取" + type.getSimpleName() + "的" + name + "字段", e);
+        }
+    }
+    
+    private static Field field(Class<?> type, String name) {
+        try {
+            Field field = type.getDeclaredField(name);
+            field.setAccessible(true);
+            return field;
+        } catch (NoSuchFieldException e) {
+            throw new IllegalStateException(type.getSimpleName() + "中未找到" + name + "字段", e);
+        } catch (RuntimeException e) {
+            // 模块系统或安全管理器拒绝访问
+            throw new IllegalStateException("无法访问" + type.getSimpleName() + "的" + name + "字段", e);
+        }
+    }
+    
+    /**
+     * 句柄调用抛出的受检异常包装为运行时异常，启动时已校验过句柄，正常情况下不会发生
+     */
+    private static RuntimeException rethrow(Throwable e) {
+        if (e instanceof RuntimeException) {
+            return (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        return new IllegalStateException(e);
+    }
+    
+    /**
+     * 判断是否需要处理加密
+     */
+    private boolean needProcess(String sql) {
+        // 一次扫描检查是否包含需要加密的表，空SQL不会匹配
+        return tableFieldCache.containsEncryptTable(sql);
     }
 }
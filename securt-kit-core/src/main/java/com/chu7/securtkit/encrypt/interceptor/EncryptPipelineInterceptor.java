@@ -0,0 +1,281 @@
+package com.chu7.securtkit.encrypt.interceptor;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.SystemMetaObject;
+import org.springframework.core.annotation.AnnotationAwareOrderComparator;
+import org.springframework.core.annotation.AnnotationUtils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * 加解密管道拦截器
+ * 将参数加密、SQL改写、结果解密等 {@link EncryptStage} 合并为一个MyBatis插件：每个被拦截的对象只生成一层代理，
+ * 调用时按顺序依次进入声明了该方法的阶段，最后执行原方法。
+ * <p>
+ * 每个阶段对每个MappedStatement是否需要处理（{@link EncryptStage#supports(MappedStatement)}）只计算一次，
+ * 结果以位图缓存，不需要处理的阶段直接跳过；表字段配置变化时调用 {@link #invalidate()} 重新计算。
+ * 拦截的方法由各阶段的 {@link Intercepts} 声明汇总而来，本类不声明 {@link Intercepts}。
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+@Slf4j
+public class EncryptPipelineInterceptor implements Interceptor {
+
+    /**
+     * 全部阶段都需要处理
+     */
+    private static final long ALL = -1L;
+
+    /**
+     * 按顺序排列的阶段，最多64个
+     */
+    private final EncryptStage[] stages;
+
+    /**
+     * 被拦截的方法 -> 声明了该方法的阶段下标，按顺序排列
+     */
+    private final Map<Method, int[]> methodStages;
+
+    /**
+     * 被拦截的接口
+     */
+    private final Set<Class<?>> types;
+
+    /**
+     * MappedStatement -> 需要处理的阶段位图
+     */
+    private final Map<MappedStatement, Long> masks = new ConcurrentHashMap<>();
+
+    public EncryptPipelineInterceptor(List<? extends EncryptStage> stages) {
+        List<EncryptStage> sorted = new ArrayList<>(stages);
+        if (sorted.size() > Long.SIZE) {
+            throw new IllegalArgumentException("加解密处理阶段最多" + Long.SIZE + "个");
+        }
+        AnnotationAwareOrderComparator.sort(sorted);
+        this.stages = sorted.toArray(new EncryptStage[0]);
+
+        Map<Method, List<Integer>> declared = new HashMap<>();
+        Set<Class<?>> interceptedTypes = new LinkedHashSet<>();
+        for (int i = 0; i < this.stages.length; i++) {
+            Intercepts intercepts = AnnotationUtils.findAnnotation(this.stages[i].getClass(), Intercepts.class);
+            if (intercepts == null) {
+                throw new IllegalStateException(this.stages[i].getClass().getName() + "未声明@Intercepts");
+            }
+            for (Signature signature : intercepts.value()) {
+                try {
+                    Method method = signature.type().getMethod(signature.method(), signature.args());
+                    declared.computeIfAbsent(method, k -> new ArrayList<>()).add(i);
+                    interceptedTypes.add(signature.type());
+                } catch (NoSuchMethodException e) {
+                    throw new IllegalStateException(signature.type().getName() + "中未找到" + signature.method()
+                            + "方法", e);
+                }
+            }
+        }
+        Map<Method, int[]> result = new HashMap<>();
+        declared.forEach((method, indexes) ->
+                result.put(method, indexes.stream().mapToInt(Integer::intValue).toArray()));
+        this.methodStages = result;
+        this.types = interceptedTypes;
+        log.info("加解密处理阶段: {}", sorted.stream().map(stage -> stage.getClass().getSimpleName())
+                .collect(Collectors.toList()));
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        int[] indexes = methodStages.get(invocation.getMethod());
+        if (indexes == null) {
+            return invocation.proceed();
+        }
+        return proceed(invocation, indexes, mask(mappedStatement(invocation)), 0);
+    }
+
+    /**
+     * 从 from 开始执行下一个需要处理的阶段，没有时执行原方法
+     */
+    private Object proceed(Invocation invocation, int[] indexes, long mask, int from) throws Throwable {
+        for (int i = from; i < indexes.length; i++) {
+            if ((mask & (1L << indexes[i])) != 0) {
+                return stages[indexes[i]].intercept(new StageInvocation(invocation, indexes, mask, i + 1));
+            }
+        }
+        return invocation.proceed();
+    }
+
+    /**
+     * 语句需要处理的阶段位图，无法确定语句时全部处理
+     */
+    private long mask(MappedStatement mappedStatement) {
+        if (mappedStatement == null) {
+            return ALL;
+        }
+        Long mask = masks.get(mappedStatement);
+        if (mask == null) {
+            mask = computeMask(mappedStatement);
+            masks.put(mappedStatement, mask);
+        }
+        return mask;
+    }
+
+    private long computeMask(MappedStatement mappedStatement) {
+        long mask = 0;
+        for (int i = 0; i < stages.length; i++) {
+            boolean supported;
+            try {
+                supported = stages[i].supports(mappedStatement);
+            } catch (Exception e) {
+                log.debug("判断处理阶段是否适用失败: {}", mappedStatement.getId(), e);
+                supported = true;
+            }
+            if (supported) {
+                mask |= 1L << i;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * 获取本次调用的MappedStatement，无法获取时返回null
+     */
+    private static MappedStatement mappedStatement(Invocation invocation) {
+        Object[] args = invocation.getArgs();
+        if (args != null && args.length > 0 && args[0] instanceof MappedStatement) {
+            return (MappedStatement) args[0];
+        }
+        Object target = invocation.getTarget();
+        if (target instanceof StatementHandler) {
+            return DbFieldEncryptorInterceptor.mappedStatement((StatementHandler) target);
+        }
+        try {
+            MetaObject metaObject = SystemMetaObject.forObject(target);
+            if (metaObject.hasGetter("mappedStatement")) {
+                return (MappedStatement) metaObject.getValue("mappedStatement");
+            }
+        } catch (Exception e) {
+            log.debug("获取MappedStatement失败", e);
+        }
+        return null;
+    }
+
+    /**
+     * 清空各语句的阶段位图，表字段配置或改写计划变化时调用
+     */
+    public void invalidate() {
+        masks.clear();
+    }
+
+    /**
+     * 按顺序排列的阶段
+     */
+    public List<EncryptStage> getStages() {
+        List<EncryptStage> result = new ArrayList<>(stages.length);
+        for (EncryptStage stage : stages) {
+            result.add(stage);
+        }
+        return result;
+    }
+
+    /**
+     * 只为实现了被拦截接口的对象生成一层代理
+     */
+    @Override
+    public Object plugin(Object target) {
+        Set<Class<?>> interfaces = new LinkedHashSet<>();
+        for (Class<?> type = target.getClass(); type != null; type = type.getSuperclass()) {
+            for (Class<?> candidate : type.getInterfaces()) {
+                if (types.contains(candidate)) {
+                    interfaces.add(candidate);
+                }
+            }
+        }
+        if (interfaces.isEmpty()) {
+            return target;
+        }
+        return Proxy.newProxyInstance(target.getClass().getClassLoader(), interfaces.toArray(new Class<?>[0]),
+                new PipelineHandler(target));
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+        // 可以在这里设置拦截器属性
+    }
+
+    /**
+     * 代理调用处理器，未被拦截的方法直接调用目标对象
+     */
+    private final class PipelineHandler implements InvocationHandler {
+
+        private final Object target;
+
+        private PipelineHandler(Object target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            try {
+                if (methodStages.containsKey(method)) {
+                    return intercept(new Invocation(target, method, args));
+                }
+                return method.invoke(target, args);
+            } catch (Exception e) {
+                throw ExceptionUtil.unwrapThrowable(e);
+            }
+        }
+    }
+
+    /**
+     * 阶段看到的调用，{@link #proceed()} 进入下一个阶段
+     */
+    private final class StageInvocation extends Invocation {
+
+        private final Invocation invocation;
+
+        private final int[] indexes;
+
+        private final long mask;
+
+        private final int next;
+
+        private StageInvocation(Invocation invocation, int[] indexes, long mask, int next) {
+            super(invocation.getTarget(), invocation.getMethod(), invocation.getArgs());
+            this.invocation = invocation;
+            this.indexes = indexes;
+            this.mask = mask;
+            this.next = next;
+        }
+
+        @Override
+        public Object proceed() throws InvocationTargetException, IllegalAccessException {
+            try {
+                return EncryptPipelineInterceptor.this.proceed(invocation, indexes, mask, next);
+            } catch (InvocationTargetException | IllegalAccessException e) {
+                throw e;
+            } catch (Throwable e) {
+                // 与原方法抛出的异常一样包装，由外层代理统一解包
+                throw new InvocationTargetException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.chu7.securtkit.encrypt.interceptor;
+
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.springframework.core.Ordered;
+
+/**
+ * 加解密处理阶段
+ * 由 {@link EncryptPipelineInterceptor} 统一代理后按顺序调用，各阶段不再单独生成代理。
+ * 实现类用 {@link Intercepts} 声明拦截的方法，写法与MyBatis插件相同；
+ * {@link #intercept(Invocation)} 中调用 {@link Invocation#proceed()} 进入下一个阶段，最后一个阶段之后执行原方法。
+ * <p>
+ * 顺序值小的阶段在外层：参数加密 → SQL改写 → 结果解密。
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+public interface EncryptStage extends Ordered {
+
+    /**
+     * 参数加密、影子列和分词表维护
+     */
+    int PARAMETER_ORDER = 100;
+
+    /**
+     * SQL改写
+     */
+    int SQL_REWRITE_ORDER = 200;
+
+    /**
+     * 结果解密
+     */
+    int RESULT_ORDER = 300;
+
+    /**
+     * 语句是否需要本阶段处理
+     * 结果按MappedStatement缓存，返回false的语句直接跳过本阶段；表字段配置变化时重新计算
+     *
+     * @param mappedStatement 执行的语句
+     */
+    default boolean supports(MappedStatement mappedStatement) {
+        return true;
+    }
+
+    /**
+     * 处理一次调用
+     *
+     * @param invocation 调用，{@link Invocation#proceed()} 进入下一个阶段
+     * @return 调用结果
+     */
+    Object intercept(Invocation invocation) throws Throwable;
+}
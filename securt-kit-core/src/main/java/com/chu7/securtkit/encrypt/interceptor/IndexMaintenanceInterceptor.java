@@ -0,0 +1,72 @@
+package com.chu7.securtkit.encrypt.interceptor;
+
+import com.chu7.securtkit.encrypt.core.LikeTokenIndexer;
+import com.chu7.securtkit.encrypt.util.EncryptUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.*;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Map;
+
+/**
+ * 索引维护拦截器
+ * DB模式下参数在数据库端加密，执行器拿到的始终是明文：INSERT/UPDATE 执行前按明文写入实体的盲索引和保序索引影子属性，
+ * 写入成功后按明文维护分词表；POJO模式由 {@link PojoParamEncryptorInterceptor} 在加密前完成同样的工作
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+@Slf4j
+@Intercepts({
+    @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class})
+})
+public class IndexMaintenanceInterceptor implements EncryptStage {
+    
+    @Autowired
+    private LikeTokenIndexer likeTokenIndexer;
+    
+    @Autowired
+    private EncryptUtil encryptUtil;
+    
+    @Override
+    public int getOrder() {
+        return PARAMETER_ORDER;
+    }
+    
+    /**
+     * 只处理INSERT、UPDATE、DELETE
+     */
+    @Override
+    public boolean supports(MappedStatement mappedStatement) {
+        SqlCommandType commandType = mappedStatement.getSqlCommandType();
+        return commandType == SqlCommandType.INSERT || commandType == SqlCommandType.UPDATE
+                || commandType == SqlCommandType.DELETE;
+    }
+    
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        MappedStatement mappedStatement = (MappedStatement) invocation.getArgs()[0];
+        Object parameter = invocation.getArgs()[1];
+        
+        SqlCommandType commandType = mappedStatement.getSqlCommandType();
+        if (commandType == SqlCommandType.INSERT || commandType == SqlCommandType.UPDATE) {
+            Object entity = parameter;
+            if (parameter instanceof Map) {
+                // 兼容 MyBatis-Plus 的 et 参数，MyBatis的ParamMap读取不存在的键会抛出异常，需先判断
+                Map<?, ?> map = (Map<?, ?>) parameter;
+                entity = map.containsKey("et") ? map.get("et") : null;
+            }
+            encryptUtil.fillIndexes(entity);
+        }
+        
+        LikeTokenIndexer.Pending pending = likeTokenIndexer.capture(mappedStatement, parameter);
+        Object result = invocation.proceed();
+        if (pending != null) {
+            likeTokenIndexer.afterUpdate((Executor) invocation.getTarget(), pending, result);
+        }
+        return result;
+    }
+}
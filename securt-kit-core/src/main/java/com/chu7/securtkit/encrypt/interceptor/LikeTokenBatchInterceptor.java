@@ -0,0 +1,57 @@
+package com.chu7.securtkit.encrypt.interceptor;
+
+import com.chu7.securtkit.encrypt.core.LikeTokenIndexer;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * 批量执行分词维护拦截器
+ * BatchExecutor 的写操作在刷新批次后才执行，{@link LikeTokenIndexer} 暂存了这些写操作的分词：
+ * 显式刷新批次后写入；提交前先刷新批次再写入，与业务写入处于同一事务；回滚或关闭执行器时丢弃。
+ * 没有暂存分词的执行器直接执行原方法。
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+@Intercepts({
+    @Signature(type = Executor.class, method = "flushStatements", args = {}),
+    @Signature(type = Executor.class, method = "commit", args = {boolean.class}),
+    @Signature(type = Executor.class, method = "rollback", args = {boolean.class}),
+    @Signature(type = Executor.class, method = "close", args = {boolean.class})
+})
+public class LikeTokenBatchInterceptor implements EncryptStage {
+    
+    @Autowired(required = false)
+    private LikeTokenIndexer likeTokenIndexer;
+    
+    @Override
+    public int getOrder() {
+        return PARAMETER_ORDER;
+    }
+    
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        Executor executor = (Executor) invocation.getTarget();
+        if (likeTokenIndexer == null || !likeTokenIndexer.hasDeferred(executor)) {
+            return invocation.proceed();
+        }
+        
+        switch (invocation.getMethod().getName()) {
+            case "flushStatements":
+                Object result = invocation.proceed();
+                likeTokenIndexer.flush(executor);
+                return result;
+            case "commit":
+                // 提交时执行器内部刷新批次不经过插件，先刷新批次取得自增主键
+                executor.flushStatements();
+                likeTokenIndexer.flush(executor);
+                return invocation.proceed();
+            default:
+                likeTokenIndexer.discard(executor);
+                return invocation.proceed();
+        }
+    }
+}
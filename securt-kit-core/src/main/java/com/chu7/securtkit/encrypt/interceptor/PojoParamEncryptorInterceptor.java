@@ -2,6 +2,9 @@ package com.chu7.securtkit.encrypt.interceptor;
 
 import com.chu7.securtkit.encrypt.annotation.EncryptField;
 import com.chu7.securtkit.encrypt.cache.TableFieldCache;
+import com.chu7.securtkit.encrypt.cache.TableNameResolver;
+import com.chu7.securtkit.encrypt.core.LikeTokenIndexer;
+import com.chu7.securtkit.encrypt.handler.LazyDecryptHandler;
 import com.chu7.securtkit.encrypt.strategy.EncryptStrategy;
 import com.chu7.securtkit.encrypt.util.EncryptUtil;
 import lombok.extern.slf4j.Slf4j;
@@ -9,28 +12,24 @@ import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.SqlCommandType;
 import org.apache.ibatis.plugin.*;
-import org.apache.ibatis.session.ResultHandler;
-import org.apache.ibatis.session.RowBounds;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.lang.reflect.Field;
 import java.util.List;
 import java.util.Map;
-import java.util.Properties;
 
 /**
  * POJO模式参数加密拦截器
- * 拦截参数，对标注了@EncryptField的字段进行加密
+ * 拦截参数，对标注了@EncryptField的字段进行加密，加密前计算分词，写入成功后维护分词表；查询参数由SQL改写阶段处理
  *
  * @author chu7
  * @date 2025/8/15
  */
 @Slf4j
 @Intercepts({
-    @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}),
-    @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class})
+    @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class})
 })
-public class PojoParamEncryptorInterceptor implements Interceptor {
+public class PojoParamEncryptorInterceptor implements EncryptStage {
     
     @Autowired
     private TableFieldCache tableFieldCache;
@@ -41,20 +40,31 @@ public class PojoParamEncryptorInterceptor implements Interceptor {
     @Autowired
     private EncryptUtil encryptUtil;
     
+    @Autowired
+    private TableNameResolver tableNameResolver;
+    
+    @Autowired(required = false)
+    private LikeTokenIndexer likeTokenIndexer;
+    
+    @Override
+    public int getOrder() {
+        return PARAMETER_ORDER;
+    }
+    
+    /**
+     * 只处理INSERT、UPDATE、DELETE
+     */
+    @Override
+    public boolean supports(MappedStatement mappedStatement) {
+        SqlCommandType commandType = mappedStatement.getSqlCommandType();
+        return commandType == SqlCommandType.INSERT || commandType == SqlCommandType.UPDATE
+                || commandType == SqlCommandType.DELETE;
+    }
+    
     @Override
     public Object intercept(Invocation invocation) throws Throwable {
-        // 获取方法名
-        String methodName = invocation.getMethod().getName();
-        
-        if ("update".equals(methodName)) {
-            // 处理更新操作（INSERT、UPDATE、DELETE）
-            return processUpdate(invocation);
-        } else if ("query".equals(methodName)) {
-            // 处理查询操作
-            return invocation.proceed();
-        }
-        
-        return invocation.proceed();
+        // 处理更新操作（INSERT、UPDATE、DELETE）
+        return processUpdate(invocation);
     }
     
     /**
@@ -67,12 +77,23 @@ public class PojoParamEncryptorInterceptor implements Interceptor {
         // 获取SQL命令类型
         SqlCommandType sqlCommandType = mappedStatement.getSqlCommandType();
         
+        // 查询得到的延迟解密实体可能仍保存密文，读取明文前先解密
+        LazyDecryptHandler.resolve(parameter);
+        
+        // 分词需要在加密前根据明文计算
+        LikeTokenIndexer.Pending pending = likeTokenIndexer == null
+                ? null : likeTokenIndexer.capture(mappedStatement, parameter);
+        
         if (SqlCommandType.INSERT.equals(sqlCommandType) || SqlCommandType.UPDATE.equals(sqlCommandType)) {
             // 对参数进行加密处理
             encryptParameters(parameter);
         }
         
-        return invocation.proceed();
+        Object result = invocation.proceed();
+        if (pending != null) {
+            likeTokenIndexer.afterUpdate((Executor) invocation.getTarget(), pending, result);
+        }
+        return result;
     }
     
     /**
@@ -100,6 +121,12 @@ public class PojoParamEncryptorInterceptor implements Interceptor {
      * 加密Map类型参数
      */
     private void encryptMapParameters(Map<String, Object> parameterMap) {
+        // 兼容 MyBatis-Plus 的 et 参数，MyBatis的ParamMap读取不存在的键会抛出异常，需先判断
+        Object entity = parameterMap.containsKey("et") ? parameterMap.get("et") : null;
+        if (entity != null && !(entity instanceof Map)) {
+            encryptObjectParameters(entity);
+        }
+        
         for (Map.Entry<String, Object> entry : parameterMap.entrySet()) {
             Object value = entry.getValue();
             if (value != null && value instanceof String) {
@@ -119,31 +146,10 @@ public class PojoParamEncryptorInterceptor implements Interceptor {
      */
     private void encryptObjectParameters(Object parameter) {
         // 使用加密工具类处理对象加密
-        String tableName = getTableNameFromParameter(parameter);
+        String tableName = tableNameResolver.getTableName(parameter.getClass());
         encryptUtil.encryptObject(parameter, tableName);
     }
     
-    /**
-     * 从参数中获取表名
-     */
-    private String getTableNameFromParameter(Object parameter) {
-        if (parameter == null) {
-            return null;
-        }
-        
-        // 尝试从类名推断表名
-        String className = parameter.getClass().getSimpleName();
-        if (className.endsWith("Entity")) {
-            return className.substring(0, className.length() - 6).toLowerCase();
-        } else if (className.endsWith("Model")) {
-            return className.substring(0, className.length() - 5).toLowerCase();
-        } else if (className.endsWith("DTO")) {
-            return className.substring(0, className.length() - 3).toLowerCase();
-        }
-        
-        return className.toLowerCase();
-    }
-    
     /**
      * 判断字段是否需要加密
      */
@@ -159,14 +165,4 @@ public class PojoParamEncryptorInterceptor implements Interceptor {
     private String encryptValue(String value, String algorithm) {
         return encryptUtil.encrypt(value, algorithm);
     }
-    
-    @Override
-    public Object plugin(Object target) {
-        return Plugin.wrap(target, this);
-    }
-    
-    @Override
-    public void setProperties(Properties properties) {
-        // 可以在这里设置拦截器属性
-    }
 }
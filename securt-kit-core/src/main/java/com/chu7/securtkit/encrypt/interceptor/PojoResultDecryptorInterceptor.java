@@ -1,35 +1,49 @@
 package com.chu7.securtkit.encrypt.interceptor;
 
-import com.chu7.securtkit.encrypt.annotation.EncryptField;
+import com.chu7.securtkit.encrypt.cache.EncryptMetadataCache;
+import com.chu7.securtkit.encrypt.config.EncryptProperties;
+import com.chu7.securtkit.encrypt.core.DeferredDecryption;
+import com.chu7.securtkit.encrypt.core.ParallelDecryptor;
+import com.chu7.securtkit.encrypt.handler.DecryptObjectWrapperFactory;
+import com.chu7.securtkit.encrypt.handler.LazyDecryptObjectFactory;
 import com.chu7.securtkit.encrypt.strategy.EncryptStrategy;
 import com.chu7.securtkit.encrypt.util.EncryptUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.Discriminator;
 import org.apache.ibatis.mapping.MappedStatement;
-import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
 import org.apache.ibatis.plugin.*;
+import org.apache.ibatis.reflection.wrapper.ObjectWrapperFactory;
+import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.springframework.beans.factory.annotation.Autowired;
 
-import java.lang.reflect.Field;
-import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Properties;
+import java.util.Set;
 
 /**
  * POJO模式结果解密拦截器
- * 拦截查询结果，对标注了@EncryptField的字段进行解密
+ * 查询前为语句所在的Configuration安装 {@link DecryptObjectWrapperFactory}，MyBatis映射结果时给加密字段赋值即解密，
+ * 嵌套的 association/collection 对象、自定义 {@link ResultHandler} 和游标查询的每一行都在映射时完成解密，
+ * 不再遍历查询结果。
+ * 启用 {@link ParallelDecryptor} 时，列表查询的加密字段先按密文映射，查询返回前统一批量解密，大结果集分块并行解密；
+ * 游标和自定义 {@link ResultHandler} 查询逐行交给调用方，仍在映射时解密。
+ * 开启延迟解密时实体由 {@link LazyDecryptObjectFactory} 创建为代理，加密字段在首次读取时才解密
  *
  * @author chu7
  * @date 2025/8/15
  */
 @Slf4j
 @Intercepts({
-    @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class})
+    @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+    @Signature(type = Executor.class, method = "queryCursor", args = {MappedStatement.class, Object.class, RowBounds.class})
 })
-public class PojoResultDecryptorInterceptor implements Interceptor {
+public class PojoResultDecryptorInterceptor implements EncryptStage {
     
     @Autowired
     private List<EncryptStrategy> encryptStrategies;
@@ -37,132 +51,121 @@ public class PojoResultDecryptorInterceptor implements Interceptor {
     @Autowired
     private EncryptUtil encryptUtil;
     
+    @Autowired
+    private EncryptMetadataCache encryptMetadataCache;
+    
+    @Autowired(required = false)
+    private ParallelDecryptor parallelDecryptor;
+    
+    @Autowired
+    private EncryptProperties encryptProperties;
+    
     @Override
-    public Object intercept(Invocation invocation) throws Throwable {
-        // 获取方法名
-        String methodName = invocation.getMethod().getName();
-        
-        if ("query".equals(methodName)) {
-            // 处理查询操作
-            return processQuery(invocation);
-        }
-        
-        return invocation.proceed();
+    public int getOrder() {
+        return RESULT_ORDER;
     }
     
     /**
-     * 处理查询操作
+     * 结果映射（含嵌套的 association/collection 和鉴别器分支）的类型中存在加密字段时才需要解密，
+     * 简单类型、Map和Object不需要解密
      */
-    private Object processQuery(Invocation invocation) throws Throwable {
-        // 执行查询
-        Object result = invocation.proceed();
-        
-        // 对结果进行解密处理
-        if (result != null) {
-            decryptResult(result);
+    @Override
+    public boolean supports(MappedStatement mappedStatement) {
+        Configuration configuration = mappedStatement.getConfiguration();
+        Set<String> visited = new HashSet<>();
+        for (ResultMap resultMap : mappedStatement.getResultMaps()) {
+            if (hasEncryptFields(configuration, resultMap, visited)) {
+                return true;
+            }
         }
-        
-        return result;
+        return false;
     }
     
-    /**
-     * 解密结果
-     */
-    private void decryptResult(Object result) {
-        try {
-            if (result instanceof Collection) {
-                // 处理集合类型的结果
-                Collection<?> collection = (Collection<?>) result;
-                for (Object item : collection) {
-                    decryptObject(item);
+    private boolean hasEncryptFields(Configuration configuration, ResultMap resultMap, Set<String> visited) {
+        if (!visited.add(resultMap.getId())) {
+            return false;
+        }
+        Class<?> type = resultMap.getType();
+        if (type != Object.class && !Map.class.isAssignableFrom(type)
+                && !configuration.getTypeHandlerRegistry().hasTypeHandler(type)
+                && !encryptMetadataCache.getMetadata(type).isEmpty()) {
+            return true;
+        }
+        for (ResultMapping resultMapping : resultMap.getResultMappings()) {
+            if (hasEncryptFields(configuration, resultMapping.getNestedResultMapId(), visited)) {
+                return true;
+            }
+        }
+        Discriminator discriminator = resultMap.getDiscriminator();
+        if (discriminator != null) {
+            for (String resultMapId : discriminator.getDiscriminatorMap().values()) {
+                if (hasEncryptFields(configuration, resultMapId, visited)) {
+                    return true;
                 }
-            } else if (result instanceof Map) {
-                // 处理Map类型的结果
-                decryptMap((Map<String, Object>) result);
-            } else {
-                // 处理单个对象的结果
-                decryptObject(result);
             }
-        } catch (Exception e) {
-            log.error("解密结果失败", e);
         }
+        return false;
     }
     
-    /**
-     * 解密对象
-     */
-    private void decryptObject(Object obj) {
-        if (obj == null) {
-            return;
-        }
-        
-        // 使用加密工具类处理对象解密
-        String tableName = getTableNameFromObject(obj);
-        encryptUtil.decryptObject(obj, tableName);
+    private boolean hasEncryptFields(Configuration configuration, String resultMapId, Set<String> visited) {
+        return resultMapId != null && configuration.hasResultMap(resultMapId)
+                && hasEncryptFields(configuration, configuration.getResultMap(resultMapId), visited);
     }
     
-    /**
-     * 从对象中获取表名
-     */
-    private String getTableNameFromObject(Object obj) {
-        if (obj == null) {
-            return null;
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        // 结果在映射时解密，执行查询前确保已安装解密包装器工厂
+        install(((MappedStatement) invocation.getArgs()[0]).getConfiguration());
+        if (parallelDecryptor == null || !"query".equals(invocation.getMethod().getName())
+                || invocation.getArgs()[3] != null) {
+            return invocation.proceed();
+        }
+        // 列表查询先按密文映射，返回前统一解密；嵌套查询登记到外层
+        DeferredDecryption deferred = DeferredDecryption.begin();
+        if (deferred == null) {
+            return invocation.proceed();
         }
-        
-        // 尝试从类名推断表名
-        String className = obj.getClass().getSimpleName();
-        if (className.endsWith("Entity")) {
-            return className.substring(0, className.length() - 6).toLowerCase();
-        } else if (className.endsWith("Model")) {
-            return className.substring(0, className.length() - 5).toLowerCase();
-        } else if (className.endsWith("DTO")) {
-            return className.substring(0, className.length() - 3).toLowerCase();
+        Object result;
+        try {
+            result = invocation.proceed();
+        } finally {
+            deferred.end();
         }
-        
-        return className.toLowerCase();
+        parallelDecryptor.decrypt(deferred);
+        return result;
     }
     
     /**
-     * 解密Map
+     * 为Configuration安装解密包装器工厂，原工厂作为委托保留；开启延迟解密时先安装延迟解密对象工厂
+     * 已安装时只有一次类型判断；在锁内安装并复查，保证安装后当前线程随即映射结果时能看到新工厂
      */
-    private void decryptMap(Map<String, Object> resultMap) {
-        for (Map.Entry<String, Object> entry : resultMap.entrySet()) {
-            Object value = entry.getValue();
-            if (value != null && value instanceof String) {
-                String key = entry.getKey();
-                // 检查是否需要解密
-                if (needDecrypt(key)) {
-                    String decryptedValue = decryptValue((String) value, "AES");
-                    entry.setValue(decryptedValue);
-                    log.debug("解密Map字段: {} -> {}", key, decryptedValue);
+    private void install(Configuration configuration) {
+        if (configuration.getObjectWrapperFactory() instanceof DecryptObjectWrapperFactory) {
+            return;
+        }
+        synchronized (configuration) {
+            ObjectWrapperFactory current = configuration.getObjectWrapperFactory();
+            if (!(current instanceof DecryptObjectWrapperFactory)) {
+                if (encryptProperties.isLazyDecrypt()) {
+                    installLazyDecrypt(configuration);
                 }
+                configuration.setObjectWrapperFactory(
+                        new DecryptObjectWrapperFactory(current, encryptMetadataCache, encryptUtil));
+                log.info("安装结果解密包装器工厂");
             }
         }
     }
     
     /**
-     * 判断字段是否需要解密
-     */
-    private boolean needDecrypt(String fieldName) {
-        // 这里可以根据配置或注解判断是否需要解密
-        // 简化实现，可以根据实际需求扩展
-        return false;
-    }
-    
-    /**
-     * 解密值
+     * 安装延迟解密对象工厂；MyBatis延迟加载会为实体另建代理并复制属性，两者不能叠加，此时仍在映射时解密
      */
-    private String decryptValue(String value, String algorithm) {
-        return encryptUtil.decrypt(value, algorithm);
-    }
-    
-    @Override
-    public Object plugin(Object target) {
-        return Plugin.wrap(target, this);
-    }
-    
-    @Override
-    public void setProperties(Properties properties) {
-        // 可以在这里设置拦截器属性
+    private void installLazyDecrypt(Configuration configuration) {
+        if (configuration.isLazyLoadingEnabled()) {
+            log.warn("MyBatis已开启延迟加载，延迟解密不生效，查询结果在映射时解密");
+            return;
+        }
+        configuration.setObjectFactory(new LazyDecryptObjectFactory(configuration.getObjectFactory(),
+                encryptMetadataCache, encryptUtil, configuration.getLazyLoadTriggerMethods()));
+        log.info("安装延迟解密对象工厂");
     }
 }
@@ -0,0 +1,209 @@
+package com.chu7.securtkit.encrypt.strategy;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 盲索引生成器
+ * 对明文计算 HMAC-SHA256，可按配置截短后Base64编码，写入影子列用于等值查询。
+ * 相同明文和密钥总是得到相同的结果，密文本身可以使用随机化加密。
+ * <p>
+ * HMAC密钥由加密密钥派生（HMAC(加密密钥, 固定标签)），不与加解密直接共用同一密钥；其他用途可以指定不同的派生标签。
+ * Mac不是线程安全的，与 {@link CipherCache} 一样按密钥维护有界的空闲池，借出使用后归还。
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+@Slf4j
+public class BlindIndexGenerator {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    /**
+     * 派生盲索引密钥的标签
+     */
+    private static final String DERIVATION_LABEL = "securt-kit:blind-index";
+
+    /**
+     * HMAC-SHA256 输出长度
+     */
+    private static final int MAC_LENGTH = 32;
+
+    private static final int DEFAULT_MAX_KEYS = 256;
+
+    private static final int DEFAULT_MAX_IDLE = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    /**
+     * 保留的字节数
+     */
+    private final int length;
+
+    private final int maxKeys;
+
+    private final int maxIdle;
+
+    /**
+     * 派生HMAC密钥的标签
+     */
+    private final byte[] derivationLabel;
+
+    /**
+     * 缓存：原始密钥 -> Mac池
+     */
+    private final ConcurrentHashMap<String, MacPool> pools = new ConcurrentHashMap<>();
+
+    public BlindIndexGenerator() {
+        this(0);
+    }
+
+    /**
+     * @param length 保留的HMAC字节数，小于等于0或超过32时保留完整的32字节
+     */
+    public BlindIndexGenerator(int length) {
+        this(length, DEFAULT_MAX_KEYS, DEFAULT_MAX_IDLE);
+    }
+
+    public BlindIndexGenerator(int length, int maxKeys, int maxIdle) {
+        this(length, maxKeys, maxIdle, DERIVATION_LABEL);
+    }
+
+    /**
+     * @param length 保留的HMAC字节数，小于等于0或超过32时保留完整的32字节
+     * @param maxKeys 缓存的密钥数量上限
+     * @param maxIdle 每个密钥的空闲Mac数量上限
+     * @param derivationLabel 派生HMAC密钥的标签，不同用途使用不同标签得到互不相关的密钥
+     */
+    public BlindIndexGenerator(int length, int maxKeys, int maxIdle, String derivationLabel) {
+        this.length = length <= 0 || length > MAC_LENGTH ? MAC_LENGTH : length;
+        this.maxKeys = maxKeys;
+        this.maxIdle = maxIdle;
+        this.derivationLabel = derivationLabel.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 使用默认的密钥缓存上限
+     *
+     * @param length 保留的HMAC字节数，小于等于0或超过32时保留完整的32字节
+     * @param derivationLabel 派生HMAC密钥的标签
+     */
+    public BlindIndexGenerator(int length, String derivationLabel) {
+        this(length, DEFAULT_MAX_KEYS, DEFAULT_MAX_IDLE, derivationLabel);
+    }
+
+    /**
+     * 计算盲索引
+     *
+     * @param value 明文
+     * @param key 加密密钥
+     * @return Base64编码的盲索引，明文为null时返回null
+     */
+    public String generate(String value, String key) {
+        byte[] digest = digest(value, key);
+        if (digest == null) {
+            return null;
+        }
+        return Base64.getEncoder().encodeToString(length == MAC_LENGTH ? digest : Arrays.copyOf(digest, length));
+    }
+
+    /**
+     * 计算完整的32字节HMAC，不受截短长度影响
+     *
+     * @param value 明文
+     * @param key 加密密钥
+     * @return HMAC，明文为null或计算失败时返回null
+     */
+    public byte[] digest(String value, String key) {
+        if (value == null) {
+            return null;
+        }
+
+        try {
+            MacPool pool = pool(key);
+            Mac mac = pool.borrow();
+            byte[] digest = mac.doFinal(value.getBytes(StandardCharsets.UTF_8));
+            pool.release(mac);
+            return digest;
+        } catch (Exception e) {
+            log.error("计算盲索引失败: {}", e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * 保留的字节数
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        pools.clear();
+    }
+
+    private MacPool pool(String key) throws GeneralSecurityException {
+        String cacheKey = key == null ? "" : key;
+        MacPool pool = pools.get(cacheKey);
+        if (pool == null) {
+            if (pools.size() >= maxKeys) {
+                log.warn("盲索引密钥数量超过上限{}，清空缓存", maxKeys);
+                pools.clear();
+            }
+            pool = new MacPool(deriveKey(cacheKey));
+            MacPool existing = pools.putIfAbsent(cacheKey, pool);
+            if (existing != null) {
+                pool = existing;
+            }
+        }
+        return pool;
+    }
+
+    private SecretKeySpec deriveKey(String key) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance(ALGORITHM);
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        // 空密钥时HMAC密钥不能为空
+        mac.init(new SecretKeySpec(keyBytes.length == 0 ? new byte[1] : keyBytes, ALGORITHM));
+        return new SecretKeySpec(mac.doFinal(derivationLabel), ALGORITHM);
+    }
+
+    /**
+     * 已初始化Mac的有界空闲池
+     */
+    private final class MacPool {
+
+        private final SecretKeySpec keySpec;
+
+        private final ArrayBlockingQueue<Mac> idle = new ArrayBlockingQueue<>(maxIdle);
+
+        private MacPool(SecretKeySpec keySpec) {
+            this.keySpec = keySpec;
+        }
+
+        private Mac borrow() throws GeneralSecurityException {
+            Mac mac = idle.poll();
+            if (mac != null) {
+                return mac;
+            }
+            mac = Mac.getInstance(ALGORITHM);
+            mac.init(keySpec);
+            return mac;
+        }
+
+        /**
+         * doFinal完成后Mac会重置，可以直接复用
+         */
+        private void release(Mac mac) {
+            idle.offer(mac);
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package com.chu7.securtkit.encrypt.strategy;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 对称加密Cipher缓存
+ * 按密钥缓存标准化后的密钥以及已初始化的Cipher实例，避免每次加解密都重新构建密钥编排
+ * <p>
+ * Cipher本身不是线程安全的，因此每个(密钥, 模式)维护一个有界的空闲池：
+ * 使用时借出，用完归还，池满则直接丢弃。不依赖ThreadLocal，平台线程与虚拟线程均适用。
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+@Slf4j
+public class CipherCache {
+
+    /**
+     * 默认最多缓存的密钥数量
+     */
+    private static final int DEFAULT_MAX_KEYS = 256;
+
+    /**
+     * 默认每个(密钥, 模式)保留的空闲Cipher数量
+     */
+    private static final int DEFAULT_MAX_IDLE = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    /**
+     * Cipher转换名称，如 AES、DES
+     */
+    private final String transformation;
+
+    /**
+     * 密钥算法名称
+     */
+    private final String keyAlgorithm;
+
+    /**
+     * 密钥标准化函数：原始密钥 -> 密钥字节
+     */
+    private final Function<String, byte[]> keyNormalizer;
+
+    private final int maxKeys;
+
+    private final int maxIdle;
+
+    /**
+     * 缓存：原始密钥 -> 密钥条目
+     */
+    private final ConcurrentHashMap<String, KeyEntry> keyEntries = new ConcurrentHashMap<>();
+
+    /**
+     * null密钥对应的条目，ConcurrentHashMap不支持null键，单独保存
+     */
+    private volatile KeyEntry nullKeyEntry;
+
+    public CipherCache(String transformation, String keyAlgorithm, Function<String, byte[]> keyNormalizer) {
+        this(transformation, keyAlgorithm, keyNormalizer, DEFAULT_MAX_KEYS, DEFAULT_MAX_IDLE);
+    }
+
+    public CipherCache(String transformation, String keyAlgorithm, Function<String, byte[]> keyNormalizer,
+                       int maxKeys, int maxIdle) {
+        this.transformation = transformation;
+        this.keyAlgorithm = keyAlgorithm;
+        this.keyNormalizer = keyNormalizer;
+        this.maxKeys = maxKeys;
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * 加密
+     *
+     * @param key 原始密钥
+     * @param input 明文字节
+     * @return 密文字节
+     */
+    public byte[] encrypt(String key, byte[] input) throws GeneralSecurityException {
+        return doFinal(pool(key, Cipher.ENCRYPT_MODE), input);
+    }
+
+    /**
+     * 解密
+     *
+     * @param key 原始密钥
+     * @param input 密文字节
+     * @return 明文字节
+     */
+    public byte[] decrypt(String key, byte[] input) throws GeneralSecurityException {
+        return doFinal(pool(key, Cipher.DECRYPT_MODE), input);
+    }
+
+    /**
+     * 加密到调用方提供的缓冲区
+     *
+     * @param key 原始密钥
+     * @param input 明文缓冲区，读取position到limit之间的数据
+     * @param output 密文缓冲区，从position开始写入
+     * @return 写入的字节数
+     */
+    public int encrypt(String key, ByteBuffer input, ByteBuffer output) throws GeneralSecurityException {
+        return doFinal(pool(key, Cipher.ENCRYPT_MODE), input, output);
+    }
+
+    /**
+     * 解密到调用方提供的缓冲区
+     *
+     * @param key 原始密钥
+     * @param input 密文缓冲区，读取position到limit之间的数据
+     * @param output 明文缓冲区，从position开始写入
+     * @return 写入的字节数
+     */
+    public int decrypt(String key, ByteBuffer input, ByteBuffer output) throws GeneralSecurityException {
+        return doFinal(pool(key, Cipher.DECRYPT_MODE), input, output);
+    }
+
+    /**
+     * 批量加密文本，结果为Base64编码的密文，原地写回数组
+     * 整批只借用一次Cipher；单个元素失败时保留原值并继续处理后续元素
+     *
+     * @param key 原始密钥
+     * @param values 明文数组，null和空串保持不变
+     * @return 失败的元素个数
+     */
+    public int encryptAll(String key, String[] values) throws GeneralSecurityException {
+        return transformAll(pool(key, Cipher.ENCRYPT_MODE), values, true);
+    }
+
+    /**
+     * 批量解密Base64编码的密文，原地写回数组
+     *
+     * @param key 原始密钥
+     * @param values 密文数组，null和空串保持不变
+     * @return 失败的元素个数
+     */
+    public int decryptAll(String key, String[] values) throws GeneralSecurityException {
+        return transformAll(pool(key, Cipher.DECRYPT_MODE), values, false);
+    }
+
+    /**
+     * 计算加密输出所需的缓冲区大小
+     *
+     * @param key 原始密钥
+     * @param inputLength 明文长度
+     * @return 密文最大长度
+     */
+    public int getEncryptOutputSize(String key, int inputLength) throws GeneralSecurityException {
+        CipherPool pool = pool(key, Cipher.ENCRYPT_MODE);
+        Cipher cipher = pool.borrow();
+        int size = cipher.getOutputSize(inputLength);
+        pool.release(cipher);
+        return size;
+    }
+
+    /**
+     * 获取指定密钥和模式的Cipher池
+     *
+     * @param key 原始密钥
+     * @param mode Cipher.ENCRYPT_MODE 或 Cipher.DECRYPT_MODE
+     * @return Cipher池
+     */
+    public CipherPool pool(String key, int mode) {
+        KeyEntry entry = key == null ? nullKeyEntry() : keyEntries.get(key);
+        if (entry == null) {
+            if (keyEntries.size() >= maxKeys) {
+                // 密钥数量异常膨胀时整体清空，避免无界增长
+                log.warn("Cipher缓存密钥数量超过上限{}，清空缓存", maxKeys);
+                keyEntries.clear();
+            }
+            entry = keyEntries.computeIfAbsent(key, this::createKeyEntry);
+        }
+        return mode == Cipher.ENCRYPT_MODE ? entry.encryptPool : entry.decryptPool;
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        keyEntries.clear();
+        nullKeyEntry = null;
+    }
+
+    /**
+     * 缓存的密钥数量
+     */
+    public int size() {
+        return keyEntries.size();
+    }
+
+    private byte[] doFinal(CipherPool pool, byte[] input) throws GeneralSecurityException {
+        Cipher cipher = pool.borrow();
+        byte[] output = cipher.doFinal(input);
+        // 仅在成功时归还，异常后的Cipher状态不可信，直接丢弃
+        pool.release(cipher);
+        return output;
+    }
+
+    private int doFinal(CipherPool pool, ByteBuffer input, ByteBuffer output) throws GeneralSecurityException {
+        Cipher cipher = pool.borrow();
+        int written = cipher.doFinal(input, output);
+        pool.release(cipher);
+        return written;
+    }
+
+    private int transformAll(CipherPool pool, String[] values, boolean encrypt) throws GeneralSecurityException {
+        Cipher cipher = pool.borrow();
+        Base64.Encoder encoder = Base64.getEncoder();
+        Base64.Decoder decoder = Base64.getDecoder();
+        int failures = 0;
+        for (int i = 0; i < values.length; i++) {
+            String value = values[i];
+            if (value == null || value.isEmpty()) {
+                continue;
+            }
+            try {
+                if (encrypt) {
+                    values[i] = encoder.encodeToString(cipher.doFinal(value.getBytes(StandardCharsets.UTF_8)));
+                } else {
+                    values[i] = new String(cipher.doFinal(decoder.decode(value)), StandardCharsets.UTF_8);
+                }
+            } catch (GeneralSecurityException | IllegalArgumentException e) {
+                log.debug("批量{}第{}个元素失败: {}", encrypt ? "加密" : "解密", i, e.getMessage());
+                failures++;
+                // 异常后的Cipher不再复用，换一个新的继续
+                cipher = pool.borrow();
+            }
+        }
+        pool.release(cipher);
+        return failures;
+    }
+
+    private KeyEntry nullKeyEntry() {
+        KeyEntry entry = nullKeyEntry;
+        if (entry == null) {
+            entry = createKeyEntry(null);
+            nullKeyEntry = entry;
+        }
+        return entry;
+    }
+
+    private KeyEntry createKeyEntry(String key) {
+        SecretKeySpec keySpec = new SecretKeySpec(keyNormalizer.apply(key), keyAlgorithm);
+        return new KeyEntry(new CipherPool(keySpec, Cipher.ENCRYPT_MODE), new CipherPool(keySpec, Cipher.DECRYPT_MODE));
+    }
+
+    /**
+     * 密钥条目：标准化后的密钥及其加解密Cipher池
+     */
+    private static final class KeyEntry {
+        private final CipherPool encryptPool;
+        private final CipherPool decryptPool;
+
+        private KeyEntry(CipherPool encryptPool, CipherPool decryptPool) {
+            this.encryptPool = encryptPool;
+            this.decryptPool = decryptPool;
+        }
+    }
+
+    /**
+     * 已初始化Cipher的有界空闲池
+     */
+    public final class CipherPool {
+
+        private final SecretKeySpec keySpec;
+
+        private final int mode;
+
+        private final ArrayBlockingQueue<Cipher> idle = new ArrayBlockingQueue<>(maxIdle);
+
+        private CipherPool(SecretKeySpec keySpec, int mode) {
+            this.keySpec = keySpec;
+            this.mode = mode;
+        }
+
+        /**
+         * 借出一个已初始化的Cipher，池为空时新建
+         */
+        public Cipher borrow() throws GeneralSecurityException {
+            Cipher cipher = idle.poll();
+            if (cipher != null) {
+                return cipher;
+            }
+            cipher = Cipher.getInstance(transformation);
+            cipher.init(mode, keySpec);
+            return cipher;
+        }
+
+        /**
+         * 归还Cipher，池满则丢弃
+         * doFinal完成后Cipher会回到init后的状态，可以直接复用
+         */
+        public void release(Cipher cipher) {
+            if (cipher != null) {
+                idle.offer(cipher);
+            }
+        }
+    }
+}
@@ -1,8 +1,8 @@
 package com.chu7.securtkit.encrypt.strategy;
 
-import cn.hutool.crypto.symmetric.DES;
 import lombok.extern.slf4j.Slf4j;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 
@@ -17,6 +17,13 @@ public class DesEncryptStrategy implements EncryptStrategy {
     
     private static final String ALGORITHM = "DES";
     
+    /**
+     * Cipher缓存，按密钥复用标准化密钥和已初始化的Cipher
+     * 密钥长度标准化规则与原实现保持一致，确保历史密文可解
+     */
+    private final CipherCache cipherCache = new CipherCache(ALGORITHM, ALGORITHM,
+            key -> normalizeKey(key).getBytes(StandardCharsets.UTF_8));
+    
     @Override
     public String encrypt(String plainText, String key) {
         if (plainText == null || plainText.isEmpty()) {
@@ -24,10 +31,7 @@ public class DesEncryptStrategy implements EncryptStrategy {
         }
         
         try {
-            // 确保密钥长度为8字节
-            String normalizedKey = normalizeKey(key);
-            DES des = new DES(normalizedKey.getBytes(StandardCharsets.UTF_8));
-            byte[] encrypted = des.encrypt(plainText);
+            byte[] encrypted = cipherCache.encrypt(key, plainText.getBytes(StandardCharsets.UTF_8));
             return Base64.getEncoder().encodeToString(encrypted);
         } catch (Exception e) {
             log.error("DES加密失败: {}", e.getMessage(), e);
@@ -42,10 +46,7 @@ public class DesEncryptStrategy implements EncryptStrategy {
         }
         
         try {
-            // 确保密钥长度为8字节
-            String normalizedKey = normalizeKey(key);
-            DES des = new DES(normalizedKey.getBytes(StandardCharsets.UTF_8));
-            byte[] decrypted = des.decrypt(Base64.getDecoder().decode(cipherText));
+            byte[] decrypted = cipherCache.decrypt(key, Base64.getDecoder().decode(cipherText));
             return new String(decrypted, StandardCharsets.UTF_8);
         } catch (Exception e) {
             log.error("DES解密失败: {}", e.getMessage(), e);
@@ -53,6 +54,85 @@ public class DesEncryptStrategy implements EncryptStrategy {
         }
     }
     
+    @Override
+    public byte[] encrypt(byte[] plainBytes, String key) {
+        if (plainBytes == null || plainBytes.length == 0) {
+            return plainBytes;
+        }
+        
+        try {
+            return cipherCache.encrypt(key, plainBytes);
+        } catch (Exception e) {
+            log.error("DES加密失败: {}", e.getMessage(), e);
+            return plainBytes;
+        }
+    }
+    
+    @Override
+    public byte[] decrypt(byte[] cipherBytes, String key) {
+        if (cipherBytes == null || cipherBytes.length == 0) {
+            return cipherBytes;
+        }
+        
+        try {
+            return cipherCache.decrypt(key, cipherBytes);
+        } catch (Exception e) {
+            log.error("DES解密失败: {}", e.getMessage(), e);
+            return cipherBytes;
+        }
+    }
+    
+    @Override
+    public int encrypt(ByteBuffer input, ByteBuffer output, String key) {
+        try {
+            return cipherCache.encrypt(key, input, output);
+        } catch (Exception e) {
+            throw new IllegalStateException("DES加密失败: " + e.getMessage(), e);
+        }
+    }
+    
+    @Override
+    public int decrypt(ByteBuffer input, ByteBuffer output, String key) {
+        try {
+            return cipherCache.decrypt(key, input, output);
+        } catch (Exception e) {
+            throw new IllegalStateException("DES解密失败: " + e.getMessage(), e);
+        }
+    }
+    
+    @Override
+    public void encryptAll(String[] values, String key) {
+        try {
+            int failures = cipherCache.encryptAll(key, values);
+            if (failures > 0) {
+                log.error("DES批量加密失败{}个", failures);
+            }
+        } catch (Exception e) {
+            log.error("DES批量加密失败: {}", e.getMessage(), e);
+        }
+    }
+    
+    @Override
+    public void decryptAll(String[] values, String key) {
+        try {
+            int failures = cipherCache.decryptAll(key, values);
+            if (failures > 0) {
+                log.error("DES批量解密失败{}个", failures);
+            }
+        } catch (Exception e) {
+            log.error("DES批量解密失败: {}", e.getMessage(), e);
+        }
+    }
+    
+    @Override
+    public int getEncryptOutputSize(int inputLength, String key) {
+        try {
+            return cipherCache.getEncryptOutputSize(key, inputLength);
+        } catch (Exception e) {
+            throw new IllegalStateException("DES初始化失败: " + e.getMessage(), e);
+        }
+    }
+    
     @Override
     public String getAlgorithm() {
         return ALGORITHM;
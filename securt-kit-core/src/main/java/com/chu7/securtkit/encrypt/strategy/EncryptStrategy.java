@@ -1,5 +1,11 @@
 package com.chu7.securtkit.encrypt.strategy;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * 加密策略接口
  *
@@ -26,6 +32,148 @@ public interface EncryptStrategy {
      */
     String decrypt(String cipherText, String key);
     
+    /**
+     * 加密字节数据
+     * 直接返回原始密文字节，不做Base64编码
+     * 默认实现基于字符串接口，返回字符串密文的UTF-8字节，与默认的字节解密互为逆操作；
+     * 字符串加密失败回退为明文时不会把明文当作Base64解码。内置策略会直接操作字节
+     *
+     * @param plainBytes 明文字节（UTF-8）
+     * @param key 密钥
+     * @return 密文字节
+     */
+    default byte[] encrypt(byte[] plainBytes, String key) {
+        if (plainBytes == null || plainBytes.length == 0) {
+            return plainBytes;
+        }
+        String cipherText = encrypt(new String(plainBytes, StandardCharsets.UTF_8), key);
+        return cipherText.getBytes(StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * 解密字节数据
+     *
+     * @param cipherBytes 原始密文字节
+     * @param key 密钥
+     * @return 明文字节（UTF-8）
+     */
+    default byte[] decrypt(byte[] cipherBytes, String key) {
+        if (cipherBytes == null || cipherBytes.length == 0) {
+            return cipherBytes;
+        }
+        String plainText = decrypt(new String(cipherBytes, StandardCharsets.UTF_8), key);
+        return plainText.getBytes(StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * 加密到调用方提供的缓冲区
+     * 读取input中position到limit之间的数据，从output的position开始写入密文
+     *
+     * @param input 明文缓冲区
+     * @param output 密文缓冲区，剩余空间需不小于 {@link #getEncryptOutputSize(int, String)}
+     * @param key 密钥
+     * @return 写入的字节数
+     * @throws IllegalStateException 加密失败或缓冲区空间不足，空间不足时input和output的position保持不变
+     */
+    default int encrypt(ByteBuffer input, ByteBuffer output, String key) {
+        byte[] plainBytes = new byte[input.remaining()];
+        input.duplicate().get(plainBytes);
+        byte[] cipherBytes = encrypt(plainBytes, key);
+        if (cipherBytes.length > output.remaining()) {
+            throw new IllegalStateException("输出缓冲区空间不足: 需要" + cipherBytes.length
+                    + "字节，剩余" + output.remaining() + "字节");
+        }
+        input.position(input.limit());
+        output.put(cipherBytes);
+        return cipherBytes.length;
+    }
+    
+    /**
+     * 解密到调用方提供的缓冲区
+     *
+     * @param input 密文缓冲区
+     * @param output 明文缓冲区，剩余空间需不小于密文长度
+     * @param key 密钥
+     * @return 写入的字节数
+     * @throws IllegalStateException 解密失败或缓冲区空间不足，空间不足时input和output的position保持不变
+     */
+    default int decrypt(ByteBuffer input, ByteBuffer output, String key) {
+        byte[] cipherBytes = new byte[input.remaining()];
+        input.duplicate().get(cipherBytes);
+        byte[] plainBytes = decrypt(cipherBytes, key);
+        if (plainBytes.length > output.remaining()) {
+            throw new IllegalStateException("输出缓冲区空间不足: 需要" + plainBytes.length
+                    + "字节，剩余" + output.remaining() + "字节");
+        }
+        input.position(input.limit());
+        output.put(plainBytes);
+        return plainBytes.length;
+    }
+    
+    /**
+     * 计算加密指定长度明文所需的输出缓冲区大小
+     * 默认实现与默认的字节加密一致，按16字节分组填充后的Base64文本长度估算；直接输出原始密文的策略应覆盖此方法
+     *
+     * @param inputLength 明文长度
+     * @param key 密钥
+     * @return 密文最大长度
+     */
+    default int getEncryptOutputSize(int inputLength, String key) {
+        int paddedLength = (inputLength / 16 + 1) * 16;
+        return (paddedLength + 2) / 3 * 4;
+    }
+    
+    /**
+     * 批量加密
+     *
+     * @param plainTexts 明文列表
+     * @param key 密钥
+     * @return 密文列表，顺序与入参一致
+     */
+    default List<String> encryptAll(List<String> plainTexts, String key) {
+        String[] values = plainTexts.toArray(new String[0]);
+        encryptAll(values, key);
+        return new ArrayList<>(Arrays.asList(values));
+    }
+    
+    /**
+     * 批量解密
+     *
+     * @param cipherTexts 密文列表
+     * @param key 密钥
+     * @return 明文列表，顺序与入参一致
+     */
+    default List<String> decryptAll(List<String> cipherTexts, String key) {
+        String[] values = cipherTexts.toArray(new String[0]);
+        decryptAll(values, key);
+        return new ArrayList<>(Arrays.asList(values));
+    }
+    
+    /**
+     * 按列批量加密，结果原地写回数组
+     * 内置策略整批只做一次密钥和Cipher准备
+     *
+     * @param values 明文数组
+     * @param key 密钥
+     */
+    default void encryptAll(String[] values, String key) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = encrypt(values[i], key);
+        }
+    }
+    
+    /**
+     * 按列批量解密，结果原地写回数组
+     *
+     * @param values 密文数组
+     * @param key 密钥
+     */
+    default void decryptAll(String[] values, String key) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = decrypt(values[i], key);
+        }
+    }
+    
     /**
      * 获取算法名称
      *
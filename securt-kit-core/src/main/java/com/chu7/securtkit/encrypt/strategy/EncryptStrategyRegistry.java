@@ -0,0 +1,205 @@
+package com.chu7.securtkit.encrypt.strategy;
+
+import com.chu7.securtkit.encrypt.annotation.EncryptField;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 加密策略注册表
+ * 启动时根据已注册的策略构建不可变的 算法名 -> 策略 映射，运行期查找为一次哈希查找
+ * <p>
+ * 同时负责解析 {@link EncryptField#strategy()}：指定了策略类时优先使用该类型的策略，
+ * 未注册为Bean的策略类会通过无参构造器实例化一次并缓存。
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+@Slf4j
+public class EncryptStrategyRegistry {
+
+    /**
+     * 默认算法
+     */
+    public static final String DEFAULT_ALGORITHM = "AES";
+
+    /**
+     * 已注册的策略，按注册顺序
+     */
+    private final List<EncryptStrategy> strategies;
+
+    /**
+     * 标准化算法名 -> 策略
+     */
+    private final Map<String, EncryptStrategy> algorithmStrategies;
+
+    /**
+     * 策略类型 -> 策略
+     */
+    private final Map<Class<?>, EncryptStrategy> typeStrategies;
+
+    /**
+     * 别名缓存：通过 supports() 匹配到的非标准算法名 -> 策略
+     */
+    private final Map<String, EncryptStrategy> aliasStrategies = new ConcurrentHashMap<>();
+
+    /**
+     * 自定义策略类实例缓存：未注册为Bean的策略类 -> 实例
+     */
+    private final Map<Class<?>, EncryptStrategy> customStrategies = new ConcurrentHashMap<>();
+
+    /**
+     * 字段 -> 已解析的策略
+     */
+    private final Map<Field, EncryptStrategy> fieldStrategies = new ConcurrentHashMap<>();
+
+    public EncryptStrategyRegistry(List<EncryptStrategy> strategies) {
+        this.strategies = strategies == null ? Collections.emptyList() : Collections.unmodifiableList(strategies);
+
+        Map<String, EncryptStrategy> byAlgorithm = new LinkedHashMap<>();
+        Map<Class<?>, EncryptStrategy> byType = new LinkedHashMap<>();
+        for (EncryptStrategy strategy : this.strategies) {
+            // 同名算法以先注册的为准，与原先 findFirst 的行为一致
+            byAlgorithm.putIfAbsent(normalize(strategy.getAlgorithm()), strategy);
+            byType.putIfAbsent(strategy.getClass(), strategy);
+        }
+        this.algorithmStrategies = Collections.unmodifiableMap(byAlgorithm);
+        this.typeStrategies = Collections.unmodifiableMap(byType);
+
+        log.info("加密策略注册完成: {}", algorithmStrategies.keySet());
+    }
+
+    /**
+     * 根据算法名查找策略
+     *
+     * @param algorithm 算法名称，为空时使用默认算法
+     * @return 加密策略，未找到时返回null
+     */
+    public EncryptStrategy getStrategy(String algorithm) {
+        String normalized = normalize(algorithm);
+        EncryptStrategy strategy = algorithmStrategies.get(normalized);
+        if (strategy != null) {
+            return strategy;
+        }
+
+        strategy = aliasStrategies.get(normalized);
+        if (strategy != null) {
+            return strategy;
+        }
+
+        // 非标准名称只在首次出现时遍历一次 supports()，传入原始名称，标准化名称只用作缓存键
+        for (EncryptStrategy candidate : strategies) {
+            if (candidate.supports(algorithm)) {
+                aliasStrategies.put(normalized, candidate);
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 根据策略类型查找策略
+     *
+     * @param strategyType 策略类型
+     * @return 加密策略，类型不是EncryptStrategy或无法实例化时返回null
+     */
+    public EncryptStrategy getStrategy(Class<?> strategyType) {
+        if (strategyType == null || !EncryptStrategy.class.isAssignableFrom(strategyType)) {
+            return null;
+        }
+
+        EncryptStrategy strategy = typeStrategies.get(strategyType);
+        if (strategy != null) {
+            return strategy;
+        }
+
+        for (EncryptStrategy candidate : strategies) {
+            if (strategyType.isInstance(candidate)) {
+                return candidate;
+            }
+        }
+
+        return customStrategies.computeIfAbsent(strategyType, this::instantiate);
+    }
+
+    /**
+     * 解析注解对应的策略
+     * 指定了 strategy 时优先按类型解析，否则按 algorithm 解析
+     *
+     * @param encryptField 加密注解
+     * @return 加密策略，未找到时返回null
+     */
+    public EncryptStrategy resolve(EncryptField encryptField) {
+        if (encryptField == null) {
+            return getStrategy(DEFAULT_ALGORITHM);
+        }
+        return resolve(encryptField.algorithm(), encryptField.strategy());
+    }
+
+    /**
+     * 按注解属性解析策略，供编译期生成的加密器使用
+     *
+     * @param algorithm 加密算法
+     * @param strategyType 自定义策略类型，未指定时为 Object.class 或 null
+     * @return 加密策略，未找到时返回null
+     */
+    public EncryptStrategy resolve(String algorithm, Class<?> strategyType) {
+        if (strategyType != null && strategyType != Object.class) {
+            EncryptStrategy strategy = getStrategy(strategyType);
+            if (strategy != null) {
+                return strategy;
+            }
+            log.warn("自定义加密策略无效: {}，回退到算法 {}", strategyType.getName(), algorithm);
+        }
+        return getStrategy(algorithm);
+    }
+
+    /**
+     * 解析字段绑定的策略，结果按字段缓存
+     *
+     * @param field 标注了 {@link EncryptField} 的字段
+     * @return 加密策略，未找到时返回null
+     */
+    public EncryptStrategy resolve(Field field) {
+        EncryptStrategy strategy = fieldStrategies.get(field);
+        if (strategy == null) {
+            strategy = resolve(field.getAnnotation(EncryptField.class));
+            if (strategy != null) {
+                fieldStrategies.put(field, strategy);
+            }
+        }
+        return strategy;
+    }
+
+    /**
+     * 获取所有已注册的策略
+     */
+    public List<EncryptStrategy> getStrategies() {
+        return strategies;
+    }
+
+    /**
+     * 标准化算法名称
+     */
+    public static String normalize(String algorithm) {
+        if (algorithm == null || algorithm.trim().isEmpty()) {
+            return DEFAULT_ALGORITHM;
+        }
+        return algorithm.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private EncryptStrategy instantiate(Class<?> strategyType) {
+        try {
+            return (EncryptStrategy) strategyType.getDeclaredConstructor().newInstance();
+        } catch (Exception e) {
+            log.error("实例化自定义加密策略失败: {}", strategyType.getName(), e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.chu7.securtkit.encrypt.strategy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 模糊查询分词生成器
+ * 写入时将明文所有长度不超过 gramSize 的子串（n-gram）计算HMAC后写入分词表；
+ * 查询时把 LIKE 模式按通配符切分，每段取 gramSize 长度的分词（不足时取整段），
+ * 包含全部查询分词的行即为候选行。
+ * <p>
+ * 另有一个不依赖内容的存在标记分词，只含通配符的模式（如 '%'）用它匹配所有非null的值。
+ * 分词在HMAC前加上固定前缀，与同一明文的盲索引不相同。
+ * <p>
+ * 明文和模式都按 {@link Locale#ROOT} 转为小写后再切分，与MySQL默认的大小写不敏感排序规则下 LIKE 的结果一致；
+ * 不处理重音等其他排序规则差异。
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+public class LikeTokenGenerator {
+
+    /**
+     * 分词前缀，区分分词与盲索引
+     */
+    private static final String PREFIX = "\u0000like\u0000";
+
+    private static final char ESCAPE = '\\';
+
+    private final BlindIndexGenerator generator;
+
+    private final int gramSize;
+
+    public LikeTokenGenerator(BlindIndexGenerator generator, int gramSize) {
+        this.generator = generator;
+        this.gramSize = Math.max(1, gramSize);
+    }
+
+    /**
+     * 计算明文需要写入分词表的分词
+     *
+     * @param value 明文
+     * @param key 加密密钥
+     * @return 分词集合，明文为null时返回空集合
+     */
+    public Set<String> indexTokens(String value, String key) {
+        if (value == null) {
+            return Collections.emptySet();
+        }
+        Set<String> tokens = new LinkedHashSet<>();
+        tokens.add(generator.generate(PREFIX, key));
+        int[] codePoints = value.toLowerCase(Locale.ROOT).codePoints().toArray();
+        for (int start = 0; start < codePoints.length; start++) {
+            for (int length = 1; length <= gramSize && start + length <= codePoints.length; length++) {
+                tokens.add(token(new String(codePoints, start, length), key));
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * 计算 LIKE 模式对应的查询分词
+     * % 和 _ 为通配符，反斜杠转义下一个字符
+     *
+     * @param pattern LIKE 模式
+     * @param key 加密密钥
+     * @return 查询分词，不为空；模式为null时返回null
+     */
+    public List<String> queryTokens(String pattern, String key) {
+        if (pattern == null) {
+            return null;
+        }
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String segment : segments(pattern)) {
+            String lowerCase = segment.toLowerCase(Locale.ROOT);
+            int[] codePoints = lowerCase.codePoints().toArray();
+            if (codePoints.length <= gramSize) {
+                tokens.add(token(lowerCase, key));
+                continue;
+            }
+            for (int start = 0; start + gramSize <= codePoints.length; start++) {
+                tokens.add(token(new String(codePoints, start, gramSize), key));
+            }
+        }
+        if (tokens.isEmpty()) {
+            tokens.add(generator.generate(PREFIX, key));
+        }
+        return new ArrayList<>(tokens);
+    }
+
+    /**
+     * 分词的最大长度
+     */
+    public int getGramSize() {
+        return gramSize;
+    }
+
+    private String token(String gram, String key) {
+        return generator.generate(PREFIX + gram, key);
+    }
+
+    /**
+     * 按通配符切分出字面量片段
+     */
+    private static List<String> segments(String pattern) {
+        List<String> segments = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == ESCAPE && i + 1 < pattern.length()) {
+                current.append(pattern.charAt(++i));
+            } else if (c == '%' || c == '_') {
+                if (current.length() > 0) {
+                    segments.add(current.toString());
+                    current.setLength(0);
+                }
+            } else {
+                current.append(c);
+            }
+        }
+        if (current.length() > 0) {
+            segments.add(current.toString());
+        }
+        return segments;
+    }
+}
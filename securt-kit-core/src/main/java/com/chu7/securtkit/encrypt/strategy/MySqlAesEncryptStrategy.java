@@ -0,0 +1,145 @@
+package com.chu7.securtkit.encrypt.strategy;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 与MySQL内置函数兼容的AES加密策略
+ * 结果与 {@code TO_BASE64(AES_ENCRYPT(value, key))} 完全一致（空字符串同样加密为一个填充分组），可用于在Java端计算DB模式的密文：
+ * <ul>
+ *     <li>默认 block_encryption_mode = aes-128-ecb，PKCS5填充</li>
+ *     <li>密钥按MySQL规则折叠为16字节：密钥字节依次异或到 {@code i % 16} 位置</li>
+ *     <li>TO_BASE64 每76个字符插入一个换行</li>
+ * </ul>
+ * 加密结果用于写入和比较加密列，加密失败时抛出异常，不会以明文代替密文。
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+@Slf4j
+public class MySqlAesEncryptStrategy implements EncryptStrategy {
+
+    public static final String ALGORITHM = "MYSQL_AES";
+
+    /**
+     * MySQL TO_BASE64 的行宽
+     */
+    private static final int BASE64_LINE_LENGTH = 76;
+
+    private static final Base64.Encoder ENCODER =
+            Base64.getMimeEncoder(BASE64_LINE_LENGTH, "\n".getBytes(StandardCharsets.US_ASCII));
+
+    private static final Base64.Decoder DECODER = Base64.getMimeDecoder();
+
+    private final CipherCache cipherCache = new CipherCache("AES/ECB/PKCS5Padding", "AES",
+            MySqlAesEncryptStrategy::foldKey);
+
+    @Override
+    public String encrypt(String plainText, String key) {
+        // 空字符串与MySQL一样加密为一个填充分组，不能原样返回
+        if (plainText == null) {
+            return null;
+        }
+
+        try {
+            return ENCODER.encodeToString(cipherCache.encrypt(key, plainText.getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            throw new IllegalStateException("MySQL AES加密失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String decrypt(String cipherText, String key) {
+        if (cipherText == null || cipherText.isEmpty()) {
+            return cipherText;
+        }
+
+        try {
+            return new String(cipherCache.decrypt(key, DECODER.decode(cipherText)), StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            log.error("MySQL AES解密失败: {}", e.getMessage(), e);
+            return cipherText;
+        }
+    }
+
+    @Override
+    public byte[] encrypt(byte[] plainBytes, String key) {
+        if (plainBytes == null) {
+            return null;
+        }
+
+        try {
+            return cipherCache.encrypt(key, plainBytes);
+        } catch (Exception e) {
+            throw new IllegalStateException("MySQL AES加密失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public byte[] decrypt(byte[] cipherBytes, String key) {
+        if (cipherBytes == null || cipherBytes.length == 0) {
+            return cipherBytes;
+        }
+
+        try {
+            return cipherCache.decrypt(key, cipherBytes);
+        } catch (Exception e) {
+            log.error("MySQL AES解密失败: {}", e.getMessage(), e);
+            return cipherBytes;
+        }
+    }
+
+    @Override
+    public int encrypt(ByteBuffer input, ByteBuffer output, String key) {
+        try {
+            return cipherCache.encrypt(key, input, output);
+        } catch (Exception e) {
+            throw new IllegalStateException("MySQL AES加密失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public int decrypt(ByteBuffer input, ByteBuffer output, String key) {
+        try {
+            return cipherCache.decrypt(key, input, output);
+        } catch (Exception e) {
+            throw new IllegalStateException("MySQL AES解密失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public int getEncryptOutputSize(int inputLength, String key) {
+        try {
+            return cipherCache.getEncryptOutputSize(key, inputLength);
+        } catch (Exception e) {
+            throw new IllegalStateException("MySQL AES初始化失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String getAlgorithm() {
+        return ALGORITHM;
+    }
+
+    @Override
+    public boolean supports(String algorithm) {
+        return ALGORITHM.equalsIgnoreCase(algorithm);
+    }
+
+    /**
+     * 按MySQL规则将任意长度的密钥折叠为16字节
+     */
+    static byte[] foldKey(String key) {
+        byte[] folded = new byte[16];
+        if (key != null) {
+            byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+            for (int i = 0; i < keyBytes.length; i++) {
+                folded[i % folded.length] ^= keyBytes[i];
+            }
+        }
+        return folded;
+    }
+}
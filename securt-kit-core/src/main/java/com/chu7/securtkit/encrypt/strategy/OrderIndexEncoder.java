@@ -0,0 +1,136 @@
+package com.chu7.securtkit.encrypt.strategy;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * 保序索引编码器
+ * 将32位有符号整数范围内的明文编码为 [0, 2^62) 内的 BIGINT，编码严格单调递增：
+ * a &lt; b 当且仅当 encode(a) &lt; encode(b)，数据库可以直接在影子列上做范围扫描和排序。
+ * <p>
+ * 编码是按密钥随机选取的保序函数：把明文区间逐层二分，每一层由 HMAC(节点) 在剩余的密文区间中
+ * 选取分界点，左半明文映射到分界点左侧，右半映射到右侧，32层后在所在的密文区间内再按 HMAC 取一个值。
+ * 每次编码计算33次HMAC，HMAC使用单独派生的密钥并取完整的32字节输出，
+ * 与盲索引、分词的密钥无关，也不受盲索引截短长度（blindIndexLength）影响，修改该配置不会改变已有的编码。
+ * <p>
+ * 泄露说明：影子列对数据库可见的信息包括
+ * <ul>
+ *     <li>明文的相等关系和完整的大小顺序</li>
+ *     <li>明文在值域中的大致位置：分界点在区间内均匀选取，密文的高位与明文的高位近似成比例，
+ *     知道少量明密文对或明文分布时可以估计出其他值的大致范围</li>
+ * </ul>
+ * 对取值范围小、分布公开的字段（如年龄），仅凭顺序就能推出大部分明文，只应在确实需要范围查询或排序时开启。
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+@Slf4j
+public class OrderIndexEncoder {
+
+    /**
+     * 派生保序索引HMAC密钥的标签
+     */
+    private static final String DERIVATION_LABEL = "securt-kit:order-index";
+
+    /**
+     * 明文区间大小 2^32，明文加上 2^31 后落在 [0, 2^32)
+     */
+    private static final long DOMAIN_SIZE = 1L << 32;
+
+    private static final long DOMAIN_OFFSET = 1L << 31;
+
+    /**
+     * 密文区间大小 2^62
+     */
+    private static final long RANGE_SIZE = 1L << 62;
+
+    private final BlindIndexGenerator generator;
+
+    public OrderIndexEncoder() {
+        this.generator = new BlindIndexGenerator(0, DERIVATION_LABEL);
+    }
+
+    /**
+     * 计算保序编码
+     *
+     * @param value 明文，支持整数类型和整数字符串
+     * @param key 加密密钥
+     * @return 编码，明文为null、不是32位整数或计算失败时返回null
+     */
+    public Long encode(Object value, String key) {
+        Long number = toLong(value);
+        if (number == null) {
+            if (value != null) {
+                log.warn("保序索引只支持32位整数，忽略: {}", value);
+            }
+            return null;
+        }
+
+        long plain = number + DOMAIN_OFFSET;
+        long domainLow = 0;
+        long domainHigh = DOMAIN_SIZE;
+        long rangeLow = 0;
+        long rangeHigh = RANGE_SIZE;
+        while (domainHigh - domainLow > 1) {
+            long domainMid = domainLow + (domainHigh - domainLow) / 2;
+            // 两侧密文区间都不小于对应的明文区间
+            long slack = (rangeHigh - rangeLow) - (domainHigh - domainLow);
+            Long random = random(domainLow, domainHigh, key);
+            if (random == null) {
+                return null;
+            }
+            long rangeMid = rangeLow + (domainMid - domainLow) + random % (slack + 1);
+            if (plain < domainMid) {
+                domainHigh = domainMid;
+                rangeHigh = rangeMid;
+            } else {
+                domainLow = domainMid;
+                rangeLow = rangeMid;
+            }
+        }
+        Long random = random(domainLow, domainHigh, key);
+        return random == null ? null : rangeLow + random % (rangeHigh - rangeLow);
+    }
+
+    /**
+     * 明文节点对应的非负伪随机数
+     */
+    private Long random(long domainLow, long domainHigh, String key) {
+        byte[] bytes = generator.digest(domainLow + ":" + domainHigh, key);
+        if (bytes == null) {
+            return null;
+        }
+        long result = 0;
+        for (int i = 0; i < 8; i++) {
+            result = (result << 8) | (bytes[i] & 0xFF);
+        }
+        return result & Long.MAX_VALUE;
+    }
+
+    /**
+     * 转为32位整数范围内的long
+     *
+     * @return 不是整数或超出范围时返回null
+     */
+    private static Long toLong(Object value) {
+        long result;
+        try {
+            if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+                result = ((Number) value).longValue();
+            } else if (value instanceof BigInteger) {
+                result = ((BigInteger) value).longValueExact();
+            } else if (value instanceof BigDecimal) {
+                result = ((BigDecimal) value).longValueExact();
+            } else if (value instanceof String) {
+                result = Long.parseLong(((String) value).trim());
+            } else {
+                return null;
+            }
+        } catch (ArithmeticException | NumberFormatException e) {
+            return null;
+        }
+        return result < Integer.MIN_VALUE || result > Integer.MAX_VALUE ? null : result;
+    }
+}
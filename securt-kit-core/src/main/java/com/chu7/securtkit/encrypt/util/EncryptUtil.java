@@ -1,15 +1,27 @@
 package com.chu7.securtkit.encrypt.util;
 
 import com.chu7.securtkit.encrypt.annotation.EncryptField;
+import com.chu7.securtkit.encrypt.cache.EncryptMetadataCache;
 import com.chu7.securtkit.encrypt.core.EncryptContext;
+import com.chu7.securtkit.encrypt.core.EncryptFieldMetadata;
+import com.chu7.securtkit.encrypt.core.EntityEncryptMetadata;
+import com.chu7.securtkit.encrypt.strategy.BlindIndexGenerator;
 import com.chu7.securtkit.encrypt.strategy.EncryptStrategy;
+import com.chu7.securtkit.encrypt.strategy.EncryptStrategyRegistry;
 import com.chu7.securtkit.encrypt.strategy.KeyManager;
+import com.chu7.securtkit.encrypt.strategy.OrderIndexEncoder;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 加密工具类
@@ -23,11 +35,20 @@ import java.util.List;
 public class EncryptUtil {
     
     @Autowired
-    private List<EncryptStrategy> encryptStrategies;
+    private EncryptStrategyRegistry encryptStrategyRegistry;
+    
+    @Autowired
+    private EncryptMetadataCache encryptMetadataCache;
     
     @Autowired
     private KeyManager keyManager;
     
+    @Autowired(required = false)
+    private BlindIndexGenerator blindIndexGenerator;
+    
+    @Autowired(required = false)
+    private OrderIndexEncoder orderIndexEncoder;
+    
     /**
      * 加密字符串
      *
@@ -82,6 +103,199 @@ public class EncryptUtil {
         }
     }
     
+    /**
+     * 加密字符串为原始密文字节
+     * 跳过Base64编码，适用于VARBINARY等二进制列
+     *
+     * @param plainText 明文
+     * @param algorithm 算法
+     * @return 密文字节，明文为null时返回null
+     */
+    public byte[] encryptToBytes(String plainText, String algorithm) {
+        if (plainText == null) {
+            return null;
+        }
+        
+        byte[] plainBytes = plainText.getBytes(StandardCharsets.UTF_8);
+        if (plainBytes.length == 0) {
+            return plainBytes;
+        }
+        
+        EncryptStrategy strategy = findEncryptStrategy(algorithm);
+        if (strategy == null) {
+            log.warn("未找到加密策略: {}", algorithm);
+            return plainBytes;
+        }
+        
+        try {
+            String key = keyManager.getDefaultKey();
+            return strategy.encrypt(plainBytes, key);
+        } catch (Exception e) {
+            log.error("加密失败: {}", e.getMessage(), e);
+            return plainBytes;
+        }
+    }
+    
+    /**
+     * 解密原始密文字节为字符串
+     *
+     * @param cipherBytes 密文字节
+     * @param algorithm 算法
+     * @return 明文，密文为null时返回null
+     */
+    public String decryptFromBytes(byte[] cipherBytes, String algorithm) {
+        if (cipherBytes == null) {
+            return null;
+        }
+        if (cipherBytes.length == 0) {
+            return "";
+        }
+        
+        EncryptStrategy strategy = findEncryptStrategy(algorithm);
+        if (strategy == null) {
+            log.warn("未找到解密策略: {}", algorithm);
+            return new String(cipherBytes, StandardCharsets.UTF_8);
+        }
+        
+        try {
+            String key = keyManager.getDefaultKey();
+            return new String(strategy.decrypt(cipherBytes, key), StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            log.error("解密失败: {}", e.getMessage(), e);
+            return new String(cipherBytes, StandardCharsets.UTF_8);
+        }
+    }
+    
+    /**
+     * 批量加密字符串
+     * 策略和密钥只查找一次
+     *
+     * @param plainTexts 明文列表
+     * @param algorithm 算法
+     * @return 密文列表，顺序与入参一致
+     */
+    public List<String> encryptAll(List<String> plainTexts, String algorithm) {
+        String[] values = plainTexts.toArray(new String[0]);
+        encryptAll(values, algorithm);
+        return new ArrayList<>(Arrays.asList(values));
+    }
+    
+    /**
+     * 批量解密字符串
+     *
+     * @param cipherTexts 密文列表
+     * @param algorithm 算法
+     * @return 明文列表，顺序与入参一致
+     */
+    public List<String> decryptAll(List<String> cipherTexts, String algorithm) {
+        String[] values = cipherTexts.toArray(new String[0]);
+        decryptAll(values, algorithm);
+        return new ArrayList<>(Arrays.asList(values));
+    }
+    
+    /**
+     * 按列批量加密，结果原地写回数组
+     *
+     * @param values 明文数组
+     * @param algorithm 算法
+     */
+    public void encryptAll(String[] values, String algorithm) {
+        if (values == null || values.length == 0) {
+            return;
+        }
+        
+        EncryptStrategy strategy = findEncryptStrategy(algorithm);
+        if (strategy == null) {
+            log.warn("未找到加密策略: {}", algorithm);
+            return;
+        }
+        
+        try {
+            strategy.encryptAll(values, keyManager.getDefaultKey());
+        } catch (Exception e) {
+            log.error("批量加密失败: {}", e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * 按列批量解密，结果原地写回数组
+     *
+     * @param values 密文数组
+     * @param algorithm 算法
+     */
+    public void decryptAll(String[] values, String algorithm) {
+        if (values == null || values.length == 0) {
+            return;
+        }
+        
+        EncryptStrategy strategy = findEncryptStrategy(algorithm);
+        if (strategy == null) {
+            log.warn("未找到解密策略: {}", algorithm);
+            return;
+        }
+        
+        try {
+            strategy.decryptAll(values, keyManager.getDefaultKey());
+        } catch (Exception e) {
+            log.error("批量解密失败: {}", e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * 批量解密对象集合
+     * 先按(策略, 密钥)把所有对象的加密字段值收集成列，每组只调用一次批量解密，再写回对象
+     *
+     * @param objects 对象集合
+     */
+    public void decryptObjects(Collection<?> objects) {
+        if (objects == null || objects.isEmpty()) {
+            return;
+        }
+        
+        String key = keyManager.getDefaultKey();
+        Map<EncryptStrategy, ValueBatch> batches = new LinkedHashMap<>();
+        
+        EntityEncryptMetadata metadata = null;
+        for (Object obj : objects) {
+            if (obj == null) {
+                continue;
+            }
+            // 结果集合通常是同一类型，连续相同类型时复用上一次的元数据
+            if (metadata == null || metadata.getType() != obj.getClass()) {
+                metadata = encryptMetadataCache.getMetadata(obj.getClass());
+            }
+            for (EncryptFieldMetadata fieldMetadata : metadata.getFields()) {
+                EncryptStrategy strategy = fieldMetadata.getStrategy();
+                if (strategy == null) {
+                    log.warn("未找到解密策略: {}", fieldMetadata.getAlgorithm());
+                    continue;
+                }
+                try {
+                    Object value = fieldMetadata.get(obj);
+                    if (value instanceof String && !((String) value).isEmpty()) {
+                        batches.computeIfAbsent(strategy, k -> new ValueBatch())
+                                .add(obj, fieldMetadata, (String) value);
+                    }
+                } catch (Exception e) {
+                    log.error("读取对象字段失败: {}.{}", obj.getClass().getSimpleName(), fieldMetadata.getName(), e);
+                }
+            }
+        }
+        
+        for (Map.Entry<EncryptStrategy, ValueBatch> entry : batches.entrySet()) {
+            EncryptStrategy strategy = entry.getKey();
+            ValueBatch batch = entry.getValue();
+            String[] values = batch.values.toArray(new String[0]);
+            try {
+                strategy.decryptAll(values, key);
+            } catch (Exception e) {
+                log.error("批量解密失败: {}", e.getMessage(), e);
+                continue;
+            }
+            batch.writeBack(values);
+        }
+    }
+    
     /**
      * 加密对象字段
      *
@@ -94,28 +308,59 @@ public class EncryptUtil {
         }
         
         Class<?> clazz = obj.getClass();
-        Field[] fields = clazz.getDeclaredFields();
-        
-        for (Field field : fields) {
-            EncryptField encryptField = field.getAnnotation(EncryptField.class);
-            if (encryptField != null && encryptField.enabled()) {
-                try {
-                    field.setAccessible(true);
-                    Object value = field.get(obj);
-                    
-                    if (value != null && value instanceof String) {
-                        String algorithm = encryptField.algorithm();
-                        String encryptedValue = encrypt((String) value, algorithm);
-                        field.set(obj, encryptedValue);
-                        log.debug("加密对象字段: {}.{} -> {}", clazz.getSimpleName(), field.getName(), encryptedValue);
-                    }
-                } catch (Exception e) {
-                    log.error("加密对象字段失败: {}.{}", clazz.getSimpleName(), field.getName(), e);
+        for (EncryptFieldMetadata fieldMetadata : encryptMetadataCache.getMetadata(clazz).getFields()) {
+            try {
+                Object value = fieldMetadata.get(obj);
+                
+                if (value instanceof String) {
+                    // 盲索引和保序索引按明文计算，必须在加密之前
+                    fillIndexes(obj, fieldMetadata, value);
+                    String encryptedValue = encryptWith((String) value, fieldMetadata.getStrategy());
+                    fieldMetadata.set(obj, encryptedValue);
+                    log.debug("加密对象字段: {}.{} -> {}", clazz.getSimpleName(), fieldMetadata.getName(), encryptedValue);
                 }
+            } catch (Exception e) {
+                log.error("加密对象字段失败: {}.{}", clazz.getSimpleName(), fieldMetadata.getName(), e);
             }
         }
     }
     
+    /**
+     * 按明文写入对象的盲索引和保序索引影子属性，不加密字段
+     * 用于DB模式：参数在数据库端加密，影子列仍需在Java端计算
+     *
+     * @param obj 对象
+     */
+    public void fillIndexes(Object obj) {
+        if (obj == null) {
+            return;
+        }
+        
+        Class<?> clazz = obj.getClass();
+        for (EncryptFieldMetadata fieldMetadata : encryptMetadataCache.getMetadata(clazz).getFields()) {
+            if (!fieldMetadata.hasBlindIndex() && !fieldMetadata.hasOrderIndex()) {
+                continue;
+            }
+            try {
+                fillIndexes(obj, fieldMetadata, fieldMetadata.get(obj));
+            } catch (Exception e) {
+                log.error("写入索引影子属性失败: {}.{}", clazz.getSimpleName(), fieldMetadata.getName(), e);
+            }
+        }
+    }
+    
+    private void fillIndexes(Object obj, EncryptFieldMetadata fieldMetadata, Object value) {
+        if (value == null) {
+            return;
+        }
+        if (fieldMetadata.hasBlindIndex() && blindIndexGenerator != null) {
+            fieldMetadata.setBlindIndex(obj, blindIndexGenerator.generate(value.toString(), keyManager.getDefaultKey()));
+        }
+        if (fieldMetadata.hasOrderIndex() && orderIndexEncoder != null) {
+            fieldMetadata.setOrderIndex(obj, orderIndexEncoder.encode(value, keyManager.getDefaultKey()));
+        }
+    }
+    
     /**
      * 解密对象字段
      *
@@ -128,28 +373,32 @@ public class EncryptUtil {
         }
         
         Class<?> clazz = obj.getClass();
-        Field[] fields = clazz.getDeclaredFields();
-        
-        for (Field field : fields) {
-            EncryptField encryptField = field.getAnnotation(EncryptField.class);
-            if (encryptField != null && encryptField.enabled()) {
-                try {
-                    field.setAccessible(true);
-                    Object value = field.get(obj);
-                    
-                    if (value != null && value instanceof String) {
-                        String algorithm = encryptField.algorithm();
-                        String decryptedValue = decrypt((String) value, algorithm);
-                        field.set(obj, decryptedValue);
-                        log.debug("解密对象字段: {}.{} -> {}", clazz.getSimpleName(), field.getName(), decryptedValue);
-                    }
-                } catch (Exception e) {
-                    log.error("解密对象字段失败: {}.{}", clazz.getSimpleName(), field.getName(), e);
+        for (EncryptFieldMetadata fieldMetadata : encryptMetadataCache.getMetadata(clazz).getFields()) {
+            try {
+                Object value = fieldMetadata.get(obj);
+                
+                if (value instanceof String) {
+                    String decryptedValue = decryptWith((String) value, fieldMetadata.getStrategy());
+                    fieldMetadata.set(obj, decryptedValue);
+                    log.debug("解密对象字段: {}.{} -> {}", clazz.getSimpleName(), fieldMetadata.getName(), decryptedValue);
                 }
+            } catch (Exception e) {
+                log.error("解密对象字段失败: {}.{}", clazz.getSimpleName(), fieldMetadata.getName(), e);
             }
         }
     }
     
+    /**
+     * 按字段配置的策略解密单个值
+     *
+     * @param cipherText 密文
+     * @param fieldMetadata 加密字段
+     * @return 明文，解密失败时返回原值
+     */
+    public String decryptField(String cipherText, EncryptFieldMetadata fieldMetadata) {
+        return decryptWith(cipherText, fieldMetadata.getStrategy());
+    }
+    
     /**
      * 创建加密上下文
      *
@@ -177,12 +426,47 @@ public class EncryptUtil {
      * @return 加密策略
      */
     private EncryptStrategy findEncryptStrategy(String algorithm) {
-        final String finalAlgorithm = (algorithm == null || algorithm.trim().isEmpty()) ? "AES" : algorithm;
+        return encryptStrategyRegistry.getStrategy(algorithm);
+    }
+    
+    /**
+     * 使用指定策略加密
+     */
+    private String encryptWith(String plainText, EncryptStrategy strategy) {
+        if (plainText == null || plainText.isEmpty()) {
+            return plainText;
+        }
+        if (strategy == null) {
+            log.warn("未找到加密策略");
+            return plainText;
+        }
         
-        return encryptStrategies.stream()
-                .filter(strategy -> strategy.supports(finalAlgorithm))
-                .findFirst()
-                .orElse(null);
+        try {
+            return strategy.encrypt(plainText, keyManager.getDefaultKey());
+        } catch (Exception e) {
+            log.error("加密失败: {}", e.getMessage(), e);
+            return plainText;
+        }
+    }
+    
+    /**
+     * 使用指定策略解密
+     */
+    private String decryptWith(String cipherText, EncryptStrategy strategy) {
+        if (cipherText == null || cipherText.isEmpty()) {
+            return cipherText;
+        }
+        if (strategy == null) {
+            log.warn("未找到解密策略");
+            return cipherText;
+        }
+        
+        try {
+            return strategy.decrypt(cipherText, keyManager.getDefaultKey());
+        } catch (Exception e) {
+            log.error("解密失败: {}", e.getMessage(), e);
+            return cipherText;
+        }
     }
     
     /**
@@ -223,4 +507,29 @@ public class EncryptUtil {
         
         return encryptField.algorithm();
     }
-} 
\ No newline at end of file
+    
+    /**
+     * 同一(策略, 密钥)下待处理的字段值
+     */
+    private static class ValueBatch {
+        private final List<Object> targets = new ArrayList<>();
+        private final List<EncryptFieldMetadata> fields = new ArrayList<>();
+        private final List<String> values = new ArrayList<>();
+        
+        void add(Object target, EncryptFieldMetadata field, String value) {
+            targets.add(target);
+            fields.add(field);
+            values.add(value);
+        }
+        
+        void writeBack(String[] results) {
+            for (int i = 0; i < results.length; i++) {
+                try {
+                    fields.get(i).set(targets.get(i), results[i]);
+                } catch (RuntimeException e) {
+                    log.error("写回解密字段失败: {}", fields.get(i).getName(), e);
+                }
+            }
+        }
+    }
+}
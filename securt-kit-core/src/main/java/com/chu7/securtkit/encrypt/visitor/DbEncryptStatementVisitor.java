@@ -2,16 +2,35 @@ package com.chu7.securtkit.encrypt.visitor;
 
 import com.chu7.securtkit.encrypt.cache.TableFieldCache;
 import com.chu7.securtkit.encrypt.config.EncryptProperties;
+import com.chu7.securtkit.encrypt.strategy.BlindIndexGenerator;
+import com.chu7.securtkit.encrypt.strategy.KeyManager;
+import com.chu7.securtkit.encrypt.strategy.LikeTokenGenerator;
+import com.chu7.securtkit.encrypt.strategy.MySqlAesEncryptStrategy;
+import com.chu7.securtkit.encrypt.strategy.OrderIndexEncoder;
 import lombok.extern.slf4j.Slf4j;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.statement.Statement;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * 数据库加解密语句访问者
- * 使用正则表达式处理SQL语句，实现字段的自动加解密
+ * 使用JSqlParser解析SQL语句，由 {@link EncryptAstVisitor} 按语法树改写加密列，实现字段的自动加解密；
+ * 无法解析的SQL回退到正则表达式处理。
+ * POJO模式下加解密在Java端完成，只将配置了盲索引的加密列的等值比较改写为影子列比较，
+ * 建立了分词索引的加密列的 LIKE 改写为分词表子查询，配置了保序索引的加密列的范围比较和排序改写为影子列。
+ * <p>
+ * 本类为单例且无状态：每次改写的中间状态保存在调用栈上的 {@link RewriteContext} 中，
+ * 结果以不可变的 {@link RewriteResult} 返回，多线程可以并发调用 {@link #rewrite(String)}。
  *
  * @author chu7
  * @date 2025/8/15
@@ -25,8 +44,20 @@ public class DbEncryptStatementVisitor {
     @Autowired
     private EncryptProperties encryptProperties;
     
-    private String resultSql;
-    private boolean hasChanges = false;
+    @Autowired(required = false)
+    private MySqlAesEncryptStrategy mySqlAesEncryptStrategy;
+    
+    @Autowired(required = false)
+    private BlindIndexGenerator blindIndexGenerator;
+    
+    @Autowired(required = false)
+    private KeyManager keyManager;
+    
+    @Autowired(required = false)
+    private LikeTokenGenerator likeTokenGenerator;
+    
+    @Autowired(required = false)
+    private OrderIndexEncoder orderIndexEncoder;
     
     // 正则表达式模式
     private static final Pattern SELECT_PATTERN = Pattern.compile(
@@ -39,64 +70,248 @@ public class DbEncryptStatementVisitor {
         Pattern.CASE_INSENSITIVE | Pattern.DOTALL
     );
     
+    private static final Pattern INSERT_PATTERN = Pattern.compile(
+        "^\\s*INSERT\\s+(?:IGNORE\\s+)?INTO\\s+[`\"]?(\\w+)[`\"]?\\s*\\(([^)]*)\\)\\s*VALUES?\\s*",
+        Pattern.CASE_INSENSITIVE
+    );
+    
+    private static final Pattern UPDATE_PATTERN = Pattern.compile(
+        "^\\s*UPDATE\\s+[`\"]?(\\w+)[`\"]?(?:\\s+(?:AS\\s+)?(?!SET\\b)\\w+)?\\s+SET\\s+",
+        Pattern.CASE_INSENSITIVE
+    );
+    
     /**
-     * 处理SQL语句
+     * UPDATE SET 赋值列表之后的子句
+     */
+    private static final Pattern UPDATE_TAIL_PATTERN = Pattern.compile(
+        "\\s(?:WHERE|ORDER\\s+BY|LIMIT)\\b",
+        Pattern.CASE_INSENSITIVE
+    );
+    
+    /**
+     * 正则回退使用的加密列模式：列名 -> 预编译的模式，加密列由配置决定，数量有限
+     */
+    private final Map<String, ColumnPatterns> columnPatterns = new ConcurrentHashMap<>();
+    
+    /**
+     * 改写SQL语句，可重入、线程安全
      *
      * @param sql 原始SQL
-     * @return 处理后的SQL
+     * @return 改写结果
      */
-    public String processSql(String sql) {
+    public RewriteResult rewrite(String sql) {
+        return rewrite(sql, new RewriteContext());
+    }
+    
+    private RewriteResult rewrite(String sql, RewriteContext context) {
         if (sql == null || sql.trim().isEmpty()) {
-            return sql;
+            return RewriteResult.unchanged(sql);
         }
         
-        reset();
-        
         try {
             // 检查是否包含需要加密的表
-            Set<String> encryptTables = tableFieldCache.getAllEncryptTables();
-            boolean needProcess = false;
+            if (!tableFieldCache.containsEncryptTable(sql)) {
+                return RewriteResult.unchanged(sql);
+            }
             
-            for (String tableName : encryptTables) {
-                if (sql.toLowerCase().contains(tableName.toLowerCase())) {
-                    needProcess = true;
-                    break;
-                }
+            Map<String, Map<String, String>> blindIndexes = EncryptAstVisitor.blindIndexSnapshot(tableFieldCache);
+            Map<String, Set<String>> likeIndexes = LikeTokenIndex.snapshot(tableFieldCache);
+            Map<String, Map<String, String>> orderIndexes = OrderIndex.snapshot(tableFieldCache);
+            boolean indexed = !blindIndexes.isEmpty() || !likeIndexes.isEmpty() || !orderIndexes.isEmpty();
+            boolean databaseEncryption = isDatabaseMode();
+            if (!databaseEncryption && !indexed) {
+                return RewriteResult.unchanged(sql);
             }
             
-            if (!needProcess) {
-                return sql;
+            Statement statement = parse(sql);
+            if (statement != null) {
+                Map<String, Set<String>> encryptColumns = databaseEncryption ? EncryptAstVisitor.snapshot(tableFieldCache)
+                        : indexedColumns(blindIndexes, likeIndexes, orderIndexes);
+                statement.accept(new EncryptAstVisitor(encryptColumns, keyExpression(), literalEncryptor(),
+                        blindIndexes, blindIndexer(blindIndexes), databaseEncryption, likeTokenIndex(likeIndexes),
+                        orderIndex(orderIndexes), context));
+                return toResult(sql, statement.toString(), context, indexed);
             }
             
+            // POJO模式下不回退到数据库函数改写
+            if (!databaseEncryption) {
+                return RewriteResult.unchanged(sql);
+            }
+            
+            // 解析失败时回退到正则表达式处理
+            String resultSql = null;
+            String upperSql = sql.trim().toUpperCase();
             // 处理SELECT语句
-            if (sql.trim().toUpperCase().startsWith("SELECT")) {
-                resultSql = processSelectSql(sql);
+            if (upperSql.startsWith("SELECT")) {
+                resultSql = processSelectSql(sql, context);
             }
             // 处理INSERT语句
-            else if (sql.trim().toUpperCase().startsWith("INSERT")) {
-                resultSql = processInsertSql(sql);
+            else if (upperSql.startsWith("INSERT")) {
+                resultSql = processInsertSql(sql, context);
             }
             // 处理UPDATE语句
-            else if (sql.trim().toUpperCase().startsWith("UPDATE")) {
-                resultSql = processUpdateSql(sql);
+            else if (upperSql.startsWith("UPDATE")) {
+                resultSql = processUpdateSql(sql, context);
             }
             // 处理DELETE语句
-            else if (sql.trim().toUpperCase().startsWith("DELETE")) {
-                resultSql = processDeleteSql(sql);
+            else if (upperSql.startsWith("DELETE")) {
+                resultSql = processDeleteSql(sql, context);
             }
             
-            return hasChanges ? resultSql : sql;
+            return toResult(sql, resultSql, context, false);
             
         } catch (Exception e) {
             log.error("处理SQL失败: {}", sql, e);
-            return sql;
+            return RewriteResult.unchanged(sql);
+        }
+    }
+    
+    /**
+     * 生成改写结果，启用密钥参数绑定、Java端等值加密或存在盲索引、分词索引、保序索引时将标记替换为占位符
+     */
+    private RewriteResult toResult(String sql, String resultSql, RewriteContext context, boolean indexed) {
+        RewriteResult result = context.toResult(sql, resultSql);
+        if (result.isChanged() && (indexed || encryptProperties.isBindKeyAsParameter()
+                || encryptProperties.isJavaSideEquality())) {
+            return KeyParameter.parameterize(result.getSql(), result.getTouchedColumns());
+        }
+        return result;
+    }
+    
+    /**
+     * 是否使用数据库函数加解密
+     */
+    private boolean isDatabaseMode() {
+        return !"POJO".equalsIgnoreCase(encryptProperties.getPatternType());
+    }
+    
+    /**
+     * POJO模式下只处理配置了盲索引、分词索引或保序索引的加密列
+     */
+    private static Map<String, Set<String>> indexedColumns(Map<String, Map<String, String>> blindIndexes,
+                                                           Map<String, Set<String>> likeIndexes,
+                                                           Map<String, Map<String, String>> orderIndexes) {
+        Map<String, Set<String>> columns = new HashMap<>();
+        blindIndexes.forEach((tableName, blindIndex) ->
+                columns.computeIfAbsent(tableName, k -> new HashSet<>()).addAll(blindIndex.keySet()));
+        likeIndexes.forEach((tableName, likeIndex) ->
+                columns.computeIfAbsent(tableName, k -> new HashSet<>()).addAll(likeIndex));
+        orderIndexes.forEach((tableName, orderIndex) ->
+                columns.computeIfAbsent(tableName, k -> new HashSet<>()).addAll(orderIndex.keySet()));
+        return columns;
+    }
+    
+    /**
+     * 保序索引配置，没有保序索引时返回null
+     */
+    private OrderIndex orderIndex(Map<String, Map<String, String>> orderIndexes) {
+        if (orderIndexes.isEmpty()) {
+            return null;
+        }
+        OrderIndexEncoder encoder = orderIndexEncoder();
+        String key = keyManager != null ? keyManager.getDefaultKey() : encryptProperties.getKey();
+        return new OrderIndex(orderIndexes, value -> encoder.encode(value, key));
+    }
+    
+    /**
+     * 分词索引配置，没有分词索引时返回null
+     */
+    private LikeTokenIndex likeTokenIndex(Map<String, Set<String>> likeIndexes) {
+        if (likeIndexes.isEmpty()) {
+            return null;
+        }
+        EncryptProperties.LikeIndex config = encryptProperties.getLikeIndex();
+        LikeTokenGenerator generator = likeTokenGenerator();
+        String key = keyManager != null ? keyManager.getDefaultKey() : encryptProperties.getKey();
+        return new LikeTokenIndex(likeIndexes, config.getTable(), config.getRowIdColumn(),
+                pattern -> generator.queryTokens(pattern, key));
+    }
+    
+    /**
+     * 盲索引计算函数，没有盲索引时返回null
+     */
+    private UnaryOperator<String> blindIndexer(Map<String, Map<String, String>> blindIndexes) {
+        if (blindIndexes.isEmpty()) {
+            return null;
+        }
+        BlindIndexGenerator generator = blindIndexGenerator();
+        String key = keyManager != null ? keyManager.getDefaultKey() : encryptProperties.getKey();
+        return value -> generator.generate(value, key);
+    }
+    
+    /**
+     * 未注册Bean时创建的盲索引生成器、分词生成器和保序编码器在首次使用时创建并保留，
+     * 各次改写共用同一个Mac池，不会每次改写都重新派生密钥
+     */
+    private BlindIndexGenerator blindIndexGenerator() {
+        BlindIndexGenerator generator = blindIndexGenerator;
+        if (generator == null) {
+            generator = new BlindIndexGenerator(encryptProperties.getBlindIndexLength());
+            blindIndexGenerator = generator;
+        }
+        return generator;
+    }
+    
+    private LikeTokenGenerator likeTokenGenerator() {
+        LikeTokenGenerator generator = likeTokenGenerator;
+        if (generator == null) {
+            generator = new LikeTokenGenerator(blindIndexGenerator(), encryptProperties.getLikeIndex().getGramSize());
+            likeTokenGenerator = generator;
+        }
+        return generator;
+    }
+    
+    private OrderIndexEncoder orderIndexEncoder() {
+        OrderIndexEncoder encoder = orderIndexEncoder;
+        if (encoder == null) {
+            encoder = new OrderIndexEncoder();
+            orderIndexEncoder = encoder;
+        }
+        return encoder;
+    }
+    
+    /**
+     * Java端等值加密函数，未启用时返回null
+     */
+    private UnaryOperator<String> literalEncryptor() {
+        if (!encryptProperties.isJavaSideEquality()) {
+            return null;
+        }
+        MySqlAesEncryptStrategy strategy = mySqlAesEncryptStrategy != null
+                ? mySqlAesEncryptStrategy : new MySqlAesEncryptStrategy();
+        String key = encryptProperties.getKey();
+        return value -> strategy.encrypt(value, key);
+    }
+    
+    /**
+     * SQL中密钥的表达式：字符串字面量，或启用密钥参数绑定时的密钥标记
+     */
+    private String keyExpression() {
+        if (encryptProperties.isBindKeyAsParameter()) {
+            return KeyParameter.MARKER;
+        }
+        String key = encryptProperties.getKey();
+        return "'" + (key == null ? "" : key.replace("'", "''")) + "'";
+    }
+    
+    /**
+     * 解析SQL语句
+     *
+     * @return 语法树，无法解析时返回null
+     */
+    private Statement parse(String sql) {
+        try {
+            return CCJSqlParserUtil.parse(sql);
+        } catch (JSQLParserException e) {
+            log.debug("SQL解析失败，使用正则表达式处理: {}", sql);
+            return null;
         }
     }
     
     /**
      * 处理SELECT语句
      */
-    private String processSelectSql(String sql) {
+    private String processSelectSql(String sql, RewriteContext context) {
         String processedSql = sql;
         
         // 处理SELECT字段列表
@@ -111,67 +326,230 @@ public class DbEncryptStatementVisitor {
             
             for (String fieldName : encryptFields) {
                 // 处理字段别名
-                String fieldPattern = String.format("\\b(%s)\\b", fieldName);
-                Pattern pattern = Pattern.compile(fieldPattern, Pattern.CASE_INSENSITIVE);
-                Matcher fieldMatcher = pattern.matcher(selectFields);
+                Matcher fieldMatcher = columnPatterns(fieldName).reference.matcher(selectFields);
                 
                 if (fieldMatcher.find()) {
                     String decryptExpression = String.format(
-                        "CAST(AES_DECRYPT(FROM_BASE64(%s), '%s') AS CHAR) AS %s",
-                        fieldName, encryptProperties.getKey(), fieldName
+                        "CAST(AES_DECRYPT(FROM_BASE64(%s), %s) AS CHAR) AS %s",
+                        fieldName, keyExpression(), fieldName
                     );
                     
-                    selectFields = selectFields.replaceAll(fieldPattern, decryptExpression);
-                    hasChanges = true;
+                    selectFields = fieldMatcher.replaceAll(Matcher.quoteReplacement(decryptExpression));
+                    context.touch(fieldName);
                 }
             }
             
             // 替换SELECT字段部分
-            if (hasChanges) {
-                processedSql = sql.replaceAll(
-                    "SELECT\\s+(.*?)\\s+FROM", 
-                    "SELECT " + selectFields + " FROM"
-                );
+            if (context.changed) {
+                processedSql = sql.substring(0, selectMatcher.start(1)) + selectFields + sql.substring(selectMatcher.end(1));
             }
         }
         
         // 处理WHERE条件
-        processedSql = processWhereClause(processedSql);
+        processedSql = processWhereClause(processedSql, context);
         
         return processedSql;
     }
     
     /**
      * 处理INSERT语句
+     * 按列清单确定加密列的位置，逐行扫描 VALUES 并加密这些位置的值，其余部分（如 ON DUPLICATE KEY UPDATE）保持不变
      */
-    private String processInsertSql(String sql) {
-        // INSERT语句的加密处理逻辑
-        // 这里可以添加对INSERT值的加密处理
-        return sql;
+    private String processInsertSql(String sql, RewriteContext context) {
+        Matcher insertMatcher = INSERT_PATTERN.matcher(sql);
+        if (!insertMatcher.find()) {
+            return sql;
+        }
+        Set<String> encryptFields = tableFieldCache.getTableEncryptFields(insertMatcher.group(1));
+        String[] columns = insertMatcher.group(2).split(",");
+        boolean[] encrypted = new boolean[columns.length];
+        boolean any = false;
+        for (int i = 0; i < columns.length; i++) {
+            encrypted[i] = containsIgnoreCase(encryptFields, unquote(columns[i]));
+            any |= encrypted[i];
+        }
+        if (!any) {
+            return sql;
+        }
+        
+        StringBuilder result = new StringBuilder(sql.length() * 2).append(sql, 0, insertMatcher.end());
+        int index = insertMatcher.end();
+        while (index < sql.length() && sql.charAt(index) == '(') {
+            result.append('(');
+            index++;
+            int position = 0;
+            while (true) {
+                int end = scanValue(sql, index, false);
+                if (end >= sql.length()) {
+                    // 括号不匹配，放弃改写
+                    return sql;
+                }
+                String value = sql.substring(index, end);
+                if (position < encrypted.length && encrypted[position]) {
+                    value = encryptValue(value, unquote(columns[position]), context);
+                }
+                result.append(value).append(sql.charAt(end));
+                index = end + 1;
+                position++;
+                if (sql.charAt(end) == ')') {
+                    break;
+                }
+            }
+            int next = skipWhitespace(sql, index);
+            if (next < sql.length() && sql.charAt(next) == ',') {
+                // 下一行
+                result.append(sql, index, next + 1);
+                index = skipWhitespace(sql, next + 1);
+                result.append(sql, next + 1, index);
+            } else {
+                break;
+            }
+        }
+        return result.append(sql, index, sql.length()).toString();
     }
     
     /**
      * 处理UPDATE语句
+     * 扫描 SET 赋值列表并加密写入加密列的值，WHERE 条件按通用规则处理
      */
-    private String processUpdateSql(String sql) {
-        // UPDATE语句的加密处理逻辑
-        // 这里可以添加对UPDATE值的加密处理
-        return sql;
+    private String processUpdateSql(String sql, RewriteContext context) {
+        Matcher updateMatcher = UPDATE_PATTERN.matcher(sql);
+        if (!updateMatcher.find()) {
+            return processWhereClause(sql, context);
+        }
+        Set<String> encryptFields = tableFieldCache.getTableEncryptFields(updateMatcher.group(1));
+        
+        StringBuilder result = new StringBuilder(sql.length() * 2).append(sql, 0, updateMatcher.end());
+        int index = updateMatcher.end();
+        while (index < sql.length()) {
+            int end = scanValue(sql, index, true);
+            String assignment = sql.substring(index, end);
+            int equals = assignment.indexOf('=');
+            if (equals > 0 && containsIgnoreCase(encryptFields, unquote(assignment.substring(0, equals)))) {
+                String column = unquote(assignment.substring(0, equals));
+                assignment = assignment.substring(0, equals + 1)
+                        + encryptValue(assignment.substring(equals + 1), column, context);
+            }
+            result.append(assignment);
+            index = end;
+            if (end >= sql.length() || sql.charAt(end) != ',') {
+                break;
+            }
+            result.append(',');
+            index++;
+        }
+        result.append(sql, index, sql.length());
+        return processWhereClause(result.toString(), context);
+    }
+    
+    /**
+     * 将写入加密列的值包装为加密表达式，NULL 保持不变，保留值两侧的空白
+     */
+    private String encryptValue(String value, String column, RewriteContext context) {
+        String trimmed = value.trim();
+        if (trimmed.isEmpty() || "NULL".equalsIgnoreCase(trimmed)) {
+            return value;
+        }
+        context.touch(column);
+        int start = value.indexOf(trimmed);
+        return value.substring(0, start) + "TO_BASE64(AES_ENCRYPT(" + trimmed + ", " + keyExpression() + "))"
+                + value.substring(start + trimmed.length());
+    }
+    
+    /**
+     * 从 start 开始扫描一个值，跳过引号内的内容和嵌套括号
+     *
+     * @param stopAtClause 是否在 WHERE、ORDER BY、LIMIT 子句前结束
+     * @return 值之后第一个顶层逗号或右括号的位置，没有时返回SQL长度或子句开始的位置
+     */
+    private static int scanValue(String sql, int start, boolean stopAtClause) {
+        int depth = 0;
+        Matcher tailMatcher = stopAtClause ? UPDATE_TAIL_PATTERN.matcher(sql) : null;
+        for (int i = start; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"' || c == '`') {
+                i = skipQuoted(sql, i);
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                if (depth == 0) {
+                    return i;
+                }
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                return i;
+            } else if (tailMatcher != null && depth == 0 && Character.isWhitespace(c)
+                    && tailMatcher.region(i, sql.length()).lookingAt()) {
+                return i;
+            }
+        }
+        return sql.length();
+    }
+    
+    /**
+     * 跳过引号内的内容，连续两个引号视为转义
+     *
+     * @return 结束引号的位置
+     */
+    private static int skipQuoted(String sql, int start) {
+        char quote = sql.charAt(start);
+        for (int i = start + 1; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '\\' && quote != '`') {
+                i++;
+            } else if (c == quote) {
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == quote) {
+                    i++;
+                } else {
+                    return i;
+                }
+            }
+        }
+        return sql.length();
+    }
+    
+    private static int skipWhitespace(String sql, int start) {
+        int i = start;
+        while (i < sql.length() && Character.isWhitespace(sql.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+    
+    /**
+     * 去掉列名的限定名、引号和空白
+     */
+    private static String unquote(String column) {
+        String name = column.trim();
+        int dot = name.lastIndexOf('.');
+        if (dot >= 0) {
+            name = name.substring(dot + 1);
+        }
+        return name.replace("`", "").replace("\"", "");
+    }
+    
+    private static boolean containsIgnoreCase(Set<String> fields, String name) {
+        for (String field : fields) {
+            if (field.equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+        return false;
     }
     
     /**
      * 处理DELETE语句
      */
-    private String processDeleteSql(String sql) {
+    private String processDeleteSql(String sql, RewriteContext context) {
         // DELETE语句的加密处理逻辑
         // 这里可以添加对WHERE条件的加密处理
-        return processWhereClause(sql);
+        return processWhereClause(sql, context);
     }
     
     /**
      * 处理WHERE子句
      */
-    private String processWhereClause(String sql) {
+    private String processWhereClause(String sql, RewriteContext context) {
         Matcher whereMatcher = WHERE_PATTERN.matcher(sql);
         if (whereMatcher.find()) {
             String whereClause = whereMatcher.group(1);
@@ -185,64 +563,60 @@ public class DbEncryptStatementVisitor {
                 
                 for (String fieldName : encryptFields) {
                     // 处理WHERE条件中的加密字段
-                    String fieldPattern = String.format("\\b(%s)\\s*=", fieldName);
-                    Pattern pattern = Pattern.compile(fieldPattern, Pattern.CASE_INSENSITIVE);
-                    Matcher fieldMatcher = pattern.matcher(whereClause);
+                    ColumnPatterns patterns = columnPatterns(fieldName);
                     
-                    if (fieldMatcher.find()) {
+                    if (patterns.comparison.matcher(whereClause).find()) {
                         String encryptExpression = String.format(
-                            "%s = TO_BASE64(AES_ENCRYPT(?, '%s'))",
-                            fieldName, encryptProperties.getKey()
+                            "%s = TO_BASE64(AES_ENCRYPT(?, %s))",
+                            fieldName, keyExpression()
                         );
                         
                         // 更精确的替换模式
-                        String replacementPattern = String.format("\\b%s\\s*=\\s*\\?", fieldName);
-                        processedWhere = processedWhere.replaceAll(replacementPattern, encryptExpression);
-                        hasChanges = true;
+                        processedWhere = patterns.parameterComparison.matcher(processedWhere)
+                                .replaceAll(Matcher.quoteReplacement(encryptExpression));
+                        context.touch(fieldName);
                     }
                 }
             }
             
-            // 替换WHERE子句
-            if (hasChanges) {
-                String replacement = "WHERE " + processedWhere;
-                if (sql.contains("ORDER BY")) {
-                    replacement += " ORDER BY";
-                } else if (sql.contains("GROUP BY")) {
-                    replacement += " GROUP BY";
-                } else if (sql.contains("LIMIT")) {
-                    replacement += " LIMIT";
-                }
-                
-                sql = sql.replaceAll(
-                    "WHERE\\s+(.*?)(?:ORDER\\s+BY|GROUP\\s+BY|LIMIT|$)", 
-                    replacement
-                );
+            // 替换WHERE子句，其后的 ORDER BY、GROUP BY、LIMIT 原样保留
+            if (context.changed) {
+                sql = sql.substring(0, whereMatcher.start(1)) + processedWhere + sql.substring(whereMatcher.end(1));
             }
         }
         
         return sql;
     }
     
-    /**
-     * 获取结果SQL
-     */
-    public String getResultSql() {
-        return resultSql;
-    }
-    
-    /**
-     * 是否有变化
-     */
-    public boolean hasChanges() {
-        return hasChanges;
+    private ColumnPatterns columnPatterns(String column) {
+        return columnPatterns.computeIfAbsent(column, ColumnPatterns::new);
     }
     
     /**
-     * 重置状态
+     * 单个加密列在正则回退中使用的模式，不区分大小写
      */
-    public void reset() {
-        resultSql = null;
-        hasChanges = false;
+    private static final class ColumnPatterns {
+        
+        /**
+         * 列名引用
+         */
+        private final Pattern reference;
+        
+        /**
+         * 等值比较
+         */
+        private final Pattern comparison;
+        
+        /**
+         * 与占位符的等值比较
+         */
+        private final Pattern parameterComparison;
+        
+        private ColumnPatterns(String column) {
+            String quoted = Pattern.quote(column);
+            this.reference = Pattern.compile("\\b(" + quoted + ")\\b", Pattern.CASE_INSENSITIVE);
+            this.comparison = Pattern.compile("\\b(" + quoted + ")\\s*=", Pattern.CASE_INSENSITIVE);
+            this.parameterComparison = Pattern.compile("\\b" + quoted + "\\s*=\\s*\\?", Pattern.CASE_INSENSITIVE);
+        }
     }
 }
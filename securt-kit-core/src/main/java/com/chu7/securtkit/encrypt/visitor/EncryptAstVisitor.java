@@ -0,0 +1,1171 @@
+package com.chu7.securtkit.encrypt.visitor;
+
+import com.chu7.securtkit.encrypt.cache.TableFieldCache;
+import lombok.extern.slf4j.Slf4j;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.expression.Alias;
+import net.sf.jsqlparser.expression.AnalyticExpression;
+import net.sf.jsqlparser.expression.BinaryExpression;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.ExpressionVisitor;
+import net.sf.jsqlparser.expression.ExpressionVisitorAdapter;
+import net.sf.jsqlparser.expression.Function;
+import net.sf.jsqlparser.expression.JdbcNamedParameter;
+import net.sf.jsqlparser.expression.JdbcParameter;
+import net.sf.jsqlparser.expression.LongValue;
+import net.sf.jsqlparser.expression.NotExpression;
+import net.sf.jsqlparser.expression.NullValue;
+import net.sf.jsqlparser.expression.Parenthesis;
+import net.sf.jsqlparser.expression.RowConstructor;
+import net.sf.jsqlparser.expression.StringValue;
+import net.sf.jsqlparser.expression.WhenClause;
+import net.sf.jsqlparser.expression.WindowElement;
+import net.sf.jsqlparser.expression.WindowOffset;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.conditional.OrExpression;
+import net.sf.jsqlparser.expression.operators.relational.Between;
+import net.sf.jsqlparser.expression.operators.relational.EqualsTo;
+import net.sf.jsqlparser.expression.operators.relational.ExpressionList;
+import net.sf.jsqlparser.expression.operators.relational.GreaterThan;
+import net.sf.jsqlparser.expression.operators.relational.GreaterThanEquals;
+import net.sf.jsqlparser.expression.operators.relational.InExpression;
+import net.sf.jsqlparser.expression.operators.relational.ItemsList;
+import net.sf.jsqlparser.expression.operators.relational.LikeExpression;
+import net.sf.jsqlparser.expression.operators.relational.MinorThan;
+import net.sf.jsqlparser.expression.operators.relational.MinorThanEquals;
+import net.sf.jsqlparser.expression.operators.relational.MultiExpressionList;
+import net.sf.jsqlparser.expression.operators.relational.NotEqualsTo;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+import net.sf.jsqlparser.statement.StatementVisitorAdapter;
+import net.sf.jsqlparser.statement.delete.Delete;
+import net.sf.jsqlparser.statement.insert.Insert;
+import net.sf.jsqlparser.statement.replace.Replace;
+import net.sf.jsqlparser.statement.select.FromItem;
+import net.sf.jsqlparser.statement.select.Join;
+import net.sf.jsqlparser.statement.select.OrderByElement;
+import net.sf.jsqlparser.statement.select.ParenthesisFromItem;
+import net.sf.jsqlparser.statement.select.PlainSelect;
+import net.sf.jsqlparser.statement.select.Select;
+import net.sf.jsqlparser.statement.select.SelectBody;
+import net.sf.jsqlparser.statement.select.SelectExpressionItem;
+import net.sf.jsqlparser.statement.select.SelectItem;
+import net.sf.jsqlparser.statement.select.SetOperationList;
+import net.sf.jsqlparser.statement.select.SpecialSubSelect;
+import net.sf.jsqlparser.statement.select.SubSelect;
+import net.sf.jsqlparser.statement.select.WithItem;
+import net.sf.jsqlparser.statement.update.Update;
+import net.sf.jsqlparser.statement.update.UpdateSet;
+import net.sf.jsqlparser.statement.values.ValuesStatement;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+/**
+ * 基于JSqlParser语法树的加密改写访问者
+ * <p>
+ * 按作用域解析表别名、JOIN、派生表和CTE，将列精确定位到物理表后再判断是否为加密列：
+ * <ul>
+ *     <li>查询列表中的加密列改写为解密表达式，裸列补充同名别名</li>
+ *     <li>条件中加密列与参数/字符串的 =、&lt;&gt;、IN 比较改为加密参数，保持密文比较以便使用索引</li>
+ *     <li>条件中加密列的其他用法（LIKE、范围比较等）改为解密后比较</li>
+ *     <li>加密列与子查询或另一加密列比较时保持密文，子查询的查询列表不解密</li>
+ * </ul>
+ * 提供Java端加密函数时，等值比较的参数改为 {@link KeyParameter#ENCRYPT_MARKER} 由执行时在Java端加密，
+ * 字符串直接替换为密文字面量，SQL中不再出现 AES_ENCRYPT。
+ * <p>
+ * 配置了盲索引的加密列，与参数/字符串的 =、&lt;&gt;、IN 比较改为影子列与盲索引的比较，
+ * 参数改为 {@link KeyParameter#BLIND_INDEX_MARKER}，字符串直接替换为盲索引。
+ * 建立了分词索引的加密列，与参数/字符串的 LIKE（不含 NOT、ESCAPE）条件改写为对分词表的子查询（见 {@link LikeTokenIndex}），
+ * 参数改为 {@link KeyParameter#LIKE_TOKENS_MARKER}，执行时展开为查询分词；DB模式下再以解密后的原条件复核。
+ * 配置了保序索引的加密列，与参数/整数/字符串的范围比较（&gt;、&gt;=、&lt;、&lt;=、BETWEEN）和 ORDER BY 改为影子列（见 {@link OrderIndex}），
+ * 参数改为 {@link KeyParameter#ORDER_INDEX_MARKER}，字面量直接替换为保序编码。
+ * 不使用数据库加解密时（POJO模式）只做盲索引、分词索引和保序索引改写，其他用法保持不变。
+ * DB模式下 INSERT/REPLACE 的 VALUES（含多行）、SET 和 ON DUPLICATE KEY UPDATE，以及 UPDATE SET 中写入加密列的值改为加密表达式，
+ * 参数在启用Java端等值加密时同样改为 {@link KeyParameter#ENCRYPT_MARKER}；NULL、另一加密列和 VALUES(加密列) 原样写入密文，
+ * 值表达式中引用的加密列先解密。INSERT ... SELECT 原样复制密文，只处理查询条件。
+ * <p>
+ * 每次改写创建一个实例，改写结果直接修改传入的语法树。
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+@Slf4j
+final class EncryptAstVisitor extends StatementVisitorAdapter {
+
+    /**
+     * 派生表（子查询、CTE）在作用域中的占位表名，其输出列已经是明文
+     */
+    private static final String DERIVED = "";
+
+    /**
+     * 标准化表名 -> 标准化加密列名
+     */
+    private final Map<String, Set<String>> encryptColumns;
+
+    /**
+     * SQL中的密钥表达式，为字符串字面量或密钥参数标记
+     */
+    private final String keyExpression;
+
+    /**
+     * Java端加密函数，结果与 TO_BASE64(AES_ENCRYPT(value, key)) 一致；为null时在数据库端加密
+     */
+    private final UnaryOperator<String> literalEncryptor;
+
+    /**
+     * 标准化表名 -> (标准化加密列名 -> 盲索引影子列)
+     */
+    private final Map<String, Map<String, String>> blindIndexes;
+
+    /**
+     * 盲索引计算函数，为null时不做盲索引改写
+     */
+    private final UnaryOperator<String> blindIndexer;
+
+    /**
+     * 是否使用数据库函数加解密，POJO模式下为false
+     */
+    private final boolean databaseEncryption;
+
+    /**
+     * 分词索引配置，为null时不做LIKE改写
+     */
+    private final LikeTokenIndex likeTokenIndex;
+
+    /**
+     * 保序索引配置，为null时不做范围比较和排序的改写
+     */
+    private final OrderIndex orderIndex;
+
+    private final RewriteContext context;
+
+    EncryptAstVisitor(Map<String, Set<String>> encryptColumns, String keyExpression, RewriteContext context) {
+        this(encryptColumns, keyExpression, null, context);
+    }
+
+    EncryptAstVisitor(Map<String, Set<String>> encryptColumns, String keyExpression,
+                      UnaryOperator<String> literalEncryptor, RewriteContext context) {
+        this(encryptColumns, keyExpression, literalEncryptor, Collections.emptyMap(), null, true, null, null, context);
+    }
+
+    EncryptAstVisitor(Map<String, Set<String>> encryptColumns, String keyExpression,
+                      UnaryOperator<String> literalEncryptor, Map<String, Map<String, String>> blindIndexes,
+                      UnaryOperator<String> blindIndexer, boolean databaseEncryption, LikeTokenIndex likeTokenIndex,
+                      OrderIndex orderIndex, RewriteContext context) {
+        this.encryptColumns = encryptColumns;
+        this.keyExpression = keyExpression;
+        this.literalEncryptor = literalEncryptor;
+        this.blindIndexes = blindIndexes;
+        this.blindIndexer = blindIndexer;
+        this.databaseEncryption = databaseEncryption;
+        this.likeTokenIndex = likeTokenIndex;
+        this.orderIndex = orderIndex;
+        this.context = context;
+    }
+
+    /**
+     * 生成加密列快照，表名和列名统一为小写
+     */
+    static Map<String, Set<String>> snapshot(TableFieldCache tableFieldCache) {
+        Map<String, Set<String>> snapshot = new HashMap<>();
+        for (String tableName : tableFieldCache.getAllEncryptTables()) {
+            Set<String> columns = snapshot.computeIfAbsent(normalize(tableName), k -> new HashSet<>());
+            for (String column : tableFieldCache.getTableEncryptFields(tableName)) {
+                columns.add(normalize(column));
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * 生成盲索引快照，表名和加密列名统一为小写
+     */
+    static Map<String, Map<String, String>> blindIndexSnapshot(TableFieldCache tableFieldCache) {
+        Map<String, Map<String, String>> snapshot = new HashMap<>();
+        for (String tableName : tableFieldCache.getAllEncryptTables()) {
+            Map<String, String> blindIndexes = tableFieldCache.getTableBlindIndexes(tableName);
+            if (!blindIndexes.isEmpty()) {
+                Map<String, String> columns = snapshot.computeIfAbsent(normalize(tableName), k -> new HashMap<>());
+                blindIndexes.forEach((column, blindIndex) -> columns.put(normalize(column), blindIndex));
+            }
+        }
+        return snapshot;
+    }
+
+    @Override
+    public void visit(Select select) {
+        Scope scope = new Scope(null);
+        processWithItems(select.getWithItemsList(), scope);
+        processSelectBody(select.getSelectBody(), scope, true);
+    }
+
+    @Override
+    public void visit(Insert insert) {
+        Scope scope = new Scope(null);
+        processWithItems(insert.getWithItemsList(), scope);
+        Scope insertScope = new Scope(scope);
+        addTable(insert.getTable(), insertScope);
+        Select select = insert.getSelect();
+        if (select != null && isValues(select.getSelectBody())) {
+            for (SelectBody body : ((SetOperationList) select.getSelectBody()).getSelects()) {
+                encryptRows(((ValuesStatement) body).getExpressions(), insert.getColumns(), insertScope);
+            }
+        } else if (select != null) {
+            // INSERT ... SELECT 原样复制密文，只处理查询条件
+            processWithItems(select.getWithItemsList(), scope);
+            processSelectBody(select.getSelectBody(), scope, false);
+        }
+        encryptAssignments(insert.getSetColumns(), insert.getSetExpressionList(), insertScope);
+        encryptAssignments(insert.getDuplicateUpdateColumns(), insert.getDuplicateUpdateExpressionList(), insertScope);
+    }
+
+    @Override
+    public void visit(Replace replace) {
+        Scope scope = new Scope(null);
+        addTable(replace.getTable(), scope);
+        ItemsList itemsList = replace.getItemsList();
+        if (itemsList instanceof MultiExpressionList) {
+            int[] positions = encryptedPositions(replace.getColumns(), scope);
+            for (ExpressionList row : ((MultiExpressionList) itemsList).getExpressionLists()) {
+                encryptRow(row.getExpressions(), replace.getColumns(), positions, scope);
+            }
+        } else if (itemsList instanceof ExpressionList) {
+            encryptRow(((ExpressionList) itemsList).getExpressions(), replace.getColumns(),
+                    encryptedPositions(replace.getColumns(), scope), scope);
+        } else if (itemsList instanceof SubSelect) {
+            processSubSelect((SubSelect) itemsList, scope, false);
+        } else if (!replace.isUseValues()) {
+            encryptAssignments(replace.getColumns(), replace.getExpressions(), scope);
+        }
+    }
+
+    @Override
+    public void visit(Update update) {
+        Scope scope = new Scope(null);
+        processWithItems(update.getWithItemsList(), scope);
+        Scope updateScope = new Scope(scope);
+        addTable(update.getTable(), updateScope);
+        addJoins(update.getStartJoins(), updateScope, scope);
+        addFromItem(update.getFromItem(), updateScope, scope);
+        addJoins(update.getJoins(), updateScope, scope);
+        processJoinConditions(update.getStartJoins(), updateScope);
+        processJoinConditions(update.getJoins(), updateScope);
+        for (UpdateSet updateSet : update.getUpdateSets()) {
+            if (updateSet.getColumns().size() == updateSet.getExpressions().size()) {
+                encryptAssignments(updateSet.getColumns(), updateSet.getExpressions(), updateScope);
+            } else {
+                // (a, b) = (SELECT ...) 原样复制密文，只处理查询条件
+                for (Expression expression : updateSet.getExpressions()) {
+                    if (expression instanceof SubSelect) {
+                        processSubSelect((SubSelect) expression, updateScope, false);
+                    }
+                }
+            }
+        }
+        update.setWhere(rewriteLike(update.getWhere(), updateScope));
+        processCondition(update.getWhere(), updateScope);
+        processOrderBy(update.getOrderByElements(), updateScope);
+    }
+
+    @Override
+    public void visit(Delete delete) {
+        Scope scope = new Scope(null);
+        processWithItems(delete.getWithItemsList(), scope);
+        Scope deleteScope = new Scope(scope);
+        addTable(delete.getTable(), deleteScope);
+        if (delete.getTables() != null) {
+            delete.getTables().forEach(table -> addTable(table, deleteScope));
+        }
+        if (delete.getUsingList() != null) {
+            delete.getUsingList().forEach(table -> addTable(table, deleteScope));
+        }
+        addJoins(delete.getJoins(), deleteScope, scope);
+        processJoinConditions(delete.getJoins(), deleteScope);
+        delete.setWhere(rewriteLike(delete.getWhere(), deleteScope));
+        processCondition(delete.getWhere(), deleteScope);
+        processOrderBy(delete.getOrderByElements(), deleteScope);
+    }
+
+    /**
+     * 是否为 VALUES 行列表：JSqlParser 将 INSERT 的 VALUES 解析为只含 VALUES 语句的查询
+     */
+    private static boolean isValues(SelectBody selectBody) {
+        if (!(selectBody instanceof SetOperationList)) {
+            return false;
+        }
+        for (SelectBody body : ((SetOperationList) selectBody).getSelects()) {
+            if (!(body instanceof ValuesStatement)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 加密 VALUES 中每一行写入加密列的值
+     * 加密列的位置按列清单计算一次，之后每行只访问这些位置，多行 VALUES 的改写与行数成线性关系
+     */
+    private void encryptRows(ItemsList rows, List<Column> columns, Scope scope) {
+        int[] positions = encryptedPositions(columns, scope);
+        if (positions.length == 0 || !(rows instanceof ExpressionList)) {
+            return;
+        }
+        for (Expression row : ((ExpressionList) rows).getExpressions()) {
+            if (row instanceof RowConstructor) {
+                encryptRow(((RowConstructor) row).getExprList().getExpressions(), columns, positions, scope);
+            } else if (row instanceof Parenthesis && columns.size() == 1) {
+                Parenthesis value = (Parenthesis) row;
+                value.setExpression(encryptValue(value.getExpression(), columns.get(0), scope));
+            }
+        }
+    }
+
+    private void encryptRow(List<Expression> row, List<Column> columns, int[] positions, Scope scope) {
+        if (row == null || row.size() != columns.size()) {
+            return;
+        }
+        for (int position : positions) {
+            row.set(position, encryptValue(row.get(position), columns.get(position), scope));
+        }
+    }
+
+    /**
+     * 加密 col = value 形式的赋值中写入加密列的值
+     */
+    private void encryptAssignments(List<Column> columns, List<Expression> values, Scope scope) {
+        if (columns == null || values == null || columns.size() != values.size()) {
+            return;
+        }
+        for (int position : encryptedPositions(columns, scope)) {
+            values.set(position, encryptValue(values.get(position), columns.get(position), scope));
+        }
+    }
+
+    /**
+     * 列清单中加密列的位置，不使用数据库加解密或没有列清单时为空
+     */
+    private int[] encryptedPositions(List<Column> columns, Scope scope) {
+        if (!databaseEncryption || columns == null) {
+            return new int[0];
+        }
+        int[] positions = new int[columns.size()];
+        int count = 0;
+        for (int i = 0; i < columns.size(); i++) {
+            if (isEncrypted(columns.get(i), scope)) {
+                positions[count++] = i;
+            }
+        }
+        return count == positions.length ? positions : Arrays.copyOf(positions, count);
+    }
+
+    /**
+     * 生成写入加密列的值
+     * NULL 和已经是密文的值原样写入，其他表达式中引用的加密列先解密，再整体加密
+     */
+    private Expression encryptValue(Expression value, Column column, Scope scope) {
+        if (value == null || value instanceof NullValue || isCiphertext(value, scope)) {
+            return value;
+        }
+        value.accept(new ProjectionVisitor(scope));
+        return encrypt(value, column);
+    }
+
+    /**
+     * 值是否已经是密文：另一加密列，或 ON DUPLICATE KEY UPDATE 中的 VALUES(加密列)
+     */
+    private boolean isCiphertext(Expression value, Scope scope) {
+        if (isEncryptedColumn(value, scope)) {
+            return true;
+        }
+        if (value instanceof Function && "VALUES".equalsIgnoreCase(((Function) value).getName())) {
+            ExpressionList parameters = ((Function) value).getParameters();
+            return parameters != null && parameters.getExpressions() != null
+                    && parameters.getExpressions().size() == 1
+                    && isEncryptedColumn(parameters.getExpressions().get(0), scope);
+        }
+        return false;
+    }
+
+    /**
+     * 处理查询体
+     *
+     * @param projecting 是否解密查询列表；作为密文比较对象的子查询不解密
+     */
+    private void processSelectBody(SelectBody selectBody, Scope parent, boolean projecting) {
+        if (selectBody instanceof PlainSelect) {
+            processPlainSelect((PlainSelect) selectBody, parent, projecting);
+        } else if (selectBody instanceof SetOperationList) {
+            for (SelectBody body : ((SetOperationList) selectBody).getSelects()) {
+                processSelectBody(body, parent, projecting);
+            }
+        } else if (selectBody instanceof WithItem) {
+            processWithItems(Collections.singletonList((WithItem) selectBody), parent);
+        }
+    }
+
+    private void processPlainSelect(PlainSelect plainSelect, Scope parent, boolean projecting) {
+        Scope scope = new Scope(parent);
+        addFromItem(plainSelect.getFromItem(), scope, parent);
+        addJoins(plainSelect.getJoins(), scope, parent);
+
+        if (projecting && plainSelect.getSelectItems() != null) {
+            for (SelectItem selectItem : plainSelect.getSelectItems()) {
+                if (selectItem instanceof SelectExpressionItem) {
+                    processSelectItem((SelectExpressionItem) selectItem, scope);
+                }
+            }
+        }
+
+        processJoinConditions(plainSelect.getJoins(), scope);
+        plainSelect.setWhere(rewriteLike(plainSelect.getWhere(), scope));
+        processCondition(plainSelect.getWhere(), scope);
+        processCondition(plainSelect.getHaving(), scope);
+        processOrderBy(plainSelect.getOrderByElements(), scope);
+    }
+
+    private void processSelectItem(SelectExpressionItem item, Scope scope) {
+        Expression expression = item.getExpression();
+        if (databaseEncryption && expression instanceof Column && isEncrypted((Column) expression, scope)) {
+            Column column = (Column) expression;
+            String columnName = column.getColumnName();
+            decrypt(column);
+            if (item.getAlias() == null) {
+                item.setAlias(new Alias(columnName, true));
+            }
+            return;
+        }
+        expression.accept(new ProjectionVisitor(scope));
+    }
+
+    private void processWithItems(List<WithItem> withItems, Scope scope) {
+        if (withItems == null) {
+            return;
+        }
+        for (WithItem withItem : withItems) {
+            // 先登记名称，递归CTE引用自身时视为派生表
+            scope.ctes.add(normalize(withItem.getName()));
+            if (withItem.getSubSelect() != null) {
+                processSubSelect(withItem.getSubSelect(), scope, true);
+            }
+        }
+    }
+
+    private void processSubSelect(SubSelect subSelect, Scope scope, boolean projecting) {
+        Scope inner = scope;
+        if (subSelect.getWithItemsList() != null) {
+            inner = new Scope(scope);
+            processWithItems(subSelect.getWithItemsList(), inner);
+        }
+        processSelectBody(subSelect.getSelectBody(), inner, projecting);
+    }
+
+    /**
+     * 将AND/OR/NOT/括号中建立了分词索引的加密列的LIKE条件替换为分词表子查询
+     *
+     * @return 替换后的条件
+     */
+    private Expression rewriteLike(Expression expression, Scope scope) {
+        if (likeTokenIndex == null || expression == null) {
+            return expression;
+        }
+        if (expression instanceof LikeExpression) {
+            return likeCondition((LikeExpression) expression, scope);
+        }
+        if (expression instanceof AndExpression || expression instanceof OrExpression) {
+            BinaryExpression binary = (BinaryExpression) expression;
+            binary.setLeftExpression(rewriteLike(binary.getLeftExpression(), scope));
+            binary.setRightExpression(rewriteLike(binary.getRightExpression(), scope));
+        } else if (expression instanceof Parenthesis) {
+            Parenthesis parenthesis = (Parenthesis) expression;
+            parenthesis.setExpression(rewriteLike(parenthesis.getExpression(), scope));
+        } else if (expression instanceof NotExpression) {
+            NotExpression not = (NotExpression) expression;
+            not.setExpression(rewriteLike(not.getExpression(), scope));
+        }
+        return expression;
+    }
+
+    /**
+     * 生成LIKE条件对应的分词表子查询，DB模式下保留解密后的原条件复核候选行
+     *
+     * @return 替换后的条件，不能使用分词索引时返回原条件
+     */
+    private Expression likeCondition(LikeExpression like, Scope scope) {
+        Expression left = like.getLeftExpression();
+        Expression right = like.getRightExpression();
+        if (like.isNot() || like.isCaseInsensitive() || like.getEscape() != null || !(left instanceof Column)
+                || !(right instanceof JdbcParameter || right instanceof StringValue)) {
+            return like;
+        }
+        Column column = (Column) left;
+        String tableName = encryptedTable(column, scope);
+        String columnName = normalize(column.getColumnName());
+        if (tableName == null || !likeTokenIndex.isIndexed(tableName, columnName)) {
+            return like;
+        }
+
+        String tokens;
+        String count;
+        if (right instanceof JdbcParameter) {
+            // 执行时按参数值展开查询分词
+            tokens = KeyParameter.LIKE_TOKENS_MARKER;
+            count = KeyParameter.LIKE_COUNT_MARKER;
+        } else {
+            List<String> values = likeTokenIndex.tokens(((StringValue) right).getNotExcapedValue());
+            StringBuilder builder = new StringBuilder();
+            for (String value : values) {
+                builder.append(builder.length() == 0 ? "'" : ", '").append(value.replace("'", "''")).append('\'');
+            }
+            tokens = builder.toString();
+            count = String.valueOf(values.size());
+        }
+        // 不带限定名的列按作用域中解析到的表补充限定名，避免JOIN中列名不明确或关联子查询绑定到其他表
+        Table qualifier = column.getTable();
+        String rowId = (qualifier != null && qualifier.getName() != null
+                ? qualifier.getFullyQualifiedName() : tableReference(tableName, scope))
+                + "." + likeTokenIndex.getRowIdColumn();
+        String condition = rowId + " IN (SELECT row_id FROM " + likeTokenIndex.getTokenTable()
+                + " WHERE table_name = '" + tableName + "' AND column_name = '" + columnName + "'"
+                + " AND token IN (" + tokens + ") GROUP BY row_id HAVING COUNT(DISTINCT token) = " + count + ")";
+        Expression subQuery;
+        try {
+            subQuery = CCJSqlParserUtil.parseCondExpression(condition);
+        } catch (JSQLParserException e) {
+            return like;
+        }
+        context.touch(columnName);
+        if (!databaseEncryption) {
+            return subQuery;
+        }
+        // 分词只用于缩小范围，命中的行再按原条件比较明文
+        if (right instanceof JdbcParameter) {
+            like.setRightExpression(new Column(KeyParameter.LIKE_PATTERN_MARKER));
+        }
+        return new Parenthesis(new AndExpression(subQuery, like));
+    }
+
+    /**
+     * 配置了保序索引的加密列按影子列排序，其他排序项保持不变
+     */
+    private void processOrderBy(List<OrderByElement> orderByElements, Scope scope) {
+        if (orderIndex == null || orderByElements == null) {
+            return;
+        }
+        for (OrderByElement element : orderByElements) {
+            if (element.getExpression() instanceof Column) {
+                Column column = (Column) element.getExpression();
+                String orderIndexColumn = orderIndexColumn(column, scope);
+                if (orderIndexColumn != null) {
+                    useShadowColumn(column, orderIndexColumn);
+                }
+            }
+        }
+    }
+
+    private void processCondition(Expression expression, Scope scope) {
+        if (expression != null) {
+            expression.accept(new ConditionVisitor(scope));
+        }
+    }
+
+    private void processJoinConditions(List<Join> joins, Scope scope) {
+        if (joins == null) {
+            return;
+        }
+        for (Join join : joins) {
+            Collection<Expression> onExpressions = join.getOnExpressions();
+            if (onExpressions != null) {
+                onExpressions.forEach(expression -> processCondition(expression, scope));
+            }
+        }
+    }
+
+    private void addJoins(List<Join> joins, Scope scope, Scope parent) {
+        if (joins != null) {
+            for (Join join : joins) {
+                addFromItem(join.getRightItem(), scope, parent);
+            }
+        }
+    }
+
+    /**
+     * 登记FROM项，派生表的查询体在外层作用域中处理
+     */
+    private void addFromItem(FromItem fromItem, Scope scope, Scope parent) {
+        if (fromItem == null) {
+            return;
+        }
+        if (fromItem instanceof Table) {
+            addTable((Table) fromItem, scope);
+            return;
+        }
+        if (fromItem instanceof ParenthesisFromItem) {
+            addFromItem(((ParenthesisFromItem) fromItem).getFromItem(), scope, parent);
+        } else if (fromItem instanceof SubSelect) {
+            processSubSelect((SubSelect) fromItem, parent, true);
+        } else if (fromItem instanceof SpecialSubSelect && ((SpecialSubSelect) fromItem).getSubSelect() != null) {
+            processSubSelect(((SpecialSubSelect) fromItem).getSubSelect(), scope, true);
+        }
+        if (fromItem.getAlias() != null) {
+            scope.aliases.put(normalize(fromItem.getAlias().getName()), DERIVED);
+        }
+    }
+
+    private void addTable(Table table, Scope scope) {
+        if (table == null || table.getName() == null) {
+            return;
+        }
+        String tableName = normalize(table.getName());
+        String resolved = scope.isCte(tableName) ? DERIVED : tableName;
+        scope.aliases.put(tableName, resolved);
+        if (table.getAlias() != null) {
+            scope.aliases.put(normalize(table.getAlias().getName()), resolved);
+        }
+        if (!DERIVED.equals(resolved)) {
+            scope.tables.add(resolved);
+            scope.references.putIfAbsent(resolved,
+                    table.getAlias() != null ? table.getAlias().getName() : table.getFullyQualifiedName());
+        }
+    }
+
+    /**
+     * 不带限定名的列所属物理表在SQL中的引用名，与 {@link #encryptedTable} 在同一层作用域中查找
+     *
+     * @return 别名，没有别名时为SQL中的表名
+     */
+    private static String tableReference(String tableName, Scope scope) {
+        for (Scope current = scope; current != null; current = current.parent) {
+            if (!current.aliases.isEmpty()) {
+                String reference = current.references.get(tableName);
+                return reference != null ? reference : tableName;
+            }
+        }
+        return tableName;
+    }
+
+    /**
+     * 判断列是否为加密列
+     */
+    private boolean isEncrypted(Column column, Scope scope) {
+        return encryptedTable(column, scope) != null;
+    }
+
+    /**
+     * 查找加密列所属的物理表
+     * 带限定名的列按别名链查找；不带限定名的列在最近一层有FROM的作用域中查找，与该层所有物理表比对，
+     * 有多张表都把该列登记为加密列时无法确定归属，不改写并记录警告（数据库同样会报列名不明确）
+     *
+     * @return 标准化表名，不是加密列时返回null
+     */
+    private String encryptedTable(Column column, Scope scope) {
+        String columnName = normalize(column.getColumnName());
+        Table table = column.getTable();
+        if (table != null && table.getName() != null) {
+            String qualifier = normalize(table.getName());
+            for (Scope current = scope; current != null; current = current.parent) {
+                String tableName = current.aliases.get(qualifier);
+                if (tableName != null) {
+                    return isEncrypted(tableName, columnName) ? tableName : null;
+                }
+            }
+            return null;
+        }
+        for (Scope current = scope; current != null; current = current.parent) {
+            if (!current.aliases.isEmpty()) {
+                String found = null;
+                for (String tableName : current.tables) {
+                    if (isEncrypted(tableName, columnName) && !tableName.equals(found)) {
+                        if (found != null) {
+                            log.warn("加密列 {} 未指定表名，同时属于加密表 {} 和 {}，不做改写", columnName, found, tableName);
+                            return null;
+                        }
+                        found = tableName;
+                    }
+                }
+                return found;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 加密列的盲索引影子列
+     *
+     * @return 影子列名，未配置盲索引时返回null
+     */
+    private String blindIndexColumn(Column column, Scope scope) {
+        if (blindIndexer == null || blindIndexes.isEmpty()) {
+            return null;
+        }
+        String tableName = encryptedTable(column, scope);
+        Map<String, String> columns = tableName == null ? null : blindIndexes.get(tableName);
+        return columns == null ? null : columns.get(normalize(column.getColumnName()));
+    }
+
+    /**
+     * 加密列的保序索引影子列
+     *
+     * @return 影子列名，未配置保序索引时返回null
+     */
+    private String orderIndexColumn(Column column, Scope scope) {
+        if (orderIndex == null) {
+            return null;
+        }
+        String tableName = encryptedTable(column, scope);
+        return tableName == null ? null : orderIndex.column(tableName, normalize(column.getColumnName()));
+    }
+
+    /**
+     * 生成保序索引比较值
+     *
+     * @return 位置参数改为保序索引参数标记，整数和字符串替换为编码；无法编码时返回null
+     */
+    private Expression orderIndexValue(Expression value) {
+        if (value instanceof JdbcParameter) {
+            // 执行时在Java端计算该参数的保序编码
+            return new Column(KeyParameter.ORDER_INDEX_MARKER);
+        }
+        Long encoded = null;
+        if (value instanceof LongValue) {
+            encoded = orderIndex.encode(((LongValue) value).getValue());
+        } else if (value instanceof StringValue) {
+            encoded = orderIndex.encode(((StringValue) value).getNotExcapedValue());
+        }
+        return encoded == null ? null : new LongValue(encoded);
+    }
+
+    /**
+     * 是否可以在Java端计算盲索引：位置参数或字符串
+     */
+    private static boolean isBlindIndexValue(Expression expression) {
+        return expression instanceof JdbcParameter || expression instanceof StringValue;
+    }
+
+    private boolean isEncrypted(String tableName, String columnName) {
+        Set<String> columns = encryptColumns.get(tableName);
+        return columns != null && columns.contains(columnName);
+    }
+
+    private boolean isEncryptedColumn(Expression expression, Scope scope) {
+        return expression instanceof Column && isEncrypted((Column) expression, scope);
+    }
+
+    /**
+     * 遍历分析函数：ExpressionVisitorAdapter 不处理 PARTITION BY，且在 UNBOUNDED 窗口边界上会空指针
+     */
+    private static void acceptAnalytic(AnalyticExpression expr, ExpressionVisitor visitor) {
+        acceptNullable(expr.getExpression(), visitor);
+        acceptNullable(expr.getOffset(), visitor);
+        acceptNullable(expr.getDefaultValue(), visitor);
+        acceptNullable(expr.getFilterExpression(), visitor);
+        if (expr.getKeep() != null) {
+            expr.getKeep().accept(visitor);
+        }
+        if (expr.getPartitionExpressionList() != null && expr.getPartitionExpressionList().getExpressions() != null) {
+            for (Expression partition : expr.getPartitionExpressionList().getExpressions()) {
+                acceptNullable(partition, visitor);
+            }
+        }
+        if (expr.getOrderByElements() != null) {
+            for (OrderByElement element : expr.getOrderByElements()) {
+                acceptNullable(element.getExpression(), visitor);
+            }
+        }
+        WindowElement window = expr.getWindowElement();
+        if (window != null) {
+            if (window.getRange() != null) {
+                acceptWindowOffset(window.getRange().getStart(), visitor);
+                acceptWindowOffset(window.getRange().getEnd(), visitor);
+            }
+            acceptWindowOffset(window.getOffset(), visitor);
+        }
+    }
+
+    private static void acceptWindowOffset(WindowOffset offset, ExpressionVisitor visitor) {
+        if (offset != null) {
+            acceptNullable(offset.getExpression(), visitor);
+        }
+    }
+
+    private static void acceptNullable(Expression expression, ExpressionVisitor visitor) {
+        if (expression != null) {
+            expression.accept(visitor);
+        }
+    }
+
+    private static boolean isValue(Expression expression) {
+        return expression instanceof JdbcParameter
+                || expression instanceof JdbcNamedParameter
+                || expression instanceof StringValue;
+    }
+
+    /**
+     * 将加密列原地替换为解密表达式
+     */
+    private void decrypt(Column column) {
+        if (!databaseEncryption) {
+            return;
+        }
+        context.touch(normalize(column.getColumnName()));
+        String expression = "CAST(AES_DECRYPT(FROM_BASE64(" + column.getFullyQualifiedName() + "), "
+                + keyExpression + ") AS CHAR)";
+        column.setTable(null);
+        column.setColumnName(expression);
+    }
+
+    /**
+     * 生成加密后的比较值
+     */
+    private Expression encrypt(Expression value, Column column) {
+        if (!databaseEncryption) {
+            return value;
+        }
+        context.touch(normalize(column.getColumnName()));
+        if (literalEncryptor != null) {
+            if (value instanceof JdbcParameter) {
+                // 执行时在Java端加密该参数
+                return new Column(KeyParameter.ENCRYPT_MARKER);
+            }
+            if (value instanceof StringValue && !((StringValue) value).getNotExcapedValue().isEmpty()) {
+                try {
+                    return new StringValue(literalEncryptor.apply(((StringValue) value).getNotExcapedValue()));
+                } catch (RuntimeException e) {
+                    // Java端加密失败时改为数据库端加密，不能保留明文字面量
+                }
+            }
+        }
+        Function aesEncrypt = new Function();
+        aesEncrypt.setName("AES_ENCRYPT");
+        // 密钥表达式按原文输出
+        aesEncrypt.setParameters(new ExpressionList(value, new Column(keyExpression)));
+        Function toBase64 = new Function();
+        toBase64.setName("TO_BASE64");
+        toBase64.setParameters(new ExpressionList(aesEncrypt));
+        return toBase64;
+    }
+
+    /**
+     * 将加密列改为盲索引或保序索引影子列，保留限定名
+     */
+    private void useShadowColumn(Column column, String shadowColumn) {
+        context.touch(normalize(column.getColumnName()));
+        column.setColumnName(shadowColumn);
+    }
+
+    /**
+     * 生成盲索引比较值
+     */
+    private Expression blindIndex(Expression value) {
+        if (value instanceof JdbcParameter) {
+            // 执行时在Java端计算该参数的盲索引
+            return new Column(KeyParameter.BLIND_INDEX_MARKER);
+        }
+        return new StringValue(blindIndexer.apply(((StringValue) value).getNotExcapedValue()));
+    }
+
+    /**
+     * 标准化标识符：去掉引号并转为小写
+     */
+    private static String normalize(String identifier) {
+        if (identifier == null) {
+            return DERIVED;
+        }
+        String name = identifier.trim();
+        int dot = name.lastIndexOf('.');
+        if (dot >= 0) {
+            name = name.substring(dot + 1);
+        }
+        if (name.length() > 1) {
+            char first = name.charAt(0);
+            if (first == '`' || first == '"' || first == '[') {
+                name = name.substring(1, name.length() - 1);
+            }
+        }
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 表别名作用域，每个查询一层
+     */
+    private static final class Scope {
+
+        private final Scope parent;
+
+        /**
+         * 标准化别名或表名 -> 物理表名，派生表为 {@link #DERIVED}
+         */
+        private final Map<String, String> aliases = new HashMap<>();
+
+        /**
+         * 本层FROM中的物理表
+         */
+        private final List<String> tables = new ArrayList<>();
+
+        /**
+         * 本层物理表 -> SQL中引用该表的名称（别名或原表名）
+         */
+        private final Map<String, String> references = new HashMap<>();
+
+        /**
+         * 本层定义的CTE名称
+         */
+        private final Set<String> ctes = new HashSet<>();
+
+        private Scope(Scope parent) {
+            this.parent = parent;
+        }
+
+        private boolean isCte(String name) {
+            for (Scope current = this; current != null; current = current.parent) {
+                if (current.ctes.contains(name)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 查询列表表达式：加密列解密，CASE WHEN 的条件按条件处理
+     */
+    private final class ProjectionVisitor extends ExpressionVisitorAdapter {
+
+        private final Scope scope;
+
+        private ProjectionVisitor(Scope scope) {
+            this.scope = scope;
+        }
+
+        @Override
+        public void visit(Column column) {
+            if (isEncrypted(column, scope)) {
+                decrypt(column);
+            }
+        }
+
+        @Override
+        public void visit(SubSelect subSelect) {
+            processSubSelect(subSelect, scope, true);
+        }
+
+        @Override
+        public void visit(AnalyticExpression expr) {
+            acceptAnalytic(expr, this);
+        }
+
+        @Override
+        public void visit(WhenClause whenClause) {
+            processCondition(whenClause.getWhenExpression(), scope);
+            if (whenClause.getThenExpression() != null) {
+                whenClause.getThenExpression().accept(this);
+            }
+        }
+    }
+
+    /**
+     * 条件表达式：等值比较加密参数，其他用法解密列
+     */
+    private final class ConditionVisitor extends ExpressionVisitorAdapter {
+
+        private final Scope scope;
+
+        private ConditionVisitor(Scope scope) {
+            this.scope = scope;
+        }
+
+        @Override
+        public void visit(Column column) {
+            if (isEncrypted(column, scope)) {
+                decrypt(column);
+            }
+        }
+
+        @Override
+        public void visit(SubSelect subSelect) {
+            processSubSelect(subSelect, scope, true);
+        }
+
+        @Override
+        public void visit(AnalyticExpression expr) {
+            acceptAnalytic(expr, this);
+        }
+
+        @Override
+        public void visit(EqualsTo expr) {
+            if (!processComparison(expr)) {
+                super.visit(expr);
+            }
+        }
+
+        @Override
+        public void visit(NotEqualsTo expr) {
+            if (!processComparison(expr)) {
+                super.visit(expr);
+            }
+        }
+
+        @Override
+        public void visit(InExpression expr) {
+            Expression left = expr.getLeftExpression();
+            ItemsList rightItems = expr.getRightItemsList();
+            if (isEncryptedColumn(left, scope)) {
+                if (rightItems instanceof ExpressionList) {
+                    List<Expression> values = ((ExpressionList) rightItems).getExpressions();
+                    String blindIndexColumn = blindIndexColumn((Column) left, scope);
+                    if (blindIndexColumn != null && values.stream().allMatch(EncryptAstVisitor::isBlindIndexValue)) {
+                        values.replaceAll(EncryptAstVisitor.this::blindIndex);
+                        useShadowColumn((Column) left, blindIndexColumn);
+                        return;
+                    }
+                    for (int i = 0; i < values.size(); i++) {
+                        if (isValue(values.get(i))) {
+                            values.set(i, encrypt(values.get(i), (Column) left));
+                        }
+                    }
+                    return;
+                }
+                if (rightItems instanceof SubSelect) {
+                    processSubSelect((SubSelect) rightItems, scope, false);
+                    return;
+                }
+                if (expr.getRightExpression() instanceof SubSelect) {
+                    processSubSelect((SubSelect) expr.getRightExpression(), scope, false);
+                    return;
+                }
+            }
+            super.visit(expr);
+        }
+
+        @Override
+        public void visit(GreaterThan expr) {
+            if (!processRange(expr)) {
+                super.visit(expr);
+            }
+        }
+
+        @Override
+        public void visit(GreaterThanEquals expr) {
+            if (!processRange(expr)) {
+                super.visit(expr);
+            }
+        }
+
+        @Override
+        public void visit(MinorThan expr) {
+            if (!processRange(expr)) {
+                super.visit(expr);
+            }
+        }
+
+        @Override
+        public void visit(MinorThanEquals expr) {
+            if (!processRange(expr)) {
+                super.visit(expr);
+            }
+        }
+
+        @Override
+        public void visit(Between expr) {
+            Expression left = expr.getLeftExpression();
+            String orderIndexColumn = left instanceof Column ? orderIndexColumn((Column) left, scope) : null;
+            if (orderIndexColumn != null) {
+                Expression start = orderIndexValue(expr.getBetweenExpressionStart());
+                Expression end = orderIndexValue(expr.getBetweenExpressionEnd());
+                if (start != null && end != null) {
+                    useShadowColumn((Column) left, orderIndexColumn);
+                    expr.setBetweenExpressionStart(start);
+                    expr.setBetweenExpressionEnd(end);
+                    return;
+                }
+            }
+            super.visit(expr);
+        }
+
+        /**
+         * 将配置了保序索引的加密列与值的范围比较改为影子列比较
+         *
+         * @return 是否已处理
+         */
+        private boolean processRange(BinaryExpression expr) {
+            Expression left = expr.getLeftExpression();
+            Expression right = expr.getRightExpression();
+            String orderIndexColumn = left instanceof Column ? orderIndexColumn((Column) left, scope) : null;
+            if (orderIndexColumn != null) {
+                Expression value = orderIndexValue(right);
+                if (value != null) {
+                    useShadowColumn((Column) left, orderIndexColumn);
+                    expr.setRightExpression(value);
+                    return true;
+                }
+                return false;
+            }
+            orderIndexColumn = right instanceof Column ? orderIndexColumn((Column) right, scope) : null;
+            if (orderIndexColumn != null) {
+                Expression value = orderIndexValue(left);
+                if (value != null) {
+                    useShadowColumn((Column) right, orderIndexColumn);
+                    expr.setLeftExpression(value);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * 处理加密列的等值比较
+         *
+         * @return 是否已处理
+         */
+        private boolean processComparison(BinaryExpression expr) {
+            Expression left = expr.getLeftExpression();
+            Expression right = expr.getRightExpression();
+            if (isEncryptedColumn(left, scope)) {
+                return compareEncrypted((Column) left, right, expr, false);
+            }
+            if (isEncryptedColumn(right, scope)) {
+                return compareEncrypted((Column) right, left, expr, true);
+            }
+            return false;
+        }
+
+        private boolean compareEncrypted(Column column, Expression other, BinaryExpression expr, boolean otherOnLeft) {
+            String blindIndexColumn = isBlindIndexValue(other) ? blindIndexColumn(column, scope) : null;
+            if (blindIndexColumn != null) {
+                Expression blindIndex = blindIndex(other);
+                useShadowColumn(column, blindIndexColumn);
+                if (otherOnLeft) {
+                    expr.setLeftExpression(blindIndex);
+                } else {
+                    expr.setRightExpression(blindIndex);
+                }
+                return true;
+            }
+            if (isValue(other)) {
+                Expression encrypted = encrypt(other, column);
+                if (otherOnLeft) {
+                    expr.setLeftExpression(encrypted);
+                } else {
+                    expr.setRightExpression(encrypted);
+                }
+                return true;
+            }
+            if (other instanceof SubSelect) {
+                processSubSelect((SubSelect) other, scope, false);
+                return true;
+            }
+            // 两个加密列之间直接比较密文
+            return isEncryptedColumn(other, scope);
+        }
+    }
+}
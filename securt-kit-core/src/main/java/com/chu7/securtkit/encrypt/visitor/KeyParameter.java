@@ -0,0 +1,237 @@
+package com.chu7.securtkit.encrypt.visitor;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * 密钥参数化
+ * 启用密钥参数绑定时，改写器在密钥位置输出 {@link #MARKER}，改写完成后统一替换为 {@code ?}，
+ * 并记录每个密钥占位符在参数列表中的位置，执行时由拦截器在对应位置插入密钥参数。
+ * <p>
+ * 这样密钥不会出现在SQL文本和慢查询日志中，同一语句也只有一种SQL文本，可以命中服务端预编译缓存和驱动的语句缓存。
+ * <p>
+ * 启用Java端等值加密时，与加密列比较的原始参数替换为 {@link #ENCRYPT_MARKER}，同样还原为 {@code ?}，
+ * 并记录其位置，执行时由拦截器在Java端加密该参数；改写为盲索引比较的参数使用 {@link #BLIND_INDEX_MARKER}，
+ * 执行时绑定参数的盲索引。
+ * <p>
+ * LIKE 改写为分词表子查询时，原参数替换为 {@link #LIKE_TOKENS_MARKER}，执行时展开为与查询分词数量相同的占位符，
+ * 分词数量标记 {@link #LIKE_COUNT_MARKER} 保留在SQL中，由 {@link #expandLikeTokens} 替换为数量；
+ * DB模式下复核原条件的参数为 {@link #LIKE_PATTERN_MARKER}，执行时复用前一个分词参数的映射。
+ * <p>
+ * 范围比较改写为保序索引比较的参数使用 {@link #ORDER_INDEX_MARKER}，执行时绑定参数的保序编码。
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+public final class KeyParameter {
+
+    /**
+     * 绑定密钥时使用的附加参数名
+     */
+    public static final String PARAMETER = "__securtKitEncryptKey";
+
+    /**
+     * 改写过程中密钥位置的标记
+     */
+    static final String MARKER = "__SECURT_KIT_KEY__";
+
+    /**
+     * 改写过程中需要在Java端加密的参数的标记
+     */
+    static final String ENCRYPT_MARKER = "__SECURT_KIT_ENCRYPT__";
+
+    /**
+     * 改写过程中需要在Java端计算盲索引的参数的标记
+     */
+    static final String BLIND_INDEX_MARKER = "__SECURT_KIT_BLIND_INDEX__";
+
+    /**
+     * 改写过程中LIKE参数的查询分词位置的标记
+     */
+    static final String LIKE_TOKENS_MARKER = "__SECURT_KIT_LIKE_TOKENS__";
+
+    /**
+     * 查询分词数量的标记，参数化后仍保留在SQL中
+     */
+    static final String LIKE_COUNT_MARKER = "__SECURT_KIT_LIKE_COUNT__";
+
+    /**
+     * 改写过程中复核LIKE条件的参数的标记
+     */
+    static final String LIKE_PATTERN_MARKER = "__SECURT_KIT_LIKE_PATTERN__";
+
+    /**
+     * 改写过程中需要在Java端计算保序编码的参数的标记
+     */
+    static final String ORDER_INDEX_MARKER = "__SECURT_KIT_ORDER_INDEX__";
+
+    /**
+     * 没有密钥参数
+     */
+    static final int[] NO_SLOTS = new int[0];
+
+    private KeyParameter() {
+    }
+
+    /**
+     * 将SQL中的密钥标记、加密参数标记、盲索引参数标记、LIKE参数标记和保序索引参数标记替换为占位符
+     * 跳过字符串、带引号的标识符和注释中的内容，按出现顺序统计参数位置
+     *
+     * @param sql 含密钥标记的SQL
+     * @param touchedColumns 被改写的加密列
+     * @return 参数化后的改写结果
+     */
+    static RewriteResult parameterize(String sql, Set<String> touchedColumns) {
+        StringBuilder result = new StringBuilder(sql.length());
+        Slots keySlots = new Slots();
+        Slots encryptSlots = new Slots();
+        Slots blindIndexSlots = new Slots();
+        Slots likeTokenSlots = new Slots();
+        Slots likePatternSlots = new Slots();
+        Slots orderIndexSlots = new Slots();
+        int parameterIndex = 0;
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"' || c == '`') {
+                int end = skipQuoted(sql, i, c);
+                result.append(sql, i, end);
+                i = end;
+            } else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+                int end = sql.indexOf('\n', i);
+                end = end < 0 ? length : end;
+                result.append(sql, i, end);
+                i = end;
+            } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                end = end < 0 ? length : end + 2;
+                result.append(sql, i, end);
+                i = end;
+            } else if (c == '?') {
+                parameterIndex++;
+                result.append(c);
+                i++;
+            } else if (sql.startsWith(MARKER, i)) {
+                keySlots.add(parameterIndex++);
+                result.append('?');
+                i += MARKER.length();
+            } else if (sql.startsWith(ENCRYPT_MARKER, i)) {
+                encryptSlots.add(parameterIndex++);
+                result.append('?');
+                i += ENCRYPT_MARKER.length();
+            } else if (sql.startsWith(BLIND_INDEX_MARKER, i)) {
+                blindIndexSlots.add(parameterIndex++);
+                result.append('?');
+                i += BLIND_INDEX_MARKER.length();
+            } else if (sql.startsWith(LIKE_TOKENS_MARKER, i)) {
+                likeTokenSlots.add(parameterIndex++);
+                result.append('?');
+                i += LIKE_TOKENS_MARKER.length();
+            } else if (sql.startsWith(LIKE_PATTERN_MARKER, i)) {
+                likePatternSlots.add(parameterIndex++);
+                result.append('?');
+                i += LIKE_PATTERN_MARKER.length();
+            } else if (sql.startsWith(ORDER_INDEX_MARKER, i)) {
+                orderIndexSlots.add(parameterIndex++);
+                result.append('?');
+                i += ORDER_INDEX_MARKER.length();
+            } else {
+                result.append(c);
+                i++;
+            }
+        }
+        return RewriteResult.changed(result.toString(), touchedColumns, keySlots.toArray(), encryptSlots.toArray(),
+                blindIndexSlots.toArray(), likeTokenSlots.toArray(), likePatternSlots.toArray(), orderIndexSlots.toArray());
+    }
+
+    /**
+     * 展开LIKE参数的查询分词占位符
+     * 第 i 个分词位置的占位符展开为 counts[i] 个，其后的第一个数量标记替换为 counts[i]
+     *
+     * @param sql 参数化后的SQL
+     * @param likeTokenSlots 分词参数在参数列表中的位置，升序
+     * @param counts 每个位置的查询分词数量，至少为1
+     * @return 展开后的SQL
+     */
+    public static String expandLikeTokens(String sql, int[] likeTokenSlots, int[] counts) {
+        StringBuilder result = new StringBuilder(sql.length() + counts.length * 8);
+        int parameterIndex = 0;
+        int slot = 0;
+        int pendingCount = -1;
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"' || c == '`') {
+                int end = skipQuoted(sql, i, c);
+                result.append(sql, i, end);
+                i = end;
+            } else if (c == '?') {
+                if (slot < likeTokenSlots.length && likeTokenSlots[slot] == parameterIndex) {
+                    for (int j = 0; j < counts[slot]; j++) {
+                        result.append(j == 0 ? "?" : ", ?");
+                    }
+                    pendingCount = counts[slot++];
+                } else {
+                    result.append(c);
+                }
+                parameterIndex++;
+                i++;
+            } else if (pendingCount >= 0 && sql.startsWith(LIKE_COUNT_MARKER, i)) {
+                result.append(pendingCount);
+                pendingCount = -1;
+                i += LIKE_COUNT_MARKER.length();
+            } else {
+                result.append(c);
+                i++;
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * 跳过引号包围的内容，支持重复引号和反斜杠转义
+     *
+     * @return 结束引号之后的位置
+     */
+    private static int skipQuoted(String sql, int start, char quote) {
+        int i = start + 1;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (c == '\\' && quote != '`') {
+                i += 2;
+            } else if (c == quote) {
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == quote) {
+                    i += 2;
+                } else {
+                    return i + 1;
+                }
+            } else {
+                i++;
+            }
+        }
+        return sql.length();
+    }
+
+    /**
+     * 参数位置列表
+     */
+    private static final class Slots {
+
+        private int[] values = NO_SLOTS;
+
+        private int count;
+
+        private void add(int slot) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, Math.max(4, count * 2));
+            }
+            values[count++] = slot;
+        }
+
+        private int[] toArray() {
+            return count == 0 ? NO_SLOTS : Arrays.copyOf(values, count);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.chu7.securtkit.encrypt.visitor;
+
+import com.chu7.securtkit.encrypt.cache.TableFieldCache;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 一次改写使用的分词索引配置
+ * 建立了分词索引的加密列的 LIKE 条件改写为对分词表的子查询：
+ * <pre>
+ * row_id_column IN (SELECT row_id FROM 分词表 WHERE table_name = '表' AND column_name = '列'
+ *     AND token IN (查询分词) GROUP BY row_id HAVING COUNT(DISTINCT token) = 分词数量)
+ * </pre>
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+final class LikeTokenIndex {
+
+    /**
+     * 标准化表名 -> 标准化加密列名
+     */
+    private final Map<String, Set<String>> columns;
+
+    /**
+     * 分词表名
+     */
+    private final String tokenTable;
+
+    /**
+     * 业务表中作为 row_id 的列
+     */
+    private final String rowIdColumn;
+
+    /**
+     * LIKE模式 -> 查询分词
+     */
+    private final Function<String, List<String>> tokenizer;
+
+    LikeTokenIndex(Map<String, Set<String>> columns, String tokenTable, String rowIdColumn,
+                   Function<String, List<String>> tokenizer) {
+        this.columns = columns;
+        this.tokenTable = tokenTable;
+        this.rowIdColumn = rowIdColumn;
+        this.tokenizer = tokenizer;
+    }
+
+    /**
+     * 生成分词索引快照，表名和列名统一为小写
+     */
+    static Map<String, Set<String>> snapshot(TableFieldCache tableFieldCache) {
+        if (!tableFieldCache.hasLikeIndexes()) {
+            return Collections.emptyMap();
+        }
+        Map<String, Set<String>> snapshot = new HashMap<>();
+        for (String tableName : tableFieldCache.getAllEncryptTables()) {
+            Set<String> likeIndexes = tableFieldCache.getTableLikeIndexes(tableName);
+            if (!likeIndexes.isEmpty()) {
+                Set<String> result = snapshot.computeIfAbsent(tableName.toLowerCase(Locale.ROOT), k -> new HashSet<>());
+                likeIndexes.forEach(column -> result.add(column.toLowerCase(Locale.ROOT)));
+            }
+        }
+        return snapshot;
+    }
+
+    boolean isIndexed(String tableName, String columnName) {
+        Set<String> indexed = columns.get(tableName);
+        return indexed != null && indexed.contains(columnName);
+    }
+
+    Map<String, Set<String>> getColumns() {
+        return columns;
+    }
+
+    String getTokenTable() {
+        return tokenTable;
+    }
+
+    String getRowIdColumn() {
+        return rowIdColumn;
+    }
+
+    List<String> tokens(String pattern) {
+        return tokenizer.apply(pattern);
+    }
+}
@@ -0,0 +1,69 @@
+package com.chu7.securtkit.encrypt.visitor;
+
+import com.chu7.securtkit.encrypt.cache.TableFieldCache;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 一次改写使用的保序索引配置
+ * 配置了保序索引的加密列，范围比较和 ORDER BY 改写为影子列：
+ * <pre>
+ * age &gt; ?                 -&gt;  age_ord &gt; ?（执行时绑定参数的保序编码）
+ * age BETWEEN 18 AND 30   -&gt;  age_ord BETWEEN 编码(18) AND 编码(30)
+ * ORDER BY age DESC       -&gt;  ORDER BY age_ord DESC
+ * </pre>
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+final class OrderIndex {
+
+    /**
+     * 标准化表名 -> (标准化加密列名 -> 保序索引影子列)
+     */
+    private final Map<String, Map<String, String>> columns;
+
+    /**
+     * 明文 -> 保序编码，无法编码时返回null
+     */
+    private final Function<Object, Long> encoder;
+
+    OrderIndex(Map<String, Map<String, String>> columns, Function<Object, Long> encoder) {
+        this.columns = columns;
+        this.encoder = encoder;
+    }
+
+    /**
+     * 生成保序索引快照，表名和加密列名统一为小写
+     */
+    static Map<String, Map<String, String>> snapshot(TableFieldCache tableFieldCache) {
+        Map<String, Map<String, String>> snapshot = new HashMap<>();
+        for (String tableName : tableFieldCache.getAllEncryptTables()) {
+            Map<String, String> orderIndexes = tableFieldCache.getTableOrderIndexes(tableName);
+            if (!orderIndexes.isEmpty()) {
+                Map<String, String> result = snapshot.computeIfAbsent(tableName.toLowerCase(Locale.ROOT),
+                        k -> new HashMap<>());
+                orderIndexes.forEach((column, orderIndex) -> result.put(column.toLowerCase(Locale.ROOT), orderIndex));
+            }
+        }
+        return snapshot.isEmpty() ? Collections.emptyMap() : snapshot;
+    }
+
+    /**
+     * 加密列的保序索引影子列
+     *
+     * @return 影子列名，未配置时返回null
+     */
+    String column(String tableName, String columnName) {
+        Map<String, String> indexed = columns.get(tableName);
+        return indexed == null ? null : indexed.get(columnName);
+    }
+
+    Long encode(Object value) {
+        return encoder.apply(value);
+    }
+}
@@ -0,0 +1,41 @@
+package com.chu7.securtkit.encrypt.visitor;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 单次SQL改写的中间状态，只在调用栈内使用
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+final class RewriteContext {
+
+    /**
+     * 是否发生改写
+     */
+    boolean changed;
+
+    /**
+     * 被改写的加密列
+     */
+    final Set<String> touchedColumns = new LinkedHashSet<>();
+
+    /**
+     * 记录被改写的列
+     */
+    void touch(String column) {
+        changed = true;
+        touchedColumns.add(column);
+    }
+
+    /**
+     * 转换为改写结果
+     *
+     * @param originalSql 原始SQL
+     * @param rewrittenSql 改写后的SQL
+     */
+    RewriteResult toResult(String originalSql, String rewrittenSql) {
+        return changed ? RewriteResult.changed(rewrittenSql, touchedColumns) : RewriteResult.unchanged(originalSql);
+    }
+}
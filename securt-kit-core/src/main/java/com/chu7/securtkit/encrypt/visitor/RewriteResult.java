@@ -0,0 +1,219 @@
+package com.chu7.securtkit.encrypt.visitor;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * SQL改写结果
+ * 不可变，可在线程间安全共享
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+public final class RewriteResult {
+    
+    /**
+     * 改写后的SQL，未改写时为原始SQL
+     */
+    private final String sql;
+    
+    /**
+     * 是否发生改写
+     */
+    private final boolean changed;
+    
+    /**
+     * 被改写的加密列
+     */
+    private final Set<String> touchedColumns;
+    
+    /**
+     * 密钥参数在参数列表中的位置，密钥内联为字面量时为空
+     */
+    private final int[] keySlots;
+    
+    /**
+     * 需要在Java端加密的参数在参数列表中的位置
+     */
+    private final int[] encryptSlots;
+    
+    /**
+     * 需要在Java端计算盲索引的参数在参数列表中的位置
+     */
+    private final int[] blindIndexSlots;
+    
+    /**
+     * LIKE参数改写为查询分词的位置，执行时展开为多个参数
+     */
+    private final int[] likeTokenSlots;
+    
+    /**
+     * 复核LIKE条件的参数位置，复用前一个分词位置的参数
+     */
+    private final int[] likePatternSlots;
+    
+    /**
+     * 需要在Java端计算保序编码的参数在参数列表中的位置
+     */
+    private final int[] orderIndexSlots;
+    
+    private RewriteResult(String sql, boolean changed, Set<String> touchedColumns, int[] keySlots,
+                          int[] encryptSlots, int[] blindIndexSlots, int[] likeTokenSlots, int[] likePatternSlots,
+                          int[] orderIndexSlots) {
+        this.sql = sql;
+        this.changed = changed;
+        this.touchedColumns = touchedColumns;
+        this.keySlots = keySlots;
+        this.encryptSlots = encryptSlots;
+        this.blindIndexSlots = blindIndexSlots;
+        this.likeTokenSlots = likeTokenSlots;
+        this.likePatternSlots = likePatternSlots;
+        this.orderIndexSlots = orderIndexSlots;
+    }
+    
+    /**
+     * 未改写的结果
+     *
+     * @param sql 原始SQL
+     */
+    public static RewriteResult unchanged(String sql) {
+        return new RewriteResult(sql, false, Collections.emptySet(), KeyParameter.NO_SLOTS, KeyParameter.NO_SLOTS,
+                KeyParameter.NO_SLOTS, KeyParameter.NO_SLOTS, KeyParameter.NO_SLOTS, KeyParameter.NO_SLOTS);
+    }
+    
+    /**
+     * 已改写的结果
+     *
+     * @param sql 改写后的SQL
+     * @param touchedColumns 被改写的加密列
+     */
+    public static RewriteResult changed(String sql, Set<String> touchedColumns) {
+        return changed(sql, touchedColumns, KeyParameter.NO_SLOTS, KeyParameter.NO_SLOTS, KeyParameter.NO_SLOTS);
+    }
+    
+    /**
+     * 带参数位置信息的改写结果
+     *
+     * @param sql 改写后的SQL，密钥位置为占位符
+     * @param touchedColumns 被改写的加密列
+     * @param keySlots 密钥参数在参数列表中的位置，升序
+     * @param encryptSlots 需要在Java端加密的参数在参数列表中的位置，升序
+     * @param blindIndexSlots 需要在Java端计算盲索引的参数在参数列表中的位置，升序
+     */
+    public static RewriteResult changed(String sql, Set<String> touchedColumns, int[] keySlots, int[] encryptSlots,
+                                        int[] blindIndexSlots) {
+        return changed(sql, touchedColumns, keySlots, encryptSlots, blindIndexSlots, KeyParameter.NO_SLOTS,
+                KeyParameter.NO_SLOTS);
+    }
+    
+    /**
+     * 带参数位置信息的改写结果，包含LIKE分词参数
+     *
+     * @param likeTokenSlots LIKE参数改写为查询分词的位置，升序
+     * @param likePatternSlots 复核LIKE条件的参数位置，升序
+     * @see #changed(String, Set, int[], int[], int[])
+     */
+    public static RewriteResult changed(String sql, Set<String> touchedColumns, int[] keySlots, int[] encryptSlots,
+                                        int[] blindIndexSlots, int[] likeTokenSlots, int[] likePatternSlots) {
+        return changed(sql, touchedColumns, keySlots, encryptSlots, blindIndexSlots, likeTokenSlots, likePatternSlots,
+                KeyParameter.NO_SLOTS);
+    }
+    
+    /**
+     * 带参数位置信息的改写结果，包含LIKE分词参数和保序索引参数
+     *
+     * @param orderIndexSlots 需要在Java端计算保序编码的参数在参数列表中的位置，升序
+     * @see #changed(String, Set, int[], int[], int[], int[], int[])
+     */
+    public static RewriteResult changed(String sql, Set<String> touchedColumns, int[] keySlots, int[] encryptSlots,
+                                        int[] blindIndexSlots, int[] likeTokenSlots, int[] likePatternSlots,
+                                        int[] orderIndexSlots) {
+        return new RewriteResult(sql, true, Collections.unmodifiableSet(new LinkedHashSet<>(touchedColumns)),
+                slots(keySlots), slots(encryptSlots), slots(blindIndexSlots), slots(likeTokenSlots),
+                slots(likePatternSlots), slots(orderIndexSlots));
+    }
+    
+    private static int[] slots(int[] slots) {
+        return slots == null || slots.length == 0 ? KeyParameter.NO_SLOTS : slots.clone();
+    }
+    
+    public String getSql() {
+        return sql;
+    }
+    
+    public boolean isChanged() {
+        return changed;
+    }
+    
+    public Set<String> getTouchedColumns() {
+        return touchedColumns;
+    }
+    
+    /**
+     * 密钥参数在参数列表中的位置，调用方不应修改返回的数组
+     *
+     * @return 位置数组，密钥内联为字面量时为空数组
+     */
+    public int[] getKeySlots() {
+        return keySlots;
+    }
+    
+    /**
+     * 需要在Java端加密的参数在参数列表中的位置，调用方不应修改返回的数组
+     *
+     * @return 位置数组，未启用Java端等值加密时为空数组
+     */
+    public int[] getEncryptSlots() {
+        return encryptSlots;
+    }
+    
+    /**
+     * 需要在Java端计算盲索引的参数在参数列表中的位置，调用方不应修改返回的数组
+     *
+     * @return 位置数组，没有盲索引比较时为空数组
+     */
+    public int[] getBlindIndexSlots() {
+        return blindIndexSlots;
+    }
+    
+    /**
+     * LIKE参数改写为查询分词的位置，调用方不应修改返回的数组
+     *
+     * @return 位置数组，没有分词索引改写时为空数组
+     */
+    public int[] getLikeTokenSlots() {
+        return likeTokenSlots;
+    }
+    
+    /**
+     * 复核LIKE条件的参数位置，调用方不应修改返回的数组
+     *
+     * @return 位置数组，没有分词索引改写或为POJO模式时为空数组
+     */
+    public int[] getLikePatternSlots() {
+        return likePatternSlots;
+    }
+    
+    /**
+     * 需要在Java端计算保序编码的参数在参数列表中的位置，调用方不应修改返回的数组
+     *
+     * @return 位置数组，没有保序索引比较时为空数组
+     */
+    public int[] getOrderIndexSlots() {
+        return orderIndexSlots;
+    }
+    
+    /**
+     * 执行时是否需要调整参数绑定
+     */
+    public boolean hasParameterSlots() {
+        return keySlots.length > 0 || encryptSlots.length > 0 || blindIndexSlots.length > 0
+                || likeTokenSlots.length > 0 || likePatternSlots.length > 0 || orderIndexSlots.length > 0;
+    }
+    
+    @Override
+    public String toString() {
+        return "RewriteResult{changed=" + changed + ", touchedColumns=" + touchedColumns + ", sql='" + sql + "'}";
+    }
+}
@@ -0,0 +1,164 @@
+package com.chu7.securtkit.encrypt;
+
+import com.chu7.securtkit.encrypt.cache.TableFieldCache;
+import com.chu7.securtkit.encrypt.config.TestConfig;
+import com.chu7.securtkit.encrypt.visitor.DbEncryptStatementVisitor;
+import com.chu7.securtkit.encrypt.visitor.RewriteResult;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 语法树SQL改写测试类
+ * 验证别名、JOIN、派生表和子查询中的加密列定位
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+    "securt-kit.encrypt.enabled=true",
+    "securt-kit.encrypt.patternType=DB",
+    "securt-kit.encrypt.key=k"
+})
+@Import(TestConfig.class)
+public class AstSqlRewriteTest {
+
+    private static final String DECRYPT = "CAST(AES_DECRYPT(FROM_BASE64(%s), 'k') AS CHAR)";
+
+    private static final String ENCRYPT = "TO_BASE64(AES_ENCRYPT(?, 'k'))";
+
+    @Autowired
+    private DbEncryptStatementVisitor dbEncryptStatementVisitor;
+
+    @Autowired
+    private TableFieldCache tableFieldCache;
+
+    @Test
+    void testAliasAndJoin() {
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(
+                "SELECT a.username, a.phone, b.customer_phone AS cp, b.order_no FROM user a "
+                        + "JOIN orders b ON a.id = b.user_id WHERE b.customer_phone = ? AND a.username = ?");
+
+        assertTrue(result.isChanged());
+        String sql = result.getSql();
+        assertTrue(sql.contains(String.format(DECRYPT, "a.phone") + " AS phone"));
+        assertTrue(sql.contains(String.format(DECRYPT, "b.customer_phone") + " AS cp"));
+        assertTrue(sql.contains("b.customer_phone = " + ENCRYPT));
+        // 非加密列保持不变
+        assertTrue(sql.contains("a.username = ?"));
+        assertTrue(sql.contains("b.order_no FROM"));
+    }
+
+    @Test
+    void testRegexFallbackKeepsLowerCaseClauses() {
+        // JSqlParser 无法解析 LOCK IN SHARE MODE，回退到正则处理，小写关键字同样识别
+        String sql = "select username, phone from user where phone = ? order by id limit ?, ? lock in share mode";
+        assertThrows(JSQLParserException.class, () -> CCJSqlParserUtil.parse(sql));
+
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(sql);
+        assertTrue(result.isChanged());
+        assertEquals("select username, " + String.format(DECRYPT, "phone") + " AS phone from user where phone = "
+                + ENCRYPT + " order by id limit ?, ? lock in share mode", result.getSql());
+    }
+
+    @Test
+    void testSameColumnNameOnPlainTable() {
+        // product表没有加密列，同名列不应被改写
+        String sql = "SELECT p.phone FROM product p WHERE p.phone = ?";
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(sql + " AND EXISTS (SELECT 1 FROM user u WHERE u.id = p.id)");
+        assertFalse(result.isChanged());
+    }
+
+    @Test
+    void testUnqualifiedColumnEncryptedInSeveralTables() {
+        tableFieldCache.addTableEncryptFields("contact", new HashSet<>(Collections.singletonList("phone")));
+        try {
+            // 两张加密表都有phone，不带限定名时无法确定归属，不改写
+            String sql = "SELECT u.username FROM user u JOIN contact c ON u.id = c.user_id WHERE phone = ?";
+            assertFalse(dbEncryptStatementVisitor.rewrite(sql).isChanged());
+
+            // 只有一张表登记了该加密列时仍按该表改写
+            RewriteResult result = dbEncryptStatementVisitor.rewrite(
+                    "SELECT u.username FROM user u JOIN contact c ON u.id = c.user_id WHERE email = ?");
+            assertTrue(result.getSql().endsWith("WHERE email = " + ENCRYPT));
+
+            // 带限定名的列不受影响
+            assertTrue(dbEncryptStatementVisitor.rewrite(
+                    "SELECT u.username FROM user u JOIN contact c ON u.id = c.user_id WHERE c.phone = ?")
+                    .getSql().endsWith("WHERE c.phone = " + ENCRYPT));
+        } finally {
+            tableFieldCache.clearTableCache("contact");
+        }
+    }
+
+    @Test
+    void testDerivedTableAndSubQuery() {
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(
+                "SELECT t.phone FROM (SELECT id, phone FROM user WHERE email = ?) t "
+                        + "WHERE t.id IN (SELECT user_id FROM orders WHERE customer_phone IN (SELECT phone FROM user WHERE id = ?))");
+
+        String sql = result.getSql();
+        // 派生表内部解密一次，外层引用派生表列不再解密
+        assertTrue(sql.startsWith("SELECT t.phone FROM (SELECT id, " + String.format(DECRYPT, "phone") + " AS phone"));
+        assertTrue(sql.contains("email = " + ENCRYPT));
+        // 加密列与子查询比较时保持密文
+        assertTrue(sql.contains("customer_phone IN (SELECT phone FROM user WHERE id = ?)"));
+        assertEquals(2, result.getTouchedColumns().size());
+    }
+
+    @Test
+    void testUnparsableSqlFallsBackToRegex() {
+        String sql = "SELECT phone FROM user WHERE phone = ? FOR UPDATE SKIP LOCKED NOWAIT";
+        assertThrows(JSQLParserException.class, () -> CCJSqlParserUtil.parse(sql));
+
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(sql);
+        assertTrue(result.isChanged());
+        assertTrue(result.getSql().contains("AES_DECRYPT"));
+    }
+
+    @Test
+    void testInsertValuesAndUpdateSet() {
+        RewriteResult insert = dbEncryptStatementVisitor.rewrite("INSERT INTO user (username, phone, email) "
+                + "VALUES (?, ?, ?), ('a', '138', NULL), (?, ?, CONCAT(?, '@x.com'))");
+        assertTrue(insert.isChanged());
+        assertEquals("INSERT INTO user (username, phone, email) VALUES (?, " + ENCRYPT + ", " + ENCRYPT + "), "
+                + "('a', TO_BASE64(AES_ENCRYPT('138', 'k')), NULL), "
+                + "(?, " + ENCRYPT + ", TO_BASE64(AES_ENCRYPT(CONCAT(?, '@x.com'), 'k')))", insert.getSql());
+
+        // 值中引用的加密列先解密；另一加密列直接复制密文
+        RewriteResult update = dbEncryptStatementVisitor.rewrite(
+                "UPDATE user u SET u.phone = CONCAT('+86', u.phone), u.email = u.id_card, u.username = ? WHERE u.id = ?");
+        assertEquals("UPDATE user u SET u.phone = TO_BASE64(AES_ENCRYPT(CONCAT('+86', "
+                + String.format(DECRYPT, "u.phone") + "), 'k')), u.email = u.id_card, u.username = ? WHERE u.id = ?",
+                update.getSql());
+
+        // 没有列清单时无法定位加密列，保持不变
+        assertFalse(dbEncryptStatementVisitor.rewrite("INSERT INTO user VALUES (?, ?)").isChanged());
+    }
+
+    @Test
+    void testUnparsableInsertAndUpdateFallBack() {
+        String insert = "INSERT INTO user (username, phone) VALUES (?, ?), ('a,(b', NULL) AS new "
+                + "ON DUPLICATE KEY UPDATE phone = new.phone";
+        assertThrows(JSQLParserException.class, () -> CCJSqlParserUtil.parse(insert));
+        assertEquals("INSERT INTO user (username, phone) VALUES (?, " + ENCRYPT + "), ('a,(b', NULL) AS new "
+                + "ON DUPLICATE KEY UPDATE phone = new.phone", dbEncryptStatementVisitor.rewrite(insert).getSql());
+
+        String update = "UPDATE user SET phone = ?, email = CONCAT('(', ?), username = ? WHERE id = ? SKIP LOCKED";
+        assertThrows(JSQLParserException.class, () -> CCJSqlParserUtil.parse(update));
+        assertEquals("UPDATE user SET phone = " + ENCRYPT + ", email = TO_BASE64(AES_ENCRYPT(CONCAT('(', ?), 'k')), "
+                + "username = ? WHERE id = ? SKIP LOCKED", dbEncryptStatementVisitor.rewrite(update).getSql());
+    }
+}
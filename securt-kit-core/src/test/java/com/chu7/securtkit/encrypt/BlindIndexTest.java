@@ -0,0 +1,204 @@
+package com.chu7.securtkit.encrypt;
+
+import com.chu7.securtkit.encrypt.annotation.EncryptField;
+import com.chu7.securtkit.encrypt.cache.EncryptEntityIndex;
+import com.chu7.securtkit.encrypt.cache.TableFieldCache;
+import com.chu7.securtkit.encrypt.config.TestConfig;
+import com.chu7.securtkit.encrypt.handler.BlindIndexParameterTypeHandler;
+import com.chu7.securtkit.encrypt.interceptor.DbFieldEncryptorInterceptor;
+import com.chu7.securtkit.encrypt.interceptor.PojoParamEncryptorInterceptor;
+import com.chu7.securtkit.encrypt.strategy.BlindIndexGenerator;
+import com.chu7.securtkit.encrypt.util.EncryptUtil;
+import com.chu7.securtkit.encrypt.visitor.DbEncryptStatementVisitor;
+import com.chu7.securtkit.encrypt.visitor.RewriteResult;
+import lombok.Data;
+import org.apache.ibatis.binding.MapperMethod;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.lang.reflect.Proxy;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 盲索引测试类
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+    "securt-kit.encrypt.enabled=true",
+    "securt-kit.encrypt.patternType=POJO",
+    "securt-kit.encrypt.key=test-secret-key-32-chars-long"
+})
+@Import(TestConfig.class)
+public class BlindIndexTest {
+
+    private static final String KEY = "test-secret-key-32-chars-long";
+
+    @Autowired
+    private BlindIndexGenerator blindIndexGenerator;
+
+    @Autowired
+    private EncryptUtil encryptUtil;
+
+    @Autowired
+    private TableFieldCache tableFieldCache;
+
+    @Autowired
+    private DbEncryptStatementVisitor dbEncryptStatementVisitor;
+
+    @Autowired
+    private DbFieldEncryptorInterceptor pojoBlindIndexInterceptor;
+
+    @Autowired
+    private PojoParamEncryptorInterceptor pojoParamEncryptorInterceptor;
+
+    @BeforeEach
+    void setUp() {
+        tableFieldCache.addTableEncryptFields("member", new HashSet<>(Collections.singletonList("phone")));
+        tableFieldCache.addBlindIndex("member", "phone", "phone_bidx");
+    }
+
+    @AfterEach
+    void tearDown() {
+        tableFieldCache.clearTableCache("member");
+    }
+
+    @Test
+    void testGenerator() {
+        String index = blindIndexGenerator.generate("13800138000", KEY);
+        assertEquals(index, blindIndexGenerator.generate("13800138000", KEY));
+        assertNotEquals(index, blindIndexGenerator.generate("13800138001", KEY));
+        assertNotEquals(index, blindIndexGenerator.generate("13800138000", "another-key"));
+        assertEquals(32, Base64.getDecoder().decode(index).length);
+        assertNull(blindIndexGenerator.generate(null, KEY));
+
+        // 截短后是完整结果的前缀
+        String truncated = new BlindIndexGenerator(8).generate("13800138000", KEY);
+        byte[] truncatedBytes = Base64.getDecoder().decode(truncated);
+        assertEquals(8, truncatedBytes.length);
+        for (int i = 0; i < truncatedBytes.length; i++) {
+            assertEquals(Base64.getDecoder().decode(index)[i], truncatedBytes[i]);
+        }
+    }
+
+    @Test
+    void testEntityIndexContainsBlindIndex() {
+        EncryptEntityIndex.Entry entry = EncryptEntityIndex.load(getClass().getClassLoader())
+                .getEntry(MemberEntity.class.getName());
+        assertNotNull(entry);
+        assertEquals(Collections.singletonMap("phone", "phone_bidx"), entry.getBlindIndexes());
+    }
+
+    @Test
+    void testEncryptObjectWritesBlindIndex() {
+        MemberEntity member = new MemberEntity();
+        member.setPhone("13800138000");
+        encryptUtil.encryptObject(member, "member");
+
+        assertEquals(blindIndexGenerator.generate("13800138000", KEY), member.getPhoneBidx());
+        assertNotEquals("13800138000", member.getPhone());
+        assertEquals("13800138000", encryptUtil.decrypt(member.getPhone(), "AES"));
+    }
+
+    @Test
+    void testEtParameterEncryptedWithBlindIndex() throws Throwable {
+        Configuration configuration = new Configuration();
+        MappedStatement mappedStatement = new MappedStatement.Builder(configuration, "blindIndex.updateById",
+                new StaticSqlSource(configuration, "UPDATE member SET phone = ?, phone_bidx = ? WHERE id = ?"),
+                SqlCommandType.UPDATE).build();
+
+        // MyBatis-Plus 的 updateById 以 et 传入实体
+        MemberEntity member = new MemberEntity();
+        member.setPhone("13800138000");
+        MapperMethod.ParamMap<Object> parameter = new MapperMethod.ParamMap<>();
+        parameter.put("et", member);
+        parameter.put("param1", member);
+
+        Executor executor = (Executor) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Executor.class},
+                (proxy, method, args) -> 1);
+        pojoParamEncryptorInterceptor.intercept(new Invocation(executor,
+                Executor.class.getMethod("update", MappedStatement.class, Object.class),
+                new Object[]{mappedStatement, parameter}));
+
+        assertEquals(blindIndexGenerator.generate("13800138000", KEY), member.getPhoneBidx());
+        assertEquals("13800138000", encryptUtil.decrypt(member.getPhone(), "AES"));
+    }
+
+    @Test
+    void testRewriteToBlindIndex() {
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(
+                "SELECT id, phone FROM member m WHERE m.phone = ? AND username LIKE ? AND phone IN ('13800138000', ?)");
+
+        assertTrue(result.isChanged());
+        assertEquals("SELECT id, phone FROM member m WHERE m.phone_bidx = ? AND username LIKE ? AND phone_bidx IN ('"
+                + blindIndexGenerator.generate("13800138000", KEY) + "', ?)", result.getSql());
+        assertArrayEquals(new int[]{0, 2}, result.getBlindIndexSlots());
+
+        // 非等值条件在POJO模式下保持不变
+        RewriteResult like = dbEncryptStatementVisitor.rewrite("SELECT id FROM member WHERE phone LIKE ?");
+        assertFalse(like.isChanged());
+    }
+
+    @Test
+    void testInterceptorBindsBlindIndex() throws Throwable {
+        Configuration configuration = new Configuration();
+        String sql = "SELECT id, phone FROM member WHERE phone = ?";
+        List<ParameterMapping> parameterMappings = Collections.singletonList(
+                new ParameterMapping.Builder(configuration, "phone", String.class).build());
+        MappedStatement mappedStatement = new MappedStatement.Builder(configuration, "blindIndex.selectByPhone",
+                new StaticSqlSource(configuration, sql, parameterMappings), SqlCommandType.SELECT).build();
+        configuration.addMappedStatement(mappedStatement);
+
+        Object parameter = Collections.singletonMap("phone", "13800138000");
+        BoundSql boundSql = mappedStatement.getBoundSql(parameter);
+        StatementHandler statementHandler = configuration.newStatementHandler(null, mappedStatement,
+                parameter, RowBounds.DEFAULT, null, boundSql);
+        pojoBlindIndexInterceptor.intercept(
+                new Invocation(statementHandler, Object.class.getMethod("hashCode"), new Object[0]));
+
+        assertEquals("SELECT id, phone FROM member WHERE phone_bidx = ?", boundSql.getSql());
+        assertEquals(1, boundSql.getParameterMappings().size());
+        assertEquals("phone", boundSql.getParameterMappings().get(0).getProperty());
+        assertTrue(boundSql.getParameterMappings().get(0).getTypeHandler() instanceof BlindIndexParameterTypeHandler);
+        // 不修改语句共享的参数映射
+        assertFalse(parameterMappings.get(0).getTypeHandler() instanceof BlindIndexParameterTypeHandler);
+    }
+
+    /**
+     * 测试用会员实体
+     */
+    @Data
+    public static class MemberEntity {
+
+        private Long id;
+
+        @EncryptField(blindIndex = "phone_bidx")
+        private String phone;
+
+        private String phoneBidx;
+    }
+}
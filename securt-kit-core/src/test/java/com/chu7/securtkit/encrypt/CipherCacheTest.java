@@ -0,0 +1,218 @@
+package com.chu7.securtkit.encrypt;
+
+import cn.hutool.crypto.symmetric.AES;
+import cn.hutool.crypto.symmetric.DES;
+import com.chu7.securtkit.encrypt.strategy.AesEncryptStrategy;
+import com.chu7.securtkit.encrypt.strategy.DesEncryptStrategy;
+import com.chu7.securtkit.encrypt.strategy.EncryptStrategy;
+import com.chu7.securtkit.encrypt.strategy.MySqlAesEncryptStrategy;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Cipher缓存测试类
+ * 验证缓存后的加解密结果与原hutool实现一致，并且可以在多线程下共享
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+public class CipherCacheTest {
+
+    private final AesEncryptStrategy aesEncryptStrategy = new AesEncryptStrategy();
+
+    private final DesEncryptStrategy desEncryptStrategy = new DesEncryptStrategy();
+
+    @Test
+    void testAesCompatibleWithHutool() {
+        // 各种长度的密钥都应与原实现生成相同的密文
+        String[] keys = {"test-secret-key-16-chars", "1234567890123456", "short", "test-secret-key-32-chars-long-enough"};
+        String plainText = "13800138000";
+
+        for (String key : keys) {
+            AES aes = new AES(normalize(key, 16, new int[]{16, 24, 32}));
+            String expected = Base64.getEncoder().encodeToString(aes.encrypt(plainText));
+
+            assertEquals(expected, aesEncryptStrategy.encrypt(plainText, key));
+            assertEquals(plainText, aesEncryptStrategy.decrypt(expected, key));
+        }
+    }
+
+    @Test
+    void testDesCompatibleWithHutool() {
+        String[] keys = {"12345678", "test-secret-key-32-chars-long", "abc"};
+        String plainText = "test@example.com";
+
+        for (String key : keys) {
+            DES des = new DES(normalize(key, 8, new int[]{8}));
+            String expected = Base64.getEncoder().encodeToString(des.encrypt(plainText));
+
+            assertEquals(expected, desEncryptStrategy.encrypt(plainText, key));
+            assertEquals(plainText, desEncryptStrategy.decrypt(expected, key));
+        }
+    }
+
+    @Test
+    void testInvalidCipherTextDoesNotPoisonCache() {
+        String key = "test-secret-key-16-chars";
+        String encrypted = aesEncryptStrategy.encrypt("13800138000", key);
+
+        // 非法密文解密失败时返回原值
+        String invalid = Base64.getEncoder().encodeToString("not-a-cipher-text".getBytes(StandardCharsets.UTF_8));
+        assertEquals(invalid, aesEncryptStrategy.decrypt(invalid, key));
+
+        // 后续解密不受影响
+        assertEquals("13800138000", aesEncryptStrategy.decrypt(encrypted, key));
+    }
+
+    @Test
+    void testByteApiMatchesStringApi() {
+        String key = "test-secret-key-16-chars";
+        String plainText = "zhangsan@example.com";
+        byte[] plainBytes = plainText.getBytes(StandardCharsets.UTF_8);
+
+        // 字节接口得到的原始密文即字符串接口Base64解码后的结果
+        byte[] cipherBytes = aesEncryptStrategy.encrypt(plainBytes, key);
+        assertEquals(aesEncryptStrategy.encrypt(plainText, key), Base64.getEncoder().encodeToString(cipherBytes));
+        assertArrayEquals(plainBytes, aesEncryptStrategy.decrypt(cipherBytes, key));
+
+        byte[] desCipherBytes = desEncryptStrategy.encrypt(plainBytes, key);
+        assertArrayEquals(plainBytes, desEncryptStrategy.decrypt(desCipherBytes, key));
+    }
+
+    @Test
+    void testByteBufferApiWritesIntoCallerBuffer() {
+        String key = "test-secret-key-16-chars";
+        byte[] plainBytes = "13800138000".getBytes(StandardCharsets.UTF_8);
+
+        // 同一块缓冲区可以反复使用
+        ByteBuffer cipherBuffer = ByteBuffer.allocate(aesEncryptStrategy.getEncryptOutputSize(plainBytes.length, key));
+        ByteBuffer plainBuffer = ByteBuffer.allocate(cipherBuffer.capacity());
+        for (int i = 0; i < 3; i++) {
+            cipherBuffer.clear();
+            int written = aesEncryptStrategy.encrypt(ByteBuffer.wrap(plainBytes), cipherBuffer, key);
+            assertEquals(16, written);
+
+            cipherBuffer.flip();
+            plainBuffer.clear();
+            int plainLength = aesEncryptStrategy.decrypt(cipherBuffer, plainBuffer, key);
+            assertEquals(plainBytes.length, plainLength);
+            assertEquals("13800138000", new String(plainBuffer.array(), 0, plainLength, StandardCharsets.UTF_8));
+        }
+
+        // 缓冲区空间不足时抛出异常
+        assertThrows(IllegalStateException.class,
+                () -> aesEncryptStrategy.encrypt(ByteBuffer.wrap(plainBytes), ByteBuffer.allocate(4), key));
+    }
+
+    @Test
+    void testDefaultByteBufferApiSizedForTextCipher() {
+        // 只实现字符串接口的策略，字节和缓冲区接口走默认实现，密文为Base64文本
+        EncryptStrategy textStrategy = new EncryptStrategy() {
+            @Override
+            public String encrypt(String plainText, String key) {
+                return aesEncryptStrategy.encrypt(plainText, key);
+            }
+
+            @Override
+            public String decrypt(String cipherText, String key) {
+                return aesEncryptStrategy.decrypt(cipherText, key);
+            }
+
+            @Override
+            public String getAlgorithm() {
+                return "TEXT_AES";
+            }
+
+            @Override
+            public boolean supports(String algorithm) {
+                return "TEXT_AES".equals(algorithm);
+            }
+        };
+        String key = "test-secret-key-16-chars";
+
+        for (String plainText : new String[]{"1", "13800138000", "0123456789abcdef", "test@example.com.cn-long-address"}) {
+            byte[] plainBytes = plainText.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer cipherBuffer = ByteBuffer.allocate(textStrategy.getEncryptOutputSize(plainBytes.length, key));
+            int written = textStrategy.encrypt(ByteBuffer.wrap(plainBytes), cipherBuffer, key);
+            assertEquals(cipherBuffer.capacity(), written);
+
+            cipherBuffer.flip();
+            ByteBuffer plainBuffer = ByteBuffer.allocate(cipherBuffer.capacity());
+            int plainLength = textStrategy.decrypt(cipherBuffer, plainBuffer, key);
+            assertEquals(plainText, new String(plainBuffer.array(), 0, plainLength, StandardCharsets.UTF_8));
+        }
+
+        // 空间不足时抛出异常，且不消费输入、不写入输出
+        ByteBuffer input = ByteBuffer.wrap("13800138000".getBytes(StandardCharsets.UTF_8));
+        ByteBuffer output = ByteBuffer.allocate(16);
+        assertThrows(IllegalStateException.class, () -> textStrategy.encrypt(input, output, key));
+        assertEquals(0, input.position());
+        assertEquals(0, output.position());
+    }
+
+    @Test
+    void testMySqlAesByteBufferApiWritesRawCipher() {
+        MySqlAesEncryptStrategy mySqlAesEncryptStrategy = new MySqlAesEncryptStrategy();
+        String key = "test-secret-key-16-chars";
+        byte[] plainBytes = "13800138000".getBytes(StandardCharsets.UTF_8);
+
+        ByteBuffer cipherBuffer = ByteBuffer.allocate(mySqlAesEncryptStrategy.getEncryptOutputSize(plainBytes.length, key));
+        assertEquals(16, mySqlAesEncryptStrategy.encrypt(ByteBuffer.wrap(plainBytes), cipherBuffer, key));
+        assertArrayEquals(mySqlAesEncryptStrategy.encrypt(plainBytes, key), cipherBuffer.array());
+
+        assertThrows(IllegalStateException.class,
+                () -> mySqlAesEncryptStrategy.encrypt(ByteBuffer.wrap(plainBytes), ByteBuffer.allocate(4), key));
+    }
+
+    @Test
+    void testConcurrentEncryptDecrypt() throws Exception {
+        String key = "test-secret-key-32-chars-long";
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                final int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 2000; i++) {
+                        String plainText = "1380013" + thread + String.format("%04d", i);
+                        String encrypted = aesEncryptStrategy.encrypt(plainText, key);
+                        if (!plainText.equals(aesEncryptStrategy.decrypt(encrypted, key))) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> future : futures) {
+                assertTrue(future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * 原实现的密钥标准化规则
+     */
+    private byte[] normalize(String key, int length, int[] validLengths) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        for (int validLength : validLengths) {
+            if (keyBytes.length == validLength) {
+                return keyBytes;
+            }
+        }
+        byte[] normalized = new byte[length];
+        System.arraycopy(keyBytes, 0, normalized, 0, Math.min(keyBytes.length, length));
+        return normalized;
+    }
+}
@@ -3,6 +3,7 @@ package com.chu7.securtkit.encrypt;
 import com.chu7.securtkit.encrypt.cache.TableFieldCache;
 import com.chu7.securtkit.encrypt.config.EncryptProperties;
 import com.chu7.securtkit.encrypt.visitor.DbEncryptStatementVisitor;
+import com.chu7.securtkit.encrypt.visitor.RewriteResult;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -46,9 +47,6 @@ public class ComplexDmlSqlTest {
     
     @BeforeEach
     void setUp() {
-        // 重置访问者状态
-        dbEncryptStatementVisitor.reset();
-        
         // 配置测试用的表字段缓存
         Set<String> userEncryptFields = new HashSet<>(Arrays.asList("phone", "email", "id_card"));
         tableFieldCache.addTableEncryptFields("user", userEncryptFields);
@@ -78,9 +76,10 @@ public class ComplexDmlSqlTest {
                 "AND email = ? " +
                 "AND id_card = ?";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(insertSubQuerySql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(insertSubQuerySql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("INSERT子查询原始SQL: " + insertSubQuerySql);
@@ -98,9 +97,10 @@ public class ComplexDmlSqlTest {
                 "AND o.customer_phone = ? " +
                 "AND o.amount > 1000";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(multiTableInsertSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(multiTableInsertSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("多表INSERT原始SQL: " + multiTableInsertSql);
@@ -115,9 +115,10 @@ public class ComplexDmlSqlTest {
                 "UNION " +
                 "SELECT customer_name, customer_phone, customer_email, 'N/A' FROM orders WHERE customer_phone = ?";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(insertUnionSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(insertUnionSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("INSERT UNION原始SQL: " + insertUnionSql);
@@ -137,9 +138,10 @@ public class ComplexDmlSqlTest {
                 "FROM user " +
                 "WHERE phone = ?";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(insertCaseWhenSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(insertCaseWhenSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("INSERT CASE WHEN原始SQL: " + insertCaseWhenSql);
@@ -157,9 +159,10 @@ public class ComplexDmlSqlTest {
                 "AND o.customer_phone = ? " +
                 "AND o.customer_email = ?";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(updateJoinSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(updateJoinSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("UPDATE JOIN原始SQL: " + updateJoinSql);
@@ -191,9 +194,10 @@ public class ComplexDmlSqlTest {
                 "    AND customer_phone = ?" +
                 ")";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(updateSubQuerySql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(updateSubQuerySql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("UPDATE子查询原始SQL: " + updateSubQuerySql);
@@ -217,9 +221,10 @@ public class ComplexDmlSqlTest {
                 "WHERE phone = ? " +
                 "OR email = ?";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(updateCaseWhenSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(updateCaseWhenSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("UPDATE CASE WHEN原始SQL: " + updateCaseWhenSql);
@@ -236,9 +241,10 @@ public class ComplexDmlSqlTest {
                 "AND u.phone = ? " +
                 "AND o.customer_phone = ?";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(multiTableUpdateSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(multiTableUpdateSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("多表UPDATE原始SQL: " + multiTableUpdateSql);
@@ -256,9 +262,10 @@ public class ComplexDmlSqlTest {
                 "AND p.card_number = ? " +
                 "AND u.phone = ?";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(deleteJoinSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(deleteJoinSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("DELETE JOIN原始SQL: " + deleteJoinSql);
@@ -283,9 +290,10 @@ public class ComplexDmlSqlTest {
                 "    AND operation_type = 'DELETE'" +
                 ")";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(deleteSubQuerySql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(deleteSubQuerySql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("DELETE子查询原始SQL: " + deleteSubQuerySql);
@@ -300,9 +308,10 @@ public class ComplexDmlSqlTest {
                 "ORDER BY id " +
                 "LIMIT 10";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(deleteLimitSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(deleteLimitSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("DELETE LIMIT原始SQL: " + deleteLimitSql);
@@ -320,9 +329,10 @@ public class ComplexDmlSqlTest {
                 "AND o.customer_phone = ? " +
                 "AND p.card_number = ?";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(multiTableDeleteSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(multiTableDeleteSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("多表DELETE原始SQL: " + multiTableDeleteSql);
@@ -339,11 +349,17 @@ public class ComplexDmlSqlTest {
                 "email = VALUES(email), " +
                 "id_card = VALUES(id_card)";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(insertOnDuplicateSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(insertOnDuplicateSql);
+        String processedSql = result.getSql();
         
-        // INSERT语句通常不需要修改，因为参数会在应用层加密
-        assertFalse(dbEncryptStatementVisitor.hasChanges());
-        assertEquals(insertOnDuplicateSql, processedSql);
+        // VALUES 中的参数加密，VALUES(加密列) 已经是密文，保持不变
+        assertTrue(result.isChanged());
+        assertEquals("INSERT INTO user (username, phone, email, id_card) VALUES (?, "
+                + "TO_BASE64(AES_ENCRYPT(?, 'test-secret-key-32-chars-long')), "
+                + "TO_BASE64(AES_ENCRYPT(?, 'test-secret-key-32-chars-long')), "
+                + "TO_BASE64(AES_ENCRYPT(?, 'test-secret-key-32-chars-long'))) "
+                + "ON DUPLICATE KEY UPDATE phone = VALUES(phone), email = VALUES(email), id_card = VALUES(id_card)",
+                processedSql);
         
         System.out.println("INSERT ON DUPLICATE KEY UPDATE: " + insertOnDuplicateSql);
     }
@@ -354,11 +370,14 @@ public class ComplexDmlSqlTest {
         String replaceSql = "REPLACE INTO user (username, phone, email, id_card) " +
                 "VALUES (?, ?, ?, ?)";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(replaceSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(replaceSql);
+        String processedSql = result.getSql();
         
-        // REPLACE语句通常不需要修改，因为参数会在应用层加密
-        assertFalse(dbEncryptStatementVisitor.hasChanges());
-        assertEquals(replaceSql, processedSql);
+        assertTrue(result.isChanged());
+        assertEquals("REPLACE INTO user (username, phone, email, id_card) VALUES (?, "
+                + "TO_BASE64(AES_ENCRYPT(?, 'test-secret-key-32-chars-long')), "
+                + "TO_BASE64(AES_ENCRYPT(?, 'test-secret-key-32-chars-long')), "
+                + "TO_BASE64(AES_ENCRYPT(?, 'test-secret-key-32-chars-long')))", processedSql);
         
         System.out.println("REPLACE INTO: " + replaceSql);
     }
@@ -372,9 +391,10 @@ public class ComplexDmlSqlTest {
                 "ORDER BY id " +
                 "LIMIT 5";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(updateOrderByLimitSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(updateOrderByLimitSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("UPDATE ORDER BY LIMIT原始SQL: " + updateOrderByLimitSql);
@@ -389,9 +409,10 @@ public class ComplexDmlSqlTest {
                 "ORDER BY id DESC " +
                 "LIMIT 3";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(deleteOrderByLimitSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(deleteOrderByLimitSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("DELETE ORDER BY LIMIT原始SQL: " + deleteOrderByLimitSql);
@@ -409,9 +430,10 @@ public class ComplexDmlSqlTest {
                 "AND id_card = ? " +
                 "AND create_time < DATE_SUB(NOW(), INTERVAL 1 YEAR)";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(insertSelectWhereSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(insertSelectWhereSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("INSERT SELECT WHERE原始SQL: " + insertSelectWhereSql);
@@ -438,9 +460,10 @@ public class ComplexDmlSqlTest {
                 "    HAVING COUNT(*) > 1" +
                 ")";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(updateAggregateSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(updateAggregateSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("UPDATE聚合函数原始SQL: " + updateAggregateSql);
@@ -3,6 +3,7 @@ package com.chu7.securtkit.encrypt;
 import com.chu7.securtkit.encrypt.cache.TableFieldCache;
 import com.chu7.securtkit.encrypt.config.EncryptProperties;
 import com.chu7.securtkit.encrypt.visitor.DbEncryptStatementVisitor;
+import com.chu7.securtkit.encrypt.visitor.RewriteResult;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -46,9 +47,6 @@ public class ComplexSqlEncryptTest {
     
     @BeforeEach
     void setUp() {
-        // 重置访问者状态
-        dbEncryptStatementVisitor.reset();
-        
         // 配置测试用的表字段缓存
         Set<String> userEncryptFields = new HashSet<>(Arrays.asList("phone", "email", "id_card"));
         tableFieldCache.addTableEncryptFields("user", userEncryptFields);
@@ -82,9 +80,10 @@ public class ComplexSqlEncryptTest {
                 "WHERE u.phone = ? AND o.customer_phone = ? " +
                 "ORDER BY u.username, o.order_no";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(complexJoinSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(complexJoinSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         // 验证SELECT字段被正确解密
@@ -116,9 +115,10 @@ public class ComplexSqlEncryptTest {
                 ") o ON u.id = o.user_id " +
                 "WHERE u.phone = ?";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(leftJoinSubQuerySql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(leftJoinSubQuerySql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("左连接子查询原始SQL: " + leftJoinSubQuerySql);
@@ -144,9 +144,10 @@ public class ComplexSqlEncryptTest {
                 ") " +
                 "AND u.phone = ?";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(nestedSubQuerySql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(nestedSubQuerySql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("复杂嵌套子查询原始SQL: " + nestedSubQuerySql);
@@ -161,9 +162,10 @@ public class ComplexSqlEncryptTest {
                 "SELECT customer_phone, customer_email, customer_name FROM orders WHERE customer_phone = ? " +
                 "ORDER BY username";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(unionSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(unionSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("UNION查询原始SQL: " + unionSql);
@@ -177,9 +179,10 @@ public class ComplexSqlEncryptTest {
                 "UNION ALL " +
                 "SELECT customer_phone, customer_email, customer_name FROM orders WHERE customer_phone = ?";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(unionAllSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(unionAllSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("UNION ALL查询原始SQL: " + unionAllSql);
@@ -197,9 +200,10 @@ public class ComplexSqlEncryptTest {
                 "FROM user " +
                 "WHERE phone LIKE ? AND email LIKE ?";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(aggregateSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(aggregateSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("聚合函数查询原始SQL: " + aggregateSql);
@@ -218,9 +222,10 @@ public class ComplexSqlEncryptTest {
                 "FROM user " +
                 "WHERE phone = ?";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(windowSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(windowSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("窗口函数查询原始SQL: " + windowSql);
@@ -242,9 +247,10 @@ public class ComplexSqlEncryptTest {
                 "FROM user " +
                 "WHERE phone = ?";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(caseWhenSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(caseWhenSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("CASE WHEN查询原始SQL: " + caseWhenSql);
@@ -267,9 +273,10 @@ public class ComplexSqlEncryptTest {
                 ") " +
                 "AND u.phone = ?";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(existsSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(existsSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("EXISTS子查询原始SQL: " + existsSql);
@@ -292,9 +299,10 @@ public class ComplexSqlEncryptTest {
                 ") " +
                 "AND u.phone = ?";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(notExistsSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(notExistsSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("NOT EXISTS子查询原始SQL: " + notExistsSql);
@@ -305,11 +313,15 @@ public class ComplexSqlEncryptTest {
     void testInsertStatement() {
         // 测试INSERT语句
         String insertSql = "INSERT INTO user (username, phone, email, id_card, address) VALUES (?, ?, ?, ?, ?)";
-        String processedSql = dbEncryptStatementVisitor.processSql(insertSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(insertSql);
+        String processedSql = result.getSql();
         
-        // INSERT语句通常不需要修改，因为参数会在应用层加密
-        assertFalse(dbEncryptStatementVisitor.hasChanges());
-        assertEquals(insertSql, processedSql);
+        // 写入加密列的参数在数据库端加密
+        assertTrue(result.isChanged());
+        assertEquals("INSERT INTO user (username, phone, email, id_card, address) VALUES (?, "
+                + "TO_BASE64(AES_ENCRYPT(?, 'test-secret-key-32-chars-long')), "
+                + "TO_BASE64(AES_ENCRYPT(?, 'test-secret-key-32-chars-long')), "
+                + "TO_BASE64(AES_ENCRYPT(?, 'test-secret-key-32-chars-long')), ?)", processedSql);
         
         System.out.println("INSERT语句: " + insertSql);
     }
@@ -318,11 +330,14 @@ public class ComplexSqlEncryptTest {
     void testUpdateStatement() {
         // 测试UPDATE语句
         String updateSql = "UPDATE user SET phone = ?, email = ?, id_card = ? WHERE id = ?";
-        String processedSql = dbEncryptStatementVisitor.processSql(updateSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(updateSql);
+        String processedSql = result.getSql();
         
-        // UPDATE语句通常不需要修改，因为参数会在应用层加密
-        assertFalse(dbEncryptStatementVisitor.hasChanges());
-        assertEquals(updateSql, processedSql);
+        // 写入加密列的参数在数据库端加密
+        assertTrue(result.isChanged());
+        assertEquals("UPDATE user SET phone = TO_BASE64(AES_ENCRYPT(?, 'test-secret-key-32-chars-long')), "
+                + "email = TO_BASE64(AES_ENCRYPT(?, 'test-secret-key-32-chars-long')), "
+                + "id_card = TO_BASE64(AES_ENCRYPT(?, 'test-secret-key-32-chars-long')) WHERE id = ?", processedSql);
         
         System.out.println("UPDATE语句: " + updateSql);
     }
@@ -331,10 +346,11 @@ public class ComplexSqlEncryptTest {
     void testDeleteStatement() {
         // 测试DELETE语句
         String deleteSql = "DELETE FROM user WHERE phone = ? AND email = ?";
-        String processedSql = dbEncryptStatementVisitor.processSql(deleteSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(deleteSql);
+        String processedSql = result.getSql();
         
         // DELETE语句的WHERE条件需要加密
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("DELETE语句原始SQL: " + deleteSql);
@@ -349,9 +365,10 @@ public class ComplexSqlEncryptTest {
                 "FROM user " +
                 "WHERE phone = ?";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(insertSelectSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(insertSelectSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("INSERT INTO SELECT原始SQL: " + insertSelectSql);
@@ -367,9 +384,10 @@ public class ComplexSqlEncryptTest {
                 "WHERE u.id = o.user_id " +
                 "AND o.customer_phone = ?";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(updateJoinSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(updateJoinSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("UPDATE JOIN原始SQL: " + updateJoinSql);
@@ -385,9 +403,10 @@ public class ComplexSqlEncryptTest {
                 "WHERE o.customer_phone = ? " +
                 "AND u.phone = ?";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(deleteJoinSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(deleteJoinSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("DELETE JOIN原始SQL: " + deleteJoinSql);
@@ -413,9 +432,10 @@ public class ComplexSqlEncryptTest {
                 "AND o.customer_phone = ? " +
                 "AND p.card_number = ?";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(threeTableJoinSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(threeTableJoinSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("三表关联查询原始SQL: " + threeTableJoinSql);
@@ -433,9 +453,10 @@ public class ComplexSqlEncryptTest {
                 "GROUP BY SUBSTRING(phone, 1, 3) " +
                 "HAVING COUNT(*) > 1";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(groupBySql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(groupBySql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("GROUP BY HAVING原始SQL: " + groupBySql);
@@ -455,9 +476,10 @@ public class ComplexSqlEncryptTest {
                 "WHERE u1.phone = ? AND u2.phone = ? " +
                 "AND u1.id != u2.id";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(crossJoinSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(crossJoinSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("交叉连接查询原始SQL: " + crossJoinSql);
@@ -477,9 +499,10 @@ public class ComplexSqlEncryptTest {
                 "FROM user u " +
                 "WHERE u.phone = ?";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(multipleSubQuerySql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(multipleSubQuerySql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("多子查询SELECT原始SQL: " + multipleSubQuerySql);
@@ -507,9 +530,10 @@ public class ComplexSqlEncryptTest {
                 "FROM user_orders uo " +
                 "LEFT JOIN high_value_orders hvo ON uo.id = hvo.user_id";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(withClauseSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(withClauseSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("WITH子句查询原始SQL: " + withClauseSql);
@@ -524,11 +548,12 @@ public class ComplexSqlEncryptTest {
                 "(?, ?, ?, ?, ?), " +
                 "(?, ?, ?, ?, ?)";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(complexInsertSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(complexInsertSql);
+        String processedSql = result.getSql();
         
-        // INSERT语句通常不需要修改，因为参数会在应用层加密
-        assertFalse(dbEncryptStatementVisitor.hasChanges());
-        assertEquals(complexInsertSql, processedSql);
+        // 每一行的三个加密列都改为加密表达式
+        assertTrue(result.isChanged());
+        assertEquals(9, processedSql.split("AES_ENCRYPT\\(\\?", -1).length - 1);
         
         System.out.println("复杂INSERT语句: " + complexInsertSql);
     }
@@ -551,9 +576,10 @@ public class ComplexSqlEncryptTest {
                 "    AND customer_phone = ?" +
                 ")";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(updateSubQuerySql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(updateSubQuerySql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("UPDATE子查询原始SQL: " + updateSubQuerySql);
@@ -570,9 +596,10 @@ public class ComplexSqlEncryptTest {
                 "AND o.customer_phone = ? " +
                 "AND o.amount < 100";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(multiTableDeleteSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(multiTableDeleteSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("多表DELETE原始SQL: " + multiTableDeleteSql);
@@ -592,9 +619,10 @@ public class ComplexSqlEncryptTest {
                 "WHERE u.phone = ? " +
                 "AND JSON_CONTAINS(JSON_OBJECT('phone', u.phone), JSON_OBJECT('phone', ?))";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(jsonFunctionSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(jsonFunctionSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("JSON函数查询原始SQL: " + jsonFunctionSql);
@@ -616,9 +644,10 @@ public class ComplexSqlEncryptTest {
                 "AND u.email LIKE ? " +
                 "AND LENGTH(u.phone) = 11";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(stringFunctionSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(stringFunctionSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("字符串函数查询原始SQL: " + stringFunctionSql);
@@ -638,9 +667,10 @@ public class ComplexSqlEncryptTest {
                 "WHERE u.phone = ? " +
                 "AND u.create_time BETWEEN DATE_SUB(NOW(), INTERVAL 30 DAY) AND NOW()";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(dateFunctionSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(dateFunctionSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("日期函数查询原始SQL: " + dateFunctionSql);
@@ -660,9 +690,10 @@ public class ComplexSqlEncryptTest {
                 "WHERE u.phone = ? " +
                 "AND CAST(SUBSTRING(u.phone, 1, 3) AS DECIMAL) > 100";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(mathFunctionSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(mathFunctionSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("数学函数查询原始SQL: " + mathFunctionSql);
@@ -688,9 +719,10 @@ public class ComplexSqlEncryptTest {
                 "AND (u.phone LIKE '138%' OR u.phone LIKE '139%') " +
                 "AND u.email IS NOT NULL";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(conditionalLogicSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(conditionalLogicSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("条件逻辑查询原始SQL: " + conditionalLogicSql);
@@ -712,9 +744,10 @@ public class ComplexSqlEncryptTest {
                 "WHERE u.phone = ? " +
                 "ORDER BY u.username";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(analyticalFunctionSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(analyticalFunctionSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("分析函数查询原始SQL: " + analyticalFunctionSql);
@@ -737,9 +770,10 @@ public class ComplexSqlEncryptTest {
                 ") " +
                 "SELECT * FROM user_hierarchy";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(recursiveCTESql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(recursiveCTESql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("递归CTE查询原始SQL: " + recursiveCTESql);
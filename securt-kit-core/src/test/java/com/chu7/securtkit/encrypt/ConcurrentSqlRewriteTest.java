@@ -0,0 +1,105 @@
+package com.chu7.securtkit.encrypt;
+
+import com.chu7.securtkit.encrypt.config.TestConfig;
+import com.chu7.securtkit.encrypt.visitor.DbEncryptStatementVisitor;
+import com.chu7.securtkit.encrypt.visitor.RewriteResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 并发SQL改写测试类
+ * 验证单例访问者在多线程下改写结果与串行一致
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+    "securt-kit.encrypt.enabled=true",
+    "securt-kit.encrypt.patternType=DB",
+    "securt-kit.encrypt.key=test-secret-key-32-chars-long"
+})
+@Import(TestConfig.class)
+public class ConcurrentSqlRewriteTest {
+
+    private static final String[] SQLS = {
+        "SELECT id, username, phone, email FROM user WHERE id = ?",
+        "SELECT * FROM user WHERE phone = ? AND email = ?",
+        "SELECT id, customer_name, customer_phone FROM orders WHERE customer_phone = ?",
+        "DELETE FROM user WHERE phone = ?",
+        "SELECT * FROM product WHERE id = ?",
+        "SELECT id, username FROM user WHERE id = ?",
+        "INSERT INTO user (username, phone) VALUES (?, ?)"
+    };
+
+    @Autowired
+    private DbEncryptStatementVisitor dbEncryptStatementVisitor;
+
+    @Test
+    void testRewriteResult() {
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(SQLS[1]);
+        assertTrue(result.isChanged());
+        assertTrue(result.getSql().contains("phone = TO_BASE64(AES_ENCRYPT(?, 'test-secret-key-32-chars-long'))"));
+        assertTrue(result.getTouchedColumns().contains("phone"));
+        assertTrue(result.getTouchedColumns().contains("email"));
+        assertThrows(UnsupportedOperationException.class, () -> result.getTouchedColumns().add("id_card"));
+
+        RewriteResult unchanged = dbEncryptStatementVisitor.rewrite(SQLS[4]);
+        assertFalse(unchanged.isChanged());
+        assertSame(SQLS[4], unchanged.getSql());
+        assertTrue(unchanged.getTouchedColumns().isEmpty());
+    }
+
+    @Test
+    void testConcurrentRewriteMatchesSerial() throws Exception {
+        RewriteResult[] expected = new RewriteResult[SQLS.length];
+        for (int i = 0; i < SQLS.length; i++) {
+            expected[i] = dbEncryptStatementVisitor.rewrite(SQLS[i]);
+        }
+
+        int threads = 8;
+        int iterations = 5000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int offset = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    int mismatches = 0;
+                    for (int i = 0; i < iterations; i++) {
+                        int index = (i + offset) % SQLS.length;
+                        RewriteResult result = dbEncryptStatementVisitor.rewrite(SQLS[index]);
+                        if (result.isChanged() != expected[index].isChanged()
+                                || !result.getSql().equals(expected[index].getSql())
+                                || !result.getTouchedColumns().equals(expected[index].getTouchedColumns())) {
+                            mismatches++;
+                        }
+                    }
+                    return mismatches;
+                }));
+            }
+            start.countDown();
+            for (Future<Integer> future : futures) {
+                assertEquals(0, future.get().intValue());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
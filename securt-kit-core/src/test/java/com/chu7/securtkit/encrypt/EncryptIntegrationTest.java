@@ -6,12 +6,19 @@ import com.chu7.securtkit.encrypt.config.EncryptProperties;
 import com.chu7.securtkit.encrypt.core.EncryptContext;
 import com.chu7.securtkit.encrypt.entity.UserEntity;
 import com.chu7.securtkit.encrypt.entity.OrderEntity;
+import com.chu7.securtkit.encrypt.handler.EncryptTypeHandler;
 import com.chu7.securtkit.encrypt.strategy.AesEncryptStrategy;
 import com.chu7.securtkit.encrypt.strategy.DesEncryptStrategy;
+import com.chu7.securtkit.encrypt.strategy.EncryptStrategy;
 import com.chu7.securtkit.encrypt.strategy.KeyManager;
 import com.chu7.securtkit.encrypt.util.EncryptUtil;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -21,6 +28,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.context.annotation.Import;
 import com.chu7.securtkit.encrypt.config.TestConfig;
 
@@ -815,4 +823,125 @@ public class EncryptIntegrationTest {
         String decryptedPhone = disabledContext.decrypt(encryptedPhone);
         assertEquals(originalPhone, decryptedPhone);
     }
-} 
\ No newline at end of file
+    
+    @Test
+    void testBinaryTypeHandlerWithVarbinaryColumn() throws Exception {
+        // 测试二进制模式的类型处理器直接读写VARBINARY列
+        EncryptTypeHandler handler = new EncryptTypeHandler("AES", true, true);
+        ReflectionTestUtils.setField(handler, "encryptUtil", encryptUtil);
+        
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:binary_handler_test")) {
+            connection.createStatement().execute("CREATE TABLE secret_data (id INT PRIMARY KEY, phone VARBINARY(64))");
+            
+            try (PreparedStatement ps = connection.prepareStatement("INSERT INTO secret_data (id, phone) VALUES (1, ?)")) {
+                handler.setParameter(ps, 1, "13800138000", null);
+                ps.executeUpdate();
+            }
+            
+            try (ResultSet rs = connection.createStatement().executeQuery("SELECT phone FROM secret_data WHERE id = 1")) {
+                assertTrue(rs.next());
+                // 库中保存的是原始密文字节
+                assertArrayEquals(encryptUtil.encryptToBytes("13800138000", "AES"), rs.getBytes("phone"));
+                assertEquals("13800138000", handler.getResult(rs, "phone"));
+            }
+        }
+    }
+    
+    @Test
+    void testBinaryTypeHandlerRoundTripsPlaintextFallback() throws Exception {
+        // 未注册的算法回退为明文字节，读取时按同样的方式还原
+        EncryptTypeHandler handler = new EncryptTypeHandler("SM4", true, true);
+        ReflectionTestUtils.setField(handler, "encryptUtil", encryptUtil);
+        
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:binary_fallback_test")) {
+            connection.createStatement().execute("CREATE TABLE secret_data (id INT PRIMARY KEY, phone VARBINARY(64))");
+            
+            try (PreparedStatement ps = connection.prepareStatement("INSERT INTO secret_data (id, phone) VALUES (1, ?)")) {
+                handler.setParameter(ps, 1, "13800138000", null);
+                ps.executeUpdate();
+            }
+            
+            try (ResultSet rs = connection.createStatement().executeQuery("SELECT phone FROM secret_data WHERE id = 1")) {
+                assertTrue(rs.next());
+                assertEquals("13800138000", handler.getResult(rs, "phone"));
+            }
+        }
+        
+        // 只实现字符串接口且加密失败回退为明文的策略，默认字节接口不能把明文当作Base64解码
+        EncryptStrategy fallbackStrategy = new EncryptStrategy() {
+            @Override
+            public String encrypt(String plainText, String key) {
+                return plainText;
+            }
+            
+            @Override
+            public String decrypt(String cipherText, String key) {
+                return cipherText;
+            }
+            
+            @Override
+            public String getAlgorithm() {
+                return "FALLBACK";
+            }
+            
+            @Override
+            public boolean supports(String algorithm) {
+                return "FALLBACK".equals(algorithm);
+            }
+        };
+        byte[] plainBytes = "13800138000".getBytes(StandardCharsets.UTF_8);
+        byte[] cipherBytes = fallbackStrategy.encrypt(plainBytes, "key");
+        assertArrayEquals(plainBytes, fallbackStrategy.decrypt(cipherBytes, "key"));
+    }
+    
+    @Test
+    void testBatchDecryptAll() {
+        // 测试批量加解密接口
+        List<String> plainTexts = Arrays.asList("13800138001", null, "", "zhangsan@example.com");
+        
+        List<String> encrypted = encryptUtil.encryptAll(plainTexts, "AES");
+        assertEquals(4, encrypted.size());
+        assertEquals(encryptUtil.encrypt("13800138001", "AES"), encrypted.get(0));
+        assertNull(encrypted.get(1));
+        assertEquals("", encrypted.get(2));
+        
+        assertEquals(plainTexts, encryptUtil.decryptAll(encrypted, "AES"));
+        
+        // 按列原地解密，非法密文保留原值
+        String[] column = {encrypted.get(0), "invalid-cipher-text", encrypted.get(3)};
+        encryptUtil.decryptAll(column, "AES");
+        assertArrayEquals(new String[]{"13800138001", "invalid-cipher-text", "zhangsan@example.com"}, column);
+    }
+    
+    @Test
+    void testDecryptObjectsInBatch() {
+        // 测试结果集合按算法分组批量解密
+        List<Object> results = new ArrayList<>();
+        for (int i = 1; i <= 50; i++) {
+            UserEntity user = createTestUser((long) i, "用户" + i, "1380013" + String.format("%04d", i),
+                    "user" + i + "@example.com", "11010119900101" + String.format("%04d", i));
+            encryptUtil.encryptObject(user, "user");
+            results.add(user);
+            
+            OrderEntity order = createTestOrder((long) i, "ORD" + i, (long) i, "客户" + i,
+                    "1390013" + String.format("%04d", i), "order" + i + "@example.com", "地址" + i);
+            encryptUtil.encryptObject(order, "orders");
+            results.add(order);
+        }
+        
+        encryptUtil.decryptObjects(results);
+        
+        for (int i = 1; i <= 50; i++) {
+            UserEntity user = (UserEntity) results.get((i - 1) * 2);
+            assertEquals("1380013" + String.format("%04d", i), user.getPhone());
+            assertEquals("user" + i + "@example.com", user.getEmail());
+            assertEquals("11010119900101" + String.format("%04d", i), user.getIdCard());
+            assertEquals("用户" + i, user.getUsername());
+            
+            OrderEntity order = (OrderEntity) results.get((i - 1) * 2 + 1);
+            assertEquals("客户" + i, order.getCustomerName());
+            assertEquals("1390013" + String.format("%04d", i), order.getCustomerPhone());
+            assertEquals("地址" + i, order.getDeliveryAddress());
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.chu7.securtkit.encrypt;
+
+import com.chu7.securtkit.encrypt.annotation.EncryptField;
+import com.chu7.securtkit.encrypt.cache.EncryptEntityIndex;
+import com.chu7.securtkit.encrypt.cache.EncryptMetadataCache;
+import com.chu7.securtkit.encrypt.cache.TableFieldCache;
+import com.chu7.securtkit.encrypt.core.EncryptFieldMetadata;
+import com.chu7.securtkit.encrypt.core.EntityEncryptMetadata;
+import com.chu7.securtkit.encrypt.core.EntityEncryptor;
+import com.chu7.securtkit.encrypt.core.FieldAccessor;
+import com.chu7.securtkit.encrypt.core.FieldAccessorFactory;
+import com.chu7.securtkit.encrypt.entity.UserEntity;
+import com.chu7.securtkit.encrypt.strategy.AesEncryptStrategy;
+import com.chu7.securtkit.encrypt.strategy.DesEncryptStrategy;
+import com.chu7.securtkit.encrypt.strategy.EncryptStrategyRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 实体加密元数据缓存测试类
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+public class EncryptMetadataCacheTest {
+
+    private final AesEncryptStrategy aesEncryptStrategy = new AesEncryptStrategy();
+
+    private final DesEncryptStrategy desEncryptStrategy = new DesEncryptStrategy();
+
+    private final EncryptMetadataCache metadataCache = new EncryptMetadataCache(
+            new EncryptStrategyRegistry(Arrays.asList(aesEncryptStrategy, desEncryptStrategy)));
+
+    @Test
+    void testMetadataIncludesInheritedFields() {
+        EntityEncryptMetadata metadata = metadataCache.getMetadata(ChildEntity.class);
+        List<EncryptFieldMetadata> fields = metadata.getFields();
+
+        // 父类字段在前，未启用加密的字段和普通字段被跳过
+        assertEquals(2, fields.size());
+        assertEquals("phone", fields.get(0).getName());
+        assertEquals("email", fields.get(1).getName());
+        assertSame(aesEncryptStrategy, fields.get(0).getStrategy());
+        assertSame(desEncryptStrategy, fields.get(1).getStrategy());
+
+        ChildEntity entity = new ChildEntity();
+        fields.get(0).set(entity, "13800138000");
+        assertEquals("13800138000", fields.get(0).get(entity));
+    }
+
+    @Test
+    void testMetadataIsCachedPerClass() {
+        EntityEncryptMetadata metadata = metadataCache.getMetadata(ChildEntity.class);
+        assertSame(metadata, metadataCache.getMetadata(ChildEntity.class));
+
+        assertTrue(metadataCache.getMetadata(String.class).isEmpty());
+        assertEquals(2, metadataCache.size());
+
+        metadataCache.clearCache();
+        assertEquals(0, metadataCache.size());
+    }
+
+    @Test
+    void testAccessorsForLombokAndPlainEntities() {
+        // 有公共getter/setter的实体
+        UserEntity user = new UserEntity(1L, "zhangsan", "13800138000", "zhangsan@example.com", "110101199001011234", "北京市");
+        for (EncryptFieldMetadata field : metadataCache.getMetadata(UserEntity.class).getFields()) {
+            Object value = field.get(user);
+            field.set(user, value + "-x");
+        }
+        assertEquals("13800138000-x", user.getPhone());
+        assertEquals("zhangsan@example.com-x", user.getEmail());
+        assertEquals("110101199001011234-x", user.getIdCard());
+
+        // 没有访问方法的私有字段
+        ChildEntity child = new ChildEntity();
+        EncryptFieldMetadata email = metadataCache.getMetadata(ChildEntity.class).getFields().get(1);
+        email.set(child, "test@example.com");
+        assertEquals("test@example.com", email.get(child));
+        assertEquals("test@example.com", child.email);
+    }
+
+    @Test
+    void testGeneratedAccessors() throws Exception {
+        Field phone = UserEntity.class.getDeclaredField("phone");
+        phone.setAccessible(true);
+        UserEntity user = new UserEntity();
+
+        FieldAccessor lambda = FieldAccessorFactory.lambda(phone);
+        assertNotNull(lambda);
+        lambda.set(user, "13800138000");
+        assertEquals("13800138000", lambda.get(user));
+
+        FieldAccessor methodHandle = FieldAccessorFactory.methodHandle(phone);
+        assertNotNull(methodHandle);
+        methodHandle.set(user, "13900139000");
+        assertEquals("13900139000", user.getPhone());
+
+        // 没有getter/setter的字段无法生成lambda
+        assertNull(FieldAccessorFactory.lambda(ChildEntity.class.getDeclaredField("email")));
+    }
+
+    @Test
+    void testGeneratedEncryptorPreferred() {
+        // 编译期为UserEntity生成了加密器，不再使用反射字段
+        List<EncryptFieldMetadata> userFields = metadataCache.getMetadata(UserEntity.class).getFields();
+        assertEquals(3, userFields.size());
+        for (EncryptFieldMetadata field : userFields) {
+            assertTrue(field.isGenerated());
+            assertNull(field.getField());
+            assertSame(aesEncryptStrategy, field.getStrategy());
+        }
+
+        // 私有字段且没有访问方法的类退回反射
+        for (EncryptFieldMetadata field : metadataCache.getMetadata(ChildEntity.class).getFields()) {
+            assertFalse(field.isGenerated());
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testGeneratedEncryptorAccessesShadowFields() throws Exception {
+        // 影子列在编译期解析，生成的加密器直接读写影子属性
+        EntityEncryptor<BlindIndexTest.MemberEntity> memberEncryptor = (EntityEncryptor<BlindIndexTest.MemberEntity>)
+                Class.forName(BlindIndexTest.class.getName() + "_MemberEntity_Encryptor").getDeclaredConstructor().newInstance();
+        assertArrayEquals(new String[]{"phone_bidx"}, memberEncryptor.getBlindIndexColumns());
+        assertArrayEquals(new String[]{""}, memberEncryptor.getOrderIndexColumns());
+
+        EncryptFieldMetadata phone = metadataCache.getMetadata(BlindIndexTest.MemberEntity.class).getFields().get(0);
+        assertTrue(phone.isGenerated());
+        assertEquals("phone_bidx", phone.getBlindIndex());
+        assertFalse(phone.hasOrderIndex());
+        BlindIndexTest.MemberEntity member = new BlindIndexTest.MemberEntity();
+        phone.setBlindIndex(member, "bidx");
+        assertEquals("bidx", member.getPhoneBidx());
+        assertEquals("bidx", memberEncryptor.getBlindIndex(member, 0));
+
+        EncryptFieldMetadata age = metadataCache.getMetadata(OrderIndexTest.PersonEntity.class).getFields().get(0);
+        assertTrue(age.isGenerated());
+        assertTrue(age.hasOrderIndex());
+        assertFalse(age.hasBlindIndex());
+        OrderIndexTest.PersonEntity person = new OrderIndexTest.PersonEntity();
+        age.setOrderIndex(person, 42L);
+        assertEquals(42L, person.getAgeOrd());
+    }
+
+    @Test
+    void testEntityIndexLoadedIntoTableFieldCache() {
+        EncryptEntityIndex index = EncryptEntityIndex.load(getClass().getClassLoader());
+        EncryptEntityIndex.Entry entry = index.getEntry(UserEntity.class.getName());
+        assertNotNull(entry);
+        assertEquals("user", entry.getTableName());
+        assertEquals(new LinkedHashSet<>(Arrays.asList("phone", "email", "id_card")), entry.getColumns());
+        assertEquals(UserEntity.class.getName() + "_Encryptor", entry.getEncryptorClassName());
+
+        // 手工配置的表不被索引覆盖
+        TableFieldCache tableFieldCache = new TableFieldCache();
+        tableFieldCache.addTableEncryptFields("user", new LinkedHashSet<>(Arrays.asList("phone")));
+        tableFieldCache.loadIndex(index);
+        assertEquals(1, tableFieldCache.getTableEncryptFields("user").size());
+        assertTrue(tableFieldCache.isFieldEncrypted("order", "customer_phone"));
+        assertEquals("order", tableFieldCache.getTableNameByClassName("com.chu7.securtkit.encrypt.entity.OrderEntity"));
+    }
+
+    @Test
+    void testEntitiesOnSameTableAreMerged() {
+        EncryptEntityIndex index = EncryptEntityIndex.load(getClass().getClassLoader());
+        assertEquals("mergedprofile", index.getEntry(MergedProfileEntity.class.getName()).getTableName());
+        assertEquals("mergedprofile", index.getEntry(MergedProfileDTO.class.getName()).getTableName());
+
+        // 映射到同一张表的实体和DTO合并加密列
+        TableFieldCache tableFieldCache = new TableFieldCache();
+        tableFieldCache.loadIndex(index);
+        assertTrue(tableFieldCache.isFieldEncrypted("mergedprofile", "phone"));
+        assertTrue(tableFieldCache.isFieldEncrypted("mergedprofile", "email"));
+        assertEquals("mergedprofile", tableFieldCache.getTableNameByClassName(MergedProfileDTO.class.getName()));
+    }
+
+    /**
+     * 测试用父类实体
+     */
+    static class BaseEntity {
+
+        @EncryptField
+        private String phone;
+
+        @EncryptField(enabled = false)
+        private String address;
+    }
+
+    /**
+     * 测试用子类实体
+     */
+    static class ChildEntity extends BaseEntity {
+
+        private String name;
+
+        @EncryptField(algorithm = "DES")
+        private String email;
+    }
+
+    /**
+     * 测试用实体，与 {@link MergedProfileDTO} 映射到同一张表
+     */
+    static class MergedProfileEntity {
+
+        @EncryptField
+        private String phone;
+    }
+
+    /**
+     * 测试用DTO，加密列与实体不同
+     */
+    static class MergedProfileDTO {
+
+        @EncryptField
+        private String email;
+    }
+}
@@ -0,0 +1,195 @@
+package com.chu7.securtkit.encrypt;
+
+import com.chu7.securtkit.encrypt.interceptor.EncryptPipelineInterceptor;
+import com.chu7.securtkit.encrypt.interceptor.EncryptStage;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.reflection.SystemMetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 加解密管道拦截器测试类
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+public class EncryptPipelineTest {
+
+    private final List<String> calls = new ArrayList<>();
+
+    private Configuration configuration;
+
+    private Executor target;
+
+    @BeforeEach
+    void setUp() {
+        configuration = new Configuration();
+        target = (Executor) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Executor.class},
+                (proxy, method, args) -> {
+                    if ("update".equals(method.getName())) {
+                        calls.add("target");
+                        if (args[1] instanceof SQLException) {
+                            throw (SQLException) args[1];
+                        }
+                        return 1;
+                    }
+                    return null;
+                });
+    }
+
+    @Test
+    void testSingleProxyLayer() {
+        EncryptPipelineInterceptor pipeline = new EncryptPipelineInterceptor(Arrays.asList(
+                new RecordingStage("param", EncryptStage.PARAMETER_ORDER, null),
+                new RecordingStage("rewrite", EncryptStage.SQL_REWRITE_ORDER, null)));
+
+        Object wrapped = pipeline.plugin(target);
+        assertTrue(wrapped instanceof Executor);
+        assertSame(target, SystemMetaObject.forObject(Proxy.getInvocationHandler(wrapped)).getValue("target"));
+
+        // 没有阶段拦截的对象不代理
+        ParameterHandler parameterHandler = (ParameterHandler) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{ParameterHandler.class}, (proxy, method, args) -> null);
+        assertSame(parameterHandler, pipeline.plugin(parameterHandler));
+    }
+
+    @Test
+    void testStagesRunInOrder() throws Exception {
+        EncryptPipelineInterceptor pipeline = new EncryptPipelineInterceptor(Arrays.asList(
+                new RecordingStage("result", EncryptStage.RESULT_ORDER, null),
+                new RecordingStage("param", EncryptStage.PARAMETER_ORDER, null),
+                new RecordingStage("rewrite", EncryptStage.SQL_REWRITE_ORDER, null)));
+        assertEquals(Arrays.asList("param", "rewrite", "result"), names(pipeline.getStages()));
+
+        Executor executor = (Executor) pipeline.plugin(target);
+        assertEquals(1, executor.update(statement("pipeline.insert", SqlCommandType.INSERT), "p"));
+        assertEquals(Arrays.asList("param>", "rewrite>", "result>", "target", "<result", "<rewrite", "<param"),
+                calls);
+    }
+
+    @Test
+    void testUnsupportedStagesAreSkipped() throws Exception {
+        RecordingStage param = new RecordingStage("param", EncryptStage.PARAMETER_ORDER, SqlCommandType.INSERT);
+        RecordingStage rewrite = new RecordingStage("rewrite", EncryptStage.SQL_REWRITE_ORDER, null);
+        EncryptPipelineInterceptor pipeline = new EncryptPipelineInterceptor(Arrays.asList(param, rewrite));
+        Executor executor = (Executor) pipeline.plugin(target);
+
+        MappedStatement delete = statement("pipeline.delete", SqlCommandType.DELETE);
+        executor.update(delete, "p");
+        executor.update(delete, "p");
+        assertEquals(Arrays.asList("rewrite>", "target", "<rewrite", "rewrite>", "target", "<rewrite"), calls);
+        // 每个语句只判断一次
+        assertEquals(1, param.supportsCalls.get());
+        assertEquals(1, rewrite.supportsCalls.get());
+
+        calls.clear();
+        executor.update(statement("pipeline.insert", SqlCommandType.INSERT), "p");
+        assertEquals(Arrays.asList("param>", "rewrite>", "target", "<rewrite", "<param"), calls);
+
+        pipeline.invalidate();
+        executor.update(delete, "p");
+        assertEquals(3, param.supportsCalls.get());
+    }
+
+    @Test
+    void testTargetExceptionIsUnwrapped() {
+        EncryptPipelineInterceptor pipeline = new EncryptPipelineInterceptor(Arrays.asList(
+                new RecordingStage("param", EncryptStage.PARAMETER_ORDER, null),
+                new RecordingStage("rewrite", EncryptStage.SQL_REWRITE_ORDER, null)));
+        Executor executor = (Executor) pipeline.plugin(target);
+
+        SQLException exception = new SQLException("failed");
+        SQLException thrown = assertThrows(SQLException.class,
+                () -> executor.update(statement("pipeline.insert", SqlCommandType.INSERT), exception));
+        assertSame(exception, thrown);
+        assertEquals(Arrays.asList("param>", "rewrite>", "target"), calls);
+    }
+
+    @Test
+    void testStageWithoutInterceptsIsRejected() {
+        EncryptStage stage = new EncryptStage() {
+            @Override
+            public int getOrder() {
+                return PARAMETER_ORDER;
+            }
+
+            @Override
+            public Object intercept(Invocation invocation) throws Throwable {
+                return invocation.proceed();
+            }
+        };
+        assertThrows(IllegalStateException.class, () -> new EncryptPipelineInterceptor(Arrays.asList(stage)));
+    }
+
+    private MappedStatement statement(String id, SqlCommandType commandType) {
+        return new MappedStatement.Builder(configuration, id,
+                new StaticSqlSource(configuration, "UPDATE t SET a = 1"), commandType).build();
+    }
+
+    private static List<String> names(List<EncryptStage> stages) {
+        List<String> names = new ArrayList<>();
+        for (EncryptStage stage : stages) {
+            names.add(((RecordingStage) stage).name);
+        }
+        return names;
+    }
+
+    /**
+     * 记录调用顺序的处理阶段
+     */
+    @Intercepts({
+        @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class})
+    })
+    private class RecordingStage implements EncryptStage {
+
+        private final String name;
+
+        private final int order;
+
+        private final SqlCommandType supported;
+
+        private final AtomicInteger supportsCalls = new AtomicInteger();
+
+        private RecordingStage(String name, int order, SqlCommandType supported) {
+            this.name = name;
+            this.order = order;
+            this.supported = supported;
+        }
+
+        @Override
+        public int getOrder() {
+            return order;
+        }
+
+        @Override
+        public boolean supports(MappedStatement mappedStatement) {
+            supportsCalls.incrementAndGet();
+            return supported == null || supported == mappedStatement.getSqlCommandType();
+        }
+
+        @Override
+        public Object intercept(Invocation invocation) throws Throwable {
+            calls.add(name + ">");
+            Object result = invocation.proceed();
+            calls.add("<" + name);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.chu7.securtkit.encrypt;
+
+import com.chu7.securtkit.encrypt.annotation.EncryptField;
+import com.chu7.securtkit.encrypt.strategy.AesEncryptStrategy;
+import com.chu7.securtkit.encrypt.strategy.DesEncryptStrategy;
+import com.chu7.securtkit.encrypt.strategy.EncryptStrategy;
+import com.chu7.securtkit.encrypt.strategy.EncryptStrategyRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 加密策略注册表测试类
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+public class EncryptStrategyRegistryTest {
+
+    private final AesEncryptStrategy aesEncryptStrategy = new AesEncryptStrategy();
+
+    private final DesEncryptStrategy desEncryptStrategy = new DesEncryptStrategy();
+
+    private final EncryptStrategyRegistry registry =
+            new EncryptStrategyRegistry(Arrays.asList(aesEncryptStrategy, desEncryptStrategy));
+
+    @Test
+    void testLookupByAlgorithm() {
+        assertSame(aesEncryptStrategy, registry.getStrategy("AES"));
+        assertSame(aesEncryptStrategy, registry.getStrategy(" aes "));
+        assertSame(desEncryptStrategy, registry.getStrategy("des"));
+
+        // 未指定算法时使用默认算法
+        assertSame(aesEncryptStrategy, registry.getStrategy((String) null));
+        assertSame(aesEncryptStrategy, registry.getStrategy(""));
+
+        assertNull(registry.getStrategy("SM4"));
+    }
+
+    @Test
+    void testSupportsReceivesOriginalAlgorithm() {
+        // 只识别小写别名的策略：supports() 收到的是调用方给出的原始名称
+        EncryptStrategy aliasStrategy = new ReverseEncryptStrategy() {
+            @Override
+            public boolean supports(String algorithm) {
+                return "sm4-cbc".equals(algorithm);
+            }
+        };
+        EncryptStrategyRegistry aliasRegistry = new EncryptStrategyRegistry(Arrays.asList(aesEncryptStrategy, aliasStrategy));
+
+        assertSame(aliasStrategy, aliasRegistry.getStrategy("sm4-cbc"));
+        assertSame(aliasStrategy, aliasRegistry.getStrategy("sm4-cbc"));
+        assertNull(new EncryptStrategyRegistry(Arrays.asList(aesEncryptStrategy, aliasStrategy)).getStrategy("SM4-CBC"));
+    }
+
+    @Test
+    void testResolveFieldStrategy() throws Exception {
+        Field phone = SampleEntity.class.getDeclaredField("phone");
+        Field idCard = SampleEntity.class.getDeclaredField("idCard");
+        Field remark = SampleEntity.class.getDeclaredField("remark");
+        Field custom = SampleEntity.class.getDeclaredField("custom");
+
+        assertSame(aesEncryptStrategy, registry.resolve(phone));
+        assertSame(desEncryptStrategy, registry.resolve(idCard));
+
+        // 指定了已注册的策略类型时按类型绑定，忽略algorithm
+        assertSame(desEncryptStrategy, registry.resolve(remark));
+
+        // 未注册为Bean的自定义策略只实例化一次
+        EncryptStrategy customStrategy = registry.resolve(custom);
+        assertTrue(customStrategy instanceof ReverseEncryptStrategy);
+        assertSame(customStrategy, registry.resolve(custom));
+        assertEquals("cba", customStrategy.encrypt("abc", null));
+    }
+
+    /**
+     * 测试用实体
+     */
+    static class SampleEntity {
+
+        @EncryptField
+        private String phone;
+
+        @EncryptField(algorithm = "DES")
+        private String idCard;
+
+        @EncryptField(algorithm = "AES", strategy = DesEncryptStrategy.class)
+        private String remark;
+
+        @EncryptField(strategy = ReverseEncryptStrategy.class)
+        private String custom;
+    }
+
+    /**
+     * 测试用自定义策略：字符串反转
+     */
+    public static class ReverseEncryptStrategy implements EncryptStrategy {
+
+        @Override
+        public String encrypt(String plainText, String key) {
+            return new StringBuilder(plainText).reverse().toString();
+        }
+
+        @Override
+        public String decrypt(String cipherText, String key) {
+            return new StringBuilder(cipherText).reverse().toString();
+        }
+
+        @Override
+        public String getAlgorithm() {
+            return "REVERSE";
+        }
+
+        @Override
+        public boolean supports(String algorithm) {
+            return "REVERSE".equalsIgnoreCase(algorithm);
+        }
+    }
+}
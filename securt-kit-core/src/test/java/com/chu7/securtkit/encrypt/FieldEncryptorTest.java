@@ -5,7 +5,7 @@ import com.chu7.securtkit.encrypt.config.EncryptProperties;
 import com.chu7.securtkit.encrypt.entity.UserEntity;
 import com.chu7.securtkit.encrypt.strategy.AesEncryptStrategy;
 import com.chu7.securtkit.encrypt.visitor.DbEncryptStatementVisitor;
-import org.junit.jupiter.api.BeforeEach;
+import com.chu7.securtkit.encrypt.visitor.RewriteResult;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -47,12 +47,6 @@ public class FieldEncryptorTest {
     @Autowired
     private EncryptProperties encryptProperties;
     
-    @BeforeEach
-    void setUp() {
-        // 重置访问者状态
-        dbEncryptStatementVisitor.reset();
-    }
-    
     @Test
     void testTableFieldCache() {
         // 测试表字段缓存
@@ -91,9 +85,10 @@ public class FieldEncryptorTest {
         
         // 测试SELECT语句
         String selectSql = "SELECT phone, email, username FROM user WHERE phone = ?";
-        String processedSql = dbEncryptStatementVisitor.processSql(selectSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(selectSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         assertNotEquals(selectSql, processedSql);
         
@@ -113,9 +108,10 @@ public class FieldEncryptorTest {
     void testDbEncryptStatementVisitorWithAlias() {
         // 测试带别名的SQL
         String selectSqlWithAlias = "SELECT u.phone, u.email, u.username FROM user u WHERE u.phone = ?";
-        String processedSql = dbEncryptStatementVisitor.processSql(selectSqlWithAlias);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(selectSqlWithAlias);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("带别名原始SQL: " + selectSqlWithAlias);
@@ -126,9 +122,10 @@ public class FieldEncryptorTest {
     void testDbEncryptStatementVisitorComplexQuery() {
         // 测试复杂查询
         String complexSql = "SELECT phone, email, username FROM user WHERE phone = ? AND email = ? ORDER BY username";
-        String processedSql = dbEncryptStatementVisitor.processSql(complexSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(complexSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("复杂查询原始SQL: " + complexSql);
@@ -139,9 +136,10 @@ public class FieldEncryptorTest {
     void testDbEncryptStatementVisitorNoEncryptFields() {
         // 测试不包含加密字段的SQL
         String noEncryptSql = "SELECT username, address FROM user WHERE username = ?";
-        String processedSql = dbEncryptStatementVisitor.processSql(noEncryptSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(noEncryptSql);
+        String processedSql = result.getSql();
         
-        assertFalse(dbEncryptStatementVisitor.hasChanges());
+        assertFalse(result.isChanged());
         assertEquals(noEncryptSql, processedSql);
     }
     
@@ -154,9 +152,10 @@ public class FieldEncryptorTest {
                 "WHERE u.phone = ? AND o.customer_phone = ? " +
                 "ORDER BY u.username, o.order_no";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(complexJoinSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(complexJoinSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         // 验证SELECT字段被正确解密
@@ -179,9 +178,10 @@ public class FieldEncryptorTest {
                 "WHERE u.id IN (SELECT user_id FROM orders WHERE customer_phone = ?) " +
                 "AND u.phone = ?";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(subQuerySql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(subQuerySql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("子查询原始SQL: " + subQuerySql);
@@ -195,9 +195,10 @@ public class FieldEncryptorTest {
                 "UNION " +
                 "SELECT customer_phone, customer_email, customer_name FROM orders WHERE customer_phone = ?";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(unionSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(unionSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("UNION查询原始SQL: " + unionSql);
@@ -208,11 +209,15 @@ public class FieldEncryptorTest {
     void testInsertStatementWithEncryptFields() {
         // 测试INSERT语句
         String insertSql = "INSERT INTO user (username, phone, email, id_card, address) VALUES (?, ?, ?, ?, ?)";
-        String processedSql = dbEncryptStatementVisitor.processSql(insertSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(insertSql);
+        String processedSql = result.getSql();
         
-        // INSERT语句通常不需要修改，因为参数会在应用层加密
-        assertFalse(dbEncryptStatementVisitor.hasChanges());
-        assertEquals(insertSql, processedSql);
+        // 写入加密列的参数在数据库端加密
+        assertTrue(result.isChanged());
+        assertEquals("INSERT INTO user (username, phone, email, id_card, address) VALUES (?, "
+                + "TO_BASE64(AES_ENCRYPT(?, 'test-secret-key-16-chars')), "
+                + "TO_BASE64(AES_ENCRYPT(?, 'test-secret-key-16-chars')), "
+                + "TO_BASE64(AES_ENCRYPT(?, 'test-secret-key-16-chars')), ?)", processedSql);
         
         System.out.println("INSERT语句: " + insertSql);
     }
@@ -221,11 +226,14 @@ public class FieldEncryptorTest {
     void testUpdateStatementWithEncryptFields() {
         // 测试UPDATE语句
         String updateSql = "UPDATE user SET phone = ?, email = ?, id_card = ? WHERE id = ?";
-        String processedSql = dbEncryptStatementVisitor.processSql(updateSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(updateSql);
+        String processedSql = result.getSql();
         
-        // UPDATE语句通常不需要修改，因为参数会在应用层加密
-        assertFalse(dbEncryptStatementVisitor.hasChanges());
-        assertEquals(updateSql, processedSql);
+        // 写入加密列的参数在数据库端加密
+        assertTrue(result.isChanged());
+        assertEquals("UPDATE user SET phone = TO_BASE64(AES_ENCRYPT(?, 'test-secret-key-16-chars')), "
+                + "email = TO_BASE64(AES_ENCRYPT(?, 'test-secret-key-16-chars')), "
+                + "id_card = TO_BASE64(AES_ENCRYPT(?, 'test-secret-key-16-chars')) WHERE id = ?", processedSql);
         
         System.out.println("UPDATE语句: " + updateSql);
     }
@@ -234,10 +242,11 @@ public class FieldEncryptorTest {
     void testDeleteStatementWithEncryptFields() {
         // 测试DELETE语句
         String deleteSql = "DELETE FROM user WHERE phone = ? AND email = ?";
-        String processedSql = dbEncryptStatementVisitor.processSql(deleteSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(deleteSql);
+        String processedSql = result.getSql();
         
         // DELETE语句的WHERE条件需要加密
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("DELETE语句原始SQL: " + deleteSql);
@@ -258,9 +267,10 @@ public class FieldEncryptorTest {
                 ") " +
                 "AND u.phone = ?";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(nestedSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(nestedSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("复杂嵌套查询原始SQL: " + nestedSql);
@@ -276,9 +286,10 @@ public class FieldEncryptorTest {
                 "FROM user " +
                 "WHERE phone LIKE ? AND email LIKE ?";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(aggregateSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(aggregateSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("聚合查询原始SQL: " + aggregateSql);
@@ -293,9 +304,10 @@ public class FieldEncryptorTest {
                 "FROM user " +
                 "WHERE phone = ?";
         
-        String processedSql = dbEncryptStatementVisitor.processSql(windowSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(windowSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("窗口函数查询原始SQL: " + windowSql);
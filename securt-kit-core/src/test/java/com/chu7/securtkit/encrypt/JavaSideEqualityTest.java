@@ -0,0 +1,291 @@
+package com.chu7.securtkit.encrypt;
+
+import com.chu7.securtkit.encrypt.config.TestConfig;
+import com.chu7.securtkit.encrypt.handler.CiphertextParameterTypeHandler;
+import com.chu7.securtkit.encrypt.interceptor.DbFieldEncryptorInterceptor;
+import com.chu7.securtkit.encrypt.interceptor.EncryptPipelineInterceptor;
+import com.chu7.securtkit.encrypt.strategy.EncryptStrategy;
+import com.chu7.securtkit.encrypt.strategy.MySqlAesEncryptStrategy;
+import com.chu7.securtkit.encrypt.visitor.DbEncryptStatementVisitor;
+import com.chu7.securtkit.encrypt.visitor.RewriteResult;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.scripting.defaults.DefaultParameterHandler;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.apache.ibatis.type.JdbcType;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Java端等值加密测试类
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+    "securt-kit.encrypt.enabled=true",
+    "securt-kit.encrypt.patternType=DB",
+    "securt-kit.encrypt.key=test-secret-key-32-chars-long",
+    "securt-kit.encrypt.javaSideEquality=true"
+})
+@Import(TestConfig.class)
+public class JavaSideEqualityTest {
+
+    private static final String KEY = "test-secret-key-32-chars-long";
+
+    private static final String SQL = "SELECT id FROM orders WHERE customer_phone = ?";
+
+    @Autowired
+    private DbEncryptStatementVisitor dbEncryptStatementVisitor;
+
+    @Autowired
+    private DbFieldEncryptorInterceptor dbFieldEncryptorInterceptor;
+
+    @Autowired
+    private MySqlAesEncryptStrategy mySqlAesEncryptStrategy;
+
+    @Autowired
+    private EncryptPipelineInterceptor encryptPipelineInterceptor;
+
+    @Test
+    void testMySqlCompatibleCiphertext() throws Exception {
+        // 16字节密钥折叠后不变，结果应与标准AES-128-ECB一致
+        String key = "0123456789abcdef";
+        Cipher cipher = Cipher.getInstance("AES/ECB/PKCS5Padding");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), "AES"));
+        String expected = Base64.getEncoder().encodeToString(cipher.doFinal("13800138000".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(expected, mySqlAesEncryptStrategy.encrypt("13800138000", key));
+
+        // 超过16字节的密钥循环异或折叠
+        assertEquals(mySqlAesEncryptStrategy.encrypt("13800138000", "0123456789abcdef0123456789abcdef"),
+                mySqlAesEncryptStrategy.encrypt("13800138000", new String(new char[16])));
+
+        // TO_BASE64 每76个字符换行
+        String longCipher = mySqlAesEncryptStrategy.encrypt(new String(new char[100]).replace('\0', 'a'), KEY);
+        assertEquals('\n', longCipher.charAt(76));
+        assertEquals(new String(new char[100]).replace('\0', 'a'), mySqlAesEncryptStrategy.decrypt(longCipher, KEY));
+
+        // 空字符串与 AES_ENCRYPT('', key) 一样加密为一个填充分组
+        String expectedEmpty = Base64.getEncoder().encodeToString(cipher.doFinal(new byte[0]));
+        assertEquals(24, expectedEmpty.length());
+        assertEquals(expectedEmpty, mySqlAesEncryptStrategy.encrypt("", key));
+        assertEquals("", mySqlAesEncryptStrategy.decrypt(expectedEmpty, key));
+        assertArrayEquals(cipher.doFinal(new byte[0]), mySqlAesEncryptStrategy.encrypt(new byte[0], key));
+    }
+
+    @Test
+    void testRewriteWithoutDatabaseEncryption() {
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(
+                "SELECT id FROM orders WHERE customer_phone = ? AND customer_email IN ('a@b.com', ?)");
+
+        assertTrue(result.isChanged());
+        assertEquals("SELECT id FROM orders WHERE customer_phone = ? AND customer_email IN ('"
+                + mySqlAesEncryptStrategy.encrypt("a@b.com", KEY) + "', ?)", result.getSql());
+        assertFalse(result.getSql().contains("AES_ENCRYPT"));
+        assertArrayEquals(new int[]{0, 1}, result.getEncryptSlots());
+        assertEquals(0, result.getKeySlots().length);
+
+        // 非等值条件仍在数据库端解密
+        RewriteResult like = dbEncryptStatementVisitor.rewrite("SELECT id FROM orders WHERE customer_phone LIKE ?");
+        assertTrue(like.getSql().contains("AES_DECRYPT"));
+        assertEquals(0, like.getEncryptSlots().length);
+    }
+
+    @Test
+    void testLookupUsesIndex() throws Throwable {
+        String url = "jdbc:h2:mem:java_side_equality;MODE=MySQL;DB_CLOSE_DELAY=-1";
+        try (Connection connection = DriverManager.getConnection(url, "sa", "")) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE orders (id BIGINT PRIMARY KEY, customer_name VARCHAR(64), "
+                        + "customer_phone VARCHAR(255))");
+                statement.execute("CREATE INDEX idx_orders_customer_phone ON orders(customer_phone)");
+            }
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO orders VALUES (?, ?, ?)")) {
+                for (int i = 0; i < 100; i++) {
+                    insert.setLong(1, i);
+                    insert.setString(2, "customer" + i);
+                    insert.setString(3, mySqlAesEncryptStrategy.encrypt("1380013" + String.format("%04d", i), KEY));
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+
+            Configuration configuration = new Configuration();
+            List<ParameterMapping> parameterMappings = Collections.singletonList(
+                    new ParameterMapping.Builder(configuration, "phone", String.class).build());
+            MappedStatement mappedStatement = new MappedStatement.Builder(configuration, "javaSide.selectOrder",
+                    new StaticSqlSource(configuration, SQL, parameterMappings), SqlCommandType.SELECT).build();
+            configuration.addMappedStatement(mappedStatement);
+
+            Object parameter = Collections.singletonMap("phone", "13800130042");
+            BoundSql boundSql = mappedStatement.getBoundSql(parameter);
+            StatementHandler statementHandler = configuration.newStatementHandler(null, mappedStatement,
+                    parameter, RowBounds.DEFAULT, null, boundSql);
+            dbFieldEncryptorInterceptor.intercept(
+                    new Invocation(statementHandler, Object.class.getMethod("hashCode"), new Object[0]));
+
+            assertEquals(SQL, boundSql.getSql());
+            DefaultParameterHandler parameterHandler = new DefaultParameterHandler(mappedStatement, parameter, boundSql);
+
+            try (PreparedStatement query = connection.prepareStatement(boundSql.getSql())) {
+                parameterHandler.setParameters(query);
+                try (ResultSet rs = query.executeQuery()) {
+                    assertTrue(rs.next());
+                    assertEquals(42L, rs.getLong("id"));
+                    assertFalse(rs.next());
+                }
+            }
+
+            try (PreparedStatement explain = connection.prepareStatement("EXPLAIN " + boundSql.getSql())) {
+                parameterHandler.setParameters(explain);
+                try (ResultSet rs = explain.executeQuery()) {
+                    assertTrue(rs.next());
+                    assertTrue(rs.getString(1).toUpperCase().contains("IDX_ORDERS_CUSTOMER_PHONE"), rs.getString(1));
+                }
+            }
+        }
+    }
+
+    @Test
+    void testEncryptedParameterKeepsMappingAttributes() throws Throwable {
+        Configuration configuration = new Configuration();
+        List<ParameterMapping> parameterMappings = Collections.singletonList(
+                new ParameterMapping.Builder(configuration, "phone", String.class)
+                        .jdbcType(JdbcType.VARCHAR)
+                        .jdbcTypeName("VARCHAR2")
+                        .numericScale(2)
+                        .expression("phone")
+                        .build());
+        MappedStatement mappedStatement = new MappedStatement.Builder(configuration, "javaSide.selectAttributes",
+                new StaticSqlSource(configuration, SQL, parameterMappings), SqlCommandType.SELECT).build();
+        configuration.addMappedStatement(mappedStatement);
+
+        Object parameter = Collections.singletonMap("phone", "13800138000");
+        BoundSql boundSql = mappedStatement.getBoundSql(parameter);
+        StatementHandler statementHandler = configuration.newStatementHandler(null, mappedStatement,
+                parameter, RowBounds.DEFAULT, null, boundSql);
+        dbFieldEncryptorInterceptor.intercept(
+                new Invocation(statementHandler, Object.class.getMethod("hashCode"), new Object[0]));
+
+        ParameterMapping mapping = boundSql.getParameterMappings().get(0);
+        assertTrue(mapping.getTypeHandler() instanceof CiphertextParameterTypeHandler);
+        assertEquals("phone", mapping.getProperty());
+        assertEquals(JdbcType.VARCHAR, mapping.getJdbcType());
+        assertEquals("VARCHAR2", mapping.getJdbcTypeName());
+        assertEquals(Integer.valueOf(2), mapping.getNumericScale());
+        assertEquals("phone", mapping.getExpression());
+        // 语句共享的映射不变
+        assertFalse(parameterMappings.get(0).getTypeHandler() instanceof CiphertextParameterTypeHandler);
+    }
+
+    @Test
+    void testEncryptionFailureDoesNotBindPlaintext() {
+        EncryptStrategy failing = new EncryptStrategy() {
+            @Override
+            public String encrypt(String plainText, String key) {
+                throw new IllegalStateException("encrypt failed");
+            }
+
+            @Override
+            public String decrypt(String cipherText, String key) {
+                return cipherText;
+            }
+
+            @Override
+            public String getAlgorithm() {
+                return "FAILING";
+            }
+
+            @Override
+            public boolean supports(String algorithm) {
+                return "FAILING".equals(algorithm);
+            }
+        };
+        CiphertextParameterTypeHandler typeHandler = new CiphertextParameterTypeHandler(failing, KEY);
+        // 加密失败时绑定失败，不会以明文写入或比较加密列
+        assertThrows(SQLException.class, () -> typeHandler.setNonNullParameter(null, 1, "13800138000", null));
+    }
+
+    @Test
+    void testBatchInsertEncryptsEveryRow() throws Exception {
+        String url = "jdbc:h2:mem:java_side_batch;MODE=MySQL;DB_CLOSE_DELAY=-1";
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS orders");
+            statement.execute("CREATE TABLE orders (id BIGINT PRIMARY KEY, customer_name VARCHAR(255), "
+                    + "customer_phone VARCHAR(255))");
+        }
+
+        Configuration configuration = new Configuration(new Environment("test", new JdbcTransactionFactory(),
+                new UnpooledDataSource("org.h2.Driver", url, "sa", "")));
+        configuration.addMapper(BatchOrderMapper.class);
+        configuration.addInterceptor(encryptPipelineInterceptor);
+        // BatchExecutor只为第一行预编译，其余行复用语句并只调用parameterize
+        try (SqlSession session = new SqlSessionFactoryBuilder().build(configuration).openSession(ExecutorType.BATCH)) {
+            BatchOrderMapper mapper = session.getMapper(BatchOrderMapper.class);
+            for (long i = 0; i < 3; i++) {
+                mapper.insert(i, "customer" + i, "1380013000" + i);
+            }
+            session.flushStatements();
+            session.commit();
+        }
+
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT id, customer_name, customer_phone FROM orders ORDER BY id")) {
+            for (long i = 0; i < 3; i++) {
+                assertTrue(rs.next());
+                assertEquals(i, rs.getLong("id"));
+                assertEquals(mySqlAesEncryptStrategy.encrypt("customer" + i, KEY), rs.getString("customer_name"));
+                assertEquals(mySqlAesEncryptStrategy.encrypt("1380013000" + i, KEY), rs.getString("customer_phone"));
+            }
+            assertFalse(rs.next());
+        }
+    }
+
+    /**
+     * 批量写入测试用Mapper
+     */
+    public interface BatchOrderMapper {
+
+        @Insert("INSERT INTO orders (id, customer_name, customer_phone) VALUES (#{id}, #{name}, #{phone})")
+        int insert(@Param("id") long id,
+                   @Param("name") String name,
+                   @Param("phone") String phone);
+    }
+}
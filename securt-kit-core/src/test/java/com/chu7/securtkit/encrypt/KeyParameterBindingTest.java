@@ -0,0 +1,98 @@
+package com.chu7.securtkit.encrypt;
+
+import com.chu7.securtkit.encrypt.config.TestConfig;
+import com.chu7.securtkit.encrypt.interceptor.DbFieldEncryptorInterceptor;
+import com.chu7.securtkit.encrypt.visitor.DbEncryptStatementVisitor;
+import com.chu7.securtkit.encrypt.visitor.KeyParameter;
+import com.chu7.securtkit.encrypt.visitor.RewriteResult;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 密钥参数绑定测试类
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+    "securt-kit.encrypt.enabled=true",
+    "securt-kit.encrypt.patternType=DB",
+    "securt-kit.encrypt.key=test-secret-key-32-chars-long",
+    "securt-kit.encrypt.bindKeyAsParameter=true"
+})
+@Import(TestConfig.class)
+public class KeyParameterBindingTest {
+
+    private static final String SQL = "SELECT username, phone FROM user WHERE username = ? AND phone = ? AND remark <> '?'";
+
+    @Autowired
+    private DbEncryptStatementVisitor dbEncryptStatementVisitor;
+
+    @Autowired
+    private DbFieldEncryptorInterceptor dbFieldEncryptorInterceptor;
+
+    @Test
+    void testKeyNotInlined() {
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(SQL);
+
+        assertTrue(result.isChanged());
+        assertFalse(result.getSql().contains("test-secret-key"));
+        assertEquals("SELECT username, CAST(AES_DECRYPT(FROM_BASE64(phone), ?) AS CHAR) AS phone FROM user "
+                + "WHERE username = ? AND phone = TO_BASE64(AES_ENCRYPT(?, ?)) AND remark <> '?'", result.getSql());
+        // 参数顺序：密钥, username, phone, 密钥；字符串中的问号不计入
+        assertArrayEquals(new int[]{0, 3}, result.getKeySlots());
+    }
+
+    @Test
+    void testInterceptorBindsKey() throws Throwable {
+        Configuration configuration = new Configuration();
+        List<ParameterMapping> parameterMappings = Arrays.asList(
+                new ParameterMapping.Builder(configuration, "username", String.class).build(),
+                new ParameterMapping.Builder(configuration, "phone", String.class).build());
+        MappedStatement mappedStatement = new MappedStatement.Builder(configuration, "key.selectUser",
+                new StaticSqlSource(configuration, SQL, parameterMappings), SqlCommandType.SELECT).build();
+        configuration.addMappedStatement(mappedStatement);
+
+        Map<String, Object> parameter = new HashMap<>();
+        parameter.put("username", "tom");
+        parameter.put("phone", "13800138000");
+        // 执行两次，第二次命中改写缓存，且不能修改语句共享的参数列表
+        for (int i = 0; i < 2; i++) {
+            BoundSql boundSql = mappedStatement.getBoundSql(parameter);
+            StatementHandler statementHandler = configuration.newStatementHandler(null, mappedStatement,
+                    parameter, RowBounds.DEFAULT, null, boundSql);
+            dbFieldEncryptorInterceptor.intercept(
+                    new Invocation(statementHandler, Object.class.getMethod("hashCode"), new Object[0]));
+
+            List<String> properties = boundSql.getParameterMappings().stream()
+                    .map(ParameterMapping::getProperty)
+                    .collect(Collectors.toList());
+            assertEquals(Arrays.asList(KeyParameter.PARAMETER, "username", "phone", KeyParameter.PARAMETER), properties);
+            assertEquals("test-secret-key-32-chars-long", boundSql.getAdditionalParameter(KeyParameter.PARAMETER));
+            assertEquals(2, parameterMappings.size());
+        }
+    }
+}
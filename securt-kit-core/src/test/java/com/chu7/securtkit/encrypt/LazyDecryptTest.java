@@ -0,0 +1,248 @@
+package com.chu7.securtkit.encrypt;
+
+import com.chu7.securtkit.encrypt.annotation.EncryptField;
+import com.chu7.securtkit.encrypt.config.TestConfig;
+import com.chu7.securtkit.encrypt.handler.LazyDecryptJacksonModule;
+import com.chu7.securtkit.encrypt.interceptor.EncryptPipelineInterceptor;
+import com.chu7.securtkit.encrypt.util.EncryptUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Data;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 延迟解密测试类
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+    "securt-kit.encrypt.enabled=true",
+    "securt-kit.encrypt.patternType=POJO",
+    "securt-kit.encrypt.key=test-secret-key-32-chars-long",
+    "securt-kit.encrypt.lazyDecrypt=true"
+})
+@Import(TestConfig.class)
+public class LazyDecryptTest {
+
+    private static final String URL = "jdbc:h2:mem:lazy_decrypt;DB_CLOSE_DELAY=-1";
+
+    private static final String PHONE = "13800138000";
+
+    private static final String EMAIL = "lazy@example.com";
+
+    @Autowired
+    private EncryptPipelineInterceptor encryptPipelineInterceptor;
+
+    @Autowired
+    private LazyDecryptJacksonModule lazyDecryptJacksonModule;
+
+    @Autowired
+    private EncryptUtil encryptUtil;
+
+    private SqlSessionFactory sqlSessionFactory;
+
+    private Long id;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS contact");
+            statement.execute("CREATE TABLE contact (id BIGINT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(64), "
+                    + "phone VARCHAR(255), email VARCHAR(255))");
+        }
+
+        Configuration configuration = new Configuration(new Environment("test", new JdbcTransactionFactory(),
+                new UnpooledDataSource("org.h2.Driver", URL, "sa", "")));
+        configuration.addMapper(ContactMapper.class);
+        configuration.addInterceptor(encryptPipelineInterceptor);
+        sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+
+        try (SqlSession session = sqlSessionFactory.openSession(true)) {
+            ContactEntity contact = new ContactEntity();
+            contact.setName("lazy");
+            contact.setPhone(PHONE);
+            contact.setEmail(EMAIL);
+            session.getMapper(ContactMapper.class).insert(contact);
+            id = contact.getId();
+        }
+    }
+
+    @Test
+    void testFieldIsDecryptedOnFirstGetterAccess() throws Exception {
+        try (SqlSession session = sqlSessionFactory.openSession()) {
+            ContactEntity contact = session.getMapper(ContactMapper.class).selectById(id);
+            assertNotSame(ContactEntity.class, contact.getClass());
+
+            // 未读取前字段保存密文
+            assertNotEquals(PHONE, rawValue(contact, "phone"));
+            assertNotEquals(EMAIL, rawValue(contact, "email"));
+
+            assertEquals(PHONE, contact.getPhone());
+            assertEquals(PHONE, rawValue(contact, "phone"));
+            // 未读取的加密字段不解密
+            assertNotEquals(EMAIL, rawValue(contact, "email"));
+            assertEquals(EMAIL, contact.getEmail());
+        }
+    }
+
+    @Test
+    void testTriggerMethodDecryptsAllFields() throws Exception {
+        try (SqlSession session = sqlSessionFactory.openSession()) {
+            ContactEntity contact = session.getMapper(ContactMapper.class).selectById(id);
+            String text = contact.toString();
+            assertTrue(text.contains(PHONE));
+            assertTrue(text.contains(EMAIL));
+            assertEquals(EMAIL, rawValue(contact, "email"));
+        }
+    }
+
+    @Test
+    void testSetterCancelsPendingDecryption() {
+        try (SqlSession session = sqlSessionFactory.openSession()) {
+            ContactEntity contact = session.getMapper(ContactMapper.class).selectById(id);
+            contact.setPhone("15900000000");
+            assertEquals("15900000000", contact.getPhone());
+        }
+    }
+
+    @Test
+    void testUpdatingLoadedEntityDoesNotEncryptTwice() {
+        try (SqlSession session = sqlSessionFactory.openSession(true)) {
+            ContactMapper mapper = session.getMapper(ContactMapper.class);
+            ContactEntity contact = mapper.selectById(id);
+            contact.setName("renamed");
+            mapper.update(contact);
+        }
+        try (SqlSession session = sqlSessionFactory.openSession()) {
+            ContactEntity contact = session.getMapper(ContactMapper.class).selectById(id);
+            assertEquals("renamed", contact.getName());
+            assertEquals(PHONE, contact.getPhone());
+            assertEquals(EMAIL, contact.getEmail());
+        }
+    }
+
+    @Test
+    void testMapParameterEntitiesAreResolvedBeforeUpdate() throws Exception {
+        try (SqlSession session = sqlSessionFactory.openSession(true)) {
+            ContactMapper mapper = session.getMapper(ContactMapper.class);
+            ContactEntity contact = mapper.selectById(id);
+            assertNotEquals(PHONE, rawValue(contact, "phone"));
+
+            // SQL未读取加密字段，字段值只能由更新前的解密写回；et 实体随后按明文加密，不会加密两次
+            mapper.renameEt(contact, "renamed");
+            assertEquals(PHONE, encryptUtil.decrypt((String) rawValue(contact, "phone"), "AES"));
+            assertEquals(EMAIL, encryptUtil.decrypt((String) rawValue(contact, "email"), "AES"));
+        }
+    }
+
+    @Test
+    void testJacksonWritesDecryptedPropertiesWithoutHandler() throws Exception {
+        try (SqlSession session = sqlSessionFactory.openSession()) {
+            ContactEntity contact = session.getMapper(ContactMapper.class).selectById(id);
+            ObjectMapper objectMapper = new ObjectMapper().registerModule(lazyDecryptJacksonModule);
+            String json = objectMapper.writeValueAsString(contact);
+
+            Map<?, ?> properties = objectMapper.readValue(json, Map.class);
+            assertFalse(properties.containsKey("handler"), json);
+            assertEquals(PHONE, properties.get("phone"));
+            assertEquals(EMAIL, properties.get("email"));
+            assertEquals("lazy", properties.get("name"));
+        }
+    }
+
+    @Test
+    void testJavaSerializationWritesPlainDecryptedEntity() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (SqlSession session = sqlSessionFactory.openSession();
+             ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            ContactEntity contact = session.getMapper(ContactMapper.class).selectById(id);
+            out.writeObject(contact);
+        }
+
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            Object copy = in.readObject();
+            assertSame(ContactEntity.class, copy.getClass());
+            assertEquals(PHONE, rawValue((ContactEntity) copy, "phone"));
+            assertEquals(EMAIL, rawValue((ContactEntity) copy, "email"));
+            assertEquals(id, ((ContactEntity) copy).getId());
+        }
+    }
+
+    private static Object rawValue(ContactEntity contact, String name) throws Exception {
+        Field field = ContactEntity.class.getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(contact);
+    }
+
+    /**
+     * 测试用联系人Mapper
+     */
+    public interface ContactMapper {
+
+        @Insert("INSERT INTO contact (name, phone, email) VALUES (#{name}, #{phone}, #{email})")
+        @Options(useGeneratedKeys = true, keyProperty = "id")
+        int insert(ContactEntity contact);
+
+        @Update("UPDATE contact SET name = #{name}, phone = #{phone}, email = #{email} WHERE id = #{id}")
+        int update(ContactEntity contact);
+
+        @Update("UPDATE contact SET name = #{name} WHERE id = #{et.id}")
+        int renameEt(@Param("et") ContactEntity contact, @Param("name") String name);
+
+        @Select("SELECT id, name, phone, email FROM contact WHERE id = #{id}")
+        ContactEntity selectById(Long id);
+    }
+
+    /**
+     * 测试用联系人实体
+     */
+    @Data
+    public static class ContactEntity implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private Long id;
+
+        private String name;
+
+        @EncryptField
+        private String phone;
+
+        @EncryptField
+        private String email;
+    }
+}
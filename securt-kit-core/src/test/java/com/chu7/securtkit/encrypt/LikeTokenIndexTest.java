@@ -0,0 +1,329 @@
+package com.chu7.securtkit.encrypt;
+
+import com.chu7.securtkit.encrypt.annotation.EncryptField;
+import com.chu7.securtkit.encrypt.cache.TableFieldCache;
+import com.chu7.securtkit.encrypt.config.TestConfig;
+import com.chu7.securtkit.encrypt.core.LikeTokenIndexer;
+import com.chu7.securtkit.encrypt.interceptor.EncryptPipelineInterceptor;
+import com.chu7.securtkit.encrypt.strategy.LikeTokenGenerator;
+import com.chu7.securtkit.encrypt.visitor.DbEncryptStatementVisitor;
+import com.chu7.securtkit.encrypt.visitor.KeyParameter;
+import com.chu7.securtkit.encrypt.visitor.RewriteResult;
+import lombok.Data;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 模糊查询分词索引测试类
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+    "securt-kit.encrypt.enabled=true",
+    "securt-kit.encrypt.patternType=POJO",
+    "securt-kit.encrypt.key=test-secret-key-32-chars-long",
+    "securt-kit.encrypt.likeIndex.gramSize=3"
+})
+@Import(TestConfig.class)
+public class LikeTokenIndexTest {
+
+    private static final String KEY = "test-secret-key-32-chars-long";
+
+    @Autowired
+    private LikeTokenGenerator likeTokenGenerator;
+
+    @Autowired
+    private TableFieldCache tableFieldCache;
+
+    @Autowired
+    private DbEncryptStatementVisitor dbEncryptStatementVisitor;
+
+    @Autowired
+    private EncryptPipelineInterceptor encryptPipelineInterceptor;
+
+    @Autowired
+    private LikeTokenIndexer likeTokenIndexer;
+
+    @BeforeEach
+    void setUp() {
+        tableFieldCache.addTableEncryptFields("contact", new HashSet<>(Collections.singletonList("phone")));
+        tableFieldCache.addLikeIndex("contact", "phone");
+    }
+
+    @AfterEach
+    void tearDown() {
+        tableFieldCache.clearTableCache("contact");
+    }
+
+    @Test
+    void testQueryTokens() {
+        Set<String> indexTokens = likeTokenGenerator.indexTokens("13800138000", KEY);
+
+        // 长片段按3字符切分，短片段整段匹配，都包含在写入的分词中
+        List<String> infix = likeTokenGenerator.queryTokens("%0013%", KEY);
+        assertEquals(2, infix.size());
+        assertTrue(indexTokens.containsAll(infix));
+        assertTrue(indexTokens.containsAll(likeTokenGenerator.queryTokens("13_01%", KEY)));
+        assertFalse(indexTokens.containsAll(likeTokenGenerator.queryTokens("%999%", KEY)));
+
+        // 只有通配符时使用存在标记
+        List<String> any = likeTokenGenerator.queryTokens("%", KEY);
+        assertEquals(1, any.size());
+        assertTrue(indexTokens.contains(any.get(0)));
+
+        // 转义的通配符按字面量处理
+        assertEquals(2, likeTokenGenerator.queryTokens("%a%b%", KEY).size());
+        List<String> escaped = likeTokenGenerator.queryTokens("%a\\%b%", KEY);
+        assertEquals(1, escaped.size());
+        assertTrue(likeTokenGenerator.indexTokens("xa%by", KEY).contains(escaped.get(0)));
+    }
+
+    @Test
+    void testTokensIgnoreCase() {
+        Set<String> indexTokens = likeTokenGenerator.indexTokens("Alice.Smith@Example.com", KEY);
+
+        // 与MySQL默认排序规则下的 LIKE 一致，不区分大小写
+        assertTrue(indexTokens.containsAll(likeTokenGenerator.queryTokens("%smith%", KEY)));
+        assertTrue(indexTokens.containsAll(likeTokenGenerator.queryTokens("ALICE%", KEY)));
+        assertEquals(likeTokenGenerator.queryTokens("%Exa%", KEY), likeTokenGenerator.queryTokens("%eXA%", KEY));
+    }
+
+    @Test
+    void testRewriteToTokenSubQuery() {
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(
+                "SELECT id, phone FROM contact c WHERE c.phone LIKE ? AND username = ?");
+
+        assertTrue(result.isChanged());
+        assertEquals("SELECT id, phone FROM contact c WHERE c.id IN (SELECT row_id FROM securt_kit_like_token "
+                + "WHERE table_name = 'contact' AND column_name = 'phone' AND token IN (?) GROUP BY row_id "
+                + "HAVING COUNT(DISTINCT token) = __SECURT_KIT_LIKE_COUNT__) AND username = ?", result.getSql());
+        assertArrayEquals(new int[]{0}, result.getLikeTokenSlots());
+        assertEquals(0, result.getLikePatternSlots().length);
+
+        // 字符串直接替换为分词
+        List<String> tokens = likeTokenGenerator.queryTokens("%0013%", KEY);
+        RewriteResult literal = dbEncryptStatementVisitor.rewrite("SELECT id FROM contact WHERE phone LIKE '%0013%'");
+        assertEquals("SELECT id FROM contact WHERE contact.id IN (SELECT row_id FROM securt_kit_like_token "
+                + "WHERE table_name = 'contact' AND column_name = 'phone' AND token IN ('" + tokens.get(0) + "', '"
+                + tokens.get(1) + "') GROUP BY row_id HAVING COUNT(DISTINCT token) = 2)", literal.getSql());
+
+        // 不带限定名的列按解析到的表补充限定名，JOIN中不会列名不明确
+        RewriteResult join = dbEncryptStatementVisitor.rewrite(
+                "SELECT c.id FROM contact c JOIN orders o ON o.id = c.id WHERE phone LIKE ?");
+        assertTrue(join.getSql().startsWith("SELECT c.id FROM contact c JOIN orders o ON o.id = c.id "
+                + "WHERE c.id IN (SELECT row_id FROM securt_kit_like_token WHERE table_name = 'contact'"), join.getSql());
+
+        // NOT LIKE 不能使用分词索引
+        assertFalse(dbEncryptStatementVisitor.rewrite("SELECT id FROM contact WHERE phone NOT LIKE ?").isChanged());
+    }
+
+    @Test
+    void testExpandLikeTokens() {
+        String sql = "SELECT id FROM t WHERE a = ? AND id IN (SELECT row_id FROM x WHERE token IN (?) GROUP BY row_id "
+                + "HAVING COUNT(DISTINCT token) = __SECURT_KIT_LIKE_COUNT__) AND b = '?'";
+        assertEquals("SELECT id FROM t WHERE a = ? AND id IN (SELECT row_id FROM x WHERE token IN (?, ?, ?) GROUP BY row_id "
+                + "HAVING COUNT(DISTINCT token) = 3) AND b = '?'",
+                KeyParameter.expandLikeTokens(sql, new int[]{1}, new int[]{3}));
+    }
+
+    @Test
+    void testTargetTableResolvedOncePerStatement() {
+        Configuration configuration = new Configuration();
+        AtomicInteger boundSqlCalls = new AtomicInteger();
+        SqlSource sqlSource = parameter -> {
+            boundSqlCalls.incrementAndGet();
+            return new BoundSql(configuration, "INSERT INTO contact (username, phone) VALUES (?, ?)",
+                    Collections.emptyList(), parameter);
+        };
+        MappedStatement insert = new MappedStatement.Builder(configuration, "contact.insert", sqlSource,
+                SqlCommandType.INSERT).build();
+
+        // 动态SQL只在首次执行时生成一次用于解析目标表
+        for (int i = 0; i < 3; i++) {
+            ContactEntity contact = new ContactEntity();
+            contact.setPhone("1380013800" + i);
+            assertNotNull(likeTokenIndexer.capture(insert, contact));
+        }
+        assertEquals(1, boundSqlCalls.get());
+    }
+
+    @Test
+    void testMaintainAndQuery() throws Exception {
+        String url = "jdbc:h2:mem:like_token_index;DB_CLOSE_DELAY=-1";
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE contact (id BIGINT AUTO_INCREMENT PRIMARY KEY, username VARCHAR(64), "
+                    + "phone VARCHAR(255))");
+            statement.execute("CREATE TABLE securt_kit_like_token (table_name VARCHAR(64), column_name VARCHAR(64), "
+                    + "row_id BIGINT, token VARCHAR(64))");
+            statement.execute("CREATE INDEX idx_like_token ON securt_kit_like_token(table_name, column_name, token)");
+        }
+
+        Configuration configuration = new Configuration(new Environment("test", new JdbcTransactionFactory(),
+                new UnpooledDataSource("org.h2.Driver", url, "sa", "")));
+        configuration.addMapper(ContactMapper.class);
+        configuration.addInterceptor(encryptPipelineInterceptor);
+        SqlSessionFactory sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+
+        try (SqlSession session = sqlSessionFactory.openSession(true)) {
+            ContactMapper mapper = session.getMapper(ContactMapper.class);
+            for (String phone : Arrays.asList("13800138000", "13912345678", "15800001380")) {
+                ContactEntity contact = new ContactEntity();
+                contact.setUsername("user" + phone);
+                contact.setPhone(phone);
+                mapper.insert(contact);
+                // 数据库中保存密文
+                assertNotEquals(phone, contact.getPhone());
+            }
+
+            assertEquals(Arrays.asList(1L, 3L), mapper.selectIdsByPhoneLike("%1380%"));
+            assertEquals(Collections.singletonList(2L), mapper.selectIdsByPhoneLike("%345%"));
+            assertEquals(Collections.singletonList(2L), mapper.selectIdsByPhoneLike("139%"));
+            assertTrue(mapper.selectIdsByPhoneLike("%999%").isEmpty());
+            assertEquals(Arrays.asList(1L, 2L, 3L), mapper.selectIdsByPhoneLike("%"));
+
+            ContactEntity update = new ContactEntity();
+            update.setId(2L);
+            update.setPhone("13800000000");
+            mapper.update(update);
+            assertTrue(mapper.selectIdsByPhoneLike("%345%").isEmpty());
+            assertEquals(Arrays.asList(1L, 2L, 3L), mapper.selectIdsByPhoneLike("%1380%"));
+
+            mapper.deleteById(1L);
+            assertEquals(Arrays.asList(2L, 3L), mapper.selectIdsByPhoneLike("%1380%"));
+        }
+
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM securt_kit_like_token WHERE row_id = 1")) {
+            assertTrue(rs.next());
+            assertEquals(0, rs.getInt(1));
+        }
+    }
+
+    @Test
+    void testBatchInsertWritesTokensAfterFlush() throws Exception {
+        String url = "jdbc:h2:mem:like_token_batch;DB_CLOSE_DELAY=-1";
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS contact");
+            statement.execute("DROP TABLE IF EXISTS securt_kit_like_token");
+            statement.execute("CREATE TABLE contact (id BIGINT AUTO_INCREMENT PRIMARY KEY, username VARCHAR(64), "
+                    + "phone VARCHAR(255))");
+            statement.execute("CREATE TABLE securt_kit_like_token (table_name VARCHAR(64), column_name VARCHAR(64), "
+                    + "row_id BIGINT, token VARCHAR(64))");
+        }
+
+        Configuration configuration = new Configuration(new Environment("test", new JdbcTransactionFactory(),
+                new UnpooledDataSource("org.h2.Driver", url, "sa", "")));
+        configuration.addMapper(ContactMapper.class);
+        configuration.addInterceptor(encryptPipelineInterceptor);
+        SqlSessionFactory sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+
+        // 自增主键在刷新批次后才回填，分词在提交前写入
+        try (SqlSession session = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+            ContactMapper mapper = session.getMapper(ContactMapper.class);
+            for (String phone : Arrays.asList("13800138000", "13912345678", "15800001380")) {
+                ContactEntity contact = new ContactEntity();
+                contact.setUsername("user" + phone);
+                contact.setPhone(phone);
+                mapper.insert(contact);
+            }
+            session.commit();
+        }
+
+        // 回滚的批次不写入分词
+        try (SqlSession session = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+            ContactEntity contact = new ContactEntity();
+            contact.setUsername("rolled-back");
+            contact.setPhone("13800138001");
+            session.getMapper(ContactMapper.class).insert(contact);
+            session.rollback();
+        }
+
+        try (SqlSession session = sqlSessionFactory.openSession()) {
+            ContactMapper mapper = session.getMapper(ContactMapper.class);
+            assertEquals(Arrays.asList(1L, 3L), mapper.selectIdsByPhoneLike("%1380%"));
+            assertEquals(Arrays.asList(1L, 2L, 3L), mapper.selectIdsByPhoneLike("%"));
+        }
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM securt_kit_like_token WHERE row_id IS NULL")) {
+            assertTrue(rs.next());
+            assertEquals(0, rs.getInt(1));
+        }
+    }
+
+    /**
+     * 测试用联系人Mapper
+     */
+    public interface ContactMapper {
+
+        @Insert("INSERT INTO contact (username, phone) VALUES (#{username}, #{phone})")
+        @Options(useGeneratedKeys = true, keyProperty = "id")
+        int insert(ContactEntity contact);
+
+        @Update("UPDATE contact SET phone = #{phone} WHERE id = #{id}")
+        int update(ContactEntity contact);
+
+        @Delete("DELETE FROM contact WHERE id = #{id}")
+        int deleteById(Long id);
+
+        @Select("SELECT id FROM contact WHERE phone LIKE #{phone} ORDER BY id")
+        List<Long> selectIdsByPhoneLike(@Param("phone") String phone);
+    }
+
+    /**
+     * 测试用联系人实体
+     */
+    @Data
+    public static class ContactEntity {
+
+        private Long id;
+
+        private String username;
+
+        @EncryptField(likeIndex = true)
+        private String phone;
+    }
+}
@@ -0,0 +1,229 @@
+package com.chu7.securtkit.encrypt;
+
+import com.chu7.securtkit.encrypt.annotation.EncryptField;
+import com.chu7.securtkit.encrypt.cache.EncryptEntityIndex;
+import com.chu7.securtkit.encrypt.cache.TableFieldCache;
+import com.chu7.securtkit.encrypt.config.TestConfig;
+import com.chu7.securtkit.encrypt.interceptor.EncryptPipelineInterceptor;
+import com.chu7.securtkit.encrypt.strategy.OrderIndexEncoder;
+import com.chu7.securtkit.encrypt.util.EncryptUtil;
+import com.chu7.securtkit.encrypt.visitor.DbEncryptStatementVisitor;
+import com.chu7.securtkit.encrypt.visitor.RewriteResult;
+import lombok.Data;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 保序索引测试类
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+    "securt-kit.encrypt.enabled=true",
+    "securt-kit.encrypt.patternType=POJO",
+    "securt-kit.encrypt.key=test-secret-key-32-chars-long",
+    "securt-kit.encrypt.blindIndexLength=8"
+})
+@Import(TestConfig.class)
+public class OrderIndexTest {
+
+    private static final String KEY = "test-secret-key-32-chars-long";
+
+    @Autowired
+    private OrderIndexEncoder orderIndexEncoder;
+
+    @Autowired
+    private EncryptUtil encryptUtil;
+
+    @Autowired
+    private TableFieldCache tableFieldCache;
+
+    @Autowired
+    private DbEncryptStatementVisitor dbEncryptStatementVisitor;
+
+    @Autowired
+    private EncryptPipelineInterceptor encryptPipelineInterceptor;
+
+    @BeforeEach
+    void setUp() {
+        tableFieldCache.addTableEncryptFields("person", new HashSet<>(Collections.singletonList("age")));
+        tableFieldCache.addOrderIndex("person", "age", "age_ord");
+    }
+
+    @AfterEach
+    void tearDown() {
+        tableFieldCache.clearTableCache("person");
+    }
+
+    @Test
+    void testEncoderPreservesOrder() {
+        long[] values = {Integer.MIN_VALUE, Integer.MIN_VALUE + 1, -1000, -1, 0, 1, 17, 18, 30, 31, 1000,
+                Integer.MAX_VALUE - 1, Integer.MAX_VALUE};
+        Long previous = null;
+        for (long value : values) {
+            Long encoded = orderIndexEncoder.encode(value, KEY);
+            assertNotNull(encoded);
+            assertTrue(encoded >= 0 && encoded < (1L << 62));
+            if (previous != null) {
+                assertTrue(previous < encoded, "编码应严格递增: " + value);
+            }
+            previous = encoded;
+        }
+
+        Random random = new Random(42);
+        for (int i = 0; i < 200; i++) {
+            int a = random.nextInt();
+            int b = random.nextInt();
+            assertEquals(Integer.signum(Integer.compare(a, b)),
+                    Long.signum(Long.compare(orderIndexEncoder.encode(a, KEY), orderIndexEncoder.encode(b, KEY))));
+        }
+
+        // 整数字符串与整数编码相同，编码依赖密钥
+        assertEquals(orderIndexEncoder.encode(30, KEY), orderIndexEncoder.encode(" 30 ", KEY));
+        assertNotEquals(orderIndexEncoder.encode(30, KEY), orderIndexEncoder.encode(30, "another-key"));
+
+        // 非整数或超出32位范围时不编码
+        assertNull(orderIndexEncoder.encode(null, KEY));
+        assertNull(orderIndexEncoder.encode("18.5", KEY));
+        assertNull(orderIndexEncoder.encode("abc", KEY));
+        assertNull(orderIndexEncoder.encode(1L << 40, KEY));
+    }
+
+    @Test
+    void testEncodingIgnoresBlindIndexLength() {
+        // 盲索引截短为8字节时保序编码不变，已有行的范围查询不受影响
+        assertEquals(1348388025898002491L, orderIndexEncoder.encode(30, KEY));
+        assertEquals(new OrderIndexEncoder().encode(-5, KEY), orderIndexEncoder.encode(-5, KEY));
+    }
+
+    @Test
+    void testEntityIndexContainsOrderIndex() {
+        EncryptEntityIndex.Entry entry = EncryptEntityIndex.load(getClass().getClassLoader())
+                .getEntry(PersonEntity.class.getName());
+        assertNotNull(entry);
+        assertEquals(Collections.singletonMap("age", "age_ord"), entry.getOrderIndexes());
+    }
+
+    @Test
+    void testEncryptObjectWritesOrderIndex() {
+        PersonEntity person = new PersonEntity();
+        person.setAge("30");
+        encryptUtil.encryptObject(person, "person");
+
+        assertEquals(orderIndexEncoder.encode(30, KEY), person.getAgeOrd());
+        assertNotEquals("30", person.getAge());
+        assertEquals("30", encryptUtil.decrypt(person.getAge(), "AES"));
+    }
+
+    @Test
+    void testRewriteToOrderIndex() {
+        RewriteResult result = dbEncryptStatementVisitor.rewrite("SELECT id, age FROM person p WHERE p.age > ? "
+                + "AND age BETWEEN 18 AND ? AND username = ? AND ? >= age ORDER BY p.age DESC, id");
+
+        assertTrue(result.isChanged());
+        assertEquals("SELECT id, age FROM person p WHERE p.age_ord > ? AND age_ord BETWEEN "
+                + orderIndexEncoder.encode(18, KEY) + " AND ? AND username = ? AND ? >= age_ord "
+                + "ORDER BY p.age_ord DESC, id", result.getSql());
+        assertArrayEquals(new int[]{0, 1, 3}, result.getOrderIndexSlots());
+
+        // 等值比较和无法编码的字面量保持不变
+        assertFalse(dbEncryptStatementVisitor.rewrite("SELECT id FROM person WHERE age = ?").isChanged());
+        assertFalse(dbEncryptStatementVisitor.rewrite("SELECT id FROM person WHERE age > '18.5'").isChanged());
+    }
+
+    @Test
+    void testRangeQueryAndOrderBy() throws Exception {
+        String url = "jdbc:h2:mem:order_index;DB_CLOSE_DELAY=-1";
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE person (id BIGINT AUTO_INCREMENT PRIMARY KEY, username VARCHAR(64), "
+                    + "age VARCHAR(255), age_ord BIGINT)");
+            statement.execute("CREATE INDEX idx_person_age_ord ON person(age_ord)");
+        }
+
+        Configuration configuration = new Configuration(new Environment("test", new JdbcTransactionFactory(),
+                new UnpooledDataSource("org.h2.Driver", url, "sa", "")));
+        configuration.addMapper(PersonMapper.class);
+        configuration.addInterceptor(encryptPipelineInterceptor);
+        SqlSessionFactory sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+
+        try (SqlSession session = sqlSessionFactory.openSession(true)) {
+            PersonMapper mapper = session.getMapper(PersonMapper.class);
+            for (String age : Arrays.asList("35", "-3", "18", "120", "7")) {
+                PersonEntity person = new PersonEntity();
+                person.setUsername("user" + age);
+                person.setAge(age);
+                mapper.insert(person);
+                assertNotEquals(age, person.getAge());
+            }
+
+            assertEquals(Arrays.asList(4L, 1L, 3L), mapper.selectIdsByMinAge(18));
+            assertEquals(Arrays.asList(5L, 3L), mapper.selectIdsBetween("0", "30"));
+            assertEquals(Arrays.asList(2L, 5L, 3L, 1L, 4L), mapper.selectIdsBetween("-100", "1000"));
+            assertTrue(mapper.selectIdsByMinAge(121).isEmpty());
+        }
+    }
+
+    /**
+     * 测试用人员Mapper
+     */
+    public interface PersonMapper {
+
+        @Insert("INSERT INTO person (username, age, age_ord) VALUES (#{username}, #{age}, #{ageOrd})")
+        @Options(useGeneratedKeys = true, keyProperty = "id")
+        int insert(PersonEntity person);
+
+        @Select("SELECT id FROM person WHERE age >= #{min} ORDER BY age DESC")
+        List<Long> selectIdsByMinAge(@Param("min") int min);
+
+        @Select("SELECT id FROM person WHERE age BETWEEN #{from} AND #{to} ORDER BY age")
+        List<Long> selectIdsBetween(@Param("from") String from, @Param("to") String to);
+    }
+
+    /**
+     * 测试用人员实体
+     */
+    @Data
+    public static class PersonEntity {
+
+        private Long id;
+
+        private String username;
+
+        @EncryptField(orderIndex = "age_ord")
+        private String age;
+
+        private Long ageOrd;
+    }
+}
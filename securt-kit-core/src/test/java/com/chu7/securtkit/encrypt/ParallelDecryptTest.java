@@ -0,0 +1,175 @@
+package com.chu7.securtkit.encrypt;
+
+import com.chu7.securtkit.encrypt.annotation.EncryptField;
+import com.chu7.securtkit.encrypt.config.TestConfig;
+import com.chu7.securtkit.encrypt.core.ParallelDecryptor;
+import com.chu7.securtkit.encrypt.interceptor.EncryptPipelineInterceptor;
+import lombok.Data;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 结果并行解密测试类
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+    "securt-kit.encrypt.enabled=true",
+    "securt-kit.encrypt.patternType=POJO",
+    "securt-kit.encrypt.key=test-secret-key-32-chars-long",
+    "securt-kit.encrypt.parallelDecrypt.enabled=true",
+    "securt-kit.encrypt.parallelDecrypt.threshold=20",
+    "securt-kit.encrypt.parallelDecrypt.chunkSize=8",
+    "securt-kit.encrypt.parallelDecrypt.parallelism=2",
+    "securt-kit.encrypt.parallelDecrypt.queueCapacity=1"
+})
+@Import(TestConfig.class)
+public class ParallelDecryptTest {
+
+    private static final String URL = "jdbc:h2:mem:parallel_decrypt;DB_CLOSE_DELAY=-1";
+
+    private static final int ROWS = 40;
+
+    @Autowired
+    private EncryptPipelineInterceptor encryptPipelineInterceptor;
+
+    @Autowired
+    private ParallelDecryptor parallelDecryptor;
+
+    private SqlSessionFactory sqlSessionFactory;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS account");
+            statement.execute("CREATE TABLE account (id BIGINT AUTO_INCREMENT PRIMARY KEY, phone VARCHAR(255))");
+        }
+
+        Configuration configuration = new Configuration(new Environment("test", new JdbcTransactionFactory(),
+                new UnpooledDataSource("org.h2.Driver", URL, "sa", "")));
+        configuration.addMapper(AccountMapper.class);
+        configuration.addInterceptor(encryptPipelineInterceptor);
+        sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+
+        try (SqlSession session = sqlSessionFactory.openSession(true)) {
+            AccountMapper mapper = session.getMapper(AccountMapper.class);
+            for (int i = 0; i < ROWS; i++) {
+                AccountEntity account = new AccountEntity();
+                account.setPhone(phone(i));
+                mapper.insert(account);
+            }
+        }
+    }
+
+    @Test
+    void testLargeResultIsDecryptedInParallel() {
+        Map<String, Object> before = parallelDecryptor.getStats();
+        try (SqlSession session = sqlSessionFactory.openSession()) {
+            List<AccountEntity> accounts = session.getMapper(AccountMapper.class).selectAll();
+            assertEquals(ROWS, accounts.size());
+            for (int i = 0; i < ROWS; i++) {
+                assertEquals(phone(i), accounts.get(i).getPhone());
+            }
+        }
+        Map<String, Object> after = parallelDecryptor.getStats();
+        assertEquals(1L, delta(before, after, "parallelQueries"));
+        assertEquals(0L, delta(before, after, "sequentialQueries"));
+        assertEquals((long) ROWS, delta(before, after, "decryptedValues"));
+        assertEquals(5L, delta(before, after, "parallelChunks"));
+    }
+
+    @Test
+    void testSmallResultStaysOnCallerThread() {
+        Map<String, Object> before = parallelDecryptor.getStats();
+        try (SqlSession session = sqlSessionFactory.openSession()) {
+            List<AccountEntity> accounts = session.getMapper(AccountMapper.class).selectFirst(5);
+            assertEquals(5, accounts.size());
+            assertEquals(phone(4), accounts.get(4).getPhone());
+        }
+        Map<String, Object> after = parallelDecryptor.getStats();
+        assertEquals(0L, delta(before, after, "parallelQueries"));
+        assertEquals(1L, delta(before, after, "sequentialQueries"));
+        assertEquals(5L, delta(before, after, "decryptedValues"));
+    }
+
+    @Test
+    void testCursorRowsAreDecryptedWhileMapping() throws Exception {
+        Map<String, Object> before = parallelDecryptor.getStats();
+        int count = 0;
+        try (SqlSession session = sqlSessionFactory.openSession();
+             Cursor<AccountEntity> cursor = session.getMapper(AccountMapper.class).selectCursor()) {
+            for (AccountEntity account : cursor) {
+                assertEquals(phone(count++), account.getPhone());
+            }
+        }
+        assertEquals(ROWS, count);
+        assertEquals(0L, delta(before, parallelDecryptor.getStats(), "decryptedValues"));
+    }
+
+    private static String phone(int i) {
+        return String.format("138%08d", i);
+    }
+
+    private static long delta(Map<String, Object> before, Map<String, Object> after, String name) {
+        return (Long) after.get(name) - (Long) before.get(name);
+    }
+
+    /**
+     * 测试用账户Mapper
+     */
+    public interface AccountMapper {
+
+        @Insert("INSERT INTO account (phone) VALUES (#{phone})")
+        @Options(useGeneratedKeys = true, keyProperty = "id")
+        int insert(AccountEntity account);
+
+        @Select("SELECT id, phone FROM account ORDER BY id")
+        List<AccountEntity> selectAll();
+
+        @Select("SELECT id, phone FROM account ORDER BY id LIMIT #{limit}")
+        List<AccountEntity> selectFirst(int limit);
+
+        @Select("SELECT id, phone FROM account ORDER BY id")
+        Cursor<AccountEntity> selectCursor();
+    }
+
+    /**
+     * 测试用账户实体
+     */
+    @Data
+    public static class AccountEntity {
+
+        private Long id;
+
+        @EncryptField
+        private String phone;
+    }
+}
@@ -3,6 +3,7 @@ package com.chu7.securtkit.encrypt;
 import com.chu7.securtkit.encrypt.cache.TableFieldCache;
 import com.chu7.securtkit.encrypt.config.EncryptProperties;
 import com.chu7.securtkit.encrypt.visitor.DbEncryptStatementVisitor;
+import com.chu7.securtkit.encrypt.visitor.RewriteResult;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -46,9 +47,6 @@ public class PreparedStatementSqlTest {
     
     @BeforeEach
     void setUp() {
-        // 重置访问者状态
-        dbEncryptStatementVisitor.reset();
-        
         // 配置测试用的表字段缓存
         Set<String> userEncryptFields = new HashSet<>(Arrays.asList("phone", "email", "id_card"));
         tableFieldCache.addTableEncryptFields("user", userEncryptFields);
@@ -66,9 +64,10 @@ public class PreparedStatementSqlTest {
     void testSimpleSelectWithPreparedStatement() {
         // 测试简单的SELECT查询（使用?占位符）
         String selectSql = "SELECT phone, email, username FROM user WHERE phone = ?";
-        String processedSql = dbEncryptStatementVisitor.processSql(selectSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(selectSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         assertNotEquals(selectSql, processedSql);
         
@@ -88,9 +87,10 @@ public class PreparedStatementSqlTest {
     void testSelectWithMultipleConditions() {
         // 测试多条件的SELECT查询
         String selectSql = "SELECT phone, email, username FROM user WHERE phone = ? AND email = ? AND username = ?";
-        String processedSql = dbEncryptStatementVisitor.processSql(selectSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(selectSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("多条件SELECT查询原始SQL: " + selectSql);
@@ -101,9 +101,10 @@ public class PreparedStatementSqlTest {
     void testSelectWithLikeCondition() {
         // 测试带LIKE条件的SELECT查询
         String selectSql = "SELECT phone, email, username FROM user WHERE phone LIKE ? AND email LIKE ?";
-        String processedSql = dbEncryptStatementVisitor.processSql(selectSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(selectSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("LIKE条件SELECT查询原始SQL: " + selectSql);
@@ -114,9 +115,10 @@ public class PreparedStatementSqlTest {
     void testSelectWithInCondition() {
         // 测试带IN条件的SELECT查询
         String selectSql = "SELECT phone, email, username FROM user WHERE phone IN (?, ?, ?)";
-        String processedSql = dbEncryptStatementVisitor.processSql(selectSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(selectSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("IN条件SELECT查询原始SQL: " + selectSql);
@@ -127,9 +129,10 @@ public class PreparedStatementSqlTest {
     void testSelectWithBetweenCondition() {
         // 测试带BETWEEN条件的SELECT查询
         String selectSql = "SELECT phone, email, username FROM user WHERE phone BETWEEN ? AND ?";
-        String processedSql = dbEncryptStatementVisitor.processSql(selectSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(selectSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("BETWEEN条件SELECT查询原始SQL: " + selectSql);
@@ -142,11 +145,13 @@ public class PreparedStatementSqlTest {
     void testSimpleInsertWithPreparedStatement() {
         // 测试简单的INSERT语句（使用?占位符）
         String insertSql = "INSERT INTO user (username, phone, email, id_card, address) VALUES (?, ?, ?, ?, ?)";
-        String processedSql = dbEncryptStatementVisitor.processSql(insertSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(insertSql);
+        String processedSql = result.getSql();
         
-        // INSERT语句通常不需要修改，因为参数会在应用层加密
-        assertFalse(dbEncryptStatementVisitor.hasChanges());
-        assertEquals(insertSql, processedSql);
+        // 写入加密列的参数在数据库端加密
+        assertTrue(result.isChanged());
+        assertEquals("INSERT INTO user (username, phone, email, id_card, address) VALUES (?, "
+                + encrypted("?") + ", " + encrypted("?") + ", " + encrypted("?") + ", ?)", processedSql);
         
         System.out.println("简单INSERT语句: " + insertSql);
     }
@@ -158,11 +163,14 @@ public class PreparedStatementSqlTest {
                 "(?, ?, ?, ?, ?), " +
                 "(?, ?, ?, ?, ?), " +
                 "(?, ?, ?, ?, ?)";
-        String processedSql = dbEncryptStatementVisitor.processSql(insertSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(insertSql);
+        String processedSql = result.getSql();
         
-        // INSERT语句通常不需要修改，因为参数会在应用层加密
-        assertFalse(dbEncryptStatementVisitor.hasChanges());
-        assertEquals(insertSql, processedSql);
+        // 每一行的加密列都改为加密表达式
+        assertTrue(result.isChanged());
+        String row = "(?, " + encrypted("?") + ", " + encrypted("?") + ", " + encrypted("?") + ", ?)";
+        assertEquals("INSERT INTO user (username, phone, email, id_card, address) VALUES "
+                + row + ", " + row + ", " + row, processedSql);
         
         System.out.println("多值INSERT语句: " + insertSql);
     }
@@ -172,9 +180,10 @@ public class PreparedStatementSqlTest {
         // 测试INSERT INTO SELECT语句
         String insertSelectSql = "INSERT INTO user_backup (username, phone, email, id_card) " +
                 "SELECT username, phone, email, id_card FROM user WHERE phone = ?";
-        String processedSql = dbEncryptStatementVisitor.processSql(insertSelectSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(insertSelectSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("INSERT INTO SELECT原始SQL: " + insertSelectSql);
@@ -186,11 +195,13 @@ public class PreparedStatementSqlTest {
         // 测试带ON DUPLICATE KEY UPDATE的INSERT语句
         String insertSql = "INSERT INTO user (username, phone, email, id_card) VALUES (?, ?, ?, ?) " +
                 "ON DUPLICATE KEY UPDATE phone = ?, email = ?";
-        String processedSql = dbEncryptStatementVisitor.processSql(insertSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(insertSql);
+        String processedSql = result.getSql();
         
-        // INSERT语句通常不需要修改，因为参数会在应用层加密
-        assertFalse(dbEncryptStatementVisitor.hasChanges());
-        assertEquals(insertSql, processedSql);
+        assertTrue(result.isChanged());
+        assertEquals("INSERT INTO user (username, phone, email, id_card) VALUES (?, " + encrypted("?") + ", "
+                + encrypted("?") + ", " + encrypted("?") + ") ON DUPLICATE KEY UPDATE phone = " + encrypted("?")
+                + ", email = " + encrypted("?"), processedSql);
         
         System.out.println("ON DUPLICATE KEY UPDATE INSERT语句: " + insertSql);
     }
@@ -201,11 +212,13 @@ public class PreparedStatementSqlTest {
     void testSimpleUpdateWithPreparedStatement() {
         // 测试简单的UPDATE语句（使用?占位符）
         String updateSql = "UPDATE user SET phone = ?, email = ?, id_card = ? WHERE id = ?";
-        String processedSql = dbEncryptStatementVisitor.processSql(updateSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(updateSql);
+        String processedSql = result.getSql();
         
-        // UPDATE语句通常不需要修改，因为参数会在应用层加密
-        assertFalse(dbEncryptStatementVisitor.hasChanges());
-        assertEquals(updateSql, processedSql);
+        // 写入加密列的参数在数据库端加密
+        assertTrue(result.isChanged());
+        assertEquals("UPDATE user SET phone = " + encrypted("?") + ", email = " + encrypted("?")
+                + ", id_card = " + encrypted("?") + " WHERE id = ?", processedSql);
         
         System.out.println("简单UPDATE语句: " + updateSql);
     }
@@ -214,11 +227,12 @@ public class PreparedStatementSqlTest {
     void testUpdateWithMultipleConditions() {
         // 测试多条件的UPDATE语句
         String updateSql = "UPDATE user SET phone = ?, email = ? WHERE id = ? AND username = ?";
-        String processedSql = dbEncryptStatementVisitor.processSql(updateSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(updateSql);
+        String processedSql = result.getSql();
         
-        // UPDATE语句通常不需要修改，因为参数会在应用层加密
-        assertFalse(dbEncryptStatementVisitor.hasChanges());
-        assertEquals(updateSql, processedSql);
+        assertTrue(result.isChanged());
+        assertEquals("UPDATE user SET phone = " + encrypted("?") + ", email = " + encrypted("?")
+                + " WHERE id = ? AND username = ?", processedSql);
         
         System.out.println("多条件UPDATE语句: " + updateSql);
     }
@@ -231,9 +245,10 @@ public class PreparedStatementSqlTest {
                 "FROM orders o " +
                 "WHERE u.id = o.user_id " +
                 "AND o.customer_phone = ?";
-        String processedSql = dbEncryptStatementVisitor.processSql(updateJoinSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(updateJoinSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("UPDATE JOIN原始SQL: " + updateJoinSql);
@@ -252,9 +267,10 @@ public class PreparedStatementSqlTest {
                 "    LIMIT 1" +
                 ") " +
                 "WHERE u.phone = ?";
-        String processedSql = dbEncryptStatementVisitor.processSql(updateSubQuerySql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(updateSubQuerySql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("UPDATE子查询原始SQL: " + updateSubQuerySql);
@@ -267,10 +283,11 @@ public class PreparedStatementSqlTest {
     void testSimpleDeleteWithPreparedStatement() {
         // 测试简单的DELETE语句（使用?占位符）
         String deleteSql = "DELETE FROM user WHERE phone = ?";
-        String processedSql = dbEncryptStatementVisitor.processSql(deleteSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(deleteSql);
+        String processedSql = result.getSql();
         
         // DELETE语句的WHERE条件需要加密
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("简单DELETE语句原始SQL: " + deleteSql);
@@ -281,10 +298,11 @@ public class PreparedStatementSqlTest {
     void testDeleteWithMultipleConditions() {
         // 测试多条件的DELETE语句
         String deleteSql = "DELETE FROM user WHERE phone = ? AND email = ? AND username = ?";
-        String processedSql = dbEncryptStatementVisitor.processSql(deleteSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(deleteSql);
+        String processedSql = result.getSql();
         
         // DELETE语句的WHERE条件需要加密
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("多条件DELETE语句原始SQL: " + deleteSql);
@@ -299,9 +317,10 @@ public class PreparedStatementSqlTest {
                 "INNER JOIN orders o ON u.id = o.user_id " +
                 "WHERE o.customer_phone = ? " +
                 "AND u.phone = ?";
-        String processedSql = dbEncryptStatementVisitor.processSql(deleteJoinSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(deleteJoinSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("DELETE JOIN原始SQL: " + deleteJoinSql);
@@ -317,9 +336,10 @@ public class PreparedStatementSqlTest {
                 "    FROM orders " +
                 "    WHERE customer_phone = ?" +
                 ")";
-        String processedSql = dbEncryptStatementVisitor.processSql(deleteSubQuerySql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(deleteSubQuerySql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("DELETE子查询原始SQL: " + deleteSubQuerySql);
@@ -334,9 +354,10 @@ public class PreparedStatementSqlTest {
         String selectSql = "SELECT u.phone, u.email, o.customer_name, o.customer_phone " +
                 "FROM user u INNER JOIN orders o ON u.id = o.user_id " +
                 "WHERE u.phone = ? AND o.customer_phone = ?";
-        String processedSql = dbEncryptStatementVisitor.processSql(selectSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(selectSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("JOIN查询原始SQL: " + selectSql);
@@ -353,9 +374,10 @@ public class PreparedStatementSqlTest {
                 "AVG(CAST(SUBSTRING(phone, 1, 3) AS DECIMAL)) as avg_area_code " +
                 "FROM user " +
                 "WHERE phone LIKE ? AND email LIKE ?";
-        String processedSql = dbEncryptStatementVisitor.processSql(aggregateSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(aggregateSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("聚合函数查询原始SQL: " + aggregateSql);
@@ -373,9 +395,10 @@ public class PreparedStatementSqlTest {
                 "RANK() OVER (ORDER BY phone) as phone_rank " +
                 "FROM user " +
                 "WHERE phone = ?";
-        String processedSql = dbEncryptStatementVisitor.processSql(windowSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(windowSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("窗口函数查询原始SQL: " + windowSql);
@@ -396,9 +419,10 @@ public class PreparedStatementSqlTest {
                 "END as operator " +
                 "FROM user " +
                 "WHERE phone = ?";
-        String processedSql = dbEncryptStatementVisitor.processSql(caseWhenSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(caseWhenSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("CASE WHEN查询原始SQL: " + caseWhenSql);
@@ -420,9 +444,10 @@ public class PreparedStatementSqlTest {
                 "    AND o.customer_phone = ?" +
                 ") " +
                 "AND u.phone = ?";
-        String processedSql = dbEncryptStatementVisitor.processSql(existsSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(existsSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("EXISTS查询原始SQL: " + existsSql);
@@ -435,9 +460,10 @@ public class PreparedStatementSqlTest {
     void testNoEncryptFieldsQuery() {
         // 测试不包含加密字段的查询
         String noEncryptSql = "SELECT username, address FROM user WHERE username = ?";
-        String processedSql = dbEncryptStatementVisitor.processSql(noEncryptSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(noEncryptSql);
+        String processedSql = result.getSql();
         
-        assertFalse(dbEncryptStatementVisitor.hasChanges());
+        assertFalse(result.isChanged());
         assertEquals(noEncryptSql, processedSql);
         
         System.out.println("无加密字段查询: " + noEncryptSql);
@@ -447,9 +473,10 @@ public class PreparedStatementSqlTest {
     void testNoEncryptTableQuery() {
         // 测试不包含加密表的查询
         String noEncryptTableSql = "SELECT * FROM system_config WHERE config_key = ?";
-        String processedSql = dbEncryptStatementVisitor.processSql(noEncryptTableSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(noEncryptTableSql);
+        String processedSql = result.getSql();
         
-        assertFalse(dbEncryptStatementVisitor.hasChanges());
+        assertFalse(result.isChanged());
         assertEquals(noEncryptTableSql, processedSql);
         
         System.out.println("无加密表查询: " + noEncryptTableSql);
@@ -459,9 +486,10 @@ public class PreparedStatementSqlTest {
     void testMixedEncryptAndNonEncryptFields() {
         // 测试混合加密和非加密字段的查询
         String mixedSql = "SELECT username, phone, email, address FROM user WHERE phone = ? AND username = ?";
-        String processedSql = dbEncryptStatementVisitor.processSql(mixedSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(mixedSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("混合字段查询原始SQL: " + mixedSql);
@@ -477,12 +505,20 @@ public class PreparedStatementSqlTest {
                 "FROM user u " +
                 "INNER JOIN orders o ON u.id = o.user_id " +
                 "WHERE u.phone = ? AND o.customer_phone = ?";
-        String processedSql = dbEncryptStatementVisitor.processSql(multiTableSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(multiTableSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("多表不同加密字段查询原始SQL: " + multiTableSql);
         System.out.println("多表不同加密字段查询处理后SQL: " + processedSql);
     }
-} 
\ No newline at end of file
+    
+    /**
+     * 数据库端加密表达式
+     */
+    private static String encrypted(String value) {
+        return "TO_BASE64(AES_ENCRYPT(" + value + ", 'test-secret-key-32-chars-long'))";
+    }
+} 
@@ -0,0 +1,287 @@
+package com.chu7.securtkit.encrypt;
+
+import com.chu7.securtkit.encrypt.annotation.EncryptField;
+import com.chu7.securtkit.encrypt.config.TestConfig;
+import com.chu7.securtkit.encrypt.interceptor.EncryptPipelineInterceptor;
+import com.chu7.securtkit.encrypt.interceptor.PojoResultDecryptorInterceptor;
+import lombok.Data;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Many;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Result;
+import org.apache.ibatis.annotations.ResultType;
+import org.apache.ibatis.annotations.Results;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 查询结果解密测试类
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+    "securt-kit.encrypt.enabled=true",
+    "securt-kit.encrypt.patternType=POJO",
+    "securt-kit.encrypt.key=test-secret-key-32-chars-long"
+})
+@Import(TestConfig.class)
+public class ResultDecryptTest {
+
+    private static final String URL = "jdbc:h2:mem:result_decrypt;DB_CLOSE_DELAY=-1";
+
+    private static final List<String> PHONES = Arrays.asList("13800138000", "13912345678", "15800001380");
+
+    @Autowired
+    private EncryptPipelineInterceptor encryptPipelineInterceptor;
+
+    @Autowired
+    private PojoResultDecryptorInterceptor pojoResultDecryptorInterceptor;
+
+    private SqlSessionFactory sqlSessionFactory;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS member");
+            statement.execute("DROP TABLE IF EXISTS member_order");
+            statement.execute("CREATE TABLE member (id BIGINT AUTO_INCREMENT PRIMARY KEY, phone VARCHAR(255))");
+            statement.execute("CREATE TABLE member_order (id BIGINT AUTO_INCREMENT PRIMARY KEY, member_id BIGINT, "
+                    + "receiver_phone VARCHAR(255))");
+        }
+
+        Configuration configuration = new Configuration(new Environment("test", new JdbcTransactionFactory(),
+                new UnpooledDataSource("org.h2.Driver", URL, "sa", "")));
+        configuration.addMapper(MemberMapper.class);
+        configuration.addInterceptor(encryptPipelineInterceptor);
+        sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+
+        try (SqlSession session = sqlSessionFactory.openSession(true)) {
+            MemberMapper mapper = session.getMapper(MemberMapper.class);
+            for (String phone : PHONES) {
+                MemberEntity member = new MemberEntity();
+                member.setPhone(phone);
+                mapper.insert(member);
+                MemberOrderEntity order = new MemberOrderEntity();
+                order.setMemberId(member.getId());
+                order.setReceiverPhone("0" + phone);
+                mapper.insertOrder(order);
+            }
+        }
+
+        // 数据库中保存密文
+        try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT m.phone, o.receiver_phone FROM member m "
+                     + "JOIN member_order o ON o.member_id = m.id")) {
+            while (rs.next()) {
+                assertFalse(PHONES.contains(rs.getString(1)));
+                assertFalse(rs.getString(2).startsWith("0"));
+            }
+        }
+    }
+
+    @Test
+    void testResultHandlerRowsAreDecrypted() {
+        List<String> phones = new ArrayList<>();
+        try (SqlSession session = sqlSessionFactory.openSession()) {
+            session.getMapper(MemberMapper.class)
+                    .selectWithHandler(context -> phones.add(context.getResultObject().getPhone()));
+        }
+        assertEquals(PHONES, phones);
+    }
+
+    @Test
+    void testCursorRowsAreDecrypted() throws Exception {
+        List<String> phones = new ArrayList<>();
+        try (SqlSession session = sqlSessionFactory.openSession();
+             Cursor<MemberEntity> cursor = session.getMapper(MemberMapper.class).selectCursor()) {
+            for (MemberEntity member : cursor) {
+                phones.add(member.getPhone());
+                assertEquals(phones.size() - 1, cursor.getCurrentIndex());
+            }
+            assertTrue(cursor.isConsumed());
+        }
+        assertEquals(PHONES, phones);
+    }
+
+    @Test
+    void testListRowsAreDecrypted() {
+        try (SqlSession session = sqlSessionFactory.openSession()) {
+            List<String> phones = new ArrayList<>();
+            for (MemberEntity member : session.getMapper(MemberMapper.class).selectAll()) {
+                phones.add(member.getPhone());
+            }
+            assertEquals(PHONES, phones);
+        }
+    }
+
+    @Test
+    void testNestedResultsAreDecrypted() {
+        try (SqlSession session = sqlSessionFactory.openSession()) {
+            List<MemberEntity> members = session.getMapper(MemberMapper.class).selectWithOrders();
+            assertEquals(PHONES.size(), members.size());
+            for (int i = 0; i < PHONES.size(); i++) {
+                MemberEntity member = members.get(i);
+                assertEquals(PHONES.get(i), member.getPhone());
+                assertEquals(1, member.getOrders().size());
+                assertEquals("0" + PHONES.get(i), member.getOrders().get(0).getReceiverPhone());
+            }
+        }
+    }
+
+    @Test
+    void testSupportsOnlyResultsWithEncryptFields() {
+        Configuration configuration = sqlSessionFactory.getConfiguration();
+        String namespace = MemberMapper.class.getName() + ".";
+        assertTrue(pojoResultDecryptorInterceptor.supports(configuration.getMappedStatement(namespace + "selectAll")));
+        // 结果类型没有加密字段，嵌套集合的类型有
+        assertTrue(pojoResultDecryptorInterceptor.supports(
+                configuration.getMappedStatement(namespace + "selectSummariesWithOrders")));
+        assertFalse(pojoResultDecryptorInterceptor.supports(configuration.getMappedStatement(namespace + "selectSummaries")));
+        assertFalse(pojoResultDecryptorInterceptor.supports(configuration.getMappedStatement(namespace + "selectIds")));
+
+        try (SqlSession session = sqlSessionFactory.openSession()) {
+            List<MemberSummary> summaries = session.getMapper(MemberMapper.class).selectSummariesWithOrders();
+            assertEquals(PHONES.size(), summaries.size());
+            for (int i = 0; i < PHONES.size(); i++) {
+                assertEquals("0" + PHONES.get(i), summaries.get(i).getOrders().get(0).getReceiverPhone());
+            }
+        }
+    }
+
+    @Test
+    void testCachedResultsAreNotDecryptedTwice() {
+        try (SqlSession session = sqlSessionFactory.openSession()) {
+            MemberMapper mapper = session.getMapper(MemberMapper.class);
+            List<MemberEntity> first = mapper.selectAll();
+            // 同一会话再次查询命中一级缓存，返回同一批已解密的对象
+            assertSame(first, mapper.selectAll());
+            assertEquals(PHONES.get(0), first.get(0).getPhone());
+        }
+    }
+
+    /**
+     * 测试用会员Mapper
+     */
+    public interface MemberMapper {
+
+        @Insert("INSERT INTO member (phone) VALUES (#{phone})")
+        @Options(useGeneratedKeys = true, keyProperty = "id")
+        int insert(MemberEntity member);
+
+        @Insert("INSERT INTO member_order (member_id, receiver_phone) VALUES (#{memberId}, #{receiverPhone})")
+        @Options(useGeneratedKeys = true, keyProperty = "id")
+        int insertOrder(MemberOrderEntity order);
+
+        @Select("SELECT id, phone FROM member ORDER BY id")
+        List<MemberEntity> selectAll();
+
+        @Select("SELECT id, member_id, receiver_phone FROM member_order WHERE member_id = #{memberId}")
+        @Results(id = "orderMap", value = {
+            @Result(column = "id", property = "id", id = true),
+            @Result(column = "member_id", property = "memberId"),
+            @Result(column = "receiver_phone", property = "receiverPhone")
+        })
+        List<MemberOrderEntity> selectOrders(Long memberId);
+
+        @Select("SELECT m.id, m.phone, o.id AS order_id, o.member_id AS order_member_id, "
+                + "o.receiver_phone AS order_receiver_phone FROM member m "
+                + "LEFT JOIN member_order o ON o.member_id = m.id ORDER BY m.id")
+        @Results({
+            @Result(column = "id", property = "id", id = true),
+            @Result(column = "phone", property = "phone"),
+            @Result(property = "orders", many = @Many(resultMap = "orderMap", columnPrefix = "order_"))
+        })
+        List<MemberEntity> selectWithOrders();
+
+        @Select("SELECT m.id, o.id AS order_id, o.member_id AS order_member_id, "
+                + "o.receiver_phone AS order_receiver_phone FROM member m "
+                + "LEFT JOIN member_order o ON o.member_id = m.id ORDER BY m.id")
+        @Results({
+            @Result(column = "id", property = "id", id = true),
+            @Result(property = "orders", many = @Many(resultMap = "orderMap", columnPrefix = "order_"))
+        })
+        List<MemberSummary> selectSummariesWithOrders();
+
+        @Select("SELECT id FROM member ORDER BY id")
+        List<MemberSummary> selectSummaries();
+
+        @Select("SELECT id FROM member ORDER BY id")
+        List<Long> selectIds();
+
+        @Select("SELECT id, phone FROM member ORDER BY id")
+        Cursor<MemberEntity> selectCursor();
+
+        @Select("SELECT id, phone FROM member ORDER BY id")
+        @ResultType(MemberEntity.class)
+        void selectWithHandler(ResultHandler<MemberEntity> handler);
+    }
+
+    /**
+     * 测试用会员实体
+     */
+    @Data
+    public static class MemberEntity {
+
+        private Long id;
+
+        @EncryptField
+        private String phone;
+
+        private List<MemberOrderEntity> orders;
+    }
+
+    /**
+     * 测试用会员订单实体
+     */
+    @Data
+    public static class MemberOrderEntity {
+
+        private Long id;
+
+        private Long memberId;
+
+        @EncryptField
+        private String receiverPhone;
+    }
+
+    /**
+     * 测试用会员摘要，本身没有加密字段
+     */
+    @Data
+    public static class MemberSummary {
+
+        private Long id;
+
+        private List<MemberOrderEntity> orders;
+    }
+}
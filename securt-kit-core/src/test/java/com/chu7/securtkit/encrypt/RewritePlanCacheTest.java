@@ -0,0 +1,160 @@
+package com.chu7.securtkit.encrypt;
+
+import com.chu7.securtkit.encrypt.cache.RewritePlanCache;
+import com.chu7.securtkit.encrypt.cache.TableFieldCache;
+import com.chu7.securtkit.encrypt.config.TestConfig;
+import com.chu7.securtkit.encrypt.interceptor.DbFieldEncryptorInterceptor;
+import com.chu7.securtkit.encrypt.visitor.DbEncryptStatementVisitor;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.scripting.xmltags.DynamicSqlSource;
+import org.apache.ibatis.scripting.xmltags.TextSqlNode;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MappedStatement改写计划测试类
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+    "securt-kit.encrypt.enabled=true",
+    "securt-kit.encrypt.patternType=DB",
+    "securt-kit.encrypt.key=test-secret-key-32-chars-long"
+})
+@Import(TestConfig.class)
+public class RewritePlanCacheTest {
+
+    private static final String PRODUCT_SQL = "SELECT id, name FROM product WHERE id = ?";
+
+    private static final String USER_SQL = "SELECT id, phone FROM user WHERE phone = ?";
+
+    @Autowired
+    private DbEncryptStatementVisitor dbEncryptStatementVisitor;
+
+    @Autowired
+    private TableFieldCache tableFieldCache;
+
+    @Autowired
+    private DbFieldEncryptorInterceptor dbFieldEncryptorInterceptor;
+
+    @Autowired
+    private RewritePlanCache rewritePlanCache;
+
+    private Configuration configuration;
+
+    @BeforeEach
+    void setUp() {
+        configuration = new Configuration();
+        addStatement("plan.selectProduct", new StaticSqlSource(configuration, PRODUCT_SQL));
+        addStatement("plan.selectUser", new StaticSqlSource(configuration, USER_SQL));
+        addStatement("plan.selectDynamic", new DynamicSqlSource(configuration,
+                new TextSqlNode("SELECT phone FROM user WHERE id = ${id}")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        // 共享的缓存Bean中不保留本测试登记的计划
+        rewritePlanCache.unregister(configuration);
+    }
+
+    @Test
+    void testClassifyStatements() {
+        RewritePlanCache cache = new RewritePlanCache(dbEncryptStatementVisitor, tableFieldCache);
+        cache.register(configuration);
+
+        assertEquals(3, cache.size());
+        assertEquals(RewritePlanCache.Kind.NONE, cache.getPlan("plan.selectProduct").getKind());
+        assertEquals(RewritePlanCache.Kind.DYNAMIC, cache.getPlan("plan.selectDynamic").getKind());
+
+        RewritePlanCache.Plan plan = cache.getPlan("plan.selectUser");
+        assertEquals(RewritePlanCache.Kind.STATIC, plan.getKind());
+        assertEquals(dbEncryptStatementVisitor.rewrite(USER_SQL).getSql(), plan.getRewrittenSql());
+        assertTrue(plan.appliesTo(USER_SQL));
+        assertFalse(plan.appliesTo(USER_SQL + " LIMIT 10"));
+
+        assertNull(cache.getPlan("plan.unknown"));
+    }
+
+    @Test
+    void testRebuildOnTableChange() {
+        RewritePlanCache cache = new RewritePlanCache(dbEncryptStatementVisitor, tableFieldCache);
+        cache.register(configuration);
+        assertEquals(RewritePlanCache.Kind.NONE, cache.getPlan("plan.selectProduct").getKind());
+
+        tableFieldCache.addTableEncryptFields("product", new HashSet<>(Collections.singletonList("name")));
+        try {
+            cache.rebuild();
+            assertEquals(RewritePlanCache.Kind.STATIC, cache.getPlan("plan.selectProduct").getKind());
+        } finally {
+            tableFieldCache.clearTableCache("product");
+        }
+    }
+
+    @Test
+    void testInterceptorUsesPlan() throws Throwable {
+        rewritePlanCache.register(configuration);
+
+        BoundSql userSql = intercept("plan.selectUser");
+        assertEquals(rewritePlanCache.getPlan("plan.selectUser").getRewrittenSql(), userSql.getSql());
+
+        BoundSql productSql = intercept("plan.selectProduct");
+        assertEquals(PRODUCT_SQL, productSql.getSql());
+
+        BoundSql dynamicSql = intercept("plan.selectDynamic");
+        assertTrue(dynamicSql.getSql().contains("AES_DECRYPT"));
+    }
+
+    @Test
+    void testStatementWithoutEncryptColumnsIsRewrittenAfterSqlChange() throws Throwable {
+        rewritePlanCache.register(configuration);
+        MappedStatement mappedStatement = configuration.getMappedStatement("plan.selectProduct");
+        assertEquals(RewritePlanCache.Kind.NONE, rewritePlanCache.getPlan("plan.selectProduct").getKind());
+        assertTrue(dbFieldEncryptorInterceptor.supports(mappedStatement));
+
+        // 其他插件把SQL改成了访问加密表的语句，启动时的计划不再适用
+        BoundSql boundSql = new BoundSql(configuration, USER_SQL, Collections.emptyList(), null);
+        StatementHandler statementHandler = configuration.newStatementHandler(null, mappedStatement,
+                null, RowBounds.DEFAULT, null, boundSql);
+        dbFieldEncryptorInterceptor.intercept(
+                new Invocation(statementHandler, Object.class.getMethod("hashCode"), new Object[0]));
+        assertEquals(dbEncryptStatementVisitor.rewrite(USER_SQL).getSql(), boundSql.getSql());
+    }
+
+    private BoundSql intercept(String statementId) throws Throwable {
+        MappedStatement mappedStatement = configuration.getMappedStatement(statementId);
+        BoundSql boundSql = mappedStatement.getBoundSql(Collections.singletonMap("id", 1));
+        StatementHandler statementHandler = configuration.newStatementHandler(null, mappedStatement,
+                null, RowBounds.DEFAULT, null, boundSql);
+        // 只验证改写，不执行真正的prepare
+        dbFieldEncryptorInterceptor.intercept(
+                new Invocation(statementHandler, Object.class.getMethod("hashCode"), new Object[0]));
+        return boundSql;
+    }
+
+    private void addStatement(String id, SqlSource sqlSource) {
+        configuration.addMappedStatement(
+                new MappedStatement.Builder(configuration, id, sqlSource, SqlCommandType.SELECT).build());
+    }
+}
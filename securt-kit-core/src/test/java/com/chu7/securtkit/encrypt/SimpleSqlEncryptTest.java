@@ -3,6 +3,7 @@ package com.chu7.securtkit.encrypt;
 import com.chu7.securtkit.encrypt.cache.TableFieldCache;
 import com.chu7.securtkit.encrypt.config.EncryptProperties;
 import com.chu7.securtkit.encrypt.visitor.DbEncryptStatementVisitor;
+import com.chu7.securtkit.encrypt.visitor.RewriteResult;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -46,9 +47,6 @@ public class SimpleSqlEncryptTest {
     
     @BeforeEach
     void setUp() {
-        // 重置访问者状态
-        dbEncryptStatementVisitor.reset();
-        
         // 配置测试用的表字段缓存
         Set<String> userEncryptFields = new HashSet<>(Arrays.asList("phone", "email", "id_card"));
         tableFieldCache.addTableEncryptFields("user", userEncryptFields);
@@ -59,9 +57,10 @@ public class SimpleSqlEncryptTest {
     void testSimpleSelectQuery() {
         // 测试简单的SELECT查询
         String simpleSql = "SELECT phone, email, username FROM user WHERE phone = ?";
-        String processedSql = dbEncryptStatementVisitor.processSql(simpleSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(simpleSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         assertNotEquals(simpleSql, processedSql);
         
@@ -81,9 +80,10 @@ public class SimpleSqlEncryptTest {
     void testSelectWithAlias() {
         // 测试带别名的SELECT查询
         String aliasSql = "SELECT u.phone, u.email, u.username FROM user u WHERE u.phone = ?";
-        String processedSql = dbEncryptStatementVisitor.processSql(aliasSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(aliasSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("带别名SELECT查询原始SQL: " + aliasSql);
@@ -94,9 +94,10 @@ public class SimpleSqlEncryptTest {
     void testSelectWithMultipleConditions() {
         // 测试多条件的SELECT查询
         String multiConditionSql = "SELECT phone, email, username FROM user WHERE phone = ? AND email = ?";
-        String processedSql = dbEncryptStatementVisitor.processSql(multiConditionSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(multiConditionSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("多条件SELECT查询原始SQL: " + multiConditionSql);
@@ -107,9 +108,10 @@ public class SimpleSqlEncryptTest {
     void testDeleteQuery() {
         // 测试DELETE查询
         String deleteSql = "DELETE FROM user WHERE phone = ?";
-        String processedSql = dbEncryptStatementVisitor.processSql(deleteSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(deleteSql);
+        String processedSql = result.getSql();
         
-        assertTrue(dbEncryptStatementVisitor.hasChanges());
+        assertTrue(result.isChanged());
         assertNotNull(processedSql);
         
         System.out.println("DELETE查询原始SQL: " + deleteSql);
@@ -120,11 +122,15 @@ public class SimpleSqlEncryptTest {
     void testInsertQuery() {
         // 测试INSERT查询
         String insertSql = "INSERT INTO user (username, phone, email, id_card, address) VALUES (?, ?, ?, ?, ?)";
-        String processedSql = dbEncryptStatementVisitor.processSql(insertSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(insertSql);
+        String processedSql = result.getSql();
         
-        // INSERT语句通常不需要修改，因为参数会在应用层加密
-        assertFalse(dbEncryptStatementVisitor.hasChanges());
-        assertEquals(insertSql, processedSql);
+        // 写入加密列的参数在数据库端加密
+        assertTrue(result.isChanged());
+        assertEquals("INSERT INTO user (username, phone, email, id_card, address) VALUES (?, "
+                + "TO_BASE64(AES_ENCRYPT(?, 'test-secret-key-32-chars-long')), "
+                + "TO_BASE64(AES_ENCRYPT(?, 'test-secret-key-32-chars-long')), "
+                + "TO_BASE64(AES_ENCRYPT(?, 'test-secret-key-32-chars-long')), ?)", processedSql);
         
         System.out.println("INSERT查询: " + insertSql);
     }
@@ -133,11 +139,14 @@ public class SimpleSqlEncryptTest {
     void testUpdateQuery() {
         // 测试UPDATE查询
         String updateSql = "UPDATE user SET phone = ?, email = ?, id_card = ? WHERE id = ?";
-        String processedSql = dbEncryptStatementVisitor.processSql(updateSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(updateSql);
+        String processedSql = result.getSql();
         
-        // UPDATE语句通常不需要修改，因为参数会在应用层加密
-        assertFalse(dbEncryptStatementVisitor.hasChanges());
-        assertEquals(updateSql, processedSql);
+        // 写入加密列的参数在数据库端加密
+        assertTrue(result.isChanged());
+        assertEquals("UPDATE user SET phone = TO_BASE64(AES_ENCRYPT(?, 'test-secret-key-32-chars-long')), "
+                + "email = TO_BASE64(AES_ENCRYPT(?, 'test-secret-key-32-chars-long')), "
+                + "id_card = TO_BASE64(AES_ENCRYPT(?, 'test-secret-key-32-chars-long')) WHERE id = ?", processedSql);
         
         System.out.println("UPDATE查询: " + updateSql);
     }
@@ -146,9 +155,10 @@ public class SimpleSqlEncryptTest {
     void testNoEncryptFieldsQuery() {
         // 测试不包含加密字段的查询
         String noEncryptSql = "SELECT username, address FROM user WHERE username = ?";
-        String processedSql = dbEncryptStatementVisitor.processSql(noEncryptSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(noEncryptSql);
+        String processedSql = result.getSql();
         
-        assertFalse(dbEncryptStatementVisitor.hasChanges());
+        assertFalse(result.isChanged());
         assertEquals(noEncryptSql, processedSql);
         
         System.out.println("无加密字段查询: " + noEncryptSql);
@@ -158,9 +168,10 @@ public class SimpleSqlEncryptTest {
     void testNoEncryptTableQuery() {
         // 测试不包含加密表的查询
         String noEncryptTableSql = "SELECT * FROM system_config WHERE config_key = ?";
-        String processedSql = dbEncryptStatementVisitor.processSql(noEncryptTableSql);
+        RewriteResult result = dbEncryptStatementVisitor.rewrite(noEncryptTableSql);
+        String processedSql = result.getSql();
         
-        assertFalse(dbEncryptStatementVisitor.hasChanges());
+        assertFalse(result.isChanged());
         assertEquals(noEncryptTableSql, processedSql);
         
         System.out.println("无加密表查询: " + noEncryptTableSql);
@@ -0,0 +1,113 @@
+package com.chu7.securtkit.encrypt;
+
+import com.chu7.securtkit.encrypt.cache.SqlRewriteCache;
+import com.chu7.securtkit.encrypt.cache.TableFieldCache;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SQL改写缓存测试类
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+public class SqlRewriteCacheTest {
+
+    @Test
+    void testPositiveAndNegativeEntries() {
+        SqlRewriteCache cache = new SqlRewriteCache(16, true);
+        String sql = "SELECT phone FROM user WHERE id = ?";
+        String plainSql = "SELECT * FROM product WHERE id = ?";
+
+        assertNull(cache.get(sql));
+        cache.put(sql, "SELECT CAST(AES_DECRYPT(FROM_BASE64(phone), 'k') AS CHAR) AS phone FROM user WHERE id = ?", cache.version());
+        cache.put(plainSql, null, cache.version());
+
+        SqlRewriteCache.Entry entry = cache.get(sql);
+        assertNotNull(entry);
+        assertTrue(entry.isRewritten());
+
+        // 不需要改写的SQL同样命中缓存
+        SqlRewriteCache.Entry negative = cache.get(plainSql);
+        assertNotNull(negative);
+        assertFalse(negative.isRewritten());
+        assertNull(negative.getRewrittenSql());
+    }
+
+    @Test
+    void testSizeIsBounded() {
+        SqlRewriteCache cache = new SqlRewriteCache(100, true);
+        for (int i = 0; i < 100; i++) {
+            cache.put("SELECT " + i, null, cache.version());
+        }
+        // 保持第0条活跃
+        cache.get("SELECT 0");
+        for (int i = 100; i < 1000; i++) {
+            cache.put("SELECT " + i, null, cache.version());
+            cache.get("SELECT 0");
+        }
+
+        assertTrue(cache.size() <= 100);
+        assertNotNull(cache.get("SELECT 0"));
+        assertNotNull(cache.get("SELECT 999"));
+    }
+
+    @Test
+    void testEvictsOldestBatch() {
+        SqlRewriteCache cache = new SqlRewriteCache(100, true);
+        for (int i = 0; i < 100; i++) {
+            cache.put("SELECT " + i, null, cache.version());
+        }
+        for (int i = 0; i < 10; i++) {
+            cache.get("SELECT " + i);
+        }
+
+        // 满容量时写入新条目，淘汰访问时间最早的一批（容量的10%）
+        cache.put("SELECT 100", null, cache.version());
+        assertEquals(91, cache.size());
+        for (int i = 0; i < 10; i++) {
+            assertNotNull(cache.get("SELECT " + i));
+            assertNull(cache.get("SELECT " + (10 + i)));
+        }
+        assertNotNull(cache.get("SELECT 20"));
+        assertNotNull(cache.get("SELECT 100"));
+    }
+
+    @Test
+    void testInvalidatedWhenTableFieldCacheChanges() {
+        TableFieldCache tableFieldCache = new TableFieldCache();
+        SqlRewriteCache cache = new SqlRewriteCache(16, true);
+        tableFieldCache.addChangeListener(cache::invalidate);
+
+        long tableVersion = tableFieldCache.getVersion();
+        cache.put("SELECT phone FROM user", null, cache.version());
+        assertEquals(1, cache.size());
+
+        tableFieldCache.addTableEncryptFields("user", new HashSet<>(Arrays.asList("phone")));
+        assertEquals(0, cache.size());
+        assertTrue(tableFieldCache.getVersion() > tableVersion);
+    }
+
+    @Test
+    void testStaleResultIsDiscarded() {
+        SqlRewriteCache cache = new SqlRewriteCache(16, true);
+        long version = cache.version();
+
+        // 计算期间配置发生变化，旧结果不写入
+        cache.invalidate();
+        cache.put("SELECT phone FROM user", null, version);
+        assertNull(cache.get("SELECT phone FROM user"));
+    }
+
+    @Test
+    void testDisabledCache() {
+        SqlRewriteCache cache = new SqlRewriteCache(16, false);
+        cache.put("SELECT 1", null, cache.version());
+        assertNull(cache.get("SELECT 1"));
+        assertEquals(0, cache.size());
+    }
+}
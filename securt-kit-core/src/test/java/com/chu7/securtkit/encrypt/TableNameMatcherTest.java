@@ -0,0 +1,68 @@
+package com.chu7.securtkit.encrypt;
+
+import com.chu7.securtkit.encrypt.cache.TableFieldCache;
+import com.chu7.securtkit.encrypt.cache.TableNameMatcher;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 表名多模式匹配器测试类
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+public class TableNameMatcherTest {
+
+    @Test
+    void testTokenBoundary() {
+        TableNameMatcher matcher = TableNameMatcher.build(Arrays.asList("user", "orders", "user_log_archive"));
+
+        assertTrue(matcher.matches("SELECT * FROM user WHERE id = ?"));
+        assertTrue(matcher.matches("select * from USER"));
+        assertTrue(matcher.matches("SELECT * FROM `user` u"));
+        assertTrue(matcher.matches("SELECT * FROM db.Orders o"));
+        assertTrue(matcher.matches("user"));
+
+        assertFalse(matcher.matches("SELECT * FROM user_log WHERE id = ?"));
+        assertFalse(matcher.matches("SELECT * FROM t_user"));
+        assertFalse(matcher.matches("SELECT * FROM users"));
+        assertFalse(matcher.matches("SELECT * FROM product"));
+        assertFalse(matcher.matches(""));
+        assertFalse(matcher.matches(null));
+    }
+
+    @Test
+    void testOverlappingPatterns() {
+        // 长表名中包含短表名时，短表名不在边界上但长表名在边界上
+        TableNameMatcher matcher = TableNameMatcher.build(Arrays.asList("log", "user_log"));
+
+        assertTrue(matcher.matches("SELECT * FROM user_log"));
+        assertTrue(matcher.matches("SELECT * FROM log"));
+        assertFalse(matcher.matches("SELECT * FROM user_logs"));
+        assertFalse(matcher.matches("SELECT * FROM a_user_log"));
+    }
+
+    @Test
+    void testEmptyMatcher() {
+        assertFalse(TableNameMatcher.build(Collections.emptyList()).matches("SELECT * FROM user"));
+        assertFalse(TableNameMatcher.EMPTY.matches("SELECT * FROM user"));
+    }
+
+    @Test
+    void testRebuiltOnCacheChange() {
+        TableFieldCache cache = new TableFieldCache();
+        assertFalse(cache.containsEncryptTable("SELECT * FROM user"));
+
+        cache.addTableEncryptFields("user", new HashSet<>(Collections.singletonList("phone")));
+        assertTrue(cache.containsEncryptTable("SELECT * FROM user"));
+        assertFalse(cache.containsEncryptTable("SELECT * FROM user_log"));
+
+        cache.clearTableCache("user");
+        assertFalse(cache.containsEncryptTable("SELECT * FROM user"));
+    }
+}
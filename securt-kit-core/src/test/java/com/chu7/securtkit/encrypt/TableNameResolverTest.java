@@ -0,0 +1,133 @@
+package com.chu7.securtkit.encrypt;
+
+import com.chu7.securtkit.encrypt.cache.TableFieldCache;
+import com.chu7.securtkit.encrypt.cache.TableNameResolver;
+import com.chu7.securtkit.encrypt.entity.OrderEntity;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.javassist.util.proxy.ProxyFactory;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 实体表名解析器测试类
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+public class TableNameResolverTest {
+
+    private TableFieldCache tableFieldCache;
+
+    private TableNameResolver resolver;
+
+    @BeforeEach
+    void setUp() {
+        tableFieldCache = new TableFieldCache();
+        resolver = new TableNameResolver(tableFieldCache);
+        tableFieldCache.addChangeListener(resolver::invalidate);
+        tableFieldCache.addClassMappingListener(resolver::invalidate);
+    }
+
+    @Test
+    void testResolveClass() {
+        // 类名推断
+        assertEquals("profile", resolver.getTableName(ProfileDTO.class));
+        assertEquals("order", resolver.getTableName(OrderEntity.class));
+
+        // @TableName，父类上的注解同样生效
+        assertEquals("t_account", resolver.getTableName(AccountEntity.class));
+        assertEquals("t_account", resolver.getTableName(VipAccountEntity.class));
+
+        // 登记的映射优先，映射变化时重新解析
+        tableFieldCache.addClassNameToTableName(OrderEntity.class.getName(), "orders");
+        assertEquals("orders", resolver.getTableName(OrderEntity.class));
+        tableFieldCache.addClassNameToTableName(AccountEntity.class.getName(), "account");
+        assertEquals("account", resolver.getTableName(AccountEntity.class));
+
+        assertNull(resolver.getTableName((Class<?>) null));
+    }
+
+    @Test
+    void testResolveStatement() {
+        Configuration configuration = new Configuration();
+        assertEquals("t_account", resolver.getTableName(statement(configuration, "account.select", AccountEntity.class)));
+        assertNull(resolver.getTableName(statement(configuration, "account.count", Long.class)));
+        assertNull(resolver.getTableName(statement(configuration, "account.map", Map.class)));
+
+        tableFieldCache.addClassNameToTableName(OrderEntity.class.getName(), "orders");
+        assertEquals("orders", resolver.getTableName(statement(configuration, "order.select", OrderEntity.class)));
+    }
+
+    @Test
+    void testClassMappingChangeOnlyInvalidatesThatClass() {
+        AtomicInteger changes = new AtomicInteger();
+        AtomicInteger mappingChanges = new AtomicInteger();
+        tableFieldCache.addChangeListener(changes::incrementAndGet);
+        tableFieldCache.addClassMappingListener(className -> mappingChanges.incrementAndGet());
+        long version = tableFieldCache.getVersion();
+
+        Configuration configuration = new Configuration();
+        MappedStatement orderSelect = statement(configuration, "order.select", OrderEntity.class);
+        assertEquals("order", resolver.getTableName(orderSelect));
+        ProxyFactory proxyFactory = new ProxyFactory();
+        proxyFactory.setSuperclass(OrderEntity.class);
+        Class<?> proxyType = proxyFactory.createClass();
+        assertEquals("order", resolver.getTableName(proxyType));
+
+        tableFieldCache.addClassNameToTableName(OrderEntity.class.getName(), "orders");
+        // 类名映射不属于表加密字段，不重建改写计划
+        assertEquals(0, changes.get());
+        assertEquals(1, mappingChanges.get());
+        assertEquals(version, tableFieldCache.getVersion());
+        // 该类、代理类以及以该类为结果类型的语句按新映射解析
+        assertEquals("orders", resolver.getTableName(OrderEntity.class));
+        assertEquals("orders", resolver.getTableName(proxyType));
+        assertEquals("orders", resolver.getTableName(orderSelect));
+
+        // 映射未变化时不通知
+        tableFieldCache.addClassNameToTableName(OrderEntity.class.getName(), "orders");
+        assertEquals(1, mappingChanges.get());
+    }
+
+    private static MappedStatement statement(Configuration configuration, String id, Class<?> resultType) {
+        ResultMap resultMap = new ResultMap.Builder(configuration, id + "-Inline", resultType, new ArrayList<>())
+                .build();
+        return new MappedStatement.Builder(configuration, id, new StaticSqlSource(configuration, "SELECT 1"),
+                SqlCommandType.SELECT).resultMaps(Collections.singletonList(resultMap)).build();
+    }
+
+    /**
+     * 与MyBatis-Plus同名的表名注解
+     */
+    @Target(ElementType.TYPE)
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface TableName {
+
+        String value();
+    }
+
+    @TableName("t_account")
+    static class AccountEntity {
+    }
+
+    static class VipAccountEntity extends AccountEntity {
+    }
+
+    static class ProfileDTO {
+    }
+}
@@ -0,0 +1,153 @@
+package com.chu7.securtkit.encrypt.benchmark;
+
+import com.chu7.securtkit.encrypt.core.FieldAccessor;
+import com.chu7.securtkit.encrypt.core.FieldAccessorFactory;
+import com.chu7.securtkit.encrypt.entity.OrderEntity;
+import com.chu7.securtkit.encrypt.entity.UserEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 字段访问基准测试
+ * 对比 {@link FieldAccessorFactory} 的反射、MethodHandle、lambda 三种访问器
+ * <p>
+ * 运行方式：mvn -pl securt-kit-core test-compile 后执行本类的 main 方法
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FieldAccessorBenchmark {
+
+    private static final String[] USER_FIELDS = {"phone", "email", "idCard"};
+
+    private static final String[] ORDER_FIELDS = {"customerName", "customerPhone", "customerEmail", "deliveryAddress"};
+
+    private UserEntity user;
+
+    private OrderEntity order;
+
+    private Field[] userFields;
+
+    private Field[] orderFields;
+
+    private FieldAccessor[] userMethodHandles;
+
+    private FieldAccessor[] orderMethodHandles;
+
+    private FieldAccessor[] userLambdas;
+
+    private FieldAccessor[] orderLambdas;
+
+    @Setup
+    public void setup() throws Exception {
+        user = new UserEntity(1L, "zhangsan", "13800138000", "zhangsan@example.com", "110101199001011234", "北京市");
+        order = new OrderEntity();
+        order.setCustomerName("李四");
+        order.setCustomerPhone("13900139000");
+        order.setCustomerEmail("lisi@example.com");
+        order.setDeliveryAddress("上海市");
+
+        userFields = fields(UserEntity.class, USER_FIELDS);
+        orderFields = fields(OrderEntity.class, ORDER_FIELDS);
+        userMethodHandles = new FieldAccessor[userFields.length];
+        userLambdas = new FieldAccessor[userFields.length];
+        for (int i = 0; i < userFields.length; i++) {
+            userMethodHandles[i] = FieldAccessorFactory.methodHandle(userFields[i]);
+            userLambdas[i] = FieldAccessorFactory.lambda(userFields[i]);
+        }
+        orderMethodHandles = new FieldAccessor[orderFields.length];
+        orderLambdas = new FieldAccessor[orderFields.length];
+        for (int i = 0; i < orderFields.length; i++) {
+            orderMethodHandles[i] = FieldAccessorFactory.methodHandle(orderFields[i]);
+            orderLambdas[i] = FieldAccessorFactory.lambda(orderFields[i]);
+        }
+    }
+
+    @Benchmark
+    public int userReflection() throws IllegalAccessException {
+        return copyWithReflection(user, userFields);
+    }
+
+    @Benchmark
+    public int userMethodHandle() {
+        return copyWithAccessor(user, userMethodHandles);
+    }
+
+    @Benchmark
+    public int userLambda() {
+        return copyWithAccessor(user, userLambdas);
+    }
+
+    @Benchmark
+    public int orderReflection() throws IllegalAccessException {
+        return copyWithReflection(order, orderFields);
+    }
+
+    @Benchmark
+    public int orderMethodHandle() {
+        return copyWithAccessor(order, orderMethodHandles);
+    }
+
+    @Benchmark
+    public int orderLambda() {
+        return copyWithAccessor(order, orderLambdas);
+    }
+
+    /**
+     * 模拟解密流程：读取每个加密字段再写回
+     */
+    private int copyWithReflection(Object target, Field[] fields) throws IllegalAccessException {
+        int length = 0;
+        for (Field field : fields) {
+            Object value = field.get(target);
+            field.set(target, value);
+            length += ((String) value).length();
+        }
+        return length;
+    }
+
+    private int copyWithAccessor(Object target, FieldAccessor[] accessors) {
+        int length = 0;
+        for (FieldAccessor accessor : accessors) {
+            Object value = accessor.get(target);
+            accessor.set(target, value);
+            length += ((String) value).length();
+        }
+        return length;
+    }
+
+    private static Field[] fields(Class<?> type, String[] names) throws NoSuchFieldException {
+        Field[] fields = new Field[names.length];
+        for (int i = 0; i < names.length; i++) {
+            fields[i] = type.getDeclaredField(names[i]);
+            fields[i].setAccessible(true);
+        }
+        return fields;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FieldAccessorBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,797 @@
+package com.chu7.securtkit.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * {@code @EncryptField} 注解处理器
+ * <p>
+ * 编译期扫描包含加密字段的类：
+ * 1. 为可以直接访问字段的类生成 {@code <实体名>_Encryptor}，实现 EntityEncryptor，通过getter/setter读写加密字段
+ *    以及盲索引、保序索引影子属性
+ * 2. 生成 {@value #INDEX_LOCATION} 索引，记录 实体 -> 表名 -> 加密列 以及生成的加密器类名；
+ *    增量编译时合并输出目录中已有的索引，保留未重新编译且仍存在的实体
+ * <p>
+ * 处理器本身不依赖 securt-kit-core，注解均按全限定名识别。
+ *
+ * @author chu7
+ * @date 2025/8/15
+ */
+@SupportedAnnotationTypes(EncryptFieldProcessor.ENCRYPT_FIELD)
+public class EncryptFieldProcessor extends AbstractProcessor {
+
+    static final String ENCRYPT_FIELD = "com.chu7.securtkit.encrypt.annotation.EncryptField";
+
+    /**
+     * 索引文件位置，与 EncryptEntityIndex 保持一致
+     */
+    static final String INDEX_LOCATION = "META-INF/securt-kit/encrypt-entities.properties";
+
+    private static final String ENTITY_ENCRYPTOR = "com.chu7.securtkit.encrypt.core.EntityEncryptor";
+
+    private static final String ENCRYPTOR_SUFFIX = "_Encryptor";
+
+    private static final String TABLE_SUFFIX = ".table";
+
+    private static final String COLUMNS_SUFFIX = ".columns";
+
+    private static final String BLIND_INDEXES_SUFFIX = ".blindIndexes";
+
+    private static final String LIKE_INDEXES_SUFFIX = ".likeIndexes";
+
+    private static final String ORDER_INDEXES_SUFFIX = ".orderIndexes";
+
+    private static final String ENCRYPTOR_CLASS_SUFFIX = ".encryptor";
+
+    /**
+     * 索引属性后缀，与 EncryptEntityIndex 保持一致
+     */
+    private static final String[] INDEX_SUFFIXES = {TABLE_SUFFIX, COLUMNS_SUFFIX, BLIND_INDEXES_SUFFIX,
+            LIKE_INDEXES_SUFFIX, ORDER_INDEXES_SUFFIX, ENCRYPTOR_CLASS_SUFFIX};
+
+    private Elements elements;
+
+    private Types types;
+
+    private Filer filer;
+
+    private Messager messager;
+
+    /**
+     * 实体全限定名 -> 索引条目，按类名排序保证输出稳定
+     */
+    private final Map<String, IndexEntry> index = new TreeMap<>();
+
+    /**
+     * 本次编译的类型（含嵌套类）的二进制名，已有索引中这些类型的条目以本次结果为准
+     */
+    private final Set<String> compiledTypes = new HashSet<>();
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        this.elements = processingEnv.getElementUtils();
+        this.types = processingEnv.getTypeUtils();
+        this.filer = processingEnv.getFiler();
+        this.messager = processingEnv.getMessager();
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            writeIndex();
+            return false;
+        }
+        for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+            collectCompiledTypes(type);
+        }
+
+        TypeElement encryptField = elements.getTypeElement(ENCRYPT_FIELD);
+        if (encryptField == null) {
+            return false;
+        }
+
+        Map<TypeElement, Boolean> entities = new LinkedHashMap<>();
+        for (Element element : roundEnv.getElementsAnnotatedWith(encryptField)) {
+            if (element.getKind() == ElementKind.FIELD) {
+                entities.put((TypeElement) element.getEnclosingElement(), Boolean.TRUE);
+            }
+        }
+        for (TypeElement entity : entities.keySet()) {
+            processEntity(entity);
+        }
+        return false;
+    }
+
+    private void collectCompiledTypes(TypeElement type) {
+        compiledTypes.add(elements.getBinaryName(type).toString());
+        for (TypeElement nested : ElementFilter.typesIn(type.getEnclosedElements())) {
+            collectCompiledTypes(nested);
+        }
+    }
+
+    private void processEntity(TypeElement entity) {
+        List<EncryptedField> fields = collectFields(entity);
+        if (fields.isEmpty()) {
+            return;
+        }
+
+        String encryptorName = null;
+        if (canGenerate(entity, fields)) {
+            encryptorName = writeEncryptor(entity, fields);
+        } else {
+            messager.printMessage(Diagnostic.Kind.NOTE,
+                    "加密字段或影子属性无法直接访问，运行期使用反射: " + entity.getQualifiedName(), entity);
+        }
+
+        List<String> columns = new ArrayList<>();
+        List<String> blindIndexes = new ArrayList<>();
+        List<String> likeIndexes = new ArrayList<>();
+        List<String> orderIndexes = new ArrayList<>();
+        for (EncryptedField field : fields) {
+            columns.add(field.column);
+            String blindIndex = shadowColumn(field, "blindIndex");
+            if (!blindIndex.isEmpty()) {
+                blindIndexes.add(field.column + ":" + blindIndex);
+            }
+            if (booleanValue(findAnnotation(field.element, ENCRYPT_FIELD), "likeIndex", false)) {
+                likeIndexes.add(field.column);
+            }
+            String orderIndex = shadowColumn(field, "orderIndex");
+            if (!orderIndex.isEmpty()) {
+                orderIndexes.add(field.column + ":" + orderIndex);
+            }
+        }
+        index.put(elements.getBinaryName(entity).toString(),
+                new IndexEntry(tableName(entity), columns, blindIndexes, likeIndexes, orderIndexes, encryptorName));
+    }
+
+    /**
+     * 收集启用加密的字段，父类字段在前，与运行期反射扫描的顺序一致
+     */
+    private List<EncryptedField> collectFields(TypeElement entity) {
+        Deque<TypeElement> hierarchy = new ArrayDeque<>();
+        for (TypeElement current = entity; current != null; current = superclass(current)) {
+            hierarchy.push(current);
+        }
+
+        List<EncryptedField> fields = new ArrayList<>();
+        for (TypeElement current : hierarchy) {
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                if (field.getModifiers().contains(Modifier.STATIC)) {
+                    continue;
+                }
+                AnnotationMirror annotation = findAnnotation(field, ENCRYPT_FIELD);
+                if (annotation == null || !booleanValue(annotation, "enabled", true)) {
+                    continue;
+                }
+                fields.add(new EncryptedField(current, field, columnName(field)));
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * 只为非泛型、可从同包访问、所有加密字段都能直接读写的类生成加密器
+     */
+    private boolean canGenerate(TypeElement entity, List<EncryptedField> fields) {
+        if (entity.getModifiers().contains(Modifier.PRIVATE) || !entity.getTypeParameters().isEmpty()) {
+            return false;
+        }
+        if (entity.getNestingKind() == NestingKind.MEMBER && !entity.getModifiers().contains(Modifier.STATIC)) {
+            return false;
+        }
+        if (entity.getNestingKind() == NestingKind.LOCAL || entity.getNestingKind() == NestingKind.ANONYMOUS) {
+            return false;
+        }
+        for (EncryptedField field : fields) {
+            field.getter = accessor(entity, field, true);
+            field.setter = accessor(entity, field, false);
+            if (field.getter == null || field.setter == null) {
+                return false;
+            }
+            field.blindIndexShadow = shadowField(entity, field, "blindIndex", "java.lang.String", "盲索引");
+            field.orderIndexShadow = shadowField(entity, field, "orderIndex", "java.lang.Long", "保序索引");
+            if (!accessible(field.blindIndexShadow) || !accessible(field.orderIndexShadow)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 按影子列名或其驼峰形式查找影子属性并解析读写表达式，与运行期反射解析的规则一致
+     *
+     * @param attribute 注解属性名
+     * @param type 影子属性类型的全限定名
+     * @return 影子属性，未配置或找不到指定类型的影子属性时返回null
+     */
+    private EncryptedField shadowField(TypeElement entity, EncryptedField field, String attribute, String type,
+                                       String kind) {
+        String column = shadowColumn(field, attribute);
+        if (column.isEmpty()) {
+            return null;
+        }
+        EncryptedField shadow = findField(entity, column);
+        if (shadow == null) {
+            shadow = findField(entity, camelCase(column));
+        }
+        if (shadow == null || shadow.element.getModifiers().contains(Modifier.STATIC)
+                || !types.erasure(shadow.element.asType()).toString().equals(type)) {
+            messager.printMessage(Diagnostic.Kind.WARNING,
+                    "未找到" + kind + "影子属性: " + entity.getQualifiedName() + "." + column, field.element);
+            return null;
+        }
+        shadow.getter = accessor(entity, shadow, true);
+        shadow.setter = accessor(entity, shadow, false);
+        return shadow;
+    }
+
+    private static boolean accessible(EncryptedField shadow) {
+        return shadow == null || (shadow.getter != null && shadow.setter != null);
+    }
+
+    private EncryptedField findField(TypeElement entity, String name) {
+        for (TypeElement current = entity; current != null; current = superclass(current)) {
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                if (field.getSimpleName().contentEquals(name)) {
+                    return new EncryptedField(current, field, name);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 解析字段的读写表达式
+     *
+     * @return getter 时为 "getXxx()"，setter 时为 "setXxx("；直接访问字段时为字段名；无法访问时返回null
+     */
+    private String accessor(TypeElement entity, EncryptedField field, boolean getter) {
+        String name = field.element.getSimpleName().toString();
+        String methodName = (getter ? "get" : "set") + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+
+        if (hasMethod(entity, methodName, getter ? 0 : 1) || hasLombokAccessor(field, getter)) {
+            return getter ? methodName + "()" : methodName + "(";
+        }
+
+        // 同包内的非私有字段可以直接访问
+        Set<Modifier> modifiers = field.element.getModifiers();
+        if (!modifiers.contains(Modifier.PRIVATE) && (getter || !modifiers.contains(Modifier.FINAL))
+                && samePackage(entity, field.declaringType)) {
+            return name;
+        }
+        return null;
+    }
+
+    private boolean hasMethod(TypeElement entity, String methodName, int parameterCount) {
+        for (TypeElement current = entity; current != null; current = superclass(current)) {
+            for (ExecutableElement method : ElementFilter.methodsIn(current.getEnclosedElements())) {
+                if (method.getSimpleName().contentEquals(methodName)
+                        && method.getParameters().size() == parameterCount
+                        && !method.getModifiers().contains(Modifier.PRIVATE)
+                        && !method.getModifiers().contains(Modifier.STATIC)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Lombok生成的访问方法在本处理器运行时不一定可见，按注解判断
+     */
+    private boolean hasLombokAccessor(EncryptedField field, boolean getter) {
+        String accessorAnnotation = getter ? "lombok.Getter" : "lombok.Setter";
+        if (findAnnotation(field.element, accessorAnnotation) != null) {
+            return true;
+        }
+        TypeElement type = field.declaringType;
+        if (findAnnotation(type, "lombok.Data") != null || findAnnotation(type, accessorAnnotation) != null) {
+            return true;
+        }
+        return getter && findAnnotation(type, "lombok.Value") != null;
+    }
+
+    private String writeEncryptor(TypeElement entity, List<EncryptedField> fields) {
+        String packageName = packageName(entity);
+        String simpleName = generatedSimpleName(entity);
+        String qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+        String entityName = entity.getQualifiedName().toString();
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("/**\n")
+                .append(" * ").append(entity.getSimpleName()).append(" 的加密字段访问器，由 EncryptFieldProcessor 生成，请勿修改\n")
+                .append(" */\n")
+                .append("public final class ").append(simpleName)
+                .append(" implements ").append(ENTITY_ENCRYPTOR).append("<").append(entityName).append("> {\n\n");
+
+        source.append("    private static final String[] FIELD_NAMES = {");
+        appendStrings(source, fields, 0);
+        source.append("};\n\n");
+        source.append("    private static final String[] ALGORITHMS = {");
+        appendStrings(source, fields, 1);
+        source.append("};\n\n");
+        source.append("    private static final Class<?>[] STRATEGY_TYPES = {");
+        for (int i = 0; i < fields.size(); i++) {
+            source.append(i == 0 ? "" : ", ").append(strategyType(fields.get(i))).append(".class");
+        }
+        source.append("};\n\n");
+        source.append("    private static final String[] BLIND_INDEX_COLUMNS = {");
+        appendStrings(source, fields, 2);
+        source.append("};\n\n");
+        source.append("    private static final String[] ORDER_INDEX_COLUMNS = {");
+        appendStrings(source, fields, 3);
+        source.append("};\n\n");
+
+        source.append("    @Override\n")
+                .append("    public Class<").append(entityName).append("> getEntityType() {\n")
+                .append("        return ").append(entityName).append(".class;\n")
+                .append("    }\n\n");
+        source.append("    @Override\n")
+                .append("    public String[] getFieldNames() {\n")
+                .append("        return FIELD_NAMES.clone();\n")
+                .append("    }\n\n");
+        source.append("    @Override\n")
+                .append("    public String[] getAlgorithms() {\n")
+                .append("        return ALGORITHMS.clone();\n")
+                .append("    }\n\n");
+        source.append("    @Override\n")
+                .append("    public Class<?>[] getStrategyTypes() {\n")
+                .append("        return STRATEGY_TYPES.clone();\n")
+                .append("    }\n\n");
+        source.append("    @Override\n")
+                .append("    public String[] getBlindIndexColumns() {\n")
+                .append("        return BLIND_INDEX_COLUMNS.clone();\n")
+                .append("    }\n\n");
+        source.append("    @Override\n")
+                .append("    public String[] getOrderIndexColumns() {\n")
+                .append("        return ORDER_INDEX_COLUMNS.clone();\n")
+                .append("    }\n\n");
+
+        source.append("    @Override\n")
+                .append("    public Object getValue(").append(entityName).append(" entity, int index) {\n")
+                .append("        switch (index) {\n");
+        for (int i = 0; i < fields.size(); i++) {
+            EncryptedField field = fields.get(i);
+            source.append("            case ").append(i).append(":\n")
+                    .append("                return entity.").append(field.getter).append(";\n");
+        }
+        source.append("            default:\n")
+                .append("                throw new IndexOutOfBoundsException(String.valueOf(index));\n")
+                .append("        }\n")
+                .append("    }\n\n");
+
+        source.append("    @Override\n")
+                .append("    public void setValue(").append(entityName).append(" entity, int index, Object value) {\n")
+                .append("        switch (index) {\n");
+        for (int i = 0; i < fields.size(); i++) {
+            EncryptedField field = fields.get(i);
+            String cast = "(" + boxedTypeName(field.element.asType()) + ") value";
+            source.append("            case ").append(i).append(":\n");
+            if (field.setter.endsWith("(")) {
+                source.append("                entity.").append(field.setter).append(cast).append(");\n");
+            } else {
+                source.append("                entity.").append(field.setter).append(" = ").append(cast).append(";\n");
+            }
+            source.append("                break;\n");
+        }
+        source.append("            default:\n")
+                .append("                throw new IndexOutOfBoundsException(String.valueOf(index));\n")
+                .append("        }\n")
+                .append("    }\n");
+
+        appendShadowAccessors(source, entityName, fields, true);
+        appendShadowAccessors(source, entityName, fields, false);
+        source.append("}\n");
+
+        try {
+            JavaFileObject file = filer.createSourceFile(qualifiedName, entity);
+            try (Writer writer = file.openWriter()) {
+                writer.write(source.toString());
+            }
+            return qualifiedName;
+        } catch (IOException e) {
+            messager.printMessage(Diagnostic.Kind.WARNING, "生成加密器失败: " + e.getMessage(), entity);
+            return null;
+        }
+    }
+
+    /**
+     * 生成盲索引或保序索引影子属性的读写方法，只包含找到影子属性的字段
+     */
+    private void appendShadowAccessors(StringBuilder source, String entityName, List<EncryptedField> fields,
+                                       boolean blindIndex) {
+        String kind = blindIndex ? "BlindIndex" : "OrderIndex";
+        String type = blindIndex ? "String" : "Long";
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < fields.size(); i++) {
+            if (shadow(fields.get(i), blindIndex) != null) {
+                indexes.add(i);
+            }
+        }
+        if (indexes.isEmpty()) {
+            return;
+        }
+
+        source.append("\n    @Override\n")
+                .append("    public ").append(type).append(" get").append(kind).append("(")
+                .append(entityName).append(" entity, int index) {\n")
+                .append("        switch (index) {\n");
+        for (int i : indexes) {
+            source.append("            case ").append(i).append(":\n")
+                    .append("                return entity.").append(shadow(fields.get(i), blindIndex).getter).append(";\n");
+        }
+        source.append("            default:\n")
+                .append("                throw new IndexOutOfBoundsException(String.valueOf(index));\n")
+                .append("        }\n")
+                .append("    }\n\n");
+
+        source.append("    @Override\n")
+                .append("    public void set").append(kind).append("(").append(entityName)
+                .append(" entity, int index, ").append(type).append(" value) {\n")
+                .append("        switch (index) {\n");
+        for (int i : indexes) {
+            String setter = shadow(fields.get(i), blindIndex).setter;
+            source.append("            case ").append(i).append(":\n");
+            if (setter.endsWith("(")) {
+                source.append("                entity.").append(setter).append("value);\n");
+            } else {
+                source.append("                entity.").append(setter).append(" = value;\n");
+            }
+            source.append("                break;\n");
+        }
+        source.append("            default:\n")
+                .append("                throw new IndexOutOfBoundsException(String.valueOf(index));\n")
+                .append("        }\n")
+                .append("    }\n");
+    }
+
+    private static EncryptedField shadow(EncryptedField field, boolean blindIndex) {
+        return blindIndex ? field.blindIndexShadow : field.orderIndexShadow;
+    }
+
+    /**
+     * @param kind 0 字段名，1 加密算法，2 盲索引影子列，3 保序索引影子列
+     */
+    private void appendStrings(StringBuilder source, List<EncryptedField> fields, int kind) {
+        for (int i = 0; i < fields.size(); i++) {
+            EncryptedField field = fields.get(i);
+            String value;
+            if (kind == 0) {
+                value = field.element.getSimpleName().toString();
+            } else if (kind == 1) {
+                value = algorithm(field);
+            } else {
+                value = shadow(field, kind == 2) == null ? "" : shadowColumn(field, kind == 2 ? "blindIndex" : "orderIndex");
+            }
+            source.append(i == 0 ? "" : ", ").append('"').append(escape(value)).append('"');
+        }
+    }
+
+    private void writeIndex() {
+        Map<String, String> content = new TreeMap<>();
+        boolean existing = readExistingIndex(content);
+        for (Map.Entry<String, IndexEntry> entry : index.entrySet()) {
+            IndexEntry value = entry.getValue();
+            StringBuilder lines = new StringBuilder();
+            appendProperty(lines, entry.getKey(), TABLE_SUFFIX, value.table);
+            appendProperty(lines, entry.getKey(), COLUMNS_SUFFIX, String.join(",", value.columns));
+            appendProperty(lines, entry.getKey(), BLIND_INDEXES_SUFFIX, String.join(",", value.blindIndexes));
+            appendProperty(lines, entry.getKey(), LIKE_INDEXES_SUFFIX, String.join(",", value.likeIndexes));
+            appendProperty(lines, entry.getKey(), ORDER_INDEXES_SUFFIX, String.join(",", value.orderIndexes));
+            appendProperty(lines, entry.getKey(), ENCRYPTOR_CLASS_SUFFIX, value.encryptor);
+            content.put(entry.getKey(), lines.toString());
+        }
+        if (content.isEmpty() && !existing) {
+            return;
+        }
+        StringBuilder text = new StringBuilder("# Generated by EncryptFieldProcessor\n");
+        content.values().forEach(text::append);
+        try {
+            FileObject file = filer.createResource(StandardLocation.CLASS_OUTPUT, "", INDEX_LOCATION);
+            try (Writer writer = new OutputStreamWriter(file.openOutputStream(), StandardCharsets.UTF_8)) {
+                writer.write(text.toString());
+            }
+        } catch (IOException e) {
+            messager.printMessage(Diagnostic.Kind.WARNING, "生成加密实体索引失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 读取输出目录中已有的索引（IDE、Gradle增量编译只编译变化的类），保留未重新编译且仍存在的实体
+     *
+     * @return 是否存在已有的索引
+     */
+    private boolean readExistingIndex(Map<String, String> content) {
+        Properties properties = new Properties();
+        try {
+            FileObject file = filer.getResource(StandardLocation.CLASS_OUTPUT, "", INDEX_LOCATION);
+            try (Reader reader = new InputStreamReader(file.openInputStream(), StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // 全量编译时没有已有的索引
+            return false;
+        }
+        for (String key : properties.stringPropertyNames()) {
+            if (!key.endsWith(TABLE_SUFFIX)) {
+                continue;
+            }
+            String className = key.substring(0, key.length() - TABLE_SUFFIX.length());
+            // 重新编译的类以本次结果为准，已删除的类不再保留
+            if (compiledTypes.contains(className) || elements.getTypeElement(className.replace('$', '.')) == null) {
+                continue;
+            }
+            StringBuilder lines = new StringBuilder();
+            for (String suffix : INDEX_SUFFIXES) {
+                appendProperty(lines, className, suffix, properties.getProperty(className + suffix));
+            }
+            content.put(className, lines.toString());
+        }
+        return true;
+    }
+
+    private static void appendProperty(StringBuilder lines, String className, String suffix, String value) {
+        if (value != null && !value.isEmpty()) {
+            lines.append(className).append(suffix).append('=').append(value).append('\n');
+        }
+    }
+
+    /**
+     * 表名：优先 @TableName，否则与运行期一致按类名推断（去掉 Entity/Model/DTO 后缀并转小写）
+     */
+    private String tableName(TypeElement entity) {
+        String tableName = annotationValueBySimpleName(entity, "TableName", "value");
+        if (tableName != null && !tableName.trim().isEmpty()) {
+            return tableName.trim();
+        }
+        String className = entity.getSimpleName().toString();
+        if (className.endsWith("Entity")) {
+            return className.substring(0, className.length() - 6).toLowerCase(Locale.ROOT);
+        } else if (className.endsWith("Model")) {
+            return className.substring(0, className.length() - 5).toLowerCase(Locale.ROOT);
+        } else if (className.endsWith("DTO")) {
+            return className.substring(0, className.length() - 3).toLowerCase(Locale.ROOT);
+        }
+        return className.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 列名：优先 @TableField 的 value，否则驼峰转下划线
+     */
+    private String columnName(VariableElement field) {
+        String column = annotationValueBySimpleName(field, "TableField", "value");
+        if (column != null && !column.trim().isEmpty()) {
+            return column.trim();
+        }
+        String name = field.getSimpleName().toString();
+        StringBuilder builder = new StringBuilder(name.length() + 4);
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isUpperCase(c)) {
+                if (i > 0) {
+                    builder.append('_');
+                }
+                builder.append(Character.toLowerCase(c));
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    private String algorithm(EncryptedField field) {
+        AnnotationMirror annotation = findAnnotation(field.element, ENCRYPT_FIELD);
+        Object value = annotationValue(annotation, "algorithm");
+        return value == null ? "AES" : value.toString();
+    }
+
+    /**
+     * 盲索引或保序索引的影子列名，未设置时为空串
+     *
+     * @param attribute 注解属性名
+     */
+    private String shadowColumn(EncryptedField field, String attribute) {
+        AnnotationMirror annotation = findAnnotation(field.element, ENCRYPT_FIELD);
+        Object value = annotationValue(annotation, attribute);
+        return value == null ? "" : value.toString().trim();
+    }
+
+    private String strategyType(EncryptedField field) {
+        AnnotationMirror annotation = findAnnotation(field.element, ENCRYPT_FIELD);
+        Object value = annotationValue(annotation, "strategy");
+        if (value instanceof TypeMirror) {
+            return types.erasure((TypeMirror) value).toString();
+        }
+        return "Object";
+    }
+
+    private boolean booleanValue(AnnotationMirror annotation, String name, boolean defaultValue) {
+        Object value = annotationValue(annotation, name);
+        return value instanceof Boolean ? (Boolean) value : defaultValue;
+    }
+
+    private Object annotationValue(AnnotationMirror annotation, String name) {
+        if (annotation == null) {
+            return null;
+        }
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : annotation.getElementValues().entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) {
+                return entry.getValue().getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 按简单名查找注解的取值，兼容不同版本 MyBatis-Plus 的 @TableName/@TableField
+     */
+    private String annotationValueBySimpleName(Element element, String annotationName, String name) {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            if (annotation.getAnnotationType().asElement().getSimpleName().contentEquals(annotationName)) {
+                Object value = annotationValue(annotation, name);
+                return value == null ? null : value.toString();
+            }
+        }
+        return null;
+    }
+
+    private AnnotationMirror findAnnotation(Element element, String annotationName) {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            TypeElement type = (TypeElement) annotation.getAnnotationType().asElement();
+            if (type.getQualifiedName().contentEquals(annotationName)) {
+                return annotation;
+            }
+        }
+        return null;
+    }
+
+    private TypeElement superclass(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        TypeElement element = (TypeElement) ((DeclaredType) superclass).asElement();
+        return element.getQualifiedName().contentEquals("java.lang.Object") ? null : element;
+    }
+
+    private boolean samePackage(TypeElement a, TypeElement b) {
+        return packageName(a).equals(packageName(b));
+    }
+
+    private String packageName(TypeElement type) {
+        PackageElement packageElement = elements.getPackageOf(type);
+        return packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+    }
+
+    /**
+     * 生成类名：嵌套类用下划线连接外部类名，如 Outer.Inner -> Outer_Inner_Encryptor
+     */
+    private String generatedSimpleName(TypeElement entity) {
+        String binaryName = elements.getBinaryName(entity).toString();
+        String packageName = packageName(entity);
+        String name = packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1);
+        return name.replace('$', '_') + ENCRYPTOR_SUFFIX;
+    }
+
+    private String boxedTypeName(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return types.boxedClass(types.getPrimitiveType(type.getKind())).getQualifiedName().toString();
+        }
+        return types.erasure(type).toString();
+    }
+
+    /**
+     * 下划线列名转驼峰属性名，如 phone_bidx -> phoneBidx，与运行期一致
+     */
+    private static String camelCase(String column) {
+        StringBuilder builder = new StringBuilder(column.length());
+        boolean upper = false;
+        for (int i = 0; i < column.length(); i++) {
+            char c = column.charAt(i);
+            if (c == '_') {
+                upper = builder.length() > 0;
+            } else {
+                builder.append(upper ? Character.toUpperCase(c) : Character.toLowerCase(c));
+                upper = false;
+            }
+        }
+        return builder.toString();
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    /**
+     * 加密字段
+     */
+    private static final class EncryptedField {
+        private final TypeElement declaringType;
+        private final VariableElement element;
+        private final String column;
+        private String getter;
+        private String setter;
+        private EncryptedField blindIndexShadow;
+        private EncryptedField orderIndexShadow;
+
+        private EncryptedField(TypeElement declaringType, VariableElement element, String column) {
+            this.declaringType = declaringType;
+            this.element = element;
+            this.column = column;
+        }
+    }
+
+    /**
+     * 索引条目
+     */
+    private static final class IndexEntry {
+        private final String table;
+        private final List<String> columns;
+        private final List<String> blindIndexes;
+        private final List<String> likeIndexes;
+        private final List<String> orderIndexes;
+        private final String encryptor;
+
+        private IndexEntry(String table, List<String> columns, List<String> blindIndexes, List<String> likeIndexes,
+                           List<String> orderIndexes, String encryptor) {
+            this.table = table;
+            this.columns = columns;
+            this.blindIndexes = blindIndexes;
+            this.likeIndexes = likeIndexes;
+            this.orderIndexes = orderIndexes;
+            this.encryptor = encryptor;
+        }
+    }
+}